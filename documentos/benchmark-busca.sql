@@ -0,0 +1,64 @@
+
+-- benchmark da busca de lançamentos em uma tabela com 10 milhões de registros
+-- executar no psql em um banco de testes criado com o schema.sql:
+--   psql -d minhasfinancas_benchmark -f documentos/benchmark-busca.sql
+-- o script compara os planos e os tempos das consultas sem e com os índices de busca
+
+\timing on
+
+-- massa de dados: 1.000 usuários com 10.000 lançamentos cada, distribuídos entre 2010 e 2024
+INSERT INTO financas.usuario (nome, email, senha)
+SELECT 'usuario ' || u, 'usuario' || u || '@benchmark.com', 'senha'
+FROM generate_series(1, 1000) AS u;
+
+INSERT INTO financas.lancamento (descricao, mes, ano, valor, tipo, status, id_usuario)
+SELECT (ARRAY['aluguel', 'salario', 'mercado', 'farmacia', 'combustivel', 'academia', 'internet', 'restaurante'])[1 + (n % 8)] || ' ' || (n % 997),
+       1 + (n % 12),
+       2010 + (n % 15),
+       round((random() * 1000)::numeric, 2),
+       CASE WHEN n % 5 = 0 THEN 'RECEITA' ELSE 'DESPESA' END,
+       CASE WHEN n % 3 = 0 THEN 'PENDENTE' ELSE 'EFETIVADO' END,
+       1 + (n % 1000)
+FROM generate_series(1, 10000000) AS n;
+
+-- 1) sem os índices de busca (equivalente à busca antiga por Example)
+DROP INDEX IF EXISTS financas.idx_lancamento_usuario_ano_mes;
+DROP INDEX IF EXISTS financas.idx_lancamento_descricao_trgm;
+ANALYZE financas.lancamento;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM financas.lancamento l
+WHERE l.id_usuario = 500 AND l.ano = 2020 AND l.mes = 6
+ORDER BY l.ano, l.mes, l.id;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM financas.lancamento l
+WHERE l.id_usuario = 500 AND lower(l.descricao) LIKE '%rcad%'
+ORDER BY l.ano, l.mes, l.id;
+
+-- 2) com os índices declarados no schema.sql
+CREATE INDEX idx_lancamento_usuario_ano_mes ON financas.lancamento (id_usuario, ano, mes, id);
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_lancamento_descricao_trgm ON financas.lancamento USING gin (lower(descricao) gin_trgm_ops);
+ANALYZE financas.lancamento;
+
+-- esperado: 'Index Scan using idx_lancamento_usuario_ano_mes' no lugar de 'Seq Scan'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM financas.lancamento l
+WHERE l.id_usuario = 500 AND l.ano = 2020 AND l.mes = 6
+ORDER BY l.ano, l.mes, l.id;
+
+-- esperado: leitura pelo índice do usuário ou 'BitmapAnd' entre os dois índices
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM financas.lancamento l
+WHERE l.id_usuario = 500 AND lower(l.descricao) LIKE '%rcad%'
+ORDER BY l.ano, l.mes, l.id;
+
+-- página por cursor (keyset) no meio do histórico do usuário
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM financas.lancamento l
+WHERE l.id_usuario = 500
+  AND l.ano >= 2017
+  AND (l.ano > 2017 OR (l.ano = 2017 AND (l.mes > 6 OR (l.mes = 6 AND l.id > 0))))
+ORDER BY l.ano, l.mes, l.id
+LIMIT 51;
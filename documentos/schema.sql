@@ -10,19 +10,242 @@ CREATE TABLE financas.usuario
   id bigserial NOT NULL PRIMARY KEY,
   nome character varying(150),
   email character varying(100),
-  senha character varying(20),
+  senha character varying(100),
+  moeda character(3) NOT NULL default 'BRL',
   data_cadastro date default now()
 );
 
+-- moeda (iso 4217) em que o saldo e os resumos do usuário são mantidos
+-- em bancos já existentes: ALTER TABLE financas.usuario ADD COLUMN moeda character(3) NOT NULL default 'BRL';
+
+-- o login busca o usuário pelo e-mail, que deve ser único
+-- a senha guarda o hash bcrypt (60 caracteres)
+-- em bancos já existentes: ALTER TABLE financas.usuario ALTER COLUMN senha TYPE character varying(100);
+CREATE UNIQUE INDEX uk_usuario_email ON financas.usuario (email);
+
+-- categorias dos lançamentos de cada usuário; id_categoria_pai nulo nas categorias de primeiro nível
+-- a árvore (no máximo 5 níveis) é montada em memória a partir das categorias do usuário
+CREATE TABLE financas.categoria
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id),
+  nome character varying(50) NOT NULL,
+  id_categoria_pai bigint REFERENCES financas.categoria (id)
+);
+
+CREATE INDEX idx_categoria_usuario ON financas.categoria (id_usuario);
+
+-- o incremento deve ser igual ao 'allocationSize' do @SequenceGenerator da entidade Lancamento
+-- em bancos já existentes: ALTER SEQUENCE financas.lancamento_id_seq INCREMENT BY 50;
+CREATE SEQUENCE financas.lancamento_id_seq INCREMENT BY 50;
+
+-- particionada por ano (range): as buscas filtram por usuário e ano, então o postgresql lê apenas as partições do intervalo
+-- a chave primária de uma tabela particionada precisa conter a coluna da partição (o id continua único pela sequence)
+-- a alteração do ano de um lançamento move a linha para a outra partição (postgresql 11+)
 CREATE TABLE financas.lancamento
 (
-  id bigserial NOT NULL PRIMARY KEY ,
+  id bigint NOT NULL default nextval('financas.lancamento_id_seq'),
   descricao character varying(100) NOT NULL,
   mes integer NOT NULL,
   ano integer NOT NULL,
   valor numeric(16,2) NOT NULL,
+  moeda character(3) NOT NULL default 'BRL',
   tipo character varying(20) NOT NULL CHECK ( tipo in ('RECEITA', 'DESPESA')),
   status character varying(20) NOT NULL CHECK ( status in ('PENDENTE', 'CANCELADO', 'EFETIVADO')),
   id_usuario bigint NOT NULL REFERENCES financas.usuario (id),
-  data_cadastro date NOT NULL default now()
-);
\ No newline at end of file
+  data_cadastro date NOT NULL default now(),
+  id_recorrencia bigint,
+  id_categoria bigint REFERENCES financas.categoria (id),
+  versao bigint NOT NULL default 0,
+  PRIMARY KEY (id, ano)
+) PARTITION BY RANGE (ano);
+
+-- uma partição por ano; as dos próximos anos são criadas pela rotina de manutenção (ParticoesLancamentoJob)
+-- a partição padrão recebe apenas anos fora das partições existentes e deve ficar vazia:
+-- para criar a partição de um ano que já tem linhas na padrão, mova-as antes (insert na nova tabela + delete na padrão)
+CREATE TABLE financas.lancamento_padrao PARTITION OF financas.lancamento DEFAULT;
+
+DO $$
+BEGIN
+  FOR ano IN 2000 .. extract(year from now())::integer + 2 LOOP
+    EXECUTE format('CREATE TABLE financas.lancamento_%s PARTITION OF financas.lancamento FOR VALUES FROM (%s) TO (%s)', ano, ano, ano + 1);
+  END LOOP;
+END $$;
+
+-- partições antigas podem ser movidas para um tablespace de disco mais barato pela rotina de manutenção
+-- (propriedade minhasfinancas.particoes.tablespace-arquivo), por exemplo:
+-- CREATE TABLESPACE arquivo LOCATION '/mnt/arquivo/postgresql';
+
+-- migração de um banco existente (tabela sem partições):
+-- ALTER TABLE financas.lancamento RENAME TO lancamento_antiga;
+-- (criar financas.lancamento, as partições e os índices como acima)
+-- INSERT INTO financas.lancamento SELECT * FROM financas.lancamento_antiga;
+-- DROP TABLE financas.lancamento_antiga;
+
+-- as buscas de lançamentos sempre filtram por usuário e, na maioria das vezes, por ano e mês
+-- o 'id' no final do índice atende a ordenação e a paginação por cursor (ano, mes, id)
+-- os índices criados na tabela particionada são criados também em cada partição
+CREATE INDEX idx_lancamento_usuario_ano_mes ON financas.lancamento (id_usuario, ano, mes, id);
+
+-- no máximo uma ocorrência de cada recorrência por mês (lançamentos sem recorrência têm id_recorrencia nulo e não conflitam)
+-- em bancos já existentes: ALTER TABLE financas.lancamento ADD COLUMN id_recorrencia bigint;
+CREATE UNIQUE INDEX uk_lancamento_recorrencia ON financas.lancamento (id_recorrencia, ano, mes);
+
+-- moeda do valor do lançamento; saldos e resumos são convertidos para a moeda do usuário pelas cotações
+-- do arquivo configurado em minhasfinancas.cotacoes.arquivo (padrão: cotacoes.csv no classpath)
+-- em bancos já existentes (todos os valores na moeda padrão dos usuários):
+-- ALTER TABLE financas.lancamento ADD COLUMN moeda character(3) NOT NULL default 'BRL';
+-- ALTER TABLE financas.recorrencia ADD COLUMN moeda character(3) NOT NULL default 'BRL';
+-- ALTER TABLE financas.evento_lancamento ADD COLUMN moeda character(3);
+
+-- busca por categoria (com as subcategorias: 'id_categoria in (...)') e verificação de uso na exclusão da categoria
+-- em bancos já existentes:
+-- ALTER TABLE financas.lancamento ADD COLUMN id_categoria bigint REFERENCES financas.categoria (id);
+-- ALTER TABLE financas.recorrencia ADD COLUMN id_categoria bigint REFERENCES financas.categoria (id);
+CREATE INDEX idx_lancamento_categoria ON financas.lancamento (id_categoria, ano, mes, id);
+
+-- versão do lançamento para o controle de concorrência otimista (@Version): os updates incluem 'where versao = ?'
+-- em bancos já existentes:
+-- ALTER TABLE financas.lancamento ADD COLUMN versao bigint NOT NULL default 0;
+
+-- etiquetas livres dos lançamentos (minúsculas, no máximo 20 por lançamento)
+-- sem chave estrangeira: a chave primária da tabela particionada é (id, ano); as etiquetas são excluídas junto com o lançamento pela aplicação
+-- o índice (tag, id_lancamento) atende a busca por etiqueta ( :tag member of l.tags ) sem ler a tabela
+CREATE TABLE financas.lancamento_tag
+(
+  id_lancamento bigint NOT NULL,
+  tag character varying(50) NOT NULL,
+  PRIMARY KEY (id_lancamento, tag)
+);
+
+CREATE INDEX idx_lancamento_tag ON financas.lancamento_tag (tag, id_lancamento);
+
+-- índice trigram para a busca por qualquer parte da descrição ( lower(descricao) like '%texto%' )
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_lancamento_descricao_trgm ON financas.lancamento USING gin (lower(descricao) gin_trgm_ops);
+
+-- saldo efetivado de cada usuário, mantido a cada gravação de lançamento
+-- pode ser reconstruído a partir de financas.lancamento pela rotina de verificação de saldos
+-- a versão aumenta a cada gravação de lançamentos do usuário e é o ETag das consultas de lançamentos e do saldo
+-- em bancos já existentes: ALTER TABLE financas.saldo_usuario ADD COLUMN versao bigint NOT NULL default 0;
+CREATE TABLE financas.saldo_usuario
+(
+  id_usuario bigint NOT NULL PRIMARY KEY REFERENCES financas.usuario (id),
+  valor numeric(16,2) NOT NULL default 0,
+  versao bigint NOT NULL default 0
+);
+
+-- totais dos lançamentos por usuário, ano, mês, tipo e status, mantidos a cada gravação de lançamento
+-- a chave primária atende a consulta do resumo de um intervalo de anos (GET /api/lancamentos/resumo)
+CREATE TABLE financas.resumo_mensal
+(
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id),
+  ano integer NOT NULL,
+  mes integer NOT NULL,
+  tipo character varying(20) NOT NULL,
+  status character varying(20) NOT NULL,
+  valor numeric(16,2) NOT NULL default 0,
+  quantidade bigint NOT NULL default 0,
+  PRIMARY KEY (id_usuario, ano, mes, tipo, status)
+);
+
+-- carga inicial em bancos já existentes (antes de haver lançamentos em outras moedas, os valores já estão na moeda do usuário)
+INSERT INTO financas.resumo_mensal (id_usuario, ano, mes, tipo, status, valor, quantidade)
+SELECT id_usuario, ano, mes, tipo, status, sum(valor), count(*)
+  FROM financas.lancamento
+ GROUP BY id_usuario, ano, mes, tipo, status;
+
+-- caixa de saída (outbox) das alterações de lançamentos, gravada na mesma transação do lançamento
+-- os eventos são entregues aos consumidores pelo despacho (DespachoEventosJob) e os processados são excluídos após a retenção
+CREATE SEQUENCE financas.evento_lancamento_id_seq INCREMENT BY 50;
+
+CREATE TABLE financas.evento_lancamento
+(
+  id bigint NOT NULL PRIMARY KEY default nextval('financas.evento_lancamento_id_seq'),
+  operacao character varying(20) NOT NULL,
+  id_lancamento bigint NOT NULL,
+  id_usuario bigint NOT NULL,
+  ano integer,
+  mes integer,
+  tipo character varying(20),
+  status character varying(20),
+  valor numeric(16,2),
+  moeda character(3),
+  situacao character varying(20) NOT NULL CHECK ( situacao in ('PENDENTE', 'PROCESSADO', 'FALHA')),
+  tentativas integer NOT NULL default 0,
+  data_criacao timestamp NOT NULL default now(),
+  proxima_tentativa timestamp NOT NULL default now(),
+  data_processamento timestamp,
+  erro character varying(500)
+);
+
+-- índice parcial: o despacho só lê os pendentes, que são poucos perto dos processados
+CREATE INDEX idx_evento_lancamento_pendente ON financas.evento_lancamento (proxima_tentativa, id) WHERE situacao = 'PENDENTE';
+
+-- regras de lançamentos recorrentes; as ocorrências são geradas pela rotina de recorrências (RecorrenciasJob)
+-- proximo_ano/proximo_mes é a próxima ocorrência ainda não gerada e avança na mesma transação da gravação das ocorrências
+CREATE TABLE financas.recorrencia
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id),
+  id_lancamento_modelo bigint,
+  descricao character varying(100) NOT NULL,
+  valor numeric(16,2) NOT NULL,
+  moeda character(3) NOT NULL default 'BRL',
+  tipo character varying(20) NOT NULL CHECK ( tipo in ('RECEITA', 'DESPESA')),
+  periodicidade character varying(20) NOT NULL CHECK ( periodicidade in ('MENSAL', 'ANUAL')),
+  intervalo integer NOT NULL default 1 CHECK ( intervalo > 0 ),
+  proximo_ano integer NOT NULL,
+  proximo_mes integer NOT NULL,
+  ano_final integer,
+  mes_final integer,
+  ativa boolean NOT NULL default true,
+  id_categoria bigint REFERENCES financas.categoria (id)
+);
+
+CREATE INDEX idx_recorrencia_proxima ON financas.recorrencia (proximo_ano, proximo_mes) WHERE ativa;
+
+-- totais dos lançamentos por usuário, categoria, ano, mês, tipo e status, mantidos a cada gravação de lançamento (como o resumo_mensal)
+-- lançamentos sem categoria não entram; GET /api/categorias/totais soma as subcategorias nas categorias acima delas
+CREATE TABLE financas.resumo_categoria
+(
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id),
+  id_categoria bigint NOT NULL REFERENCES financas.categoria (id),
+  ano integer NOT NULL,
+  mes integer NOT NULL,
+  tipo character varying(20) NOT NULL,
+  status character varying(20) NOT NULL,
+  valor numeric(16,2) NOT NULL default 0,
+  quantidade bigint NOT NULL default 0,
+  PRIMARY KEY (id_usuario, ano, id_categoria, mes, tipo, status)
+);
+
+-- limite mensal de despesas de uma categoria (um orçamento por categoria), na moeda do usuário
+-- os gastos de cada mês não são gravados: ficam em contadores em memória carregados de financas.resumo_categoria
+CREATE TABLE financas.orcamento
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id),
+  id_categoria bigint NOT NULL REFERENCES financas.categoria (id),
+  valor numeric(16,2) NOT NULL CHECK ( valor > 0 ),
+  CONSTRAINT uk_orcamento_usuario_categoria UNIQUE (id_usuario, id_categoria)
+);
+
+-- chaves 'Idempotency-Key' das gravações repetidas pelos clientes (POST de lançamentos e usuários)
+-- a chave única reserva a chave antes da gravação: a segunda requisição concorrente falha no insert e não grava de novo
+-- status nulo = em andamento; as linhas são excluídas depois da validade (IdempotenciaJob)
+CREATE TABLE financas.requisicao_idempotente
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  escopo character varying(50) NOT NULL,
+  chave character varying(100) NOT NULL,
+  hash character(64) NOT NULL,
+  status integer,
+  tipo_conteudo character varying(100),
+  corpo text,
+  cabecalhos text,
+  data_criacao timestamp NOT NULL default now(),
+  CONSTRAINT uk_requisicao_idempotente_chave UNIQUE (escopo, chave)
+);
+
+CREATE INDEX idx_requisicao_idempotente_data ON financas.requisicao_idempotente (data_criacao);
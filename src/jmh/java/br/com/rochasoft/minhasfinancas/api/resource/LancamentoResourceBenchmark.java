@@ -0,0 +1,81 @@
+package br.com.rochasoft.minhasfinancas.api.resource;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.rochasoft.minhasfinancas.api.dto.LancamentoDTO;
+import br.com.rochasoft.minhasfinancas.benchmark.BaseDadosBenchmark;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+
+// conversões dto <-> entidade do LancamentoResource (fica no mesmo pacote para acessar os métodos 'converter')
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class LancamentoResourceBenchmark
+{
+
+	private LancamentoResource resource;
+
+	private LancamentoDTO dto;
+	private Lancamento    lancamento;
+
+	@Setup(Level.Trial)
+	public void preparar(BaseDadosBenchmark base)
+	{
+
+		resource = base.getBean(LancamentoResource.class);
+
+		dto = LancamentoDTO.builder()
+				.descricao("mercado")
+				.mes(6)
+				.ano(2020)
+				.valor(BigDecimal.TEN)
+				.usuario(BaseDadosBenchmark.ID_USUARIO)
+				.tipo(TipoLancamento.DESPESA.name())
+				.status(StatusLancamento.PENDENTE.name())
+				.build();
+
+		lancamento = Lancamento.builder()
+				.id(1l)
+				.descricao("mercado")
+				.mes(6)
+				.ano(2020)
+				.valor(BigDecimal.TEN)
+				.usuario(base.usuario)
+				.tipo(TipoLancamento.DESPESA)
+				.status(StatusLancamento.PENDENTE)
+				.build();
+
+	}
+
+	// inclui a busca do usuário (cache de usuários)
+	@Benchmark
+	public Lancamento converterDtoParaEntidade()
+	{
+		return resource.converter(dto);
+	}
+
+	@Benchmark
+	public LancamentoDTO converterEntidadeParaDto()
+	{
+		return resource.converter(lancamento);
+	}
+
+}
@@ -0,0 +1,120 @@
+package br.com.rochasoft.minhasfinancas.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import br.com.rochasoft.minhasfinancas.MinhasfinancasApplication;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.service.SaldoUsuarioService;
+import br.com.rochasoft.minhasfinancas.service.UsuarioService;
+
+// sobe a aplicação (servidor web em porta aleatória, exigida pelo @EnableWebMvc) sobre o h2 em memória e gera a massa de lançamentos
+// a quantidade de lançamentos é definida pelo parâmetro 'linhas' (ex: -p linhas=10000,1000000,10000000)
+// os lançamentos são distribuídos entre USUARIOS usuários e os benchmarks consultam o usuário 1
+@State(Scope.Benchmark)
+public class BaseDadosBenchmark
+{
+
+	public static final int  USUARIOS          = 100;
+	public static final long ID_USUARIO        = 1l;
+
+	private static final int TAMANHO_LOTE      = 10000;
+	private static final String[] DESCRICOES   = { "aluguel", "salario", "mercado", "farmacia", "combustivel", "academia", "internet", "restaurante" };
+
+	@Param({ "10000" })
+	public int linhas;
+
+	public ConfigurableApplicationContext contexto;
+
+	public Usuario usuario;
+
+	@Setup(Level.Trial)
+	public void iniciar()
+	{
+
+		SpringApplicationBuilder aplicacao = new SpringApplicationBuilder(MinhasfinancasApplication.class)
+				.profiles("test")
+				.properties("server.port=0", "logging.level.root=WARN");
+
+		configurar(aplicacao);
+
+		contexto = aplicacao.run();
+
+		popular(contexto.getBean(JdbcTemplate.class));
+
+		contexto.getBean(SaldoUsuarioService.class).recalcular(ID_USUARIO);
+
+		usuario = contexto.getBean(UsuarioService.class).obterPorId(ID_USUARIO).get();
+
+	}
+
+	@TearDown(Level.Trial)
+	public void encerrar()
+	{
+		contexto.close();
+	}
+
+	public <T> T getBean(Class<T> tipo)
+	{
+		return contexto.getBean(tipo);
+	}
+
+	// perfis e propriedades adicionais dos benchmarks que sobem a aplicação de outra forma
+	protected void configurar(SpringApplicationBuilder aplicacao)
+	{
+	}
+
+	private void popular(JdbcTemplate jdbcTemplate)
+	{
+
+		List<Object[]> usuarios = new ArrayList<>();
+
+		for (long id = 1; id <= USUARIOS; id++)
+		{
+			usuarios.add(new Object[] { id, "usuario " + id, "usuario" + id + "@benchmark.com", "senha" });
+		}
+
+		jdbcTemplate.batchUpdate("insert into financas.usuario (id, nome, email, senha) values (?, ?, ?, ?)", usuarios);
+
+		Date hoje = Date.valueOf(LocalDate.now());
+
+		List<Object[]> lote = new ArrayList<>(TAMANHO_LOTE);
+
+		for (long n = 1; n <= linhas; n++)
+		{
+
+			lote.add(new Object[] { n,
+					                DESCRICOES[(int) (n % DESCRICOES.length)] + " " + (n % 997),
+					                (int) (1 + n % 12),
+					                (int) (2010 + n % 15),
+					                BigDecimal.valueOf(n % 100000, 2),
+					                (n / USUARIOS) % 5 == 0 ? "RECEITA" : "DESPESA",
+					                (n / USUARIOS) % 3 == 0 ? "PENDENTE" : "EFETIVADO",
+					                1 + n % USUARIOS,
+					                hoje });
+
+			if (lote.size() == TAMANHO_LOTE || n == linhas)
+			{
+				jdbcTemplate.batchUpdate("insert into financas.lancamento (id, descricao, mes, ano, valor, tipo, status, id_usuario, data_cadastro, versao)" +
+				                         " values (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)", lote);
+				lote.clear();
+			}
+
+		}
+
+	}
+
+}
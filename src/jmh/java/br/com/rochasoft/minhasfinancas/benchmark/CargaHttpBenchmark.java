@@ -0,0 +1,202 @@
+package br.com.rochasoft.minhasfinancas.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// carga http sobre a aplicação nos dois modos de execução das requisições, cada um em um fork próprio:
+// - 'plataforma': pool de threads do tomcat, uma thread da plataforma por requisição (o modo atual)
+// - 'virtual': uma thread virtual por requisição (perfil 'threads-virtuais', ThreadsVirtuaisConfiguration), exige java 21+
+// vazão em Mode.Throughput e latência (p99, p99.9 etc) em Mode.SampleTime
+// os clientes simultâneos são as threads do jmh (400 por padrão, acima das 200 threads do tomcat; altere com -t)
+// o h2 em memória responde sem esperar rede: 'latenciaBanco' (ms) é somada a cada comando enviado ao banco, como a ida e volta
+// até o postgresql, com a conexão ocupada; o pool ('conexoes') é o mesmo nos dois modos, então só o modelo de threads muda
+// enquanto as conexões forem o limite os dois modos têm a mesma vazão: o ganho aparece quando as threads do tomcat são o limite
+//
+// execução (java 21 no PATH para o modo 'virtual'):
+// mvn -Pbenchmark test-compile exec:exec -Djmh.args="CargaHttpBenchmark -rf json -rff target/jmh-carga-http.json"
+// mvn -Pbenchmark test-compile exec:exec -Djmh.args="CargaHttpBenchmark -p latenciaBanco=1,10 -p conexoes=50,200"
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(400)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Dhttp.maxConnections=1000" })
+public class CargaHttpBenchmark
+{
+
+	private static final int TAMANHO_BUFFER = 8 * 1024;
+
+	@State(Scope.Benchmark)
+	public static class Servidor extends BaseDadosBenchmark
+	{
+
+		@Param({ "plataforma", "virtual" })
+		public String modo;
+
+		@Param({ "5" })
+		public int latenciaBanco;
+
+		@Param({ "50" })
+		public int conexoes;
+
+		public String endereco;
+
+		@Override
+		protected void configurar(SpringApplicationBuilder aplicacao)
+		{
+
+			if ("virtual".equals(modo))
+			{
+				aplicacao.profiles("threads-virtuais");
+			}
+
+			aplicacao.properties("spring.datasource.hikari.maximum-pool-size=" + conexoes,
+					             "spring.datasource.hikari.minimum-idle=" + conexoes,
+					             "spring.datasource.hikari.connection-timeout=30000");
+
+			aplicacao.initializers( contexto -> contexto.getBeanFactory().addBeanPostProcessor(new LatenciaBanco(latenciaBanco)) );
+
+		}
+
+		@Setup(Level.Trial)
+		public void obterEndereco()
+		{
+			endereco = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port") + "/api";
+		}
+
+	}
+
+	@Benchmark
+	public int buscarLancamentos(Servidor servidor) throws IOException
+	{
+		return get(servidor.endereco + "/lancamentos?usuario=" + BaseDadosBenchmark.ID_USUARIO + "&ano=2020&mes=6");
+	}
+
+	// sem o ETag da consulta anterior: sempre calcula o saldo
+	@Benchmark
+	public int obterSaldo(Servidor servidor) throws IOException
+	{
+		return get(servidor.endereco + "/usuarios/" + BaseDadosBenchmark.ID_USUARIO + "/saldo");
+	}
+
+	// lê a resposta inteira, para que a conexão http seja reaproveitada (keep-alive)
+	private static int get(String endereco) throws IOException
+	{
+
+		HttpURLConnection conexao = (HttpURLConnection) new URL(endereco).openConnection();
+
+		byte[] buffer = new byte[TAMANHO_BUFFER];
+
+		try (InputStream corpo = conexao.getInputStream())
+		{
+			while (corpo.read(buffer) != -1)
+			{
+			}
+		}
+
+		return conexao.getResponseCode();
+
+	}
+
+	// envolve o pool de conexões: cada comando preparado espera 'latencia' ms antes de ir ao h2
+	static class LatenciaBanco implements BeanPostProcessor
+	{
+
+		private final int latencia;
+
+		LatenciaBanco(int latencia)
+		{
+			this.latencia = latencia;
+		}
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String nome)
+		{
+
+			if (latencia > 0 && bean instanceof DataSource && !(bean instanceof DelegatingDataSource))
+			{
+				return new DataSourceComLatencia((DataSource) bean, latencia);
+			}
+
+			return bean;
+
+		}
+
+	}
+
+	static class DataSourceComLatencia extends DelegatingDataSource
+	{
+
+		private final int latencia;
+
+		DataSourceComLatencia(DataSource dataSource, int latencia)
+		{
+			super(dataSource);
+			this.latencia = latencia;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException
+		{
+			return comLatencia(super.getConnection());
+		}
+
+		@Override
+		public Connection getConnection(String usuario, String senha) throws SQLException
+		{
+			return comLatencia(super.getConnection(usuario, senha));
+		}
+
+		private Connection comLatencia(Connection conexao)
+		{
+
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, metodo, argumentos) ->
+			{
+
+				if (metodo.getName().startsWith("prepare") || metodo.getName().equals("createStatement"))
+				{
+					Thread.sleep(latencia);
+				}
+
+				try
+				{
+					return metodo.invoke(conexao, argumentos);
+				}
+				catch (InvocationTargetException e)
+				{
+					throw e.getCause();
+				}
+
+			});
+
+		}
+
+	}
+
+}
@@ -0,0 +1,112 @@
+package br.com.rochasoft.minhasfinancas.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepository;
+import br.com.rochasoft.minhasfinancas.service.LancamentoService;
+
+// tempo médio das operações do LancamentoService sobre a massa gerada em BaseDadosBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class LancamentoServiceBenchmark
+{
+
+	private LancamentoService 		service;
+	private LancamentoRepository 	repository;
+
+	private Lancamento lancamentoValido;
+	private Lancamento filtroAnoMes;
+	private Lancamento filtroDescricao;
+
+	@Setup(Level.Trial)
+	public void preparar(BaseDadosBenchmark base)
+	{
+
+		service    = base.getBean(LancamentoService.class);
+		repository = base.getBean(LancamentoRepository.class);
+
+		lancamentoValido = Lancamento.builder()
+				.descricao("mercado")
+				.mes(6)
+				.ano(2020)
+				.valor(BigDecimal.TEN)
+				.tipo(TipoLancamento.DESPESA)
+				.usuario(base.usuario)
+				.build();
+
+		filtroAnoMes = Lancamento.builder().usuario(base.usuario).ano(2020).mes(6).build();
+
+		filtroDescricao = Lancamento.builder().usuario(base.usuario).descricao("rcad").build();
+
+	}
+
+	@Benchmark
+	public Lancamento validar()
+	{
+		service.validar(lancamentoValido);
+		return lancamentoValido;
+	}
+
+	@Benchmark
+	public List<DadosLancamento> buscarPorAnoEMes()
+	{
+		return service.buscar(filtroAnoMes);
+	}
+
+	@Benchmark
+	public List<DadosLancamento> buscarPorDescricao()
+	{
+		return service.buscar(filtroDescricao);
+	}
+
+	@Benchmark
+	public List<DadosLancamento> buscarPrimeiraPagina()
+	{
+		return service.buscarPagina(filtroDescricao, null, 51);
+	}
+
+	@Benchmark
+	public BigDecimal obterSaldoPorUsuario()
+	{
+		return service.obterSaldoPorUsuario(BaseDadosBenchmark.ID_USUARIO);
+	}
+
+	// referência: cálculo do saldo somando os lançamentos (forma anterior ao saldo registrado)
+	@Benchmark
+	public BigDecimal somarSaldoPorUsuario()
+	{
+
+		BigDecimal receitas = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(BaseDadosBenchmark.ID_USUARIO, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO);
+		BigDecimal despesas = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(BaseDadosBenchmark.ID_USUARIO, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO);
+
+		// a soma é nula quando o usuário não tem lançamentos do tipo, como em SaldoUsuarioServiceImpl
+		if (receitas == null) receitas = BigDecimal.ZERO;
+		if (despesas == null) despesas = BigDecimal.ZERO;
+
+		return receitas.subtract(despesas);
+
+	}
+
+}
@@ -0,0 +1,138 @@
+package br.com.rochasoft.minhasfinancas.api.csv;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import br.com.rochasoft.minhasfinancas.api.dto.LancamentoDTO;
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+
+// leitura e escrita das linhas de extrato no formato csv
+// colunas separadas por ';' na ordem: descricao;mes;ano;valor;tipo, com a moeda opcional na sétima coluna
+// o valor aceita vírgula ou ponto como separador decimal e textos podem vir entre aspas
+// a exportação inclui as colunas status e moeda; o status é ignorado na importação (o arquivo exportado pode ser importado de novo)
+public final class LancamentoCsv 
+{
+	
+	public static final char SEPARADOR = ';';
+	
+	public static final String CABECALHO = "descricao;mes;ano;valor;tipo;status;moeda";
+	
+	private LancamentoCsv()
+	{
+		super();
+	}
+	
+	public static boolean ehCabecalho(String linha)
+	{
+		return linha.trim().toLowerCase().startsWith("descricao");
+	}
+	
+	public static LancamentoDTO lerLinha(String linha)
+	{
+		
+		List<String> colunas = separarColunas(linha);
+		
+		if (colunas.size() < 5 || colunas.size() > 7)
+		{
+			throw new RegraNegocioException("A linha deve ter 5 colunas: descricao;mes;ano;valor;tipo.");
+		}
+		
+		try
+		{
+			
+			return LancamentoDTO.builder()
+					.descricao(colunas.get(0))
+					.mes(Integer.valueOf(colunas.get(1)))
+					.ano(Integer.valueOf(colunas.get(2)))
+					.valor(new BigDecimal(colunas.get(3).replace(',', '.')))
+					.tipo(colunas.get(4).toUpperCase())
+					.moeda(colunas.size() == 7 && !colunas.get(6).isEmpty() ? colunas.get(6).toUpperCase() : null)
+					.build();
+			
+		}
+		catch (NumberFormatException e)
+		{
+			throw new RegraNegocioException("Mês, ano ou valor com formato inválido.");
+		}
+		
+	}
+	
+	public static String escreverLinha(DadosLancamento lancamento)
+	{
+		
+		return new StringBuilder(64)
+				.append(escaparTexto(lancamento.getDescricao())).append(SEPARADOR)
+				.append(lancamento.getMes()).append(SEPARADOR)
+				.append(lancamento.getAno()).append(SEPARADOR)
+				.append(lancamento.getValor().toPlainString()).append(SEPARADOR)
+				.append(lancamento.getTipo().name()).append(SEPARADOR)
+				.append(lancamento.getStatus().name()).append(SEPARADOR)
+				.append(lancamento.getMoeda() != null ? lancamento.getMoeda() : "")
+				.toString();
+		
+	}
+	
+	// textos com separador, aspas ou quebra de linha vão entre aspas, com as aspas duplicadas
+	private static String escaparTexto(String texto)
+	{
+		
+		if (texto == null)
+		{
+			return "";
+		}
+		
+		if (texto.indexOf(SEPARADOR) < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0)
+		{
+			return texto;
+		}
+		
+		return '"' + texto.replace("\"", "\"\"") + '"';
+		
+	}
+	
+	private static List<String> separarColunas(String linha)
+	{
+		
+		List<String>  colunas = new ArrayList<>();
+		StringBuilder atual   = new StringBuilder();
+		boolean       aspas   = false;
+		
+		for (int i = 0; i < linha.length(); i++)
+		{
+			
+			char c = linha.charAt(i);
+			
+			if (c == '"')
+			{
+				// aspas duplicadas dentro de um texto entre aspas representam o próprio caractere
+				if (aspas && i + 1 < linha.length() && linha.charAt(i + 1) == '"')
+				{
+					atual.append(c);
+					i++;
+				}
+				else
+				{
+					aspas = !aspas;
+				}
+			}
+			else if (c == SEPARADOR && !aspas)
+			{
+				colunas.add(atual.toString().trim());
+				atual.setLength(0);
+			}
+			else
+			{
+				atual.append(c);
+			}
+			
+		}
+		
+		colunas.add(atual.toString().trim());
+		
+		return colunas;
+		
+	}
+
+}
@@ -11,5 +11,8 @@ public class AtualizaStatusDTO
 {
 	
 	private String status;
+	
+	// opcional: quando informada, a alteração falha se o lançamento já estiver em outra versão
+	private Long versao;
 
 }
@@ -0,0 +1,27 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// alteração de status em lote: pelos ids informados ou pelo filtro (ano, mês e status atual) do usuário
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtualizaStatusLoteDTO 
+{
+	
+	private String 		status;
+	private Long 		usuario;
+	
+	private List<Long> 	ids;
+	
+	private Integer 	ano;
+	private Integer 	mes;
+	private String 		statusAtual;
+
+}
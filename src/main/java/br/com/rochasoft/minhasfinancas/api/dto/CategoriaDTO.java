@@ -0,0 +1,20 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoriaDTO 
+{
+	
+	private Long 	id;
+	private String 	nome;
+	private Long 	usuario;
+	private Long 	categoriaPai;
+
+}
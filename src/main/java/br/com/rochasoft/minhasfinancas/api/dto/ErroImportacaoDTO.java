@@ -0,0 +1,17 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErroImportacaoDTO 
+{
+	
+	// número da linha do arquivo (ou posição no array json), começando em 1
+	private int 	linha;
+	private String 	mensagem;
+
+}
@@ -1,6 +1,7 @@
 package br.com.rochasoft.minhasfinancas.api.dto;
 
 import java.math.BigDecimal;
+import java.util.Set;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,8 +20,12 @@ public class LancamentoDTO
 	private Integer 	mes;
 	private Integer 	ano;
 	private BigDecimal 	valor;
+	private String 		moeda;
+	private Long 		categoria;
+	private Set<String> tags;
 	private Long 		usuario;
 	private String 		tipo;
 	private String 		status;
+	private Long 		versao;
 
 }
@@ -0,0 +1,22 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrcamentoDTO 
+{
+	
+	private Long 		id;
+	private Long 		usuario;
+	private Long 		categoria;
+	private BigDecimal 	valor;
+
+}
@@ -0,0 +1,20 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaLancamentoDTO 
+{
+	
+	private List<LancamentoDTO> lancamentos;
+	
+	// token para buscar a próxima página (nulo quando não existem mais registros)
+	private String 				continuacao;
+
+}
@@ -0,0 +1,33 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecorrenciaDTO 
+{
+	
+	private Long 		id;
+	private Long 		lancamento;
+	private Long 		usuario;
+	private String 		descricao;
+	private BigDecimal 	valor;
+	private String 		moeda;
+	private Long 		categoria;
+	private String 		tipo;
+	private String 		periodicidade;
+	private Integer 	intervalo;
+	private Integer 	proximoAno;
+	private Integer 	proximoMes;
+	private Integer 	anoFinal;
+	private Integer 	mesFinal;
+	private Boolean 	ativa;
+
+}
@@ -0,0 +1,18 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoAtualizacaoStatusDTO 
+{
+	
+	private int 								atualizados;
+	private List<ResultadoStatusLancamentoDTO> 	lancamentos;
+
+}
@@ -0,0 +1,18 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoStatusLancamentoDTO 
+{
+	
+	private Long 	id;
+	
+	// ATUALIZADO, INALTERADO (já estava no status) ou NAO_ENCONTRADO
+	private String 	resultado;
+
+}
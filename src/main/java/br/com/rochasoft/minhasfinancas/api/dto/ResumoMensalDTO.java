@@ -0,0 +1,24 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoMensalDTO 
+{
+	
+	private Integer 	ano;
+	private Integer 	mes;
+	private String 		tipo;
+	private String 		status;
+	private BigDecimal 	valor;
+	private Long 		quantidade;
+
+}
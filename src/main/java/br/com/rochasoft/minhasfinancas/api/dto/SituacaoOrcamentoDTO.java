@@ -0,0 +1,26 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SituacaoOrcamentoDTO 
+{
+	
+	private Long 		orcamento;
+	private Long 		categoria;
+	private Integer 	ano;
+	private Integer 	mes;
+	private BigDecimal 	limite;
+	private BigDecimal 	gasto;
+	private BigDecimal 	disponivel;
+	private boolean 	excedido;
+
+}
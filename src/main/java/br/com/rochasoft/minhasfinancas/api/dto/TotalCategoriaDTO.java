@@ -0,0 +1,24 @@
+package br.com.rochasoft.minhasfinancas.api.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TotalCategoriaDTO 
+{
+	
+	private Long 		categoria;
+	private String 		tipo;
+	private BigDecimal 	valor;
+	private Long 		quantidade;
+	private BigDecimal 	valorComSubcategorias;
+	private Long 		quantidadeComSubcategorias;
+
+}
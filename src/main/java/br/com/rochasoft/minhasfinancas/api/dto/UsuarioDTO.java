@@ -17,5 +17,6 @@ public class UsuarioDTO
 	private String email;
 	private String nome;
 	private String senha;
+	private String moeda;
 
 }
@@ -0,0 +1,117 @@
+package br.com.rochasoft.minhasfinancas.api.ofx;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+import br.com.rochasoft.minhasfinancas.service.CotacaoService;
+
+// escrita de extrato no formato ofx 2 (xml), aceito pelos programas de finanças pessoais
+// o arquivo é escrito conforme os lançamentos são lidos: abertura, uma transação por lançamento e fechamento
+// apenas lançamentos efetivados entram no extrato; a data de cada um é o primeiro dia do mês
+// o saldo final (LEDGERBAL) é a soma das transações, que no ofx vem depois da lista, então não é preciso guardá-las
+// os valores são convertidos para a moeda do usuário (CURDEF); a moeda original e a taxa vão em ORIGCURRENCY
+public class ExtratoOfx
+{
+
+	private static final DateTimeFormatter DATA 	 = DateTimeFormatter.ofPattern("yyyyMMdd");
+	private static final DateTimeFormatter DATA_HORA = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+	private final Writer 		 escritor;
+	private final String 		 moedaUsuario;
+	private final CotacaoService cotacaoService;
+	private BigDecimal 			 saldo = BigDecimal.ZERO;
+
+	public ExtratoOfx(Writer escritor, String moedaUsuario, CotacaoService cotacaoService)
+	{
+		this.escritor 		= escritor;
+		this.moedaUsuario 	= moedaUsuario;
+		this.cotacaoService = cotacaoService;
+	}
+
+	public void iniciar(Long idUsuario, YearMonth inicio, YearMonth fim) throws IOException
+	{
+
+		String agora = LocalDateTime.now().format(DATA_HORA);
+
+		escritor.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		escritor.write("<?OFX OFXHEADER=\"200\" VERSION=\"211\" SECURITY=\"NONE\" OLDFILEUID=\"NONE\" NEWFILEUID=\"NONE\"?>\n");
+		escritor.write("<OFX>\n");
+		escritor.write("<SIGNONMSGSRSV1><SONRS><STATUS><CODE>0</CODE><SEVERITY>INFO</SEVERITY></STATUS>");
+		escritor.write("<DTSERVER>" + agora + "</DTSERVER><LANGUAGE>POR</LANGUAGE></SONRS></SIGNONMSGSRSV1>\n");
+		escritor.write("<BANKMSGSRSV1><STMTTRNRS><TRNUID>0</TRNUID><STATUS><CODE>0</CODE><SEVERITY>INFO</SEVERITY></STATUS>\n");
+		escritor.write("<STMTRS><CURDEF>" + moedaUsuario + "</CURDEF>\n");
+		escritor.write("<BANKACCTFROM><BANKID>0</BANKID><ACCTID>" + idUsuario + "</ACCTID><ACCTTYPE>CHECKING</ACCTTYPE></BANKACCTFROM>\n");
+		escritor.write("<BANKTRANLIST><DTSTART>" + inicio.atDay(1).format(DATA) + "</DTSTART><DTEND>" + fim.atEndOfMonth().format(DATA) + "</DTEND>\n");
+
+	}
+
+	public void escrever(DadosLancamento lancamento) throws IOException
+	{
+
+		if (lancamento.getStatus() != StatusLancamento.EFETIVADO)
+		{
+			return;
+		}
+
+		boolean    receita    = lancamento.getTipo() == TipoLancamento.RECEITA;
+		boolean    outraMoeda = lancamento.getMoeda() != null && !lancamento.getMoeda().equals(moedaUsuario);
+		BigDecimal convertido = cotacaoService.converter(lancamento.getValor(), lancamento.getMoeda(), moedaUsuario, lancamento.getAno(), lancamento.getMes());
+		BigDecimal valor      = receita ? convertido : convertido.negate();
+
+		saldo = saldo.add(valor);
+
+		escritor.write("<STMTTRN><TRNTYPE>");
+		escritor.write(receita ? "CREDIT" : "DEBIT");
+		escritor.write("</TRNTYPE><DTPOSTED>");
+		escritor.write(YearMonth.of(lancamento.getAno(), lancamento.getMes()).atDay(1).format(DATA));
+		escritor.write("</DTPOSTED><TRNAMT>");
+		escritor.write(valor.toPlainString());
+		escritor.write("</TRNAMT><FITID>");
+		escritor.write(String.valueOf(lancamento.getId()));
+		escritor.write("</FITID><MEMO>");
+		escritor.write(escaparTexto(lancamento.getDescricao()));
+		escritor.write("</MEMO>");
+
+		if (outraMoeda)
+		{
+			escritor.write("<ORIGCURRENCY><CURRATE>");
+			escritor.write(cotacaoService.obterTaxa(lancamento.getMoeda(), moedaUsuario, lancamento.getAno(), lancamento.getMes()).toPlainString());
+			escritor.write("</CURRATE><CURSYM>");
+			escritor.write(lancamento.getMoeda());
+			escritor.write("</CURSYM></ORIGCURRENCY>");
+		}
+
+		escritor.write("</STMTTRN>\n");
+
+	}
+
+	public void finalizar() throws IOException
+	{
+
+		escritor.write("</BANKTRANLIST>\n");
+		escritor.write("<LEDGERBAL><BALAMT>" + saldo.toPlainString() + "</BALAMT><DTASOF>" + LocalDateTime.now().format(DATA_HORA) + "</DTASOF></LEDGERBAL>\n");
+		escritor.write("</STMTRS></STMTTRNRS></BANKMSGSRSV1>\n");
+		escritor.write("</OFX>\n");
+
+	}
+
+	private static String escaparTexto(String texto)
+	{
+
+		if (texto == null)
+		{
+			return "";
+		}
+
+		return texto.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+
+	}
+
+}
@@ -0,0 +1,218 @@
+package br.com.rochasoft.minhasfinancas.api.resource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import br.com.rochasoft.minhasfinancas.api.dto.CategoriaDTO;
+import br.com.rochasoft.minhasfinancas.api.dto.TotalCategoriaDTO;
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.Categoria;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalCategoria;
+import br.com.rochasoft.minhasfinancas.service.CategoriaService;
+import br.com.rochasoft.minhasfinancas.service.UsuarioService;
+import lombok.RequiredArgsConstructor;
+
+// categorias dos lançamentos do usuário, com subcategorias pela categoria pai
+@RestController
+@RequestMapping("/api/categorias")
+@RequiredArgsConstructor
+public class CategoriaResource 
+{
+	
+	// quantidade de anos retornada nos totais quando os anos não são informados, como no resumo mensal
+	private static final int ANOS_TOTAIS_PADRAO = 10;
+	
+	private final CategoriaService service;
+	private final UsuarioService   usuarioService;
+	
+	@PostMapping
+	public ResponseEntity salvar( @RequestBody CategoriaDTO dto )
+	{
+		
+		try
+		{
+			
+			Categoria categoria = service.salvar(converter(dto));
+			
+			return new ResponseEntity(converter(categoria), HttpStatus.CREATED);
+			
+		}
+		catch (RegraNegocioException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		
+	}
+	
+	// o usuário da categoria não muda na alteração
+	@PutMapping("{id}")
+	public ResponseEntity atualizar( @PathVariable("id") Long id, @RequestBody CategoriaDTO dto )
+	{
+		
+		return service.obterPorId(id).map( entidade -> 
+		{
+			
+			try
+			{
+				
+				entidade.setNome(dto.getNome() != null ? dto.getNome().trim() : null);
+				entidade.setIdCategoriaPai(dto.getCategoriaPai());
+				
+				return ResponseEntity.ok(converter(service.atualizar(entidade)));
+				
+			}
+			catch (RegraNegocioException e)
+			{
+				return ResponseEntity.badRequest().body(e.getMessage());
+			}
+			
+		}).orElseGet( () -> new ResponseEntity("Categoria não encontrada", HttpStatus.BAD_REQUEST));
+		
+	}
+	
+	@DeleteMapping("{id}")
+	public ResponseEntity excluir( @PathVariable("id") Long id )
+	{
+		
+		return service.obterPorId(id).map( entidade -> 
+		{
+			
+			try
+			{
+				
+				service.excluir(entidade);
+				return new ResponseEntity(HttpStatus.NO_CONTENT);
+				
+			}
+			catch (RegraNegocioException e)
+			{
+				return ResponseEntity.badRequest().body(e.getMessage());
+			}
+			
+		}).orElseGet( () -> new ResponseEntity("Categoria não encontrada", HttpStatus.BAD_REQUEST));
+		
+	}
+	
+	@GetMapping
+	public ResponseEntity buscar( @RequestParam("usuario") Long idUsuario )
+	{
+		
+		List<CategoriaDTO> categorias = service.buscarPorUsuario(idUsuario)
+												.stream()
+												.map( categoria -> converter(categoria) )
+												.collect(Collectors.toList());
+		
+		return ResponseEntity.ok(categorias);
+		
+	}
+	
+	// totais de cada categoria no intervalo de anos, lidos da tabela de resumo 'financas.resumo_categoria'
+	// sem o status, considera apenas os lançamentos efetivados
+	@GetMapping("totais")
+	public ResponseEntity buscarTotais(@RequestParam(value = "anoInicial", required = false) Integer anoInicial,
+			                           @RequestParam(value = "anoFinal",   required = false) Integer anoFinal,
+			                           @RequestParam(value = "status",     required = false) String  status,
+			                           @RequestParam("usuario") Long idUsuario)
+	{
+		
+		if (anoFinal == null)
+		{
+			anoFinal = LocalDate.now().getYear();
+		}
+		
+		if (anoInicial == null)
+		{
+			anoInicial = anoFinal - ANOS_TOTAIS_PADRAO + 1;
+		}
+		
+		try
+		{
+			
+			List<TotalCategoriaDTO> totais = service
+												.obterTotais(idUsuario, anoInicial, anoFinal, converterStatus(status))
+												.stream()
+												.map( total -> converter(total) )
+												.collect(Collectors.toList());
+			
+			return ResponseEntity.ok(totais);
+			
+		}
+		catch (RegraNegocioException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		
+	}
+	
+	private StatusLancamento converterStatus(String status)
+	{
+		
+		if (status == null)
+		{
+			return StatusLancamento.EFETIVADO;
+		}
+		
+		try
+		{
+			return StatusLancamento.valueOf(status);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new RegraNegocioException("Status inválido.");
+		}
+		
+	}
+	
+	private Categoria converter(CategoriaDTO dto)
+	{
+		
+		Usuario usuario = usuarioService
+							.obterPorId(dto.getUsuario())
+							.orElseThrow( () -> new RegraNegocioException("Usuário não encontrado para o Id informado") );
+		
+		return Categoria.builder()
+				.nome(dto.getNome() != null ? dto.getNome().trim() : null)
+				.usuario(usuario)
+				.idCategoriaPai(dto.getCategoriaPai())
+				.build();
+		
+	}
+	
+	private CategoriaDTO converter(Categoria categoria)
+	{
+		return CategoriaDTO.builder()
+				.id(categoria.getId())
+				.nome(categoria.getNome())
+				.usuario(categoria.getUsuario().getId())
+				.categoriaPai(categoria.getIdCategoriaPai())
+				.build();
+	}
+	
+	private TotalCategoriaDTO converter(TotalCategoria total)
+	{
+		return TotalCategoriaDTO.builder()
+				.categoria(total.getIdCategoria())
+				.tipo(total.getTipo().name())
+				.valor(total.getValor())
+				.quantidade(total.getQuantidade())
+				.valorComSubcategorias(total.getValorComSubcategorias())
+				.quantidadeComSubcategorias(total.getQuantidadeComSubcategorias())
+				.build();
+	}
+
+}
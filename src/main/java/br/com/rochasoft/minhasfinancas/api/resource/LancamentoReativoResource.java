@@ -0,0 +1,93 @@
+package br.com.rochasoft.minhasfinancas.api.resource;
+
+import java.math.BigDecimal;
+
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import br.com.rochasoft.minhasfinancas.api.dto.LancamentoDTO;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.service.LancamentoReativoService;
+import br.com.rochasoft.minhasfinancas.service.VersaoLancamentosService;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// busca de lançamentos e saldo pelo r2dbc (perfil 'reativo'), com as mesmas respostas de /api/lancamentos e /api/usuarios/{id}/saldo
+// o spring mvc assina o Flux/Mono e libera a thread da requisição (processamento assíncrono do servlet) até o banco responder;
+// com 'Accept: application/x-ndjson', os lançamentos são escritos um por linha, e o próximo só é pedido ao Flux depois que
+// o anterior foi escrito na resposta (cliente lento não acumula lançamentos em memória); sem ele, a resposta é a lista em json
+@RestController
+@RequestMapping("/api/reativo")
+@ConditionalOnProperty("minhasfinancas.reativo.url")
+@RequiredArgsConstructor
+public class LancamentoReativoResource
+{
+
+	private final LancamentoReativoService service;
+	private final VersaoLancamentosService versaoLancamentosService;
+	private final LancamentoResource       lancamentoResource; // filtros e conversão para o dto, iguais aos da busca bloqueante
+
+	// o corpo da resposta também precisa ser reativo no erro: o spring mvc escolhe a forma de escrita pelo tipo declarado
+	@GetMapping("lancamentos")
+	public Mono<ResponseEntity<Publisher<?>>> buscar(@RequestParam(value = "descricao", required = false) String  descricao,
+			                           @RequestParam(value = "ano",       required = false) Integer ano,
+			                           @RequestParam(value = "mes",       required = false) Integer mes,
+			                           @RequestParam(value = "categoria", required = false) Long    idCategoria,
+			                           @RequestParam(value = "tag",       required = false) String  tag,
+			                           @RequestParam("usuario") Long idUsuario)
+	{
+
+		Lancamento lancamentoFiltro = new Lancamento();
+		lancamentoFiltro.setDescricao(descricao);
+		lancamentoFiltro.setAno(ano);
+		lancamentoFiltro.setMes(mes);
+		lancamentoFiltro.setIdCategoria(idCategoria);
+		lancamentoFiltro.setTags(lancamentoResource.filtroTag(tag));
+		lancamentoFiltro.setUsuario(Usuario.builder().id(idUsuario).build());
+
+		return service.existeUsuario(idUsuario).map( existe ->
+		{
+
+			if (!existe)
+			{
+				return ResponseEntity.badRequest().body(Mono.just("Usuário não encontrado"));
+			}
+
+			Flux<LancamentoDTO> lancamentos = service.buscar(lancamentoFiltro).map( lancamento -> lancamentoResource.converter(lancamento) );
+
+			return ResponseEntity.ok().body(lancamentos);
+
+		});
+
+	}
+
+	// o ETag é a versão dos lançamentos do usuário (lida pela chave primária de 'saldo_usuario'): sem alterações, responde 304 sem obter o saldo
+	@GetMapping("usuarios/{id}/saldo")
+	public Mono<ResponseEntity<BigDecimal>> obterSaldo(@PathVariable("id") Long id, WebRequest request)
+	{
+
+		String versao = versaoLancamentosService.obterVersao(id);
+
+		if (request.checkNotModified(versao))
+		{
+			return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(versao).build());
+		}
+
+		return service.obterSaldo(id)
+				.map( saldo -> ResponseEntity.ok().eTag(versao).cacheControl(CacheControl.noCache()).body(saldo) )
+				.defaultIfEmpty(ResponseEntity.notFound().build());
+
+	}
+
+}
@@ -1,30 +1,82 @@
 package br.com.rochasoft.minhasfinancas.api.resource;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.rochasoft.minhasfinancas.api.csv.LancamentoCsv;
 import br.com.rochasoft.minhasfinancas.api.dto.AtualizaStatusDTO;
+import br.com.rochasoft.minhasfinancas.api.dto.AtualizaStatusLoteDTO;
+import br.com.rochasoft.minhasfinancas.api.dto.ErroImportacaoDTO;
 import br.com.rochasoft.minhasfinancas.api.dto.LancamentoDTO;
+import br.com.rochasoft.minhasfinancas.api.dto.PaginaLancamentoDTO;
+import br.com.rochasoft.minhasfinancas.api.dto.ResultadoAtualizacaoStatusDTO;
+import br.com.rochasoft.minhasfinancas.api.dto.ResultadoImportacaoDTO;
+import br.com.rochasoft.minhasfinancas.api.dto.ResultadoStatusLancamentoDTO;
+import br.com.rochasoft.minhasfinancas.api.dto.ResumoMensalDTO;
+import br.com.rochasoft.minhasfinancas.api.ofx.ExtratoOfx;
 import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
 import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensal;
 import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
 import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
 import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import br.com.rochasoft.minhasfinancas.replica.ContextoRoteamento;
+import br.com.rochasoft.minhasfinancas.service.CotacaoService;
+import br.com.rochasoft.minhasfinancas.service.IdempotenciaService;
 import br.com.rochasoft.minhasfinancas.service.LancamentoService;
+import br.com.rochasoft.minhasfinancas.service.NotificacaoLancamentosService;
+import br.com.rochasoft.minhasfinancas.service.OrcamentoService;
+import br.com.rochasoft.minhasfinancas.service.ResumoMensalService;
 import br.com.rochasoft.minhasfinancas.service.UsuarioService;
+import br.com.rochasoft.minhasfinancas.service.VersaoLancamentosService;
 import lombok.RequiredArgsConstructor;
 
 @RestController
@@ -33,8 +85,34 @@ import lombok.RequiredArgsConstructor;
 public class LancamentoResource 
 {
 	
+	// tamanho da página quando não informado e limite máximo aceito na busca paginada
+	private static final int TAMANHO_PAGINA_PADRAO = 50;
+	private static final int TAMANHO_PAGINA_MAXIMO = 500;
+	
+	// quantidade máxima de lançamentos aceitos em uma única importação
+	private static final int LIMITE_IMPORTACAO = 10000;
+	
+	// quantidade máxima de ids aceitos em uma única alteração de status em lote
+	private static final int LIMITE_ATUALIZACAO_STATUS = 10000;
+	
+	// tamanho dos buffers de escrita da exportação de extratos
+	private static final int TAMANHO_BUFFER_EXPORTACAO = 64 * 1024;
+	
+	// quantidade de anos retornados no resumo quando o ano inicial não é informado
+	private static final int ANOS_RESUMO_PADRAO = 10;
+	
+	// enviado na gravação de uma despesa que deixou o gasto do mês acima do orçamento da categoria
+	public static final String CABECALHO_ORCAMENTO_EXCEDIDO = "X-Orcamento-Excedido";
+	
 	private final LancamentoService service;
 	private final UsuarioService    usuarioService;
+	private final ResumoMensalService resumoMensalService;
+	private final VersaoLancamentosService versaoLancamentosService;
+	private final NotificacaoLancamentosService notificacaoLancamentosService;
+	private final CotacaoService    cotacaoService;
+	private final OrcamentoService  orcamentoService;
+	private final IdempotenciaService idempotenciaService;
+	private final ObjectMapper      objectMapper;
 
 	/*
 	public LancamentoResource(LancamentoService service, UsuarioService usuarioService) 
@@ -45,8 +123,15 @@ public class LancamentoResource
 	}
 	*/
 	
+	// clientes móveis repetem o POST quando a conexão falha: com o mesmo 'Idempotency-Key',
+	// a repetição devolve a resposta da primeira execução e o lançamento não é gravado de novo
 	@PostMapping
-	public ResponseEntity salvar( @RequestBody LancamentoDTO dto )
+	public ResponseEntity salvar( @RequestBody LancamentoDTO dto, @RequestHeader(value = IdempotenciaService.CABECALHO_CHAVE, required = false) String chaveIdempotencia )
+	{
+		return idempotenciaService.executar("lancamentos", chaveIdempotencia, dto, () -> salvarLancamento(dto));
+	}
+	
+	private ResponseEntity salvarLancamento(LancamentoDTO dto)
 	{
 		
 		try
@@ -56,7 +141,7 @@ public class LancamentoResource
 			
 			entidade = service.salvar(entidade);
 			
-			return new ResponseEntity(entidade, HttpStatus.CREATED);
+			return ResponseEntity.status(HttpStatus.CREATED).headers(avisoOrcamento(entidade)).body(converter(entidade));
 			
 		}
 		catch (RegraNegocioException e)
@@ -78,20 +163,114 @@ public class LancamentoResource
 			
 				Lancamento lancamento = converter(dto);
 				lancamento.setId(entity.getId());
-				service.atualizar(lancamento);
-				return ResponseEntity.ok().body(lancamento);
+				lancamento.setIdRecorrencia(entity.getIdRecorrencia());
+				
+				// sem a versão no dto, vale a versão lida agora (o lançamento é substituído como antes)
+				lancamento.setVersao(dto.getVersao() != null ? dto.getVersao() : entity.getVersao());
+				
+				if (dto.getMoeda() == null)
+				{
+					lancamento.setMoeda(entity.getMoeda());
+				}
+				
+				// sem as etiquetas no dto, ficam as gravadas (o dto pode vir de uma listagem antiga, sem etiquetas)
+				if (dto.getTags() == null)
+				{
+					lancamento.setTags(service.obterTags(Collections.singletonList(id)).getOrDefault(id, new HashSet<>()));
+				}
+				
+				// o lançamento retornado tem a nova versão
+				Lancamento lancamentoSalvo = service.atualizar(lancamento);
+				return ResponseEntity.ok().headers(avisoOrcamento(lancamentoSalvo)).body(converter(lancamentoSalvo));
 
 			}
 			catch (RegraNegocioException e)
 			{
 				return ResponseEntity.badRequest().body(e.getMessage());
 			}
+			catch (OptimisticLockingFailureException e)
+			{
+				return conflitoVersao();
+			}
 				
 		}).orElseGet( () -> new ResponseEntity("Lançamento não encontrado", HttpStatus.BAD_REQUEST));
 				
 		
 	}	
 	
+	// altera apenas os campos informados (os nulos ficam como estão) sem regravar o lançamento inteiro
+	// a versão é obrigatória: se o lançamento foi alterado depois de lido (outra aba, outro dispositivo), responde 409
+	// e o cliente deve ler o lançamento novamente antes de repetir a alteração
+	@PatchMapping("{id}")
+	public ResponseEntity atualizarParcial( @PathVariable("id") Long id, @RequestBody LancamentoDTO dto )
+	{
+		
+		if (dto.getVersao() == null)
+		{
+			return ResponseEntity.badRequest().body("Informe a versão do lançamento.");
+		}
+		
+		try
+		{
+			
+			return service.atualizarParcial(id, dto.getVersao(), converterAlteracoes(dto))
+					.map( lancamento -> ResponseEntity.ok().headers(avisoOrcamento(lancamento)).body((Object) converter(lancamento)) )
+					.orElseGet( () -> new ResponseEntity("Lançamento não encontrado", HttpStatus.BAD_REQUEST));
+			
+		}
+		catch (RegraNegocioException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		catch (OptimisticLockingFailureException e)
+		{
+			return conflitoVersao();
+		}
+		
+	}
+	
+	// apenas os campos enviados; o usuário do lançamento não muda
+	private Lancamento converterAlteracoes(LancamentoDTO dto)
+	{
+		
+		Lancamento alteracoes = new Lancamento();
+		
+		alteracoes.setDescricao(dto.getDescricao());
+		alteracoes.setMes(dto.getMes());
+		alteracoes.setAno(dto.getAno());
+		alteracoes.setValor(dto.getValor());
+		alteracoes.setMoeda(dto.getMoeda() != null ? dto.getMoeda().trim().toUpperCase() : null);
+		alteracoes.setIdCategoria(dto.getCategoria());
+		alteracoes.setTags(dto.getTags() != null ? normalizarTags(dto.getTags()) : null);
+		alteracoes.setTipo(dto.getTipo() != null ? TipoLancamento.valueOf(dto.getTipo()) : null);
+		alteracoes.setStatus(dto.getStatus() != null ? StatusLancamento.valueOf(dto.getStatus()) : null);
+		
+		return alteracoes;
+		
+	}
+	
+	private ResponseEntity conflitoVersao()
+	{
+		return ResponseEntity.status(HttpStatus.CONFLICT).body("O lançamento foi alterado por outra edição. Consulte-o novamente antes de alterar.");
+	}
+	
+	// a verificação usa o limite e o gasto do mês mantidos em memória, sem consultar o banco
+	private HttpHeaders avisoOrcamento(Lancamento lancamento)
+	{
+		
+		HttpHeaders cabecalhos = new HttpHeaders();
+		
+		orcamentoService.verificarLimite(lancamento).ifPresent( orcamento -> 
+			cabecalhos.add(CABECALHO_ORCAMENTO_EXCEDIDO, "categoria=" + orcamento.getIdCategoria() 
+			                                             + "; ano=" + orcamento.getAno() 
+			                                             + "; mes=" + orcamento.getMes() 
+			                                             + "; limite=" + orcamento.getLimite().toPlainString() 
+			                                             + "; gasto=" + orcamento.getGasto().toPlainString()) );
+		
+		return cabecalhos;
+		
+	}
+	
 	@DeleteMapping("{id}")
 	public ResponseEntity deletar(@PathVariable("id") Long id)	
 	{
@@ -115,7 +294,133 @@ public class LancamentoResource
 		
 	}
 	
-	private Lancamento converter(LancamentoDTO dto)
+	// importação de extratos: recebe um array json com os lançamentos do usuário informado
+	// as linhas inválidas são retornadas com o erro e não impedem a gravação das demais
+	@PostMapping(value = "importacao", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity importar(@RequestParam("usuario") Long idUsuario, @RequestBody List<LancamentoDTO> dtos)
+	{
+		
+		Map<Integer, LancamentoDTO> linhas = new LinkedHashMap<>();
+		
+		for (int i = 0; i < dtos.size(); i++)
+		{
+			linhas.put(i + 1, dtos.get(i));
+		}
+		
+		return importar(idUsuario, linhas, new ArrayList<>());
+		
+	}
+	
+	// importação de extratos em csv (descricao;mes;ano;valor;tipo), com ou sem linha de cabeçalho
+	@PostMapping(value = "importacao", consumes = "text/csv")
+	public ResponseEntity importarCsv(@RequestParam("usuario") Long idUsuario, @RequestBody String conteudo)
+	{
+		
+		Map<Integer, LancamentoDTO> linhas = new LinkedHashMap<>();
+		List<ErroImportacaoDTO>     erros  = new ArrayList<>();
+		
+		String[] registros = conteudo.split("\\r?\\n");
+		
+		for (int i = 0; i < registros.length; i++)
+		{
+			
+			String registro = registros[i];
+			
+			if (registro.trim().isEmpty() || (i == 0 && LancamentoCsv.ehCabecalho(registro)))
+			{
+				continue;
+			}
+			
+			try
+			{
+				linhas.put(i + 1, LancamentoCsv.lerLinha(registro));
+			}
+			catch (RegraNegocioException e)
+			{
+				erros.add(new ErroImportacaoDTO(i + 1, e.getMessage()));
+			}
+			
+		}
+		
+		return importar(idUsuario, linhas, erros);
+		
+	}
+	
+	private ResponseEntity importar(Long idUsuario, Map<Integer, LancamentoDTO> linhas, List<ErroImportacaoDTO> erros)
+	{
+		
+		if (linhas.size() + erros.size() > LIMITE_IMPORTACAO)
+		{
+			return ResponseEntity.badRequest().body("A importação aceita no máximo " + LIMITE_IMPORTACAO + " lançamentos por requisição.");
+		}
+		
+		// o usuário é buscado uma única vez para todas as linhas
+		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
+		
+		if (!usuario.isPresent())
+		{
+			return ResponseEntity.badRequest().body("Usuário não encontrado");
+		}
+		
+		List<Lancamento> lancamentos = new ArrayList<>();
+		
+		for (Map.Entry<Integer, LancamentoDTO> linha : linhas.entrySet())
+		{
+			
+			try
+			{
+				
+				LancamentoDTO dto = linha.getValue();
+				
+				if (dto.getUsuario() != null && !dto.getUsuario().equals(idUsuario))
+				{
+					throw new RegraNegocioException("O usuário do lançamento é diferente do usuário da importação.");
+				}
+				
+				Lancamento lancamento = converter(dto, usuario.get());
+				lancamento.setId(null); // a importação sempre inclui novos lançamentos
+				
+				service.validar(lancamento);
+				
+				lancamentos.add(lancamento);
+				
+			}
+			catch (RegraNegocioException e)
+			{
+				erros.add(new ErroImportacaoDTO(linha.getKey(), e.getMessage()));
+			}
+			catch (IllegalArgumentException e)
+			{
+				erros.add(new ErroImportacaoDTO(linha.getKey(), "Tipo ou Status de lançamento inválido."));
+			}
+			
+		}
+		
+		// grava todas as linhas válidas de uma vez (já validadas acima)
+		if (!lancamentos.isEmpty())
+		{
+			service.salvarLoteValidado(lancamentos);
+		}
+		
+		erros.sort(Comparator.comparingInt(ErroImportacaoDTO::getLinha));
+		
+		return ResponseEntity.ok(new ResultadoImportacaoDTO(lancamentos.size(), erros));
+		
+	}
+	
+	// visibilidade de pacote para os benchmarks (src/jmh/java)
+	Lancamento converter(LancamentoDTO dto)
+	{
+		
+		Usuario usuario = usuarioService
+							.obterPorId(dto.getUsuario())
+							.orElseThrow( () -> new RegraNegocioException("Usuário não encontrado para o Id informado") );
+		
+		return converter(dto, usuario);
+		
+	}
+	
+	private Lancamento converter(LancamentoDTO dto, Usuario usuario)
 	{
 		
 		Lancamento lancamento = new Lancamento();
@@ -127,13 +432,19 @@ public class LancamentoResource
 		lancamento.setValor(dto.getValor());
 		
 		lancamento.setDataCadastro(LocalDate.now());
-				
-		Usuario usuario = usuarioService
-							.obterPorId(dto.getUsuario())
-							.orElseThrow( () -> new RegraNegocioException("Usuário não encontrado para o Id informado") );
 		
 		lancamento.setUsuario(usuario);
 		
+		// sem a moeda, o lançamento é na moeda do usuário
+		lancamento.setMoeda(dto.getMoeda() != null ? dto.getMoeda().trim().toUpperCase() : usuario.getMoeda());
+		
+		lancamento.setIdCategoria(dto.getCategoria());
+		
+		if (dto.getTags() != null)
+		{
+			lancamento.setTags(normalizarTags(dto.getTags()));
+		}
+		
 		if (dto.getTipo() != null)
 		{
 			lancamento.setTipo(TipoLancamento.valueOf(dto.getTipo())); // se o texto for o nome da constante, retorna o valor (indice) da constante
@@ -148,17 +459,49 @@ public class LancamentoResource
 		
 	}
 	
+	private Set<String> normalizarTags(Set<String> tags)
+	{
+		return tags.stream().map( tag -> normalizarTag(tag) ).filter( tag -> tag != null ).collect(Collectors.toSet());
+	}
+	
+	// etiquetas sem espaços nas pontas e em minúsculas, para que 'Viagem' e 'viagem ' sejam a mesma etiqueta
+	private String normalizarTag(String tag)
+	{
+		
+		if (tag == null || tag.trim().isEmpty())
+		{
+			return null;
+		}
+		
+		return tag.trim().toLowerCase();
+		
+	}
+	
+	// o ETag é a versão dos lançamentos do usuário: sem alterações desde a última consulta, responde 304 sem consultar os lançamentos
+	// a versão é lida antes da consulta, então nunca é mais nova que os dados retornados
 	@GetMapping
 	public ResponseEntity buscar(@RequestParam(value = "descricao", required = false) String  descricao,
 			                     @RequestParam(value = "ano",       required = false) Integer ano,
 			                     @RequestParam(value = "mes",       required = false) Integer mes,
-			                     @RequestParam("usuario") Long idUsuario)
+			                     @RequestParam(value = "categoria", required = false) Long    idCategoria,
+			                     @RequestParam(value = "tag",       required = false) String  tag,
+			                     @RequestParam("usuario") Long idUsuario,
+			                     WebRequest request)
 	{
 		
+		String versao = versaoLancamentosService.obterVersao(idUsuario);
+		
+		if (request.checkNotModified(versao))
+		{
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(versao).build();
+		}
+		
 		Lancamento lancamentoFiltro = new Lancamento();
 		lancamentoFiltro.setDescricao(descricao);
 		lancamentoFiltro.setAno(ano);
 		lancamentoFiltro.setMes(mes);
+		lancamentoFiltro.setIdCategoria(idCategoria);
+		lancamentoFiltro.setTags(filtroTag(tag));
 		
 		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
 		
@@ -169,48 +512,462 @@ public class LancamentoResource
 		else
 		{
 			lancamentoFiltro.setUsuario(usuario.get());
-			List<Lancamento> lancamentos = service.buscar(lancamentoFiltro);
-			return ResponseEntity.ok(lancamentos);
+			List<LancamentoDTO> lancamentos = ContextoRoteamento
+												.noPrincipal( () -> service.buscar(lancamentoFiltro) )
+												.stream()
+												.map( lancamento -> converter(lancamento) )
+												.collect(Collectors.toList());
+			return ResponseEntity.ok().eTag(versao).cacheControl(CacheControl.noCache()).body(lancamentos);
 		}
 		
 	}
 	
-	// atualiza apenas o status do registro id passado como parâmetro
-	@PutMapping("{id}/atualiza-status")
-	public ResponseEntity atualisarStatus(@PathVariable("id") Long id, @RequestBody AtualizaStatusDTO dto )
+	Set<String> filtroTag(String tag)
 	{
-				
-		return service.obterPorId(id).map( entity -> 
+		
+		String tagNormalizada = normalizarTag(tag);
+		
+		return tagNormalizada != null ? Collections.singleton(tagNormalizada) : Collections.emptySet();
+		
+	}
+	
+	// busca paginada por cursor: cada página retorna o token para buscar a próxima
+	@GetMapping("pagina")
+	public ResponseEntity buscarPagina(@RequestParam(value = "descricao",   required = false) String  descricao,
+			                           @RequestParam(value = "ano",         required = false) Integer ano,
+			                           @RequestParam(value = "mes",         required = false) Integer mes,
+			                           @RequestParam(value = "tamanho",     required = false) Integer tamanho,
+			                           @RequestParam(value = "continuacao", required = false) String  continuacao,
+			                           @RequestParam(value = "categoria",   required = false) Long    idCategoria,
+			                           @RequestParam(value = "tag",         required = false) String  tag,
+			                           @RequestParam("usuario") Long idUsuario)
+	{
+		
+		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
+		
+		if (!usuario.isPresent())
+		{
+			return ResponseEntity.badRequest().body("Usuário não encontrado");
+		}
+		
+		try
 		{
 			
-			try
+			Lancamento lancamentoFiltro = new Lancamento();
+			lancamentoFiltro.setDescricao(descricao);
+			lancamentoFiltro.setAno(ano);
+			lancamentoFiltro.setMes(mes);
+			lancamentoFiltro.setIdCategoria(idCategoria);
+			lancamentoFiltro.setTags(filtroTag(tag));
+			lancamentoFiltro.setUsuario(usuario.get());
+			
+			int tamanhoPagina = tamanho == null ? TAMANHO_PAGINA_PADRAO : Math.max(1, Math.min(tamanho, TAMANHO_PAGINA_MAXIMO));
+			
+			// busca um registro a mais apenas para saber se existe uma próxima página
+			List<DadosLancamento> lancamentos = service.buscarPagina(lancamentoFiltro, decodificarContinuacao(continuacao), tamanhoPagina + 1);
+			
+			String proximaContinuacao = null;
+			
+			if (lancamentos.size() > tamanhoPagina)
 			{
-				
-				StatusLancamento statusSelecionado = StatusLancamento.valueOf(dto.getStatus());
-				
-				if (statusSelecionado == null)
+				lancamentos        = lancamentos.subList(0, tamanhoPagina);
+				proximaContinuacao = codificarContinuacao(lancamentos.get(tamanhoPagina - 1));
+			}
+			
+			List<LancamentoDTO> dtos = lancamentos.stream().map( lancamento -> converter(lancamento) ).collect(Collectors.toList());
+			
+			return ResponseEntity.ok(new PaginaLancamentoDTO(dtos, proximaContinuacao));
+			
+		}
+		catch (RegraNegocioException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		
+	}
+	
+	// retorna todos os lançamentos do filtro escrevendo cada registro na resposta assim que é lido do banco
+	// o consumo de memória não depende da quantidade de registros
+	@GetMapping("stream")
+	public ResponseEntity<StreamingResponseBody> buscarStream(@RequestParam(value = "descricao", required = false) String  descricao,
+			                           @RequestParam(value = "ano",       required = false) Integer ano,
+			                           @RequestParam(value = "mes",       required = false) Integer mes,
+			                           @RequestParam("usuario") Long idUsuario)
+	{
+		
+		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
+		
+		if (!usuario.isPresent())
+		{
+			// o tipo de retorno precisa ser 'StreamingResponseBody' para o spring escrever a resposta aos poucos
+			return ResponseEntity.badRequest().body( saida -> saida.write("Usuário não encontrado".getBytes(StandardCharsets.UTF_8)) );
+		}
+		
+		Lancamento lancamentoFiltro = new Lancamento();
+		lancamentoFiltro.setDescricao(descricao);
+		lancamentoFiltro.setAno(ano);
+		lancamentoFiltro.setMes(mes);
+		lancamentoFiltro.setUsuario(usuario.get());
+		
+		StreamingResponseBody corpo = saida -> 
+		{
+			
+			JsonGenerator gerador = objectMapper.getFactory().createGenerator(saida);
+			gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			
+			gerador.writeStartArray();
+			
+			service.percorrer(lancamentoFiltro, lancamento -> 
+			{
+				try
 				{
-					return ResponseEntity.badRequest().body("Status inválido.");
+					gerador.writeObject(converter(lancamento));
 				}
-				else
+				catch (IOException e)
 				{
-					entity.setStatus(statusSelecionado);
-					service.atualizar(entity);
-					return ResponseEntity.ok().body(entity);					
-				}			
-
-			}
-			catch (RegraNegocioException e)
+					throw new UncheckedIOException(e);
+				}
+			});
+			
+			gerador.writeEndArray();
+			gerador.close();
+			
+		};
+		
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(corpo);
+		
+	}
+	
+	// exportação do extrato do usuário em csv ou ofx, no período informado (yyyy-MM), opcionalmente compactado com gzip
+	// assim como em 'stream', cada lançamento é escrito na resposta assim que é lido do cursor do banco
+	@GetMapping("exportacao")
+	public ResponseEntity<StreamingResponseBody> exportar(@RequestParam(value = "formato",   defaultValue = "csv")   String  formato,
+			                                              @RequestParam(value = "inicio",    required = false)       String  inicio,
+			                                              @RequestParam(value = "fim",       required = false)       String  fim,
+			                                              @RequestParam(value = "compactar", defaultValue = "false") boolean compactar,
+			                                              @RequestParam("usuario") Long idUsuario)
+	{
+		
+		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
+		
+		if (!usuario.isPresent())
+		{
+			return ResponseEntity.badRequest().body( saida -> saida.write("Usuário não encontrado".getBytes(StandardCharsets.UTF_8)) );
+		}
+		
+		boolean ofx = "ofx".equalsIgnoreCase(formato);
+		
+		if (!ofx && !"csv".equalsIgnoreCase(formato))
+		{
+			return ResponseEntity.badRequest().body( saida -> saida.write("Formato inválido: utilize csv ou ofx".getBytes(StandardCharsets.UTF_8)) );
+		}
+		
+		YearMonth periodoInicial;
+		YearMonth periodoFinal;
+		
+		try
+		{
+			// sem o período, exporta o ano atual
+			periodoInicial = inicio == null ? Year.now().atMonth(1)  : YearMonth.parse(inicio);
+			periodoFinal   = fim    == null ? Year.now().atMonth(12) : YearMonth.parse(fim);
+		}
+		catch (DateTimeParseException e)
+		{
+			return ResponseEntity.badRequest().body( saida -> saida.write("Período inválido: utilize o formato yyyy-MM".getBytes(StandardCharsets.UTF_8)) );
+		}
+		
+		if (periodoInicial.isAfter(periodoFinal))
+		{
+			return ResponseEntity.badRequest().body( saida -> saida.write("O início do período é posterior ao fim".getBytes(StandardCharsets.UTF_8)) );
+		}
+		
+		StreamingResponseBody corpo = saida -> 
+		{
+			
+			// o gzip e o buffer de escrita têm tamanho fixo, então a memória não cresce com o tamanho do extrato
+			OutputStream destino  = compactar ? new GZIPOutputStream(saida, TAMANHO_BUFFER_EXPORTACAO) : saida;
+			Writer       escritor = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), TAMANHO_BUFFER_EXPORTACAO);
+			
+			if (ofx)
 			{
-				return ResponseEntity.badRequest().body(e.getMessage());
-			}
+				ExtratoOfx extrato = new ExtratoOfx(escritor, usuario.get().getMoeda(), cotacaoService);
+				extrato.iniciar(idUsuario, periodoInicial, periodoFinal);
 				
-		}).orElseGet( () -> new ResponseEntity("Lançamento não encontrado", HttpStatus.BAD_REQUEST));
+				service.exportar(idUsuario, periodoInicial, periodoFinal, lancamento -> 
+				{
+					try
+					{
+						extrato.escrever(lancamento);
+					}
+					catch (IOException e)
+					{
+						throw new UncheckedIOException(e);
+					}
+				});
 				
+				extrato.finalizar();
+			}
+			else
+			{
+				escritor.write(LancamentoCsv.CABECALHO + "\n");
+				
+				service.exportar(idUsuario, periodoInicial, periodoFinal, lancamento -> 
+				{
+					try
+					{
+						escritor.write(LancamentoCsv.escreverLinha(lancamento) + "\n");
+					}
+					catch (IOException e)
+					{
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+			
+			// não fecha a saída da resposta, que é do servlet; apenas conclui o gzip
+			escritor.flush();
+			
+			if (destino instanceof GZIPOutputStream)
+			{
+				((GZIPOutputStream) destino).finish();
+			}
+			
+		};
+		
+		String arquivo = "extrato-" + idUsuario + "-" + periodoInicial + "-" + periodoFinal + (ofx ? ".ofx" : ".csv") + (compactar ? ".gz" : "");
+		
+		return ResponseEntity.ok()
+				             .contentType(compactar ? MediaType.APPLICATION_OCTET_STREAM : MediaType.parseMediaType(ofx ? "application/x-ofx" : "text/csv;charset=UTF-8"))
+				             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + arquivo + "\"")
+				             .body(corpo);
+		
+	}
+	
+	// mantém a conexão aberta e envia as inclusões, alterações, mudanças de status e exclusões de lançamentos do usuário
+	// (server-sent events: evento 'lancamento' com a operação e os dados do lançamento)
+	@GetMapping(value = "eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> acompanhar(@RequestParam("usuario") Long idUsuario)
+	{
+		
+		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
+		
+		if (!usuario.isPresent())
+		{
+			// o tipo de retorno precisa ser 'SseEmitter' para o spring manter a conexão aberta
+			return ResponseEntity.badRequest().build();
+		}
+		
+		return ResponseEntity.ok(notificacaoLancamentosService.inscrever(idUsuario));
+		
+	}
+	
+	// totais de receitas e despesas por ano, mês, tipo e status, lidos da tabela de resumo 'financas.resumo_mensal'
+	// sem os anos informados, retorna os últimos ANOS_RESUMO_PADRAO anos até o ano atual
+	@GetMapping("resumo")
+	public ResponseEntity buscarResumo(@RequestParam(value = "anoInicial", required = false) Integer anoInicial,
+			                           @RequestParam(value = "anoFinal",   required = false) Integer anoFinal,
+			                           @RequestParam("usuario") Long idUsuario)
+	{
+		
+		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
+		
+		if (!usuario.isPresent())
+		{
+			return ResponseEntity.badRequest().body("Usuário não encontrado");
+		}
+		
+		if (anoFinal == null)
+		{
+			anoFinal = LocalDate.now().getYear();
+		}
+		
+		if (anoInicial == null)
+		{
+			anoInicial = anoFinal - ANOS_RESUMO_PADRAO + 1;
+		}
+		
+		try
+		{
+			
+			List<ResumoMensalDTO> resumos = resumoMensalService
+												.buscar(idUsuario, anoInicial, anoFinal)
+												.stream()
+												.map( resumo -> converter(resumo) )
+												.collect(Collectors.toList());
+			
+			return ResponseEntity.ok(resumos);
+			
+		}
+		catch (RegraNegocioException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		
+	}
+	
+	private ResumoMensalDTO converter(ResumoMensal resumo)
+	{
+		return ResumoMensalDTO.builder()
+				.ano(resumo.getAno())
+				.mes(resumo.getMes())
+				.tipo(resumo.getTipo().name())
+				.status(resumo.getStatus().name())
+				.valor(resumo.getValor())
+				.quantidade(resumo.getQuantidade())
+				.build();
+	}
+	
+	// o token de continuação é a chave (ano, mes, id) do último registro da página, codificada em base64
+	private String codificarContinuacao(DadosLancamento lancamento)
+	{
+		
+		String chave = lancamento.getAno() + ":" + lancamento.getMes() + ":" + lancamento.getId();
+		
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(chave.getBytes(StandardCharsets.UTF_8));
+		
+	}
+	
+	private Lancamento decodificarContinuacao(String continuacao)
+	{
+		
+		if (continuacao == null || continuacao.isEmpty())
+		{
+			return null;
+		}
+		
+		try
+		{
+			
+			String[] partes = new String(Base64.getUrlDecoder().decode(continuacao), StandardCharsets.UTF_8).split(":");
+			
+			return Lancamento.builder()
+					.ano(Integer.valueOf(partes[0]))
+					.mes(Integer.valueOf(partes[1]))
+					.id(Long.valueOf(partes[2]))
+					.build();
+			
+		}
+		catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e)
+		{
+			throw new RegraNegocioException("Token de continuação inválido.");
+		}
+		
+	}
+	
+	// atualiza apenas o status do registro id passado como parâmetro
+	// altera apenas o status (update parcial); a versão é opcional aqui para não quebrar os clientes que não a enviam
+	@PutMapping("{id}/atualiza-status")
+	public ResponseEntity atualisarStatus(@PathVariable("id") Long id, @RequestBody AtualizaStatusDTO dto )
+	{
+		
+		Lancamento alteracoes = new Lancamento();
+		
+		try
+		{
+			alteracoes.setStatus(StatusLancamento.valueOf(dto.getStatus()));
+		}
+		catch (IllegalArgumentException | NullPointerException e)
+		{
+			return ResponseEntity.badRequest().body("Status inválido.");
+		}
+		
+		try
+		{
+			
+			return service.atualizarParcial(id, dto.getVersao(), alteracoes)
+					.map( lancamento -> ResponseEntity.ok().body((Object) converter(lancamento)) )
+					.orElseGet( () -> new ResponseEntity("Lançamento não encontrado", HttpStatus.BAD_REQUEST));
+			
+		}
+		catch (RegraNegocioException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		catch (OptimisticLockingFailureException e)
+		{
+			return conflitoVersao();
+		}
 		
 	}		
 	
-	private LancamentoDTO converter(Lancamento lancamento)
+	// altera o status de vários lançamentos do usuário de uma vez (ex: efetivar os pendentes do mês)
+	// recebe os ids ou o filtro (ano, mês e status atual) e retorna o resultado de cada lançamento
+	@PutMapping("atualiza-status")
+	public ResponseEntity atualizarStatusLote(@RequestBody AtualizaStatusLoteDTO dto)
+	{
+		
+		StatusLancamento status;
+		StatusLancamento statusAtual;
+		
+		try
+		{
+			status      = StatusLancamento.valueOf(dto.getStatus());
+			statusAtual = dto.getStatusAtual() == null ? null : StatusLancamento.valueOf(dto.getStatusAtual());
+		}
+		catch (IllegalArgumentException | NullPointerException e)
+		{
+			return ResponseEntity.badRequest().body("Status inválido.");
+		}
+		
+		if (dto.getUsuario() == null || !usuarioService.obterPorId(dto.getUsuario()).isPresent())
+		{
+			return ResponseEntity.badRequest().body("Usuário não encontrado");
+		}
+		
+		boolean porIds = dto.getIds() != null && !dto.getIds().isEmpty();
+		
+		if (porIds == (dto.getAno() != null))
+		{
+			return ResponseEntity.badRequest().body("Informe os ids dos lançamentos ou o ano (com mês e status atual opcionais).");
+		}
+		
+		if (porIds && dto.getIds().size() > LIMITE_ATUALIZACAO_STATUS)
+		{
+			return ResponseEntity.badRequest().body("A alteração de status aceita no máximo " + LIMITE_ATUALIZACAO_STATUS + " lançamentos por requisição.");
+		}
+		
+		List<Long> idsInformados = porIds ? dto.getIds().stream().distinct().collect(Collectors.toList()) : null;
+		
+		List<SituacaoLancamento> anteriores = porIds 
+				? service.atualizarStatus(dto.getUsuario(), idsInformados, status)
+				: service.atualizarStatus(dto.getUsuario(), dto.getAno(), dto.getMes(), statusAtual, status);
+		
+		Map<Long, SituacaoLancamento> encontrados = new HashMap<>();
+		anteriores.forEach( anterior -> encontrados.put(anterior.getId(), anterior) );
+		
+		// sem ids, o resultado é o de cada lançamento encontrado pelo filtro
+		List<Long> ids = porIds ? idsInformados : anteriores.stream().map(SituacaoLancamento::getId).collect(Collectors.toList());
+		
+		List<ResultadoStatusLancamentoDTO> resultados = new ArrayList<>(ids.size());
+		int atualizados = 0;
+		
+		for (Long id : ids)
+		{
+			
+			SituacaoLancamento anterior = encontrados.get(id);
+			
+			if (anterior == null)
+			{
+				resultados.add(new ResultadoStatusLancamentoDTO(id, "NAO_ENCONTRADO"));
+			}
+			else if (anterior.getStatus() == status)
+			{
+				resultados.add(new ResultadoStatusLancamentoDTO(id, "INALTERADO"));
+			}
+			else
+			{
+				resultados.add(new ResultadoStatusLancamentoDTO(id, "ATUALIZADO"));
+				atualizados++;
+			}
+			
+		}
+		
+		return ResponseEntity.ok(new ResultadoAtualizacaoStatusDTO(atualizados, resultados));
+		
+	}
+	
+	// as respostas usam o dto (com apenas o id do usuário) e não a entidade, cujo usuário é carregado sob demanda (lazy)
+	LancamentoDTO converter(Lancamento lancamento)
 	{
 		return LancamentoDTO.builder()
 				.id(lancamento.getId())
@@ -220,9 +977,31 @@ public class LancamentoResource
 				.ano(lancamento.getAno())
 				.tipo(lancamento.getTipo().name())
 				.status(lancamento.getStatus().name())
+				.moeda(lancamento.getMoeda())
+				.categoria(lancamento.getIdCategoria())
+				.tags(lancamento.getTags())
+				.versao(lancamento.getVersao())
 				.usuario(lancamento.getUsuario().getId())
 				.build();
 	}
+	
+	LancamentoDTO converter(DadosLancamento lancamento)
+	{
+		return LancamentoDTO.builder()
+				.id(lancamento.getId())
+				.descricao(lancamento.getDescricao())
+				.valor(lancamento.getValor())
+				.mes(lancamento.getMes())
+				.ano(lancamento.getAno())
+				.tipo(lancamento.getTipo().name())
+				.status(lancamento.getStatus().name())
+				.moeda(lancamento.getMoeda())
+				.categoria(lancamento.getIdCategoria())
+				.tags(lancamento.getTags())
+				.versao(lancamento.getVersao())
+				.usuario(lancamento.getIdUsuario())
+				.build();
+	}
 
 	@GetMapping("{id}")
 	public ResponseEntity obterLancamento(@PathVariable("id") Long id)	
@@ -0,0 +1,133 @@
+package br.com.rochasoft.minhasfinancas.api.resource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import br.com.rochasoft.minhasfinancas.api.dto.OrcamentoDTO;
+import br.com.rochasoft.minhasfinancas.api.dto.SituacaoOrcamentoDTO;
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.Orcamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoOrcamento;
+import br.com.rochasoft.minhasfinancas.service.OrcamentoService;
+import br.com.rochasoft.minhasfinancas.service.UsuarioService;
+import lombok.RequiredArgsConstructor;
+
+// orçamentos mensais por categoria; a gravação de uma despesa acima do limite é avisada no cabeçalho
+// LancamentoResource.CABECALHO_ORCAMENTO_EXCEDIDO
+@RestController
+@RequestMapping("/api/orcamentos")
+@RequiredArgsConstructor
+public class OrcamentoResource 
+{
+	
+	private final OrcamentoService service;
+	private final UsuarioService   usuarioService;
+	
+	// cria o orçamento da categoria ou altera o limite, quando a categoria já tem orçamento
+	@PostMapping
+	public ResponseEntity salvar( @RequestBody OrcamentoDTO dto )
+	{
+		
+		try
+		{
+			
+			Usuario usuario = usuarioService
+								.obterPorId(dto.getUsuario())
+								.orElseThrow( () -> new RegraNegocioException("Usuário não encontrado para o Id informado") );
+			
+			Orcamento orcamento = service.salvar(Orcamento.builder()
+													.usuario(usuario)
+													.idCategoria(dto.getCategoria())
+													.valor(dto.getValor())
+													.build());
+			
+			return new ResponseEntity(converter(orcamento), HttpStatus.CREATED);
+			
+		}
+		catch (RegraNegocioException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		
+	}
+	
+	@DeleteMapping("{id}")
+	public ResponseEntity excluir( @PathVariable("id") Long id )
+	{
+		
+		return service.obterPorId(id).map( orcamento -> 
+		{
+			
+			service.excluir(orcamento);
+			return new ResponseEntity(HttpStatus.NO_CONTENT);
+			
+		}).orElseGet( () -> new ResponseEntity("Orçamento não encontrado", HttpStatus.BAD_REQUEST));
+		
+	}
+	
+	// limite e gasto de cada orçamento do usuário no mês (padrão: mês atual)
+	@GetMapping
+	public ResponseEntity buscar(@RequestParam(value = "ano", required = false) Integer ano,
+			                     @RequestParam(value = "mes", required = false) Integer mes,
+			                     @RequestParam("usuario") Long idUsuario)
+	{
+		
+		LocalDate hoje = LocalDate.now();
+		
+		try
+		{
+			
+			List<SituacaoOrcamentoDTO> orcamentos = service
+														.buscar(idUsuario, ano != null ? ano : hoje.getYear(), mes != null ? mes : hoje.getMonthValue())
+														.stream()
+														.map( orcamento -> converter(orcamento) )
+														.collect(Collectors.toList());
+			
+			return ResponseEntity.ok(orcamentos);
+			
+		}
+		catch (RegraNegocioException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		
+	}
+	
+	private OrcamentoDTO converter(Orcamento orcamento)
+	{
+		return OrcamentoDTO.builder()
+				.id(orcamento.getId())
+				.usuario(orcamento.getUsuario().getId())
+				.categoria(orcamento.getIdCategoria())
+				.valor(orcamento.getValor())
+				.build();
+	}
+	
+	private SituacaoOrcamentoDTO converter(SituacaoOrcamento orcamento)
+	{
+		return SituacaoOrcamentoDTO.builder()
+				.orcamento(orcamento.getIdOrcamento())
+				.categoria(orcamento.getIdCategoria())
+				.ano(orcamento.getAno())
+				.mes(orcamento.getMes())
+				.limite(orcamento.getLimite())
+				.gasto(orcamento.getGasto())
+				.disponivel(orcamento.getDisponivel())
+				.excedido(orcamento.isExcedido())
+				.build();
+	}
+
+}
@@ -0,0 +1,137 @@
+package br.com.rochasoft.minhasfinancas.api.resource;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import br.com.rochasoft.minhasfinancas.api.dto.RecorrenciaDTO;
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.Recorrencia;
+import br.com.rochasoft.minhasfinancas.model.enums.Periodicidade;
+import br.com.rochasoft.minhasfinancas.service.LancamentoService;
+import br.com.rochasoft.minhasfinancas.service.RecorrenciaService;
+import lombok.RequiredArgsConstructor;
+
+// lançamentos recorrentes: a recorrência é criada a partir de um lançamento existente (o modelo)
+// e as ocorrências seguintes são geradas pela rotina de recorrências (RecorrenciasJob)
+@RestController
+@RequestMapping("/api/recorrencias")
+@RequiredArgsConstructor
+public class RecorrenciaResource 
+{
+	
+	private final RecorrenciaService service;
+	private final LancamentoService  lancamentoService;
+	
+	@PostMapping
+	public ResponseEntity criar( @RequestBody RecorrenciaDTO dto )
+	{
+		
+		if (dto.getLancamento() == null)
+		{
+			return ResponseEntity.badRequest().body("Informe o lançamento modelo da recorrência.");
+		}
+		
+		return lancamentoService.obterPorId(dto.getLancamento()).map( modelo -> 
+		{
+			
+			try
+			{
+				
+				Recorrencia recorrencia = service.criar(modelo, 
+						                                converterPeriodicidade(dto.getPeriodicidade()), 
+						                                dto.getIntervalo(), 
+						                                dto.getAnoFinal(), 
+						                                dto.getMesFinal());
+				
+				return new ResponseEntity(converter(recorrencia), HttpStatus.CREATED);
+				
+			}
+			catch (RegraNegocioException e)
+			{
+				return ResponseEntity.badRequest().body(e.getMessage());
+			}
+			
+		}).orElseGet( () -> new ResponseEntity("Lançamento não encontrado", HttpStatus.BAD_REQUEST));
+		
+	}
+	
+	@GetMapping
+	public ResponseEntity buscar( @RequestParam("usuario") Long idUsuario )
+	{
+		
+		List<RecorrenciaDTO> recorrencias = service.buscarPorUsuario(idUsuario)
+												.stream()
+												.map( recorrencia -> converter(recorrencia) )
+												.collect(Collectors.toList());
+		
+		return ResponseEntity.ok(recorrencias);
+		
+	}
+	
+	// encerra a recorrência: nenhuma ocorrência nova é gerada, as já geradas são mantidas
+	@DeleteMapping("{id}")
+	public ResponseEntity encerrar( @PathVariable("id") Long id )
+	{
+		
+		return service.obterPorId(id).map( recorrencia -> 
+		{
+			
+			service.encerrar(recorrencia);
+			return new ResponseEntity(HttpStatus.NO_CONTENT);
+			
+		}).orElseGet( () -> new ResponseEntity("Recorrência não encontrada", HttpStatus.BAD_REQUEST));
+		
+	}
+	
+	private Periodicidade converterPeriodicidade(String periodicidade)
+	{
+		
+		if (periodicidade == null)
+		{
+			return null;
+		}
+		
+		try
+		{
+			return Periodicidade.valueOf(periodicidade);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new RegraNegocioException("Periodicidade inválida, informe MENSAL ou ANUAL.");
+		}
+		
+	}
+	
+	private RecorrenciaDTO converter(Recorrencia recorrencia)
+	{
+		return RecorrenciaDTO.builder()
+				.id(recorrencia.getId())
+				.lancamento(recorrencia.getIdLancamentoModelo())
+				.usuario(recorrencia.getUsuario().getId())
+				.descricao(recorrencia.getDescricao())
+				.valor(recorrencia.getValor())
+				.moeda(recorrencia.getMoeda())
+				.categoria(recorrencia.getIdCategoria())
+				.tipo(recorrencia.getTipo().name())
+				.periodicidade(recorrencia.getPeriodicidade().name())
+				.intervalo(recorrencia.getIntervalo())
+				.proximoAno(recorrencia.getProximoAno())
+				.proximoMes(recorrencia.getProximoMes())
+				.anoFinal(recorrencia.getAnoFinal())
+				.mesFinal(recorrencia.getMesFinal())
+				.ativa(recorrencia.getAtiva())
+				.build();
+	}
+
+}
@@ -0,0 +1,20 @@
+package br.com.rochasoft.minhasfinancas.api.resource;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// respostas enviadas aos poucos recusadas pelo executor (WebConfiguration) com todas as threads ocupadas e a fila cheia
+@RestControllerAdvice
+public class RespostasAssincronasAdvice
+{
+
+	@ExceptionHandler(TaskRejectedException.class)
+	public ResponseEntity recusar(TaskRejectedException e)
+	{
+		return new ResponseEntity("Muitas consultas em andamento. Tente novamente.", HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+}
@@ -2,22 +2,31 @@ package br.com.rochasoft.minhasfinancas.api.resource;
 
 import java.math.BigDecimal;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import br.com.rochasoft.minhasfinancas.api.dto.UsuarioDTO;
 import br.com.rochasoft.minhasfinancas.exception.ErroAutenticacaoException;
 import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
 import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.replica.ContextoRoteamento;
+import br.com.rochasoft.minhasfinancas.service.IdempotenciaService;
 import br.com.rochasoft.minhasfinancas.service.LancamentoService;
 import br.com.rochasoft.minhasfinancas.service.UsuarioService;
+import br.com.rochasoft.minhasfinancas.service.VersaoLancamentosService;
 import lombok.RequiredArgsConstructor;
 
 @RestController
@@ -29,6 +38,8 @@ public class UsuarioResource
 	// declarando a interface, porque a instancia sera definda pelo container do springboot
 	private final UsuarioService    service;
 	private final LancamentoService lancamentoService;
+	private final VersaoLancamentosService versaoLancamentosService;
+	private final IdempotenciaService idempotenciaService;
 	
 	// construtor a ser utilizado pela injeção de dependência
 	// o spring boot irá passar como parâmetro automaticamente um objeto a partir do container
@@ -39,24 +50,45 @@ public class UsuarioResource
 	}
 	*/
 	
+	// a resposta é assíncrona: a thread da requisição é liberada enquanto a senha é verificada
 	@PostMapping("/autenticar")
-	public ResponseEntity autenticar( @RequestBody UsuarioDTO dto)
+	public CompletableFuture<ResponseEntity> autenticar( @RequestBody UsuarioDTO dto)
 	{
 			
-		try 
-		{
-			Usuario usuarioAutenticado = service.autenticar(dto.getEmail(), dto.getSenha());
-			return ResponseEntity.ok(usuarioAutenticado);
-		} 
-		catch (ErroAutenticacaoException e) 
+		return service.autenticar(dto.getEmail(), dto.getSenha()).handle( (usuarioAutenticado, erro) -> 
 		{
-			return ResponseEntity.badRequest().body(e.getMessage());
-		}		
+			
+			if (erro == null)
+			{
+				return ResponseEntity.ok(usuarioAutenticado);
+			}
+			
+			Throwable causa = erro instanceof CompletionException ? erro.getCause() : erro;
+			
+			if (causa instanceof ErroAutenticacaoException)
+			{
+				return ResponseEntity.badRequest().body(causa.getMessage());
+			}
+			
+			if (causa instanceof RejectedExecutionException)
+			{
+				return new ResponseEntity("Muitas autenticações em andamento. Tente novamente.", HttpStatus.SERVICE_UNAVAILABLE);
+			}
+			
+			throw new CompletionException(causa);
+			
+		});
 		
 	}	
 	
+	// a repetição com o mesmo 'Idempotency-Key' devolve a resposta da primeira execução, sem cadastrar o usuário de novo
 	@PostMapping
-	public ResponseEntity salvar( @RequestBody UsuarioDTO dto)
+	public ResponseEntity salvar( @RequestBody UsuarioDTO dto, @RequestHeader(value = IdempotenciaService.CABECALHO_CHAVE, required = false) String chaveIdempotencia)
+	{
+		return idempotenciaService.executar("usuarios", chaveIdempotencia, dto, () -> salvarUsuario(dto));
+	}
+	
+	private ResponseEntity salvarUsuario(UsuarioDTO dto)
 	{
 		
 		// transforma o dto em entidade usuario
@@ -66,6 +98,11 @@ public class UsuarioResource
 				.senha(dto.getSenha())
 				.build();
 		
+		if (dto.getMoeda() != null)
+		{
+			usuario.setMoeda(dto.getMoeda().trim().toUpperCase());
+		}
+		
 		try 
 		{
 			Usuario usuarioSalvo = service.salvarUsuario(usuario);
@@ -78,10 +115,18 @@ public class UsuarioResource
 		
 	}
 	
+	// o ETag é a versão dos lançamentos do usuário: sem alterações desde a última consulta, responde 304 sem calcular o saldo
 	@GetMapping("{id}/saldo")
-	public ResponseEntity obterSaldo(@PathVariable("id") Long id)
+	public ResponseEntity obterSaldo(@PathVariable("id") Long id, WebRequest request)
 	{
 		
+		String versao = versaoLancamentosService.obterVersao(id);
+		
+		if (request.checkNotModified(versao))
+		{
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(versao).build();
+		}
+		
 		// verifica se o usuário existe
 		Optional<Usuario> usuario = service.obterPorId(id);
 		
@@ -90,11 +135,11 @@ public class UsuarioResource
 			return new ResponseEntity(HttpStatus.NOT_FOUND);
 		}
 		
-		// busca o saldo do usuário
-		BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(id);
+		// busca o saldo do usuário (no banco principal, por causa do ETag)
+		BigDecimal saldo = ContextoRoteamento.noPrincipal( () -> lancamentoService.obterSaldoPorUsuario(id) );
 		
 		// retorna o saldo
-		return ResponseEntity.ok(saldo);
+		return ResponseEntity.ok().eTag(versao).cacheControl(CacheControl.noCache()).body(saldo);
 		
 	}
 	
@@ -0,0 +1,13 @@
+package br.com.rochasoft.minhasfinancas.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+// habilita as anotações @Cacheable e @CacheEvict
+// o gerenciador de cache (caffeine) e seus limites são definidos em application.properties
+@EnableCaching
+@Configuration
+public class CacheConfiguration
+{
+
+}
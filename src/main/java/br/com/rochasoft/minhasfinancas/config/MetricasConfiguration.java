@@ -0,0 +1,54 @@
+package br.com.rochasoft.minhasfinancas.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import br.com.rochasoft.minhasfinancas.metrica.ConsultasPorRequisicaoFilter;
+import br.com.rochasoft.minhasfinancas.metrica.MetricasRepositorioInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// métricas próprias da aplicação, além das que o actuator já registra
+// (tempo dos endpoints, pool de conexões hikari, estatísticas do hibernate e caches)
+@Configuration
+public class MetricasConfiguration
+{
+
+	// inclui o MetricasRepositorioInterceptor no proxy de todos os repositórios
+	// o método é estático para que o BeanPostProcessor seja criado antes dos repositórios
+	@Bean
+	public static BeanPostProcessor metricasRepositorios(ObjectProvider<MeterRegistry> registry)
+	{
+
+		return new BeanPostProcessor()
+		{
+
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName)
+			{
+
+				if (bean instanceof RepositoryFactoryBeanSupport)
+				{
+					((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer( fabrica -> 
+						fabrica.addRepositoryProxyPostProcessor( (proxy, informacoes) -> 
+							proxy.addAdvice(new MetricasRepositorioInterceptor(registry, informacoes.getRepositoryInterface().getSimpleName())) ));
+				}
+
+				return bean;
+
+			}
+
+		};
+
+	}
+
+	@Bean
+	public FilterRegistrationBean<ConsultasPorRequisicaoFilter> consultasPorRequisicaoFilter(ObjectProvider<MeterRegistry> registry)
+	{
+		return new FilterRegistrationBean<>(new ConsultasPorRequisicaoFilter(registry));
+	}
+
+}
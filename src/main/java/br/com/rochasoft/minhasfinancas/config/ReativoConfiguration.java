@@ -0,0 +1,73 @@
+package br.com.rochasoft.minhasfinancas.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// consultas não bloqueantes (r2dbc): habilitado apenas quando 'minhasfinancas.reativo.url' é informada (perfil 'reativo')
+// utilizado apenas pela busca de lançamentos e pelo saldo em /api/reativo; as gravações continuam no jpa (spring.datasource.*)
+// a autoconfiguração do r2dbc fica desligada (application.properties): com uma ConnectionFactory no contexto,
+// o spring boot deixa de criar o DataSource do jpa
+@Configuration
+@ConditionalOnProperty("minhasfinancas.reativo.url")
+public class ReativoConfiguration
+{
+
+	// o pool não é um bean do tipo ConnectionFactory, pelo mesmo motivo da autoconfiguração desligada
+	@Getter
+	@AllArgsConstructor
+	public static class PoolConexoesReativas implements AutoCloseable
+	{
+
+		private final ConnectionPool pool;
+
+		@Override
+		public void close()
+		{
+			pool.dispose();
+		}
+
+	}
+
+	@Bean
+	public PoolConexoesReativas poolConexoesReativas(@Value("${minhasfinancas.reativo.url}") String url,
+			                                         @Value("${minhasfinancas.reativo.username:${spring.datasource.username:}}") String usuario,
+			                                         @Value("${minhasfinancas.reativo.password:${spring.datasource.password:}}") String senha,
+			                                         @Value("${minhasfinancas.reativo.maximo-conexoes:20}") int maximoConexoes)
+	{
+
+		ConnectionFactoryOptions opcoes = ConnectionFactoryOptions.parse(url)
+				.mutate()
+				.option(ConnectionFactoryOptions.USER, usuario)
+				.option(ConnectionFactoryOptions.PASSWORD, senha)
+				.build();
+
+		// poucas conexões atendem muitas requisições: nenhuma thread fica presa à conexão enquanto espera o banco
+		ConnectionPoolConfiguration configuracao = ConnectionPoolConfiguration.builder(ConnectionFactories.get(opcoes))
+				.name("reativo")
+				.maxSize(maximoConexoes)
+				.maxIdleTime(Duration.ofMinutes(10))
+				.build();
+
+		return new PoolConexoesReativas(new ConnectionPool(configuracao));
+
+	}
+
+	@Bean
+	public DatabaseClient databaseClientReativo(PoolConexoesReativas poolConexoesReativas)
+	{
+		return DatabaseClient.create(poolConexoesReativas.getPool());
+	}
+
+}
@@ -0,0 +1,152 @@
+package br.com.rochasoft.minhasfinancas.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import br.com.rochasoft.minhasfinancas.replica.AderenciaPrincipalFilter;
+import br.com.rochasoft.minhasfinancas.replica.MonitorReplica;
+import br.com.rochasoft.minhasfinancas.replica.RoteamentoDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// leituras na réplica: habilitado apenas quando 'minhasfinancas.replica.url' é informada
+// o banco principal continua configurado em 'spring.datasource.*' (pool em 'spring.datasource.hikari.*')
+// a réplica em 'minhasfinancas.replica.*' (pool em 'minhasfinancas.replica.hikari.*'), com o mesmo usuário por padrão
+@Configuration
+@ConditionalOnProperty("minhasfinancas.replica.url")
+public class ReplicaConfiguration
+{
+
+	// os dois pools não são beans do tipo DataSource: o spring boot procuraria o datasource principal (ainda em criação)
+	// a cada DataSource criado, formando um ciclo com o 'dataSource' abaixo
+	@Getter
+	@AllArgsConstructor
+	public static class PoolsConexao implements AutoCloseable
+	{
+
+		private final HikariDataSource principal;
+		private final HikariDataSource replica;
+
+		@Override
+		public void close()
+		{
+			replica.close();
+			principal.close();
+		}
+
+	}
+
+	@Bean
+	public PoolsConexao poolsConexao(DataSourceProperties properties,
+			                         Environment environment,
+			                         ObjectProvider<MeterRegistry> registry,
+			                         @Value("${minhasfinancas.replica.url}") String url,
+			                         @Value("${minhasfinancas.replica.username:${spring.datasource.username:}}") String usuario,
+			                         @Value("${minhasfinancas.replica.password:${spring.datasource.password:}}") String senha)
+	{
+
+		Binder binder = Binder.get(environment);
+
+		HikariDataSource principal = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		binder.bind("spring.datasource.hikari", Bindable.ofInstance(principal));
+		principal.setPoolName("principal");
+
+		HikariDataSource replica = DataSourceBuilder.create()
+									.type(HikariDataSource.class)
+									.driverClassName(properties.determineDriverClassName())
+									.url(url)
+									.username(usuario)
+									.password(senha)
+									.build();
+		binder.bind("minhasfinancas.replica.hikari", Bindable.ofInstance(replica));
+		replica.setPoolName("replica");
+		// proteção: a réplica nunca recebe gravações
+		replica.setReadOnly(true);
+
+		// métricas 'hikaricp.*' de cada pool, com a tag 'pool'
+		registry.ifAvailable( r ->
+		{
+			principal.setMetricRegistry(r);
+			replica.setMetricRegistry(r);
+		});
+
+		return new PoolsConexao(principal, replica);
+
+	}
+
+	@Bean
+	public MonitorReplica monitorReplica(PoolsConexao poolsConexao,
+			                             @Value("${minhasfinancas.replica.consulta-atraso:}") String consultaAtraso,
+			                             @Value("${minhasfinancas.replica.atraso-maximo-segundos:10}") double atrasoMaximo,
+			                             ObjectProvider<MeterRegistry> registry)
+	{
+		// outra consulta pode ser informada para bancos que não são postgresql
+		return new MonitorReplica(poolsConexao.getReplica(),
+				                  consultaAtraso.isEmpty() ? MonitorReplica.CONSULTA_ATRASO_POSTGRESQL : consultaAtraso,
+				                  atrasoMaximo,
+				                  registry);
+	}
+
+	// datasource utilizado pelo jpa e pelos repositórios
+	@Bean
+	@Primary
+	public DataSource dataSource(PoolsConexao poolsConexao, MonitorReplica monitorReplica)
+	{
+
+		Map<Object, Object> destinos = new HashMap<>();
+		destinos.put(RoteamentoDataSource.Destino.PRINCIPAL, poolsConexao.getPrincipal());
+		destinos.put(RoteamentoDataSource.Destino.REPLICA,   poolsConexao.getReplica());
+
+		RoteamentoDataSource roteamento = new RoteamentoDataSource(monitorReplica);
+		roteamento.setTargetDataSources(destinos);
+		roteamento.setDefaultTargetDataSource(poolsConexao.getPrincipal());
+		roteamento.afterPropertiesSet();
+
+		return new LazyConnectionDataSourceProxy(roteamento);
+
+	}
+
+	// com o 'open-in-view', a sessão do hibernate dura a requisição inteira e, no modo padrão, fica com a primeira conexão obtida:
+	// uma gravação depois de uma leitura somente leitura iria para a réplica (e uma leitura depois de uma gravação, para o principal)
+	// liberando a conexão ao fim de cada transação, cada transação obtém a sua e passa pelo roteamento
+	@Bean
+	public HibernatePropertiesCustomizer liberacaoConexaoPorTransacao()
+	{
+		return propriedades -> propriedades.put(AvailableSettings.CONNECTION_HANDLING, PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+	}
+
+	@Bean
+	public FilterRegistrationBean<AderenciaPrincipalFilter> aderenciaPrincipalFilter(@Value("${minhasfinancas.replica.aderencia-segundos:5}") int segundosAderencia)
+	{
+
+		FilterRegistrationBean<AderenciaPrincipalFilter> registro = new FilterRegistrationBean<>(new AderenciaPrincipalFilter(segundosAderencia));
+		registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+
+		return registro;
+
+	}
+
+}
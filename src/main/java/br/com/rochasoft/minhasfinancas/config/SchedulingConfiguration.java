@@ -0,0 +1,12 @@
+package br.com.rochasoft.minhasfinancas.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// habilita a execução das rotinas agendadas (@Scheduled) do pacote 'job'
+@EnableScheduling
+@Configuration
+public class SchedulingConfiguration
+{
+
+}
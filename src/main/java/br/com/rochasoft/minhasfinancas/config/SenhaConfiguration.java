@@ -0,0 +1,39 @@
+package br.com.rochasoft.minhasfinancas.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// hash das senhas (bcrypt) e executor exclusivo para a verificação das senhas na autenticação
+@Configuration
+public class SenhaConfiguration
+{
+
+	// custo do bcrypt (cada unidade a mais dobra o tempo do hash)
+	@Bean
+	public PasswordEncoder passwordEncoder(@Value("${minhasfinancas.senha.custo:10}") int custo)
+	{
+		return new BCryptPasswordEncoder(custo);
+	}
+
+	// o hash consome cpu, então roda em poucas threads próprias e não nas threads do servidor web
+	// com a fila cheia a tarefa é rejeitada (RejectedExecutionException) em vez de acumular requisições
+	@Bean
+	public ThreadPoolTaskExecutor executorSenha(@Value("${minhasfinancas.senha.threads:4}") int threads,
+			                                    @Value("${minhasfinancas.senha.fila:200}") int fila)
+	{
+
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(fila);
+		executor.setThreadNamePrefix("senha-");
+
+		return executor;
+
+	}
+
+}
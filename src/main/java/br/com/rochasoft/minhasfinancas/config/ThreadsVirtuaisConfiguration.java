@@ -0,0 +1,96 @@
+package br.com.rochasoft.minhasfinancas.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+// requisições em threads virtuais: habilitado apenas com 'minhasfinancas.threads-virtuais.habilitado=true' (perfil 'threads-virtuais')
+// o tomcat passa a executar cada requisição em uma thread virtual nova, no lugar do pool de threads (server.tomcat.threads.max):
+// a requisição, os services @Transactional e o jdbc rodam na mesma thread virtual, que libera a thread da plataforma enquanto espera o banco
+// o limite de requisições simultâneas no banco passa a ser o pool de conexões (spring.datasource.hikari.maximum-pool-size),
+// e as demais esperam uma conexão até 'connection-timeout' (ver application-threads-virtuais.properties)
+// exige java 21 ou superior em execução; a aplicação continua compilada para java 8, então o executor é obtido por reflexão
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "minhasfinancas.threads-virtuais.habilitado", havingValue = "true")
+public class ThreadsVirtuaisConfiguration
+{
+
+	// driver do postgresql a partir do qual a leitura do socket não prende a thread virtual (ver application-threads-virtuais.properties)
+	private static final int[] VERSAO_MINIMA_DRIVER_POSTGRESQL = { 42, 6 };
+
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService executorThreadsVirtuais(@Value("${spring.datasource.url:}") String url)
+	{
+
+		verificarDriver(url);
+
+		try
+		{
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (NoSuchMethodException e)
+		{
+			throw new IllegalStateException("threads virtuais exigem java 21 ou superior (em execução: " + System.getProperty("java.version") + ")", e);
+		}
+		catch (IllegalAccessException | InvocationTargetException e)
+		{
+			throw new IllegalStateException("não foi possível criar o executor de threads virtuais", e);
+		}
+
+	}
+
+	// com um driver anterior, as consultas simultâneas ficariam limitadas às poucas threads da plataforma (carriers),
+	// pior que o pool de threads do tomcat; a aplicação não sobe em vez de degradar em silêncio
+	private void verificarDriver(String url)
+	{
+
+		if (!url.startsWith("jdbc:postgresql:"))
+		{
+			return;
+		}
+
+		try
+		{
+
+			Driver driver = DriverManager.getDriver(url);
+
+			boolean antigo = driver.getMajorVersion() < VERSAO_MINIMA_DRIVER_POSTGRESQL[0]
+					         || (driver.getMajorVersion() == VERSAO_MINIMA_DRIVER_POSTGRESQL[0] && driver.getMinorVersion() < VERSAO_MINIMA_DRIVER_POSTGRESQL[1]);
+
+			if (antigo)
+			{
+				throw new IllegalStateException("threads virtuais exigem o driver do postgresql " + VERSAO_MINIMA_DRIVER_POSTGRESQL[0] + "." + VERSAO_MINIMA_DRIVER_POSTGRESQL[1] +
+						                        " ou superior (em uso: " + driver.getMajorVersion() + "." + driver.getMinorVersion() + ")");
+			}
+
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException("driver jdbc não encontrado para " + url, e);
+		}
+
+	}
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> requisicoesEmThreadsVirtuais(ExecutorService executorThreadsVirtuais)
+	{
+
+		log.info("requisições executadas em threads virtuais");
+
+		return protocolHandler -> protocolHandler.setExecutor(executorThreadsVirtuais);
+
+	}
+
+}
@@ -1,23 +1,75 @@
 package br.com.rochasoft.minhasfinancas.config;
 
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import br.com.rochasoft.minhasfinancas.api.resource.LancamentoResource;
+import br.com.rochasoft.minhasfinancas.replica.ContextoRoteamento;
+import br.com.rochasoft.minhasfinancas.service.IdempotenciaService;
+
 @EnableWebMvc
 @Configuration
 public class WebConfiguration implements WebMvcConfigurer
 {
 	
+	// threads que escrevem as respostas enviadas aos poucos; cada uma pode manter uma conexão do banco durante toda a resposta
+	@Value("${minhasfinancas.respostas-assincronas.threads:8}")
+	private int threadsRespostasAssincronas;
+	
+	@Value("${minhasfinancas.respostas-assincronas.fila:50}")
+	private int filaRespostasAssincronas;
+	
 	@Override
 	public void addCorsMappings(CorsRegistry registry) 
 	{
 		
 		// habilita de onde as requisições ao servidor serão aceitas
 		// ficou liberado para qualquer caminho, mas pode definir as origens permitidas
-		registry.addMapping("/**").allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS");
+		// o aviso de orçamento excedido e a indicação de resposta repetida (idempotência) vão em cabeçalhos,
+		// que o navegador só expõe ao front-end quando listados
+		registry.addMapping("/**")
+				.allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
+				.exposedHeaders(LancamentoResource.CABECALHO_ORCAMENTO_EXCEDIDO, IdempotenciaService.CABECALHO_REPETICAO);
 		
 	}	
+	
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) 
+	{
+		
+		// respostas enviadas aos poucos (streaming) podem levar mais que o tempo padrão do servidor
+		configurer.setDefaultTimeout(TimeUnit.MINUTES.toMillis(10));
+		
+		// com @EnableWebMvc o executor do spring boot não é aplicado, e o padrão (SimpleAsyncTaskExecutor) cria uma thread por resposta
+		configurer.setTaskExecutor(executorRespostasAssincronas());
+		
+	}
+	
+	// StreamingResponseBody (stream e exportação) e Flux em ndjson (/api/reativo) são escritos por estas threads
+	// o limite fica abaixo do pool de conexões (spring.datasource.hikari.maximum-pool-size), para sobrar conexões às demais requisições,
+	// e com a fila cheia a resposta é recusada com 503 (RespostasAssincronasAdvice) em vez de acumular requisições
+	// as tarefas levam da requisição a exigência de leitura no banco principal (ContextoRoteamento)
+	@Bean
+	public ThreadPoolTaskExecutor executorRespostasAssincronas()
+	{
+		
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(threadsRespostasAssincronas);
+		executor.setMaxPoolSize(threadsRespostasAssincronas);
+		executor.setQueueCapacity(filaRespostasAssincronas);
+		executor.setThreadNamePrefix("resposta-");
+		executor.setTaskDecorator(ContextoRoteamento::propagar);
+		
+		return executor;
+		
+	}
 
 }
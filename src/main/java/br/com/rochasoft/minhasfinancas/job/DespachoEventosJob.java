@@ -0,0 +1,47 @@
+package br.com.rochasoft.minhasfinancas.job;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import br.com.rochasoft.minhasfinancas.service.EventosLancamentoService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// entrega periodicamente os eventos da caixa de saída de lançamentos aos consumidores
+// e exclui os eventos já processados depois do período de retenção
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DespachoEventosJob
+{
+
+	private final EventosLancamentoService eventosLancamentoService;
+
+	// 'fixedDelay': a próxima execução só começa depois do fim da anterior
+	@Scheduled(fixedDelayString = "${minhasfinancas.eventos.intervalo:1000}")
+	public void despachar()
+	{
+
+		try
+		{
+			eventosLancamentoService.despachar();
+		}
+		catch (RuntimeException e)
+		{
+			// banco indisponível, por exemplo: tenta de novo na próxima execução
+			log.error("falha no despacho de eventos de lançamentos", e);
+		}
+
+	}
+
+	@Scheduled(cron = "${minhasfinancas.eventos.limpeza.cron:0 30 3 * * *}")
+	public void excluirProcessados()
+	{
+
+		int excluidos = eventosLancamentoService.excluirProcessados();
+
+		log.info("limpeza de eventos de lançamentos concluída, {} evento(s) excluído(s)", excluidos);
+
+	}
+
+}
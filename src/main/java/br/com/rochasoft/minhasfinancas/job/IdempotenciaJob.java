@@ -0,0 +1,29 @@
+package br.com.rochasoft.minhasfinancas.job;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import br.com.rochasoft.minhasfinancas.service.IdempotenciaService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// exclui as chaves de idempotência (e as respostas guardadas) depois da validade
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotenciaJob
+{
+
+	private final IdempotenciaService idempotenciaService;
+
+	@Scheduled(cron = "${minhasfinancas.idempotencia.limpeza.cron:0 45 3 * * *}")
+	public void excluirExpiradas()
+	{
+
+		int excluidas = idempotenciaService.excluirExpiradas();
+
+		log.info("limpeza de chaves de idempotência concluída, {} chave(s) excluída(s)", excluidas);
+
+	}
+
+}
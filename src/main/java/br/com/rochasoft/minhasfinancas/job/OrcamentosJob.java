@@ -0,0 +1,24 @@
+package br.com.rochasoft.minhasfinancas.job;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import br.com.rochasoft.minhasfinancas.service.OrcamentoService;
+import lombok.RequiredArgsConstructor;
+
+// recarrega periodicamente os limites e os gastos dos orçamentos mantidos em memória
+// inclui as gravações feitas por outras instâncias da aplicação, que não passam pelos contadores desta
+@Component
+@RequiredArgsConstructor
+public class OrcamentosJob
+{
+
+	private final OrcamentoService orcamentoService;
+
+	@Scheduled(initialDelayString = "${minhasfinancas.orcamentos.intervalo:900000}", fixedDelayString = "${minhasfinancas.orcamentos.intervalo:900000}")
+	public void recarregar()
+	{
+		orcamentoService.recarregar();
+	}
+
+}
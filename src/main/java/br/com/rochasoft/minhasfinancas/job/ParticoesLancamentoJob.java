@@ -0,0 +1,24 @@
+package br.com.rochasoft.minhasfinancas.job;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import br.com.rochasoft.minhasfinancas.service.ParticaoLancamentoService;
+import lombok.RequiredArgsConstructor;
+
+// cria as partições dos próximos anos de 'financas.lancamento' e arquiva as antigas
+// executa também na inicialização (initialDelay), para que um banco novo já tenha a partição do ano corrente
+@Component
+@RequiredArgsConstructor
+public class ParticoesLancamentoJob
+{
+
+	private final ParticaoLancamentoService particaoLancamentoService;
+
+	@Scheduled(initialDelay = 60000, fixedDelayString = "${minhasfinancas.particoes.intervalo:86400000}")
+	public void manter()
+	{
+		particaoLancamentoService.manterParticoes();
+	}
+
+}
@@ -0,0 +1,26 @@
+package br.com.rochasoft.minhasfinancas.job;
+
+import java.time.YearMonth;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import br.com.rochasoft.minhasfinancas.service.RecorrenciaService;
+import lombok.RequiredArgsConstructor;
+
+// gera os lançamentos recorrentes do mês corrente (e os atrasados, se a rotina ficou sem executar)
+// pode ser executada várias vezes no mesmo mês: as ocorrências já geradas não são geradas de novo
+@Component
+@RequiredArgsConstructor
+public class RecorrenciasJob
+{
+
+	private final RecorrenciaService recorrenciaService;
+
+	@Scheduled(cron = "${minhasfinancas.recorrencias.cron:0 0 1 * * *}")
+	public void gerar()
+	{
+		recorrenciaService.gerarOcorrencias(YearMonth.now());
+	}
+
+}
@@ -0,0 +1,55 @@
+package br.com.rochasoft.minhasfinancas.job;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoCategoriaId;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensalId;
+import br.com.rochasoft.minhasfinancas.service.CategoriaService;
+import br.com.rochasoft.minhasfinancas.service.ResumoMensalService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// recalcula com as cotações atuais os resumos (mensal e por categoria) que têm lançamentos em outra moeda
+// os valores são convertidos na gravação, então ficam com a cotação antiga depois de uma alteração no arquivo de cotações
+// como o arquivo só é lido na inicialização, a verificação roda logo após a inicialização e também periodicamente
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VerificacaoResumosJob
+{
+
+	private final ResumoMensalService resumoMensalService;
+	private final CategoriaService    categoriaService;
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(cron = "${minhasfinancas.resumos.verificacao.cron:0 0 4 * * *}")
+	public void verificar()
+	{
+
+		int recalculados = 0;
+
+		// cada chave é recalculada em uma transação própria
+		for (ResumoMensalId chave : resumoMensalService.obterChavesEmOutraMoeda())
+		{
+			if (resumoMensalService.recalcular(chave))
+			{
+				recalculados++;
+			}
+		}
+
+		for (ResumoCategoriaId chave : categoriaService.obterChavesResumoEmOutraMoeda())
+		{
+			if (categoriaService.recalcularResumo(chave))
+			{
+				recalculados++;
+			}
+		}
+
+		log.info("verificação de resumos concluída, {} resumo(s) recalculado(s)", recalculados);
+
+	}
+
+}
@@ -0,0 +1,40 @@
+package br.com.rochasoft.minhasfinancas.job;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import br.com.rochasoft.minhasfinancas.service.SaldoUsuarioService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// confere periodicamente o saldo registrado de cada usuário com a soma dos lançamentos efetivados
+// e recalcula os saldos que estiverem divergentes
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VerificacaoSaldoJob
+{
+
+	private final SaldoUsuarioService saldoUsuarioService;
+
+	@Scheduled(cron = "${minhasfinancas.saldo.verificacao.cron:0 0 3 * * *}")
+	public void verificar()
+	{
+
+		List<Long> divergentes = saldoUsuarioService.obterUsuariosComSaldoDivergente();
+
+		// cada usuário é recalculado em uma transação própria
+		for (Long idUsuario : divergentes)
+		{
+			BigDecimal saldo = saldoUsuarioService.recalcular(idUsuario);
+			log.warn("saldo do usuário {} estava divergente e foi recalculado para {}", idUsuario, saldo);
+		}
+
+		log.info("verificação de saldos concluída, {} saldo(s) recalculado(s)", divergentes.size());
+
+	}
+
+}
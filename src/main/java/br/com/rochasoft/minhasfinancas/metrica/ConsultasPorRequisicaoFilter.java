@@ -0,0 +1,67 @@
+package br.com.rochasoft.minhasfinancas.metrica;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// registra quantos comandos sql cada endpoint executou ('hibernate.consultas.requisicao')
+// considera apenas os comandos da thread da requisição (não inclui o processamento assíncrono)
+public class ConsultasPorRequisicaoFilter extends OncePerRequestFilter
+{
+
+	private final ObjectProvider<MeterRegistry> registry;
+
+	public ConsultasPorRequisicaoFilter(ObjectProvider<MeterRegistry> registry)
+	{
+		this.registry = registry;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException
+	{
+
+		MeterRegistry meterRegistry = registry.getIfAvailable();
+
+		if (meterRegistry == null)
+		{
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		ContadorConsultas.iniciar();
+
+		try
+		{
+			filterChain.doFilter(request, response);
+		}
+		finally
+		{
+
+			int consultas = ContadorConsultas.finalizar();
+
+			// padrão da rota (ex: /api/lancamentos/{id}), para não gerar uma métrica por id
+			Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+			DistributionSummary.builder("hibernate.consultas.requisicao")
+				.description("Comandos sql executados por requisição")
+				.tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+				.tag("method", request.getMethod())
+				.publishPercentiles(0.5, 0.99)
+				.register(meterRegistry)
+				.record(consultas);
+
+		}
+
+	}
+
+}
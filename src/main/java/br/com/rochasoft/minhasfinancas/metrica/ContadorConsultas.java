@@ -0,0 +1,47 @@
+package br.com.rochasoft.minhasfinancas.metrica;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// conta os comandos sql enviados pelo hibernate na thread da requisição atual
+// registrado em application.properties (hibernate.session_factory.statement_inspector), o hibernate cria a instância
+public class ContadorConsultas implements StatementInspector
+{
+
+	private static final long serialVersionUID = 1L;
+
+	private static final ThreadLocal<int[]> CONTADOR = new ThreadLocal<>();
+
+	// inicia a contagem da thread atual
+	public static void iniciar()
+	{
+		CONTADOR.set(new int[1]);
+	}
+
+	// encerra a contagem da thread atual e retorna a quantidade de comandos
+	public static int finalizar()
+	{
+
+		int[] contador = CONTADOR.get();
+		CONTADOR.remove();
+
+		return contador == null ? 0 : contador[0];
+
+	}
+
+	@Override
+	public String inspect(String sql)
+	{
+
+		int[] contador = CONTADOR.get();
+
+		// fora de uma requisição (ex: rotinas agendadas) não há contagem
+		if (contador != null)
+		{
+			contador[0]++;
+		}
+
+		return sql;
+
+	}
+
+}
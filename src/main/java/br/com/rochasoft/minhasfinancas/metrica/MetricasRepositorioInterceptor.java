@@ -0,0 +1,60 @@
+package br.com.rochasoft.minhasfinancas.metrica;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// mede o tempo de cada chamada aos métodos de um repositório ('repositorio.chamadas')
+public class MetricasRepositorioInterceptor implements MethodInterceptor
+{
+
+	private final ObjectProvider<MeterRegistry> registry;
+	private final String 						repositorio;
+
+	public MetricasRepositorioInterceptor(ObjectProvider<MeterRegistry> registry, String repositorio)
+	{
+		this.registry    = registry;
+		this.repositorio = repositorio;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable
+	{
+
+		// o registry é obtido na chamada porque os repositórios são criados antes dele
+		MeterRegistry meterRegistry = registry.getIfAvailable();
+
+		if (meterRegistry == null)
+		{
+			return invocation.proceed();
+		}
+
+		Timer.Sample amostra   = Timer.start(meterRegistry);
+		String 		 resultado = "SUCESSO";
+
+		try
+		{
+			return invocation.proceed();
+		}
+		catch (Throwable e)
+		{
+			resultado = "ERRO";
+			throw e;
+		}
+		finally
+		{
+			amostra.stop(Timer.builder("repositorio.chamadas")
+							.description("Tempo das chamadas aos repositórios")
+							.tag("repositorio", repositorio)
+							.tag("metodo", invocation.getMethod().getName())
+							.tag("resultado", resultado)
+							.publishPercentiles(0.5, 0.99)
+							.register(meterRegistry));
+		}
+
+	}
+
+}
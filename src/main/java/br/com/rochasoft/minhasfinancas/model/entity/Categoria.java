@@ -0,0 +1,48 @@
+package br.com.rochasoft.minhasfinancas.model.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// categoria de lançamentos do usuário (alimentação, moradia...), com subcategorias pela categoria pai
+// as categorias de um usuário são poucas, então a árvore é montada em memória a partir da lista completa
+
+@Entity
+@Table(name="categoria", schema="financas",
+       indexes = @Index(name = "idx_categoria_usuario", columnList = "id_usuario"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Categoria
+{
+
+	@Id
+	@Column(name = "id")
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	private Long id;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "id_usuario")
+	private Usuario usuario;
+
+	@Column(name = "nome")
+	private String nome;
+
+	// nulo nas categorias de primeiro nível
+	@Column(name = "id_categoria_pai")
+	private Long idCategoriaPai;
+
+}
@@ -0,0 +1,100 @@
+package br.com.rochasoft.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import br.com.rochasoft.minhasfinancas.model.enums.SituacaoEvento;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// caixa de saída (outbox) das alterações de lançamentos
+// gravada na mesma transação do lançamento e entregue depois aos consumidores pelo despacho de eventos
+
+@Entity
+@Table(name="evento_lancamento", schema="financas",
+       indexes = @Index(name = "idx_evento_lancamento_pendente", columnList = "situacao, proxima_tentativa, id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoLancamento
+{
+
+	@Id
+	@Column(name = "id")
+	// alocação em blocos para agrupar os inserts das alterações em lote
+	@GeneratedValue(strategy=GenerationType.SEQUENCE, generator="evento_lancamento_seq")
+	@SequenceGenerator(name="evento_lancamento_seq", schema="financas", sequenceName="evento_lancamento_id_seq", allocationSize=50)
+	private Long id;
+
+	@Column(name = "operacao")
+	private String operacao;
+
+	@Column(name = "id_lancamento")
+	private Long idLancamento;
+
+	@Column(name = "id_usuario")
+	private Long idUsuario;
+
+	@Column(name = "ano")
+	private Integer ano;
+
+	@Column(name = "mes")
+	private Integer mes;
+
+	@Column(name = "tipo")
+	@Enumerated(value = EnumType.STRING)
+	private TipoLancamento tipo;
+
+	@Column(name = "status")
+	@Enumerated(value = EnumType.STRING)
+	private StatusLancamento status;
+
+	@Column(name = "valor")
+	private BigDecimal valor;
+
+	@Column(name = "moeda")
+	private String moeda;
+
+	@Column(name = "situacao")
+	@Enumerated(value = EnumType.STRING)
+	private SituacaoEvento situacao;
+
+	@Column(name = "tentativas")
+	private Integer tentativas;
+
+	@Column(name = "data_criacao")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataCriacao;
+
+	// o evento só é lido pelo despacho a partir deste momento (reserva em andamento ou espera após falha)
+	@Column(name = "proxima_tentativa")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime proximaTentativa;
+
+	@Column(name = "data_processamento")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataProcessamento;
+
+	@Column(name = "erro")
+	private String erro;
+
+}
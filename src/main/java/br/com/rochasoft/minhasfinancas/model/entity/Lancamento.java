@@ -2,19 +2,29 @@ package br.com.rochasoft.minhasfinancas.model.entity;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
 
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.Convert;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
 
 import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
@@ -25,7 +35,14 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name="lancamento", schema="financas")
+@Table(name="lancamento", schema="financas",
+       indexes = { @Index(name = "idx_lancamento_usuario_ano_mes", columnList = "id_usuario, ano, mes, id"),
+                   // filtro por categoria (a categoria sempre é do próprio usuário)
+                   @Index(name = "idx_lancamento_categoria", columnList = "id_categoria, ano, mes, id") },
+       // no máximo uma ocorrência de cada recorrência por mês: a geração das ocorrências nunca duplica lançamentos
+       uniqueConstraints = @UniqueConstraint(name = "uk_lancamento_recorrencia", columnNames = { "id_recorrencia", "ano", "mes" }))
+// o update grava apenas as colunas alteradas, e não todas as colunas do lançamento
+@DynamicUpdate
 @Data     // inclui automaticamente (@getter @setter @toString etc..)
 @Builder
 @NoArgsConstructor
@@ -35,7 +52,10 @@ public class Lancamento
 		
 	@Id
 	@Column(name = "id")
-	@GeneratedValue(strategy=GenerationType.IDENTITY)	
+	// sequence com alocação em blocos de 50 ids (otimizador 'pooled' do hibernate)
+	// diferente do IDENTITY, permite ao hibernate agrupar os inserts em lotes jdbc
+	@GeneratedValue(strategy=GenerationType.SEQUENCE, generator="lancamento_seq")	
+	@SequenceGenerator(name="lancamento_seq", schema="financas", sequenceName="lancamento_id_seq", allocationSize=50)
 	private Long id;
 	
 	@Column(name = "descricao")
@@ -47,13 +67,17 @@ public class Lancamento
 	@Column(name = "ano")
 	private Integer ano;
 	
-	@ManyToOne // muitos lançamentos para cada usuário
+	@ManyToOne(fetch = FetchType.LAZY) // muitos lançamentos para cada usuário, carregado apenas quando acessado
 	@JoinColumn(name = "id_usuario")
 	private Usuario usuario;
 	
 	@Column(name = "valor")
 	private BigDecimal valor;
 	
+	// moeda (código iso 4217) do valor; os saldos e resumos são convertidos para a moeda do usuário
+	@Column(name = "moeda")
+	private String moeda;
+	
 	@Column(name = "data_cadastro")
 	@Convert(converter = Jsr310JpaConverters.LocalDateConverter.class)
 	private LocalDate dataCadastro;
@@ -65,6 +89,29 @@ public class Lancamento
 	@Column(name = "status")
 	@Enumerated(value = EnumType.STRING)
 	private StatusLancamento status;
+	
+	// recorrência que gerou o lançamento (ou da qual ele é o modelo)
+	@Column(name = "id_recorrencia")
+	private Long idRecorrencia;
+	
+	@Column(name = "id_categoria")
+	private Long idCategoria;
+	
+	// etiquetas livres (em minúsculas), gravadas em 'financas.lancamento_tag' com chave (id_lancamento, tag)
+	// o índice (tag, id_lancamento) atende o filtro por etiqueta
+	@ElementCollection(fetch = FetchType.LAZY)
+	@CollectionTable(name = "lancamento_tag", schema = "financas",
+	                 joinColumns = @JoinColumn(name = "id_lancamento"),
+	                 indexes = @Index(name = "idx_lancamento_tag", columnList = "tag, id_lancamento"))
+	@Column(name = "tag")
+	@Builder.Default
+	private Set<String> tags = new HashSet<>();
+	
+	// controle de concorrência otimista: o update só altera a linha se a versão for a mesma que foi lida
+	// e incrementa a versão; edições simultâneas do mesmo lançamento falham em vez de sobrescrever uma à outra
+	@Version
+	@Column(name = "versao")
+	private Long versao;
 
 
 }
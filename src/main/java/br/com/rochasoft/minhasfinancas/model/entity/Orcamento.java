@@ -0,0 +1,49 @@
+package br.com.rochasoft.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// limite mensal de despesas de uma categoria do usuário, o mesmo para todos os meses
+// o valor é na moeda do usuário; os gastos de cada mês são acompanhados em memória (OrcamentoServiceImpl)
+
+@Entity
+@Table(name="orcamento", schema="financas",
+       uniqueConstraints = @UniqueConstraint(name = "uk_orcamento_usuario_categoria", columnNames = { "id_usuario", "id_categoria" }))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Orcamento
+{
+
+	@Id
+	@Column(name = "id")
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	private Long id;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "id_usuario")
+	private Usuario usuario;
+
+	@Column(name = "id_categoria")
+	private Long idCategoria;
+
+	@Column(name = "valor")
+	private BigDecimal valor;
+
+}
@@ -0,0 +1,113 @@
+package br.com.rochasoft.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import br.com.rochasoft.minhasfinancas.model.enums.Periodicidade;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// regra de repetição de um lançamento (aluguel, salário, assinaturas)
+// os dados do lançamento modelo são copiados na criação e as ocorrências são geradas pela rotina de recorrências
+// 'proximoAno/proximoMes' é a próxima ocorrência ainda não gerada
+
+@Entity
+@Table(name="recorrencia", schema="financas",
+       indexes = @Index(name = "idx_recorrencia_proxima", columnList = "ativa, proximo_ano, proximo_mes"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Recorrencia
+{
+
+	@Id
+	@Column(name = "id")
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	private Long id;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "id_usuario")
+	private Usuario usuario;
+
+	@Column(name = "id_lancamento_modelo")
+	private Long idLancamentoModelo;
+
+	@Column(name = "descricao")
+	private String descricao;
+
+	@Column(name = "valor")
+	private BigDecimal valor;
+
+	@Column(name = "moeda")
+	private String moeda;
+
+	@Column(name = "id_categoria")
+	private Long idCategoria;
+
+	@Column(name = "tipo")
+	@Enumerated(value = EnumType.STRING)
+	private TipoLancamento tipo;
+
+	@Column(name = "periodicidade")
+	@Enumerated(value = EnumType.STRING)
+	private Periodicidade periodicidade;
+
+	// a cada quantos meses (MENSAL) ou anos (ANUAL)
+	@Column(name = "intervalo")
+	private Integer intervalo;
+
+	@Column(name = "proximo_ano")
+	private Integer proximoAno;
+
+	@Column(name = "proximo_mes")
+	private Integer proximoMes;
+
+	// última ocorrência, sem data final repete indefinidamente
+	@Column(name = "ano_final")
+	private Integer anoFinal;
+
+	@Column(name = "mes_final")
+	private Integer mesFinal;
+
+	@Column(name = "ativa")
+	private Boolean ativa;
+
+	public YearMonth getProximaOcorrencia()
+	{
+		return YearMonth.of(proximoAno, proximoMes);
+	}
+
+	public void setProximaOcorrencia(YearMonth ocorrencia)
+	{
+		this.proximoAno = ocorrencia.getYear();
+		this.proximoMes = ocorrencia.getMonthValue();
+	}
+
+	public YearMonth getUltimaOcorrencia()
+	{
+		return anoFinal != null && mesFinal != null ? YearMonth.of(anoFinal, mesFinal) : null;
+	}
+
+	public int getMesesEntreOcorrencias()
+	{
+		return periodicidade.getMeses() * intervalo;
+	}
+
+}
@@ -0,0 +1,71 @@
+package br.com.rochasoft.minhasfinancas.model.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// requisição de gravação identificada pelo cabeçalho 'Idempotency-Key' do cliente
+// a linha é incluída (reserva da chave) antes da gravação e recebe a resposta ao final, que é devolvida nas repetições
+// a chave única (escopo, chave) impede que duas requisições com a mesma chave sejam executadas
+
+@Entity
+@Table(name="requisicao_idempotente", schema="financas",
+       uniqueConstraints = @UniqueConstraint(name = "uk_requisicao_idempotente_chave", columnNames = { "escopo", "chave" }),
+       indexes = @Index(name = "idx_requisicao_idempotente_data", columnList = "data_criacao"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RequisicaoIdempotente
+{
+
+	@Id
+	@Column(name = "id")
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	private Long id;
+
+	// recurso da gravação (ex: 'lancamentos'), para que a mesma chave possa ser usada em recursos diferentes
+	@Column(name = "escopo")
+	private String escopo;
+
+	@Column(name = "chave")
+	private String chave;
+
+	// hash do corpo da requisição: a mesma chave com outro conteúdo não é uma repetição
+	@Column(name = "hash")
+	private String hash;
+
+	// nulo enquanto a requisição está em andamento
+	@Column(name = "status")
+	private Integer status;
+
+	@Column(name = "tipo_conteudo")
+	private String tipoConteudo;
+
+	@Column(name = "corpo", length = 100000)
+	private String corpo;
+
+	// cabeçalhos da resposta original, em json
+	@Column(name = "cabecalhos", length = 4000)
+	private String cabecalhos;
+
+	@Column(name = "data_criacao")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataCriacao;
+
+}
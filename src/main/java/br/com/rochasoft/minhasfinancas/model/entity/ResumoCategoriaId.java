@@ -0,0 +1,27 @@
+package br.com.rochasoft.minhasfinancas.model.entity;
+
+import java.io.Serializable;
+
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// chave composta do ResumoCategoria (usuário, categoria, ano, mês, tipo e status)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoCategoriaId implements Serializable
+{
+
+	private static final long serialVersionUID = 1L;
+
+	private Long 				idUsuario;
+	private Long 				idCategoria;
+	private Integer 			ano;
+	private Integer 			mes;
+	private TipoLancamento 		tipo;
+	private StatusLancamento 	status;
+
+}
@@ -0,0 +1,61 @@
+package br.com.rochasoft.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// totais dos lançamentos de cada usuário por ano, mês, tipo e status, mantidos a cada gravação de lançamento
+// a chave primária (id_usuario, ano, mes, tipo, status) atende a consulta de um intervalo de anos com uma única leitura de índice
+
+@Entity
+@Table(name="resumo_mensal", schema="financas")
+@IdClass(ResumoMensalId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoMensal
+{
+
+	@Id
+	@Column(name = "id_usuario")
+	private Long idUsuario;
+
+	@Id
+	@Column(name = "ano")
+	private Integer ano;
+
+	@Id
+	@Column(name = "mes")
+	private Integer mes;
+
+	@Id
+	@Column(name = "tipo")
+	@Enumerated(value = EnumType.STRING)
+	private TipoLancamento tipo;
+
+	@Id
+	@Column(name = "status")
+	@Enumerated(value = EnumType.STRING)
+	private StatusLancamento status;
+
+	@Column(name = "valor")
+	private BigDecimal valor;
+
+	@Column(name = "quantidade")
+	private Long quantidade;
+
+}
@@ -0,0 +1,26 @@
+package br.com.rochasoft.minhasfinancas.model.entity;
+
+import java.io.Serializable;
+
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// chave composta do ResumoMensal (usuário, ano, mês, tipo e status)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoMensalId implements Serializable
+{
+
+	private static final long serialVersionUID = 1L;
+
+	private Long 				idUsuario;
+	private Integer 			ano;
+	private Integer 			mes;
+	private TipoLancamento 		tipo;
+	private StatusLancamento 	status;
+
+}
@@ -0,0 +1,39 @@
+package br.com.rochasoft.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// saldo efetivado de cada usuário, mantido a cada gravação de lançamento
+// permite obter o saldo com uma leitura pela chave primária, sem somar todos os lançamentos
+// a versão aumenta a cada gravação de lançamentos do usuário, na mesma transação, e é o ETag das consultas
+
+@Entity
+@Table(name="saldo_usuario", schema="financas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoUsuario
+{
+
+	@Id
+	@Column(name = "id_usuario")
+	private Long idUsuario;
+
+	@Column(name = "valor")
+	private BigDecimal valor;
+
+	@Column(name = "versao")
+	@Builder.Default
+	private Long versao = 0l;
+
+}
@@ -9,6 +9,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -20,7 +21,8 @@ import lombok.NoArgsConstructor;
 // entidade que representa a tabela 'usuario' do banco de dados
 
 @Entity
-@Table( name="usuario", schema="financas")
+@Table( name="usuario", schema="financas",
+        uniqueConstraints = @UniqueConstraint(name = "uk_usuario_email", columnNames = "email"))
 @Data     // inclui automaticamente (@getter @setter @toString etc..)
 @Builder
 @NoArgsConstructor
@@ -28,6 +30,8 @@ import lombok.NoArgsConstructor;
 public class Usuario 
 {
 	
+	public static final String MOEDA_PADRAO = "BRL";
+	
 	@Id
 	@Column(name = "id")
 	@GeneratedValue(strategy=GenerationType.IDENTITY)
@@ -39,9 +43,14 @@ public class Usuario
 	@Column(name = "email")
 	private String email;
 	
-	@Column(name = "senha")
+	@Column(name = "senha") // hash bcrypt da senha
 	@JsonIgnore // não retorna a senha ao gerar o json do objeto
 	private String senha;
 	
+	// moeda (código iso 4217) em que os saldos e resumos do usuário são calculados
+	@Column(name = "moeda")
+	@Builder.Default
+	private String moeda = MOEDA_PADRAO;
+	
 
 }
@@ -0,0 +1,21 @@
+package br.com.rochasoft.minhasfinancas.model.enums;
+
+public enum Periodicidade 
+{
+	
+	MENSAL(1),
+	ANUAL(12);
+	
+	private final int meses;
+	
+	private Periodicidade(int meses)
+	{
+		this.meses = meses;
+	}
+	
+	public int getMeses()
+	{
+		return meses;
+	}
+
+}
@@ -0,0 +1,10 @@
+package br.com.rochasoft.minhasfinancas.model.enums;
+
+public enum SituacaoEvento 
+{
+	
+	PENDENTE,
+	PROCESSADO,
+	FALHA
+
+}
@@ -0,0 +1,42 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.With;
+
+// campos do lançamento retornados nas consultas de listagem, apenas com o id do usuário
+// preenchido direto pela query (select new ...), sem carregar a entidade Lancamento nem o Usuario
+@Value
+@AllArgsConstructor
+public class DadosLancamento
+{
+
+	private Long 				id;
+	private String 				descricao;
+	private Integer 			mes;
+	private Integer 			ano;
+	private BigDecimal 			valor;
+	private Long 				idUsuario;
+	private TipoLancamento 		tipo;
+	private StatusLancamento 	status;
+	private String 				moeda;
+	private Long 				idCategoria;
+	private Long 				versao; // enviada de volta na alteração parcial (PATCH), para detectar edições concorrentes
+	
+	// as etiquetas não vêm na consulta da listagem: são lidas depois, uma consulta por lote de lançamentos
+	@With
+	private Set<String> 		tags;
+	
+	// utilizado pelas consultas (select new ...), ainda sem as etiquetas
+	public DadosLancamento(Long id, String descricao, Integer mes, Integer ano, BigDecimal valor, Long idUsuario, 
+			               TipoLancamento tipo, StatusLancamento status, String moeda, Long idCategoria, Long versao)
+	{
+		this(id, descricao, mes, ano, valor, idUsuario, tipo, status, moeda, idCategoria, versao, null);
+	}
+
+}
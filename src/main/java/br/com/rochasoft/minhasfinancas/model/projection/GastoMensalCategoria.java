@@ -0,0 +1,20 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+// projeção das despesas de uma categoria do usuário em um mês, utilizada na carga dos gastos dos orçamentos
+// os nomes dos métodos devem ser iguais aos 'alias' utilizados na query
+public interface GastoMensalCategoria
+{
+
+	Long getIdUsuario();
+
+	Long getIdCategoria();
+
+	Integer getAno();
+
+	Integer getMes();
+
+	BigDecimal getTotal();
+
+}
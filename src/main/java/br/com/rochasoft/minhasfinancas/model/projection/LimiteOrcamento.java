@@ -0,0 +1,18 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+// projeção do limite de um orçamento, com o id do usuário sem carregar a entidade
+// os nomes dos métodos devem ser iguais aos 'alias' utilizados na query
+public interface LimiteOrcamento
+{
+
+	Long getId();
+
+	Long getIdUsuario();
+
+	Long getIdCategoria();
+
+	BigDecimal getValor();
+
+}
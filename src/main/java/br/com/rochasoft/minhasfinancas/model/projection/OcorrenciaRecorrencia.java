@@ -0,0 +1,14 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+// projeção do mês de uma ocorrência já gravada de uma recorrência
+// os nomes dos métodos devem ser iguais aos 'alias' utilizados na query
+public interface OcorrenciaRecorrencia
+{
+
+	Long getIdRecorrencia();
+
+	Integer getAno();
+
+	Integer getMes();
+
+}
@@ -0,0 +1,73 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+// fotografia imutável dos campos de um lançamento que afetam saldos e totalizadores
+// é utilizada para comparar o estado gravado no banco com o estado novo do lançamento
+@Value
+@AllArgsConstructor
+public class SituacaoLancamento
+{
+
+	private Long 				id;
+	private Long 				idUsuario;
+	private Integer 			ano;
+	private Integer 			mes;
+	private TipoLancamento 		tipo;
+	private StatusLancamento 	status;
+	private BigDecimal 			valor;
+	private String 				moeda;
+	private String 				moedaUsuario; // moeda em que o saldo e os resumos do usuário são mantidos
+	private Long 				idCategoria;
+
+	public static SituacaoLancamento de(Lancamento lancamento)
+	{
+		return de(lancamento, lancamento.getUsuario() != null ? lancamento.getUsuario().getMoeda() : null);
+	}
+
+	// com a moeda do usuário já conhecida, não carrega o usuário do lançamento (apenas o id, que já está no proxy)
+	public static SituacaoLancamento de(Lancamento lancamento, String moedaUsuario)
+	{
+
+		Long idUsuario = lancamento.getUsuario() != null ? lancamento.getUsuario().getId() : null;
+
+		return new SituacaoLancamento(lancamento.getId(),
+				                      idUsuario,
+				                      lancamento.getAno(),
+				                      lancamento.getMes(),
+				                      lancamento.getTipo(),
+				                      lancamento.getStatus(),
+				                      lancamento.getValor(),
+				                      lancamento.getMoeda(),
+				                      moedaUsuario,
+				                      lancamento.getIdCategoria());
+
+	}
+
+	// mesma situação com outro status (alteração de status feita diretamente no banco)
+	public SituacaoLancamento comStatus(StatusLancamento novoStatus)
+	{
+		return new SituacaoLancamento(id, idUsuario, ano, mes, tipo, novoStatus, valor, moeda, moedaUsuario, idCategoria);
+	}
+
+	// valor com que o lançamento contribui para o saldo do usuário, na moeda do lançamento
+	// apenas lançamentos efetivados entram no saldo, receitas somam e despesas subtraem
+	public BigDecimal getContribuicaoSaldo()
+	{
+
+		if (status != StatusLancamento.EFETIVADO || valor == null || tipo == null)
+		{
+			return BigDecimal.ZERO;
+		}
+
+		return tipo == TipoLancamento.RECEITA ? valor : valor.negate();
+
+	}
+
+}
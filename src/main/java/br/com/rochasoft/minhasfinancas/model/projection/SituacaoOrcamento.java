@@ -0,0 +1,31 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+// gasto de um mês frente ao limite do orçamento da categoria, na moeda do usuário
+@Value
+@AllArgsConstructor
+public class SituacaoOrcamento
+{
+
+	private Long 		idOrcamento;
+	private Long 		idCategoria;
+	private Integer 	ano;
+	private Integer 	mes;
+	private BigDecimal 	limite;
+	private BigDecimal 	gasto;
+
+	public BigDecimal getDisponivel()
+	{
+		return limite.subtract(gasto);
+	}
+
+	public boolean isExcedido()
+	{
+		return gasto.compareTo(limite) > 0;
+	}
+
+}
@@ -0,0 +1,12 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+// projeção de uma etiqueta de um lançamento ('financas.lancamento_tag')
+// os nomes dos métodos devem ser iguais aos 'alias' utilizados na query
+public interface TagLancamento
+{
+
+	Long getIdLancamento();
+
+	String getTag();
+
+}
@@ -0,0 +1,23 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+// total de uma categoria por tipo: o valor dos lançamentos da própria categoria
+// e o valor somado com o de todas as subcategorias (ex: 'alimentação' inclui 'mercado' e 'restaurantes')
+@Value
+@AllArgsConstructor
+public class TotalCategoria
+{
+
+	private Long 			idCategoria;
+	private TipoLancamento 	tipo;
+	private BigDecimal 		valor;
+	private Long 			quantidade;
+	private BigDecimal 		valorComSubcategorias;
+	private Long 			quantidadeComSubcategorias;
+
+}
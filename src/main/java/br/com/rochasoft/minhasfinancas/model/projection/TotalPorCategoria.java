@@ -0,0 +1,20 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+
+// projeção dos totais do resumo por categoria e tipo em um intervalo de anos
+// os nomes dos métodos devem ser iguais aos 'alias' utilizados na query
+public interface TotalPorCategoria
+{
+
+	Long getIdCategoria();
+
+	TipoLancamento getTipo();
+
+	BigDecimal getTotal();
+
+	Long getQuantidade();
+
+}
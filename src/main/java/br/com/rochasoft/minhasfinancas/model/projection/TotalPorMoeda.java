@@ -0,0 +1,31 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+
+// projeção da quantidade de lançamentos agrupados por usuário, moeda, ano, mês, tipo e valor
+// o ano e o mês definem a cotação utilizada na conversão para a moeda do usuário
+// o valor faz parte do grupo porque saldos e resumos somam cada lançamento já convertido (e arredondado):
+// converter a soma do mês arredondaria uma única vez e daria um total diferente do mantido a cada gravação
+// os nomes dos métodos devem ser iguais aos 'alias' utilizados na query
+public interface TotalPorMoeda
+{
+
+	Long getIdUsuario();
+
+	String getMoedaUsuario();
+
+	String getMoeda();
+
+	Integer getAno();
+
+	Integer getMes();
+
+	TipoLancamento getTipo();
+
+	BigDecimal getValor();
+
+	Long getQuantidade();
+
+}
@@ -0,0 +1,18 @@
+package br.com.rochasoft.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+
+// projeção do total de lançamentos agrupados por usuário e tipo
+// os nomes dos métodos devem ser iguais aos 'alias' utilizados na query
+public interface TotalPorUsuarioETipo
+{
+
+	Long getIdUsuario();
+
+	TipoLancamento getTipo();
+
+	BigDecimal getTotal();
+
+}
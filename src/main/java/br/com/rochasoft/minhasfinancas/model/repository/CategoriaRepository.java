@@ -0,0 +1,22 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Categoria;
+
+public interface CategoriaRepository extends JpaRepository<Categoria, Long>
+{
+
+	@Query( "select c from Categoria c where c.usuario.id = :idUsuario order by c.nome" )
+	List<Categoria> buscarPorUsuario(@Param("idUsuario") Long idUsuario);
+
+	@Query( "select count(c) > 0 from Categoria c where c.usuario.id = :idUsuario and c.id = :id" )
+	boolean pertenceAoUsuario(@Param("id") Long id, @Param("idUsuario") Long idUsuario);
+
+	boolean existsByIdCategoriaPai(Long idCategoriaPai);
+
+}
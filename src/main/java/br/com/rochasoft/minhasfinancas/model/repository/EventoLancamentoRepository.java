@@ -0,0 +1,45 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import br.com.rochasoft.minhasfinancas.model.entity.EventoLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.SituacaoEvento;
+
+public interface EventoLancamentoRepository extends JpaRepository<EventoLancamento, Long>
+{
+
+	// próximos eventos pendentes, na ordem de gravação
+	// o timeout '-2' gera 'for update skip locked' no postgresql: instâncias concorrentes do despacho não leem os mesmos eventos
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+	@Query( "select e from EventoLancamento e"                                                     +
+	        " where e.situacao = br.com.rochasoft.minhasfinancas.model.enums.SituacaoEvento.PENDENTE" +
+			" and e.proximaTentativa <= :agora"                                                    +
+	        " order by e.id" )
+	List<EventoLancamento> obterPendentesParaReserva(@Param("agora") LocalDateTime agora, Pageable pageable);
+
+	long countBySituacao(SituacaoEvento situacao);
+
+	// data de criação do evento pendente mais antigo (atraso do despacho)
+	@Query( "select min(e.dataCriacao) from EventoLancamento e where e.situacao = :situacao" )
+	LocalDateTime obterDataCriacaoMaisAntiga(@Param("situacao") SituacaoEvento situacao);
+
+	@Modifying
+	@Query( "delete from EventoLancamento e"                                                           +
+	        " where e.situacao = br.com.rochasoft.minhasfinancas.model.enums.SituacaoEvento.PROCESSADO" +
+			" and e.dataProcessamento < :limite" )
+	int excluirProcessados(@Param("limite") LocalDateTime limite);
+
+}
@@ -0,0 +1,119 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.hibernate.Session;
+
+// totais mantidos a cada gravação de lançamento (saldo e resumos) gravados em um único comando:
+// insere a linha com o total calculado quando a chave ainda não existe, ou soma a diferença à linha existente
+// um 'insert' depois do 'update' sem linhas falharia com chave duplicada quando duas transações criam a mesma chave ao mesmo tempo,
+// desfazendo a gravação do lançamento; aqui a segunda transação espera a primeira e soma apenas a sua diferença
+// no postgresql: 'insert ... on conflict do update'; nos demais bancos (h2 dos testes): 'merge' do padrão sql
+// executado pelo EntityManager (consulta nativa): o hibernate grava antes as alterações pendentes da transação, como no 'save'
+class InsercaoOuSoma
+{
+
+	private final String 	   tabela;
+	private final List<String> colunasChave;
+	private final List<String> colunasSoma;
+
+	private volatile Boolean postgresql;
+
+	InsercaoOuSoma(String tabela, List<String> colunasChave, List<String> colunasSoma)
+	{
+		super();
+		this.tabela       = tabela;
+		this.colunasChave = colunasChave;
+		this.colunasSoma  = colunasSoma;
+	}
+
+	// 'iniciais' e 'diferencas' na ordem de 'colunasSoma'
+	int executar(EntityManager entityManager, List<Object> chave, List<Object> iniciais, List<Object> diferencas)
+	{
+
+		List<Object> parametros = new ArrayList<>();
+		Query 		 consulta;
+
+		if (postgresql(entityManager))
+		{
+			consulta = entityManager.createNativeQuery(sqlPostgresql());
+			parametros.addAll(chave);
+			parametros.addAll(iniciais);
+			parametros.addAll(diferencas);
+		}
+		else
+		{
+			consulta = entityManager.createNativeQuery(sqlMerge());
+			parametros.addAll(chave);
+			parametros.addAll(diferencas);
+			parametros.addAll(chave);
+			parametros.addAll(iniciais);
+		}
+
+		for (int i = 0; i < parametros.size(); i++)
+		{
+			consulta.setParameter(i + 1, parametros.get(i));
+		}
+
+		return consulta.executeUpdate();
+
+	}
+
+	private boolean postgresql(EntityManager entityManager)
+	{
+
+		if (postgresql == null)
+		{
+			String banco = entityManager.unwrap(Session.class).doReturningWork( conexao -> conexao.getMetaData().getDatabaseProductName() );
+			postgresql = "PostgreSQL".equals(banco);
+		}
+
+		return postgresql;
+
+	}
+
+	private String sqlPostgresql()
+	{
+
+		List<String> colunas = new ArrayList<>(colunasChave);
+		colunas.addAll(colunasSoma);
+
+		return "insert into " + tabela + " as t (" + String.join(", ", colunas) + ")" +
+			   " values (" + marcadores(colunas.size()) + ")"                       +
+			   " on conflict (" + String.join(", ", colunasChave) + ")"             +
+			   " do update set " + somas();
+
+	}
+
+	private String sqlMerge()
+	{
+
+		List<String> colunas = new ArrayList<>(colunasChave);
+		colunas.addAll(colunasSoma);
+
+		String condicao = colunasChave.stream().map( coluna -> "t." + coluna + " = ?" ).collect(Collectors.joining(" and "));
+
+		return "merge into " + tabela + " t using dual on (" + condicao + ")"  +
+			   " when matched then update set " + somas()                      +
+			   " when not matched then insert (" + String.join(", ", colunas) + ")" +
+			   " values (" + marcadores(colunas.size()) + ")";
+
+	}
+
+	private String somas()
+	{
+		return colunasSoma.stream().map( coluna -> coluna + " = t." + coluna + " + ?" ).collect(Collectors.joining(", "));
+	}
+
+	private static String marcadores(int quantidade)
+	{
+		return String.join(", ", Collections.nCopies(quantidade, "?"));
+	}
+
+}
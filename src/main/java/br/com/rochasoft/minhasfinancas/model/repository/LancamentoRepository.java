@@ -1,27 +1,193 @@
 package br.com.rochasoft.minhasfinancas.model.repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
 import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
 import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.OcorrenciaRecorrencia;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.TagLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorMoeda;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorUsuarioETipo;
 
-public interface LancamentoRepository extends JpaRepository<Lancamento, Long> 
+public interface LancamentoRepository extends JpaRepository<Lancamento, Long>, LancamentoRepositoryCustom 
 {
 	
 	// query utilizando as entidades
+	// apenas os lançamentos na moeda do usuário, que não precisam de conversão (os demais: obterTotaisEmOutraMoeda)
 	@Query( value = "select sum(l.valor) from Lancamento l" + 
 	                " join l.usuario u"                     +
 			        " where u.id = :idUsuario"              +
 	                " and l.tipo = :tipo"                   +
 	                " and l.status = :status"               +
+			        " and l.moeda = u.moeda"                +
 			        " group by u" )
 	BigDecimal obterSaldoPorTipoLancamentoEUsuarioEStatus(@Param("idUsuario") Long idUsuario, 
 			                                              @Param("tipo") TipoLancamento tipo,
 			                                              @Param("status") StatusLancamento status);
 
+	// retorna a situação do lançamento como está gravada no banco
+	// o flush 'COMMIT' impede que alterações pendentes da entidade em memória sejam gravadas antes da consulta
+	@QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+	@Query( "select new br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento(" +
+	        " l.id, l.usuario.id, l.ano, l.mes, l.tipo, l.status, l.valor,"                  +
+			" l.moeda, l.usuario.moeda, l.idCategoria)"                                        +
+			" from Lancamento l"                                                               +
+	        " where l.id = :id" )
+	Optional<SituacaoLancamento> obterSituacao(@Param("id") Long id);
+
+	// situação dos lançamentos do usuário que terão o status alterado em lote
+	// as linhas ficam bloqueadas (select for update) até o fim da transação, então a situação lida é a que será alterada
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query( "select new br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento(" +
+	        " l.id, l.usuario.id, l.ano, l.mes, l.tipo, l.status, l.valor,"                  +
+			" l.moeda, l.usuario.moeda, l.idCategoria)"                                        +
+			" from Lancamento l"                                                               +
+	        " where l.usuario.id = :idUsuario"                                                 +
+			" and l.id in :ids" )
+	List<SituacaoLancamento> obterSituacoesParaAtualizacao(@Param("idUsuario") Long idUsuario, @Param("ids") Collection<Long> ids);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query( "select new br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento(" +
+	        " l.id, l.usuario.id, l.ano, l.mes, l.tipo, l.status, l.valor,"                  +
+			" l.moeda, l.usuario.moeda, l.idCategoria)"                                        +
+			" from Lancamento l"                                                               +
+	        " where l.usuario.id = :idUsuario"                                                 +
+			" and l.ano = :ano"                                                                +
+	        " and (:mes is null or l.mes = :mes)"                                              +
+			" and (:statusAtual is null or l.status = :statusAtual)"                           +
+	        " order by l.id" )
+	List<SituacaoLancamento> obterSituacoesParaAtualizacao(@Param("idUsuario") Long idUsuario,
+			                                               @Param("ano") Integer ano,
+			                                               @Param("mes") Integer mes,
+			                                               @Param("statusAtual") StatusLancamento statusAtual);
+
+	// altera o status de vários lançamentos com um único update
+	// 'clearAutomatically' descarta as entidades em memória, que ficariam com o status antigo
+	// a versão é incrementada como no update da entidade, então uma edição feita sobre a versão anterior falha
+	@Modifying(clearAutomatically = true)
+	@Query( "update Lancamento l set l.status = :status, l.versao = l.versao + 1 where l.id in :ids" )
+	int atualizarStatus(@Param("ids") Collection<Long> ids, @Param("status") StatusLancamento status);
+
+	// marca o lançamento como modelo (primeira ocorrência) da recorrência
+	// não incrementa a versão: o vínculo não é editado pelo cliente e a entidade em memória continua válida
+	@Modifying
+	@Query( "update Lancamento l set l.idRecorrencia = :idRecorrencia where l.id = :id" )
+	int vincularRecorrencia(@Param("id") Long id, @Param("idRecorrencia") Long idRecorrencia);
+
+	// meses das ocorrências já gravadas das recorrências, a partir do ano informado
+	// atendida pelo índice único 'uk_lancamento_recorrencia' (id_recorrencia, ano, mes)
+	@Query( "select l.idRecorrencia as idRecorrencia, l.ano as ano, l.mes as mes from Lancamento l" +
+	        " where l.idRecorrencia in :ids"                                                        +
+			" and l.ano >= :anoInicial" )
+	List<OcorrenciaRecorrencia> obterOcorrencias(@Param("ids") Collection<Long> ids, @Param("anoInicial") Integer anoInicial);
+
+	boolean existsByIdCategoria(Long idCategoria);
+
+	// totais por usuário e tipo utilizados na verificação dos saldos, apenas dos lançamentos na moeda do usuário
+	@Query( "select l.usuario.id as idUsuario, l.tipo as tipo, sum(l.valor) as total" +
+	        " from Lancamento l"                                                         +
+			" where l.status = :status"                                                  +
+	        " and l.moeda = l.usuario.moeda"                                             +
+	        " group by l.usuario.id, l.tipo" )
+	List<TotalPorUsuarioETipo> obterTotaisPorUsuarioETipo(@Param("status") StatusLancamento status);
+
+	// totais dos lançamentos em moeda diferente da moeda do usuário, por mês para a conversão pela cotação do mês
+	// e por valor, para converter cada lançamento com o mesmo arredondamento da gravação (ver TotalPorMoeda)
+	// costumam ser poucos, então os lançamentos na moeda do usuário continuam somados em um único total por tipo
+	@Query( "select l.usuario.id as idUsuario, l.usuario.moeda as moedaUsuario, l.moeda as moeda,"      +
+	        " l.ano as ano, l.mes as mes, l.tipo as tipo, l.valor as valor, count(l) as quantidade"      +
+			" from Lancamento l"                                                                         +
+	        " where l.usuario.id = :idUsuario"                                                           +
+			" and l.status = :status"                                                                    +
+	        " and l.moeda <> l.usuario.moeda"                                                            +
+			" group by l.usuario.id, l.usuario.moeda, l.moeda, l.ano, l.mes, l.tipo, l.valor" )
+	List<TotalPorMoeda> obterTotaisEmOutraMoeda(@Param("idUsuario") Long idUsuario, @Param("status") StatusLancamento status);
+
+	@Query( "select l.usuario.id as idUsuario, l.usuario.moeda as moedaUsuario, l.moeda as moeda,"      +
+	        " l.ano as ano, l.mes as mes, l.tipo as tipo, l.valor as valor, count(l) as quantidade"      +
+			" from Lancamento l"                                                                         +
+	        " where l.status = :status"                                                                  +
+	        " and l.moeda <> l.usuario.moeda"                                                            +
+			" group by l.usuario.id, l.usuario.moeda, l.moeda, l.ano, l.mes, l.tipo, l.valor" )
+	List<TotalPorMoeda> obterTotaisEmOutraMoeda(@Param("status") StatusLancamento status);
+
+	// busca sempre filtrando primeiro por usuário, ano e mês, que são atendidos pelo índice 'idx_lancamento_usuario_ano_mes'
+	// a descrição é atendida pelo índice trigram 'idx_lancamento_descricao_trgm' no postgresql (ver documentos/schema.sql)
+	// retorna apenas as colunas da listagem, sem carregar as entidades (o id do usuário vem da própria coluna id_usuario)
+	// o ano é sempre um intervalo (um único ano quando informado): com a tabela particionada por ano no postgresql,
+	// o planejador descarta as partições fora do intervalo, o que não acontece com '(:ano is null or l.ano = :ano)'
+	// a categoria chega expandida com as subcategorias ('todasCategorias' desliga o filtro, o 'in' não aceita lista vazia)
+	// e a etiqueta é atendida pelo índice 'idx_lancamento_tag' (tag, id_lancamento) da tabela 'lancamento_tag'
+	@Query( "select new br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento(" +
+	        " l.id, l.descricao, l.mes, l.ano, l.valor, l.usuario.id, l.tipo, l.status, l.moeda, l.idCategoria, l.versao)" +
+			" from Lancamento l"                                          +
+	        " where l.usuario.id = :idUsuario"                            +
+			" and l.ano between :anoInicial and :anoFinal"                +
+	        " and (:mes is null or l.mes = :mes)"                         +
+			" and lower(l.descricao) like :descricao escape '\\'"          +
+	        " and (:todasCategorias = true or l.idCategoria in :categorias)" +
+			" and (:tag is null or :tag member of l.tags)"                +
+	        " order by l.ano, l.mes, l.id" )
+	List<DadosLancamento> buscar(@Param("idUsuario") Long idUsuario,
+			                @Param("anoInicial") Integer anoInicial,
+			                @Param("anoFinal") Integer anoFinal,
+			                @Param("mes") Integer mes,
+			                @Param("descricao") String descricao,
+			                @Param("todasCategorias") boolean todasCategorias,
+			                @Param("categorias") Collection<Long> categorias,
+			                @Param("tag") String tag);
+
+	// etiquetas dos lançamentos de uma página (ou de um lote da listagem) em uma única consulta
+	// atendida pela chave primária (id_lancamento, tag) da tabela 'lancamento_tag'
+	@Query( "select l.id as idLancamento, t as tag from Lancamento l" +
+	        " join l.tags t"                                          +
+			" where l.id in :ids" )
+	List<TagLancamento> obterTags(@Param("ids") Collection<Long> ids);
+
+	// paginação por chave (keyset): retorna os lançamentos posteriores ao cursor (ano, mes, id)
+	// não utiliza 'offset', então o custo de cada página não cresce conforme o usuário avança na lista
+	@Query( "select new br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento(" +
+	        " l.id, l.descricao, l.mes, l.ano, l.valor, l.usuario.id, l.tipo, l.status, l.moeda, l.idCategoria, l.versao)" +
+			" from Lancamento l"                                                              +
+	        " where l.usuario.id = :idUsuario"                                                +
+			" and l.ano between :anoInicial and :anoFinal"                                    +
+	        " and (:mes is null or l.mes = :mes)"                                             +
+			" and lower(l.descricao) like :descricao escape '\\'"                              +
+	        " and (:todasCategorias = true or l.idCategoria in :categorias)"                  +
+			" and (:tag is null or :tag member of l.tags)"                                    +
+	        " and l.ano >= :anoCursor"                                                        +
+			" and (l.ano > :anoCursor"                                                        +
+	        "      or (l.ano = :anoCursor and (l.mes > :mesCursor"                            +
+			"                                  or (l.mes = :mesCursor and l.id > :idCursor))))" +
+	        " order by l.ano, l.mes, l.id" )
+	List<DadosLancamento> buscarPagina(@Param("idUsuario") Long idUsuario,
+			                      @Param("anoInicial") Integer anoInicial,
+			                      @Param("anoFinal") Integer anoFinal,
+			                      @Param("mes") Integer mes,
+			                      @Param("descricao") String descricao,
+			                      @Param("todasCategorias") boolean todasCategorias,
+			                      @Param("categorias") Collection<Long> categorias,
+			                      @Param("tag") String tag,
+			                      @Param("anoCursor") Integer anoCursor,
+			                      @Param("mesCursor") Integer mesCursor,
+			                      @Param("idCursor") Long idCursor,
+			                      Pageable pageable);
+
 }
\ No newline at end of file
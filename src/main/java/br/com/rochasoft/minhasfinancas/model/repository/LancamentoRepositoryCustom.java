@@ -0,0 +1,21 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.time.YearMonth;
+import java.util.function.Consumer;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+
+// métodos do repositório implementados manualmente (LancamentoRepositoryImpl)
+// o spring data junta esta implementação ao LancamentoRepository automaticamente
+public interface LancamentoRepositoryCustom
+{
+
+	// percorre os lançamentos do filtro lendo as linhas por um cursor jdbc,
+	// sem montar a lista completa em memória
+	void percorrer(Lancamento lancamentoFiltro, Consumer<DadosLancamento> consumidor);
+
+	// todos os lançamentos do usuário no período, em ordem de ano, mês e id
+	void percorrer(Long idUsuario, YearMonth inicio, YearMonth fim, Consumer<DadosLancamento> consumidor);
+
+}
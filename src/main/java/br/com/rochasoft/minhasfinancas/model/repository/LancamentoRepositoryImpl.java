@@ -0,0 +1,140 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+
+public class LancamentoRepositoryImpl implements LancamentoRepositoryCustom
+{
+
+	// quantidade de linhas trazidas do banco a cada ida ao cursor
+	private static final int TAMANHO_FETCH = 500;
+
+	private JdbcTemplate jdbcTemplate;
+
+	public LancamentoRepositoryImpl(DataSource dataSource)
+	{
+		super();
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.jdbcTemplate.setFetchSize(TAMANHO_FETCH);
+	}
+
+	@Override
+	public void percorrer(Lancamento lancamentoFiltro, Consumer<DadosLancamento> consumidor)
+	{
+
+		// no postgresql o fetchSize só abre um cursor quando a conexão está dentro de uma transação
+		// por isso este método deve ser chamado por um método @Transactional(readOnly = true)
+		StringBuilder sql = new StringBuilder()
+				.append("select l.id, l.descricao, l.mes, l.ano, l.valor, l.tipo, l.status, l.id_usuario, l.moeda, l.id_categoria, l.versao")
+				.append(" from financas.lancamento l")
+				.append(" where l.id_usuario = ?");
+
+		List<Object> parametros = new ArrayList<>();
+		parametros.add(lancamentoFiltro.getUsuario().getId());
+
+		if (lancamentoFiltro.getAno() != null)
+		{
+			sql.append(" and l.ano = ?");
+			parametros.add(lancamentoFiltro.getAno());
+		}
+
+		if (lancamentoFiltro.getMes() != null)
+		{
+			sql.append(" and l.mes = ?");
+			parametros.add(lancamentoFiltro.getMes());
+		}
+
+		if (lancamentoFiltro.getDescricao() != null)
+		{
+			sql.append(" and lower(l.descricao) like ? escape '\\'");
+			parametros.add(padraoContendo(lancamentoFiltro.getDescricao()));
+		}
+
+		sql.append(" order by l.ano, l.mes, l.id");
+
+		consultar(sql.toString(), parametros, consumidor);
+
+	}
+
+	@Override
+	public void percorrer(Long idUsuario, YearMonth inicio, YearMonth fim, Consumer<DadosLancamento> consumidor)
+	{
+
+		// o 'between' do ano permite ao postgresql ler apenas as partições do período
+		// e a expressão 'ano * 100 + mes' aplica os meses inicial e final
+		String sql = "select l.id, l.descricao, l.mes, l.ano, l.valor, l.tipo, l.status, l.id_usuario, l.moeda, l.id_categoria, l.versao" +
+				     " from financas.lancamento l"                                                          +
+				     " where l.id_usuario = ?"                                                              +
+				     " and l.ano between ? and ?"                                                           +
+				     " and l.ano * 100 + l.mes between ? and ?"                                             +
+				     " order by l.ano, l.mes, l.id";
+
+		List<Object> parametros = new ArrayList<>();
+		parametros.add(idUsuario);
+		parametros.add(inicio.getYear());
+		parametros.add(fim.getYear());
+		parametros.add(inicio.getYear() * 100 + inicio.getMonthValue());
+		parametros.add(fim.getYear() * 100 + fim.getMonthValue());
+
+		consultar(sql, parametros, consumidor);
+
+	}
+
+	// o resultado é lido por um cursor somente para frente, TAMANHO_FETCH linhas por vez,
+	// e cada linha é entregue ao consumidor sem ser guardada
+	private void consultar(String sql, List<Object> parametros, Consumer<DadosLancamento> consumidor)
+	{
+
+		jdbcTemplate.query(sql, resultSet ->
+		{
+
+			DadosLancamento lancamento = new DadosLancamento(resultSet.getLong("id"),
+					                                         resultSet.getString("descricao"),
+					                                         resultSet.getInt("mes"),
+					                                         resultSet.getInt("ano"),
+					                                         resultSet.getBigDecimal("valor"),
+					                                         resultSet.getLong("id_usuario"),
+					                                         TipoLancamento.valueOf(resultSet.getString("tipo")),
+					                                         StatusLancamento.valueOf(resultSet.getString("status")),
+					                                         resultSet.getString("moeda"),
+					                                         resultSet.getObject("id_categoria") != null ? resultSet.getLong("id_categoria") : null,
+					                                         resultSet.getLong("versao"));
+
+			consumidor.accept(lancamento);
+
+		}, parametros.toArray());
+
+	}
+
+	// monta o padrão do 'like' para buscar por qualquer parte do texto, ignorando maiúsculas e minúsculas
+	// os caracteres especiais do 'like' informados pelo usuário são tratados como texto
+	public static String padraoContendo(String texto)
+	{
+
+		if (texto == null)
+		{
+			return "%";
+		}
+
+		String escapado = texto
+							.toLowerCase()
+							.replace("\\", "\\\\")
+							.replace("%", "\\%")
+							.replace("_", "\\_");
+
+		return "%" + escapado + "%";
+
+	}
+
+}
@@ -0,0 +1,28 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Orcamento;
+import br.com.rochasoft.minhasfinancas.model.projection.LimiteOrcamento;
+
+public interface OrcamentoRepository extends JpaRepository<Orcamento, Long>
+{
+
+	@Query( "select o from Orcamento o where o.usuario.id = :idUsuario order by o.idCategoria" )
+	List<Orcamento> buscarPorUsuario(@Param("idUsuario") Long idUsuario);
+
+	@Query( "select o from Orcamento o where o.usuario.id = :idUsuario and o.idCategoria = :idCategoria" )
+	Optional<Orcamento> obterPorCategoria(@Param("idUsuario") Long idUsuario, @Param("idCategoria") Long idCategoria);
+
+	// carga dos limites em memória, sem carregar os usuários
+	@Query( "select o.id as id, o.usuario.id as idUsuario, o.idCategoria as idCategoria, o.valor as valor from Orcamento o" )
+	List<LimiteOrcamento> obterLimites();
+
+	boolean existsByIdCategoria(Long idCategoria);
+
+}
@@ -0,0 +1,45 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Recorrencia;
+
+public interface RecorrenciaRepository extends JpaRepository<Recorrencia, Long>
+{
+
+	// recorrências ativas com ocorrência a gerar até o mês informado
+	// bloqueadas até o fim da transação; 'skip locked' (timeout -2) faz instâncias concorrentes pegarem outras recorrências
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+	@Query( "select r from Recorrencia r"                                                 +
+	        " where r.ativa = true"                                                       +
+			" and (r.proximoAno < :ano or (r.proximoAno = :ano and r.proximoMes <= :mes))" +
+	        " order by r.id" )
+	List<Recorrencia> obterPendentesParaGeracao(@Param("ano") Integer ano, @Param("mes") Integer mes, Pageable pageable);
+
+	// a mesma condição para uma única recorrência, na geração recorrência por recorrência de um lote com falha
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+	@Query( "select r from Recorrencia r"                                                 +
+	        " where r.id = :id"                                                           +
+			" and r.ativa = true"                                                         +
+	        " and (r.proximoAno < :ano or (r.proximoAno = :ano and r.proximoMes <= :mes))" )
+	Optional<Recorrencia> obterPendenteParaGeracao(@Param("id") Long id, @Param("ano") Integer ano, @Param("mes") Integer mes);
+
+	@Query( "select r from Recorrencia r where r.usuario.id = :idUsuario order by r.id" )
+	List<Recorrencia> buscarPorUsuario(@Param("idUsuario") Long idUsuario);
+
+	boolean existsByIdCategoriaAndAtivaTrue(Long idCategoria);
+
+}
@@ -0,0 +1,27 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import br.com.rochasoft.minhasfinancas.model.entity.RequisicaoIdempotente;
+
+public interface RequisicaoIdempotenteRepository extends JpaRepository<RequisicaoIdempotente, Long>
+{
+
+	Optional<RequisicaoIdempotente> findByEscopoAndChave(String escopo, String chave);
+
+	// libera a chave de uma requisição que falhou, apenas enquanto ela ainda está em andamento
+	@Modifying
+	@Query( "delete from RequisicaoIdempotente r where r.escopo = :escopo and r.chave = :chave and r.status is null" )
+	int liberar(@Param("escopo") String escopo, @Param("chave") String chave);
+
+	@Modifying
+	@Query( "delete from RequisicaoIdempotente r where r.dataCriacao < :limite" )
+	int excluirExpiradas(@Param("limite") LocalDateTime limite);
+
+}
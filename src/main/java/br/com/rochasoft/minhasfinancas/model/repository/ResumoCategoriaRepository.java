@@ -0,0 +1,112 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoCategoria;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoCategoriaId;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.GastoMensalCategoria;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorCategoria;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorMoeda;
+
+public interface ResumoCategoriaRepository extends JpaRepository<ResumoCategoria, ResumoCategoriaId>, ResumoCategoriaRepositoryCustom
+{
+
+	// soma o valor e a quantidade diretamente no banco, assim como o resumo mensal
+	// retorna zero quando ainda não existe resumo para a chave
+	@Modifying
+	@Query( "update ResumoCategoria r set r.valor = r.valor + :valor, r.quantidade = r.quantidade + :quantidade" +
+	        " where r.idUsuario = :idUsuario"                                                                   +
+			" and r.idCategoria = :idCategoria"                                                                 +
+	        " and r.ano = :ano"                                                                                 +
+			" and r.mes = :mes"                                                                                 +
+	        " and r.tipo = :tipo"                                                                               +
+			" and r.status = :status" )
+	int somar(@Param("idUsuario") Long idUsuario,
+			  @Param("idCategoria") Long idCategoria,
+			  @Param("ano") Integer ano,
+			  @Param("mes") Integer mes,
+			  @Param("tipo") TipoLancamento tipo,
+			  @Param("status") StatusLancamento status,
+			  @Param("valor") BigDecimal valor,
+			  @Param("quantidade") Long quantidade);
+
+	@Modifying
+	@Query( "delete from ResumoCategoria r where r.idCategoria = :idCategoria" )
+	int excluirPorCategoria(@Param("idCategoria") Long idCategoria);
+
+	// totais de cada categoria no intervalo de anos, lidos apenas do resumo (sem percorrer os lançamentos)
+	@Query( "select r.idCategoria as idCategoria, r.tipo as tipo, sum(r.valor) as total, sum(r.quantidade) as quantidade" +
+	        " from ResumoCategoria r"                                                                                  +
+			" where r.idUsuario = :idUsuario"                                                                          +
+	        " and r.ano between :anoInicial and :anoFinal"                                                             +
+			" and r.status = :status"                                                                                  +
+	        " group by r.idCategoria, r.tipo"                                                                          +
+			" having sum(r.quantidade) > 0" )
+	List<TotalPorCategoria> totalizar(@Param("idUsuario") Long idUsuario,
+			                          @Param("anoInicial") Integer anoInicial,
+			                          @Param("anoFinal") Integer anoFinal,
+			                          @Param("status") StatusLancamento status);
+
+	// despesas não canceladas de cada categoria e mês a partir do ano informado, para a carga dos gastos dos orçamentos
+	@Query( "select r.idUsuario as idUsuario, r.idCategoria as idCategoria, r.ano as ano, r.mes as mes, sum(r.valor) as total" +
+	        " from ResumoCategoria r"                                                                                          +
+			" where r.ano >= :anoInicial"                                                                                      +
+	        " and r.tipo = br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento.DESPESA"                                 +
+			" and r.status <> br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento.CANCELADO"                          +
+	        " group by r.idUsuario, r.idCategoria, r.ano, r.mes"                                                               +
+			" having sum(r.quantidade) > 0" )
+	List<GastoMensalCategoria> obterGastos(@Param("anoInicial") Integer anoInicial);
+
+	// totais de uma chave do resumo a partir de 'financas.lancamento', por moeda e valor, para a conversão para a moeda do usuário
+	@Query( "select l.usuario.id as idUsuario, l.usuario.moeda as moedaUsuario, l.moeda as moeda,"      +
+	        " l.ano as ano, l.mes as mes, l.tipo as tipo, l.valor as valor, count(l) as quantidade"      +
+			" from Lancamento l"                                                                         +
+	        " where l.usuario.id = :idUsuario"                                                           +
+			" and l.idCategoria = :idCategoria"                                                          +
+	        " and l.ano = :ano"                                                                          +
+			" and l.mes = :mes"                                                                          +
+	        " and l.tipo = :tipo"                                                                        +
+			" and l.status = :status"                                                                    +
+	        " group by l.usuario.id, l.usuario.moeda, l.moeda, l.ano, l.mes, l.tipo, l.valor" )
+	List<TotalPorMoeda> calcular(@Param("idUsuario") Long idUsuario,
+			                     @Param("idCategoria") Long idCategoria,
+			                     @Param("ano") Integer ano,
+			                     @Param("mes") Integer mes,
+			                     @Param("tipo") TipoLancamento tipo,
+			                     @Param("status") StatusLancamento status);
+
+	// chaves com lançamentos em moeda diferente da do usuário: as únicas cujo valor muda quando as cotações são alteradas
+	@Query( "select distinct new br.com.rochasoft.minhasfinancas.model.entity.ResumoCategoriaId(l.usuario.id, l.idCategoria, l.ano, l.mes, l.tipo, l.status)" +
+	        " from Lancamento l"                                                                                                                                 +
+			" where l.moeda <> l.usuario.moeda"                                                                                                                  +
+	        " and l.idCategoria is not null" )
+	List<ResumoCategoriaId> obterChavesEmOutraMoeda();
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query( "select r from ResumoCategoria r"   +
+	        " where r.idUsuario = :idUsuario"   +
+			" and r.idCategoria = :idCategoria" +
+	        " and r.ano = :ano"                 +
+			" and r.mes = :mes"                 +
+	        " and r.tipo = :tipo"               +
+			" and r.status = :status" )
+	Optional<ResumoCategoria> obterParaAtualizacao(@Param("idUsuario") Long idUsuario,
+			                                       @Param("idCategoria") Long idCategoria,
+			                                       @Param("ano") Integer ano,
+			                                       @Param("mes") Integer mes,
+			                                       @Param("tipo") TipoLancamento tipo,
+			                                       @Param("status") StatusLancamento status);
+
+}
@@ -0,0 +1,12 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoCategoria;
+
+// métodos do repositório implementados manualmente (ResumoCategoriaRepositoryImpl)
+public interface ResumoCategoriaRepositoryCustom
+{
+
+	// grava o resumo calculado quando a chave ainda não existe, ou soma a diferença (valor e quantidade) ao resumo existente
+	void inserirOuSomar(ResumoCategoria calculado, ResumoCategoria diferenca);
+
+}
@@ -0,0 +1,35 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.util.Arrays;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoCategoria;
+
+public class ResumoCategoriaRepositoryImpl implements ResumoCategoriaRepositoryCustom
+{
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private InsercaoOuSoma insercaoOuSoma;
+
+	public ResumoCategoriaRepositoryImpl()
+	{
+		super();
+		this.insercaoOuSoma = new InsercaoOuSoma("financas.resumo_categoria",
+				                                 Arrays.asList("id_usuario", "ano", "id_categoria", "mes", "tipo", "status"),
+				                                 Arrays.asList("valor", "quantidade"));
+	}
+
+	@Override
+	public void inserirOuSomar(ResumoCategoria calculado, ResumoCategoria diferenca)
+	{
+		insercaoOuSoma.executar(entityManager,
+				                Arrays.asList(calculado.getIdUsuario(), calculado.getAno(), calculado.getIdCategoria(), calculado.getMes(), calculado.getTipo().name(), calculado.getStatus().name()),
+				                Arrays.asList(calculado.getValor(), calculado.getQuantidade()),
+				                Arrays.asList(diferenca.getValor(), diferenca.getQuantidade()));
+	}
+
+}
@@ -0,0 +1,86 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensal;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensalId;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorMoeda;
+
+public interface ResumoMensalRepository extends JpaRepository<ResumoMensal, ResumoMensalId>, ResumoMensalRepositoryCustom
+{
+
+	// soma o valor e a quantidade diretamente no banco, assim como o saldo do usuário
+	// retorna zero quando ainda não existe resumo para a chave
+	@Modifying
+	@Query( "update ResumoMensal r set r.valor = r.valor + :valor, r.quantidade = r.quantidade + :quantidade" +
+	        " where r.idUsuario = :idUsuario"                                                                +
+			" and r.ano = :ano"                                                                              +
+	        " and r.mes = :mes"                                                                              +
+			" and r.tipo = :tipo"                                                                            +
+	        " and r.status = :status" )
+	int somar(@Param("idUsuario") Long idUsuario,
+			  @Param("ano") Integer ano,
+			  @Param("mes") Integer mes,
+			  @Param("tipo") TipoLancamento tipo,
+			  @Param("status") StatusLancamento status,
+			  @Param("valor") BigDecimal valor,
+			  @Param("quantidade") Long quantidade);
+
+	// leitura de um intervalo da chave primária, já na ordem do índice
+	@Query( "select r from ResumoMensal r"          +
+	        " where r.idUsuario = :idUsuario"       +
+			" and r.ano between :anoInicial and :anoFinal" +
+	        " and r.quantidade > 0"                 +
+			" order by r.ano, r.mes, r.tipo, r.status" )
+	List<ResumoMensal> buscar(@Param("idUsuario") Long idUsuario,
+			                  @Param("anoInicial") Integer anoInicial,
+			                  @Param("anoFinal") Integer anoFinal);
+
+	// totais de uma chave do resumo a partir de 'financas.lancamento', por moeda e valor, para a conversão para a moeda do usuário
+	@Query( "select l.usuario.id as idUsuario, l.usuario.moeda as moedaUsuario, l.moeda as moeda,"      +
+	        " l.ano as ano, l.mes as mes, l.tipo as tipo, l.valor as valor, count(l) as quantidade"      +
+			" from Lancamento l"                                                                         +
+	        " where l.usuario.id = :idUsuario"                                                           +
+			" and l.ano = :ano"                                                                          +
+	        " and l.mes = :mes"                                                                          +
+			" and l.tipo = :tipo"                                                                        +
+	        " and l.status = :status"                                                                    +
+			" group by l.usuario.id, l.usuario.moeda, l.moeda, l.ano, l.mes, l.tipo, l.valor" )
+	List<TotalPorMoeda> calcular(@Param("idUsuario") Long idUsuario,
+			                     @Param("ano") Integer ano,
+			                     @Param("mes") Integer mes,
+			                     @Param("tipo") TipoLancamento tipo,
+			                     @Param("status") StatusLancamento status);
+
+	// chaves com lançamentos em moeda diferente da do usuário: as únicas cujo valor muda quando as cotações são alteradas
+	@Query( "select distinct new br.com.rochasoft.minhasfinancas.model.entity.ResumoMensalId(l.usuario.id, l.ano, l.mes, l.tipo, l.status)" +
+	        " from Lancamento l"                                                                                                              +
+			" where l.moeda <> l.usuario.moeda" )
+	List<ResumoMensalId> obterChavesEmOutraMoeda();
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query( "select r from ResumoMensal r"    +
+	        " where r.idUsuario = :idUsuario" +
+			" and r.ano = :ano"               +
+	        " and r.mes = :mes"               +
+			" and r.tipo = :tipo"             +
+	        " and r.status = :status" )
+	Optional<ResumoMensal> obterParaAtualizacao(@Param("idUsuario") Long idUsuario,
+			                                    @Param("ano") Integer ano,
+			                                    @Param("mes") Integer mes,
+			                                    @Param("tipo") TipoLancamento tipo,
+			                                    @Param("status") StatusLancamento status);
+
+}
@@ -0,0 +1,12 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensal;
+
+// métodos do repositório implementados manualmente (ResumoMensalRepositoryImpl)
+public interface ResumoMensalRepositoryCustom
+{
+
+	// grava o resumo calculado quando a chave ainda não existe, ou soma a diferença (valor e quantidade) ao resumo existente
+	void inserirOuSomar(ResumoMensal calculado, ResumoMensal diferenca);
+
+}
@@ -0,0 +1,35 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.util.Arrays;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensal;
+
+public class ResumoMensalRepositoryImpl implements ResumoMensalRepositoryCustom
+{
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private InsercaoOuSoma insercaoOuSoma;
+
+	public ResumoMensalRepositoryImpl()
+	{
+		super();
+		this.insercaoOuSoma = new InsercaoOuSoma("financas.resumo_mensal",
+				                                 Arrays.asList("id_usuario", "ano", "mes", "tipo", "status"),
+				                                 Arrays.asList("valor", "quantidade"));
+	}
+
+	@Override
+	public void inserirOuSomar(ResumoMensal calculado, ResumoMensal diferenca)
+	{
+		insercaoOuSoma.executar(entityManager,
+				                Arrays.asList(calculado.getIdUsuario(), calculado.getAno(), calculado.getMes(), calculado.getTipo().name(), calculado.getStatus().name()),
+				                Arrays.asList(calculado.getValor(), calculado.getQuantidade()),
+				                Arrays.asList(diferenca.getValor(), diferenca.getQuantidade()));
+	}
+
+}
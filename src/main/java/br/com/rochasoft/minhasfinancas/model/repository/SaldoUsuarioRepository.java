@@ -0,0 +1,33 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import br.com.rochasoft.minhasfinancas.model.entity.SaldoUsuario;
+
+public interface SaldoUsuarioRepository extends JpaRepository<SaldoUsuario, Long>, SaldoUsuarioRepositoryCustom
+{
+
+	// soma o valor e incrementa a versão diretamente no banco, evitando ler e regravar o registro (não perde atualizações concorrentes)
+	// retorna a quantidade de registros alterados (zero quando o usuário ainda não tem saldo registrado)
+	@Modifying
+	@Query( "update SaldoUsuario s set s.valor = s.valor + :valor, s.versao = s.versao + 1 where s.idUsuario = :idUsuario" )
+	int somarValor(@Param("idUsuario") Long idUsuario, @Param("valor") BigDecimal valor);
+
+	@Query( "select s.versao from SaldoUsuario s where s.idUsuario = :idUsuario" )
+	Optional<Long> obterVersao(@Param("idUsuario") Long idUsuario);
+
+	// bloqueia o registro do saldo para que o recálculo não concorra com gravações de lançamentos
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query( "select s from SaldoUsuario s where s.idUsuario = :idUsuario" )
+	Optional<SaldoUsuario> obterParaAtualizacao(@Param("idUsuario") Long idUsuario);
+
+}
@@ -0,0 +1,12 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+
+// métodos do repositório implementados manualmente (SaldoUsuarioRepositoryImpl)
+public interface SaldoUsuarioRepositoryCustom
+{
+
+	// grava o saldo calculado quando o usuário ainda não tem saldo registrado, ou soma o valor ao saldo existente
+	void inserirOuSomar(Long idUsuario, BigDecimal saldoCalculado, BigDecimal valor);
+
+}
@@ -0,0 +1,31 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class SaldoUsuarioRepositoryImpl implements SaldoUsuarioRepositoryCustom
+{
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private InsercaoOuSoma insercaoOuSoma;
+
+	public SaldoUsuarioRepositoryImpl()
+	{
+		super();
+		this.insercaoOuSoma = new InsercaoOuSoma("financas.saldo_usuario", Arrays.asList("id_usuario"), Arrays.asList("valor", "versao"));
+	}
+
+	@Override
+	public void inserirOuSomar(Long idUsuario, BigDecimal saldoCalculado, BigDecimal valor)
+	{
+		// a versão começa em 1 (a gravação atual) ou aumenta 1 quando outra transação registrou o saldo antes
+		insercaoOuSoma.executar(entityManager, Collections.singletonList(idUsuario), Arrays.asList(saldoCalculado, 1l), Arrays.asList(valor, 1l));
+	}
+
+}
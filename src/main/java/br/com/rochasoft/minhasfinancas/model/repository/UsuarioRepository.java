@@ -2,7 +2,14 @@ package br.com.rochasoft.minhasfinancas.model.repository;
 
 import java.util.Optional;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
 
@@ -19,6 +26,16 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long>
     boolean existsByEmail(String email);
     
     // queryMethod
+    // o resultado fica no cache 'usuariosPorEmail' (removido ao salvar o usuário em UsuarioServiceImpl)
+    @Cacheable(cacheNames = "usuariosPorEmail", unless = "#result == null")
     Optional<Usuario> findByEmail(String email);
+    
+    // grava o hash da senha de usuários cadastrados antes das senhas serem gravadas com hash
+    @Modifying
+    @Transactional
+    @Caching(evict = { @CacheEvict(cacheNames = "usuarios",         key = "#p0"),
+    		           @CacheEvict(cacheNames = "usuariosPorEmail", key = "#p1") })
+    @Query( "update Usuario u set u.senha = :senha where u.id = :id and u.email = :email" )
+    int atualizarSenha(@Param("id") Long id, @Param("email") String email, @Param("senha") String senha);
 
 }
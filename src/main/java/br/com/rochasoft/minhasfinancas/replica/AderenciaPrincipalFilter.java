@@ -0,0 +1,113 @@
+package br.com.rochasoft.minhasfinancas.replica;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// leitura das próprias gravações (read-your-writes) com réplica:
+// - toda requisição de gravação (POST, PUT, PATCH, DELETE) lê do banco principal, inclusive as validações antes da gravação,
+//   e devolve um cookie válido por alguns segundos
+// - enquanto o cliente enviar o cookie, as leituras dele vão para o banco principal
+// o cliente também pode exigir o principal em uma requisição com o cabeçalho 'X-Consistencia: forte'
+public class AderenciaPrincipalFilter extends OncePerRequestFilter
+{
+
+	public static final String COOKIE    = "minhasfinancas-escrita";
+	public static final String CABECALHO = "X-Consistencia";
+
+	private final int segundosAderencia;
+
+	public AderenciaPrincipalFilter(int segundosAderencia)
+	{
+		this.segundosAderencia = segundosAderencia;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException
+	{
+
+		long agora = System.currentTimeMillis();
+
+		if (isGravacao(request) || "forte".equalsIgnoreCase(request.getHeader(CABECALHO)) || gravouRecentemente(request, agora))
+		{
+			ContextoRoteamento.exigirPrincipal();
+		}
+
+		if (segundosAderencia > 0 && isGravacao(request))
+		{
+
+			// o valor é o fim da aderência, conferido também aqui para clientes que ignoram o max-age
+			Cookie cookie = new Cookie(COOKIE, String.valueOf(agora + segundosAderencia * 1000l));
+			cookie.setMaxAge(segundosAderencia);
+			cookie.setPath("/");
+			cookie.setHttpOnly(true);
+
+			response.addCookie(cookie);
+
+		}
+
+		try
+		{
+			filterChain.doFilter(request, response);
+		}
+		finally
+		{
+			ContextoRoteamento.limpar();
+		}
+
+	}
+
+	private boolean gravouRecentemente(HttpServletRequest request, long agora)
+	{
+
+		if (request.getCookies() == null)
+		{
+			return false;
+		}
+
+		for (Cookie cookie : request.getCookies())
+		{
+
+			if (COOKIE.equals(cookie.getName()))
+			{
+
+				try
+				{
+					return Long.parseLong(cookie.getValue()) > agora;
+				}
+				catch (NumberFormatException e)
+				{
+					return false;
+				}
+
+			}
+
+		}
+
+		return false;
+
+	}
+
+	private boolean isGravacao(HttpServletRequest request)
+	{
+
+		switch (request.getMethod())
+		{
+			case "POST":
+			case "PUT":
+			case "PATCH":
+			case "DELETE":
+				return true;
+			default:
+				return false;
+		}
+
+	}
+
+}
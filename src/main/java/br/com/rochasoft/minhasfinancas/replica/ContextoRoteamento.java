@@ -0,0 +1,84 @@
+package br.com.rochasoft.minhasfinancas.replica;
+
+import java.util.function.Supplier;
+
+// indica, para a thread da requisição, que as leituras devem ir para o banco principal mesmo em transações somente leitura
+// (o cliente acabou de gravar e a réplica pode ainda não ter recebido a alteração)
+public final class ContextoRoteamento
+{
+
+	private static final ThreadLocal<Boolean> PRINCIPAL = new ThreadLocal<>();
+
+	private ContextoRoteamento()
+	{
+	}
+
+	public static void exigirPrincipal()
+	{
+		PRINCIPAL.set(Boolean.TRUE);
+	}
+
+	public static boolean isPrincipalExigido()
+	{
+		return PRINCIPAL.get() != null;
+	}
+
+	public static void limpar()
+	{
+		PRINCIPAL.remove();
+	}
+
+	// repassa a exigência da thread da requisição para a thread que escreve a resposta (StreamingResponseBody e ndjson):
+	// o filtro só marca e limpa a thread da requisição, e sem isso o stream e a exportação leriam da réplica atrasada
+	// mesmo logo depois de uma gravação do cliente ou com 'X-Consistencia: forte'
+	public static Runnable propagar(Runnable tarefa)
+	{
+
+		if (!isPrincipalExigido())
+		{
+			return tarefa;
+		}
+
+		return () -> 
+		{
+
+			exigirPrincipal();
+
+			try
+			{
+				tarefa.run();
+			}
+			finally
+			{
+				limpar();
+			}
+
+		};
+
+	}
+
+	// executa as leituras no banco principal e volta ao estado anterior (também sem réplica configurada, sem o filtro para limpar)
+	// utilizado nas consultas que retornam ETag: uma réplica atrasada entregaria dados antigos com a versão nova,
+	// e o cliente receberia 304 para eles até a próxima alteração
+	public static <T> T noPrincipal(Supplier<T> leitura)
+	{
+
+		boolean exigido = isPrincipalExigido();
+
+		exigirPrincipal();
+
+		try
+		{
+			return leitura.get();
+		}
+		finally
+		{
+			if (!exigido)
+			{
+				limpar();
+			}
+		}
+
+	}
+
+}
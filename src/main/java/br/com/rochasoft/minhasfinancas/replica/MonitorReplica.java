@@ -0,0 +1,92 @@
+package br.com.rochasoft.minhasfinancas.replica;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// verifica periodicamente o atraso da réplica em relação ao banco principal
+// acima do atraso máximo (ou se a réplica não responder) as leituras voltam para o principal até a réplica alcançá-lo
+@Slf4j
+public class MonitorReplica
+{
+
+	// no postgresql: zero quando a réplica já aplicou tudo o que recebeu,
+	// senão o tempo desde a última transação aplicada
+	public static final String CONSULTA_ATRASO_POSTGRESQL =
+			"select case when not pg_is_in_recovery() or pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0" +
+			" else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+
+	private static final int TEMPO_LIMITE_CONSULTA = 2;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final String 	   consultaAtraso;
+	private final double 	   atrasoMaximo;
+
+	// a réplica só é utilizada depois da primeira verificação
+	private volatile boolean disponivel;
+	private volatile double  atraso;
+
+	public MonitorReplica(DataSource replica, String consultaAtraso, double atrasoMaximo, ObjectProvider<MeterRegistry> registry)
+	{
+		this.jdbcTemplate   = new JdbcTemplate(replica);
+		this.consultaAtraso = consultaAtraso;
+		this.atrasoMaximo   = atrasoMaximo;
+
+		this.jdbcTemplate.setQueryTimeout(TEMPO_LIMITE_CONSULTA);
+
+		registry.ifAvailable( r ->
+		{
+			Gauge.builder("replica.atraso", this, MonitorReplica::getAtraso)
+				 .description("atraso da réplica em relação ao banco principal")
+				 .baseUnit("seconds")
+				 .register(r);
+			Gauge.builder("replica.disponivel", this, monitor -> monitor.isDisponivel() ? 1 : 0)
+				 .description("1 quando as leituras estão indo para a réplica")
+				 .register(r);
+		});
+	}
+
+	@Scheduled(fixedDelayString = "${minhasfinancas.replica.intervalo-verificacao:5000}")
+	public void verificar()
+	{
+
+		boolean estavaDisponivel = disponivel;
+
+		try
+		{
+			Double valor = jdbcTemplate.queryForObject(consultaAtraso, Double.class);
+			atraso 		 = valor != null ? valor : 0;
+			disponivel 	 = atraso <= atrasoMaximo;
+		}
+		catch (DataAccessException e)
+		{
+			log.warn("falha ao verificar a réplica: {}", e.getMessage());
+			disponivel = false;
+		}
+
+		if (estavaDisponivel != disponivel)
+		{
+			log.warn(disponivel ? "leituras voltando para a réplica (atraso de {}s)" 
+					            : "leituras desviadas para o banco principal (atraso da réplica: {}s)", atraso);
+		}
+
+	}
+
+	public boolean isDisponivel()
+	{
+		return disponivel;
+	}
+
+	public double getAtraso()
+	{
+		return atraso;
+	}
+
+}
@@ -0,0 +1,46 @@
+package br.com.rochasoft.minhasfinancas.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// envia as transações somente leitura (@Transactional(readOnly = true)) para a réplica e as demais para o banco principal
+// deve ser utilizado dentro de um LazyConnectionDataSourceProxy: a conexão só é obtida no primeiro comando,
+// depois que o gerenciador de transações já marcou a transação como somente leitura
+// vai para o principal quando a requisição exige (ContextoRoteamento) ou quando a réplica está atrasada (MonitorReplica)
+public class RoteamentoDataSource extends AbstractRoutingDataSource
+{
+
+	public enum Destino
+	{
+		PRINCIPAL,
+		REPLICA
+	}
+
+	private final MonitorReplica monitor;
+
+	public RoteamentoDataSource(MonitorReplica monitor)
+	{
+		this.monitor = monitor;
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey()
+	{
+		return obterDestino();
+	}
+
+	public Destino obterDestino()
+	{
+
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+			&& !ContextoRoteamento.isPrincipalExigido()
+			&& monitor.isDisponivel())
+		{
+			return Destino.REPLICA;
+		}
+
+		return Destino.PRINCIPAL;
+
+	}
+
+}
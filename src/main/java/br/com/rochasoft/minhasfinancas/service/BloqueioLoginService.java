@@ -0,0 +1,12 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+public interface BloqueioLoginService
+{
+
+	boolean estaBloqueado(String email);
+
+	void registrarFalha(String email);
+
+	void registrarSucesso(String email);
+
+}
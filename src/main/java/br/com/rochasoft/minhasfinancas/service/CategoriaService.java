@@ -0,0 +1,36 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Categoria;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoCategoriaId;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalCategoria;
+
+public interface CategoriaService
+{
+
+	Categoria salvar(Categoria categoria);
+
+	Categoria atualizar(Categoria categoria);
+
+	void excluir(Categoria categoria);
+
+	Optional<Categoria> obterPorId(Long id);
+
+	List<Categoria> buscarPorUsuario(Long idUsuario);
+
+	// ids da categoria e de todas as suas subcategorias, para as buscas de lançamentos por categoria
+	List<Long> obterComSubcategorias(Long idUsuario, Long idCategoria);
+
+	void validarCategoria(Long idUsuario, Long idCategoria);
+
+	List<TotalCategoria> obterTotais(Long idUsuario, Integer anoInicial, Integer anoFinal, StatusLancamento status);
+
+	List<ResumoCategoriaId> obterChavesResumoEmOutraMoeda();
+
+	// recalcula o valor do resumo por categoria com as cotações atuais, retorna se estava divergente
+	boolean recalcularResumo(ResumoCategoriaId chave);
+
+}
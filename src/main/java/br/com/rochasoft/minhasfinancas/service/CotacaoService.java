@@ -0,0 +1,20 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.math.BigDecimal;
+
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorMoeda;
+
+public interface CotacaoService
+{
+
+	// taxa que multiplicada por um valor na moeda de origem resulta no valor na moeda de destino, no mês informado
+	BigDecimal obterTaxa(String moedaOrigem, String moedaDestino, int ano, int mes);
+
+	BigDecimal converter(BigDecimal valor, String moedaOrigem, String moedaDestino, int ano, int mes);
+
+	// soma dos lançamentos do grupo convertidos um a um, com o mesmo arredondamento das gravações
+	BigDecimal converter(TotalPorMoeda total);
+
+	void validarMoeda(String moeda);
+
+}
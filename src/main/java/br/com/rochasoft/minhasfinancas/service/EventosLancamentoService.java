@@ -0,0 +1,10 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+public interface EventosLancamentoService
+{
+
+	int despachar();
+
+	int excluirProcessados();
+
+}
@@ -0,0 +1,19 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.util.function.Supplier;
+
+import org.springframework.http.ResponseEntity;
+
+public interface IdempotenciaService
+{
+
+	String CABECALHO_CHAVE    = "Idempotency-Key";
+
+	// enviado quando a resposta é a da primeira execução da requisição
+	String CABECALHO_REPETICAO = "Idempotency-Replayed";
+
+	ResponseEntity executar(String escopo, String chave, Object requisicao, Supplier<ResponseEntity> operacao);
+
+	int excluirExpiradas();
+
+}
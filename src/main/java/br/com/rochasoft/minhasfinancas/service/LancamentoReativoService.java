@@ -0,0 +1,21 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.math.BigDecimal;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface LancamentoReativoService
+{
+
+	// mesmos filtros de LancamentoService.buscar (do usuário do filtro, apenas o id é utilizado)
+	Flux<DadosLancamento> buscar(Lancamento lancamentoFiltro);
+
+	// vazio quando o usuário não existe
+	Mono<BigDecimal> obterSaldo(Long idUsuario);
+
+	Mono<Boolean> existeUsuario(Long idUsuario);
+
+}
@@ -1,25 +1,55 @@
 package br.com.rochasoft.minhasfinancas.service;
 
 import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
 import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
 
 public interface LancamentoService 
 {
 	
 	Lancamento salvar(Lancamento lancamento);
 	
+	List<Lancamento> salvarLote(List<Lancamento> lancamentos);
+	
+	// grava lançamentos já validados um a um (validar), sem repetir a validação
+	List<Lancamento> salvarLoteValidado(List<Lancamento> lancamentos);
+	
 	Lancamento atualizar(Lancamento lancamento);
 	
+	// altera apenas os campos preenchidos em 'alteracoes' (nulos ficam como estão) se o lançamento ainda estiver na versão informada
+	// versão nula não confere a versão lida pelo cliente, apenas a de leitura da própria alteração
+	// vazio quando o lançamento não existe
+	Optional<Lancamento> atualizarParcial(Long id, Long versao, Lancamento alteracoes);
+	
 	void deletar(Lancamento lancamento);
 	
-	List<Lancamento> buscar(Lancamento lancamentoFiltro);
+	List<DadosLancamento> buscar(Lancamento lancamentoFiltro);
+	
+	List<DadosLancamento> buscarPagina(Lancamento lancamentoFiltro, Lancamento ultimoLancamento, int tamanho);
+	
+	void percorrer(Lancamento lancamentoFiltro, Consumer<DadosLancamento> consumidor);
+	
+	// etiquetas de cada lançamento informado (os lançamentos sem etiquetas não aparecem no mapa)
+	Map<Long, Set<String>> obterTags(Collection<Long> ids);
+	
+	void exportar(Long idUsuario, YearMonth inicio, YearMonth fim, Consumer<DadosLancamento> consumidor);
 	
 	void atualizarStatus(Lancamento lancamento, StatusLancamento status);
 	
+	List<SituacaoLancamento> atualizarStatus(Long idUsuario, List<Long> ids, StatusLancamento status);
+	
+	List<SituacaoLancamento> atualizarStatus(Long idUsuario, Integer ano, Integer mes, StatusLancamento statusAtual, StatusLancamento status);
+	
 	void validar(Lancamento lancamento);
 	
 	Optional<Lancamento> obterPorId(Long id);
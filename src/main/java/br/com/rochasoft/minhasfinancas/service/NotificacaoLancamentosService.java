@@ -0,0 +1,10 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface NotificacaoLancamentosService
+{
+
+	SseEmitter inscrever(Long idUsuario);
+
+}
@@ -0,0 +1,29 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Orcamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoOrcamento;
+
+public interface OrcamentoService
+{
+
+	// cria o orçamento da categoria ou altera o limite do orçamento já existente
+	Orcamento salvar(Orcamento orcamento);
+
+	void excluir(Orcamento orcamento);
+
+	Optional<Orcamento> obterPorId(Long id);
+
+	List<SituacaoOrcamento> buscar(Long idUsuario, Integer ano, Integer mes);
+
+	// situação do orçamento da categoria do lançamento gravado, apenas quando o gasto do mês passou do limite
+	// não consulta o banco: o limite e o gasto do mês ficam em memória
+	Optional<SituacaoOrcamento> verificarLimite(Lancamento lancamento);
+
+	// recarrega os limites e os gastos em memória a partir do banco
+	void recarregar();
+
+}
@@ -0,0 +1,8 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+public interface ParticaoLancamentoService
+{
+
+	void manterParticoes();
+
+}
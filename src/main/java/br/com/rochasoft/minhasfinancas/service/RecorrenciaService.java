@@ -0,0 +1,24 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Recorrencia;
+import br.com.rochasoft.minhasfinancas.model.enums.Periodicidade;
+
+public interface RecorrenciaService
+{
+
+	Recorrencia criar(Lancamento modelo, Periodicidade periodicidade, Integer intervalo, Integer anoFinal, Integer mesFinal);
+
+	void encerrar(Recorrencia recorrencia);
+
+	Optional<Recorrencia> obterPorId(Long id);
+
+	List<Recorrencia> buscarPorUsuario(Long idUsuario);
+
+	int gerarOcorrencias(YearMonth ate);
+
+}
@@ -0,0 +1,18 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.util.List;
+
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensal;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensalId;
+
+public interface ResumoMensalService
+{
+
+	List<ResumoMensal> buscar(Long idUsuario, Integer anoInicial, Integer anoFinal);
+
+	List<ResumoMensalId> obterChavesEmOutraMoeda();
+
+	// recalcula o valor do resumo com as cotações atuais, retorna se estava divergente
+	boolean recalcular(ResumoMensalId chave);
+
+}
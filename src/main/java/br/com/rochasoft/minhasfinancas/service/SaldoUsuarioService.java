@@ -0,0 +1,15 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface SaldoUsuarioService
+{
+
+	BigDecimal obterSaldo(Long idUsuario);
+
+	BigDecimal recalcular(Long idUsuario);
+
+	List<Long> obterUsuariosComSaldoDivergente();
+
+}
@@ -1,13 +1,14 @@
 package br.com.rochasoft.minhasfinancas.service;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
 
 public interface UsuarioService 
 {
 	
-	Usuario autenticar(String email, String senha);
+	CompletableFuture<Usuario> autenticar(String email, String senha);
 	
 	Usuario salvarUsuario(Usuario usuario);
 	
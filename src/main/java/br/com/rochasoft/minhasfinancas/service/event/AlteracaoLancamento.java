@@ -0,0 +1,17 @@
+package br.com.rochasoft.minhasfinancas.service.event;
+
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+// representa a alteração de um lançamento
+// 'anterior' nulo indica inclusão e 'atual' nulo indica exclusão
+@Value
+@AllArgsConstructor
+public class AlteracaoLancamento
+{
+
+	private SituacaoLancamento anterior;
+	private SituacaoLancamento atual;
+
+}
@@ -0,0 +1,13 @@
+package br.com.rochasoft.minhasfinancas.service.event;
+
+// consumidor das alterações de lançamentos entregues pelo despacho da caixa de saída (EventosLancamentoService)
+// basta registrar a implementação como bean para recebê-las
+// a entrega é feita pelo menos uma vez: em caso de falha o evento é entregue de novo a todos os consumidores,
+// então o processamento deve ser idempotente (o id do evento é único)
+// a entrega é feita fora de transação, o consumidor que gravar no banco deve abrir a sua (@Transactional)
+public interface ConsumidorEventosLancamento
+{
+
+	void processar(Long idEvento, NotificacaoLancamento notificacao);
+
+}
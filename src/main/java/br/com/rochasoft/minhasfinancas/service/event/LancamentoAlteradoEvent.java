@@ -0,0 +1,27 @@
+package br.com.rochasoft.minhasfinancas.service.event;
+
+import java.util.Collections;
+import java.util.List;
+
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import lombok.Getter;
+
+// evento publicado pelo LancamentoService dentro da mesma transação da gravação
+// os listeners síncronos (@EventListener) participam da transação, então uma falha neles desfaz a gravação
+@Getter
+public class LancamentoAlteradoEvent
+{
+
+	private final List<AlteracaoLancamento> alteracoes;
+
+	public LancamentoAlteradoEvent(List<AlteracaoLancamento> alteracoes)
+	{
+		this.alteracoes = Collections.unmodifiableList(alteracoes);
+	}
+
+	public static LancamentoAlteradoEvent de(SituacaoLancamento anterior, SituacaoLancamento atual)
+	{
+		return new LancamentoAlteradoEvent(Collections.singletonList(new AlteracaoLancamento(anterior, atual)));
+	}
+
+}
@@ -0,0 +1,89 @@
+package br.com.rochasoft.minhasfinancas.service.event;
+
+import java.math.BigDecimal;
+
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+// alteração de lançamento enviada aos clientes inscritos no usuário (GET /api/lancamentos/eventos)
+@Value
+@AllArgsConstructor
+public class NotificacaoLancamento
+{
+
+	public static final String INCLUSAO  = "INCLUSAO";
+	public static final String ALTERACAO = "ALTERACAO";
+	public static final String STATUS    = "STATUS";
+	public static final String EXCLUSAO  = "EXCLUSAO";
+
+	private String 		operacao;
+	private Long 		id;
+	private Long 		usuario;
+	private Integer 	ano;
+	private Integer 	mes;
+	private String 		tipo;
+	private String 		status;
+	private BigDecimal 	valor;
+	private String 		moeda;
+
+	public static NotificacaoLancamento de(AlteracaoLancamento alteracao)
+	{
+
+		SituacaoLancamento anterior = alteracao.getAnterior();
+		SituacaoLancamento atual    = alteracao.getAtual();
+
+		String operacao;
+
+		if (anterior == null)
+		{
+			operacao = INCLUSAO;
+		}
+		else if (atual == null)
+		{
+			operacao = EXCLUSAO;
+		}
+		else if (apenasStatusAlterado(anterior, atual))
+		{
+			operacao = STATUS;
+		}
+		else
+		{
+			operacao = ALTERACAO;
+		}
+
+		SituacaoLancamento situacao = atual != null ? atual : anterior;
+
+		return new NotificacaoLancamento(operacao,
+				                         situacao.getId(),
+				                         situacao.getIdUsuario(),
+				                         situacao.getAno(),
+				                         situacao.getMes(),
+				                         situacao.getTipo() != null ? situacao.getTipo().name() : null,
+				                         situacao.getStatus() != null ? situacao.getStatus().name() : null,
+				                         situacao.getValor(),
+				                         situacao.getMoeda());
+
+	}
+
+	// o valor é comparado sem a escala (10 e 10.00), que muda entre o valor informado e o gravado no banco
+	private static boolean apenasStatusAlterado(SituacaoLancamento anterior, SituacaoLancamento atual)
+	{
+
+		boolean mesmoValor = anterior.getValor() == null ? atual.getValor() == null
+				                                         : atual.getValor() != null && anterior.getValor().compareTo(atual.getValor()) == 0;
+
+		return mesmoValor && anterior.comStatus(atual.getStatus()).equals(new SituacaoLancamento(atual.getId(),
+				                                                                                 atual.getIdUsuario(),
+				                                                                                 atual.getAno(),
+				                                                                                 atual.getMes(),
+				                                                                                 atual.getTipo(),
+				                                                                                 atual.getStatus(),
+				                                                                                 anterior.getValor(),
+				                                                                                 atual.getMoeda(),
+				                                                                                 atual.getMoedaUsuario(),
+				                                                                                 atual.getIdCategoria()));
+
+	}
+
+}
@@ -0,0 +1,105 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import br.com.rochasoft.minhasfinancas.service.BloqueioLoginService;
+
+// contador de tentativas de login com falha por e-mail, em janela deslizante e somente em memória
+// o e-mail é bloqueado ao atingir o limite de falhas dentro da janela, sem nenhum acesso ao banco
+@Service
+public class BloqueioLoginServiceImpl implements BloqueioLoginService
+{
+
+	private final int  limiteFalhas;
+	private final long janelaMillis;
+
+	// horários das falhas recentes de cada e-mail
+	// as entradas sem novas falhas expiram junto com a janela e a quantidade de e-mails é limitada
+	private final Cache<String, Deque<Long>> falhas;
+
+	public BloqueioLoginServiceImpl(@Value("${minhasfinancas.login.limite-falhas:5}") int limiteFalhas,
+			                        @Value("${minhasfinancas.login.janela-minutos:15}") long janelaMinutos)
+	{
+		super();
+		this.limiteFalhas = limiteFalhas;
+		this.janelaMillis = TimeUnit.MINUTES.toMillis(janelaMinutos);
+		this.falhas       = Caffeine.newBuilder()
+								.expireAfterWrite(janelaMinutos, TimeUnit.MINUTES)
+								.maximumSize(100000)
+								.build();
+	}
+
+	@Override
+	public boolean estaBloqueado(String email)
+	{
+
+		Deque<Long> horarios = falhas.getIfPresent(chave(email));
+
+		if (horarios == null)
+		{
+			return false;
+		}
+
+		synchronized (horarios)
+		{
+			descartarAntigas(horarios, System.currentTimeMillis());
+			return horarios.size() >= limiteFalhas;
+		}
+
+	}
+
+	@Override
+	public void registrarFalha(String email)
+	{
+
+		long agora = System.currentTimeMillis();
+
+		// 'asMap().compute' para que a escrita renove a expiração da entrada
+		falhas.asMap().compute(chave(email), (c, horarios) ->
+		{
+
+			if (horarios == null)
+			{
+				horarios = new ArrayDeque<>();
+			}
+
+			synchronized (horarios)
+			{
+				descartarAntigas(horarios, agora);
+				horarios.addLast(agora);
+			}
+
+			return horarios;
+
+		});
+
+	}
+
+	@Override
+	public void registrarSucesso(String email)
+	{
+		falhas.invalidate(chave(email));
+	}
+
+	private void descartarAntigas(Deque<Long> horarios, long agora)
+	{
+		while (!horarios.isEmpty() && horarios.peekFirst() <= agora - janelaMillis)
+		{
+			horarios.pollFirst();
+		}
+	}
+
+	private String chave(String email)
+	{
+		return email == null ? "" : email.trim().toLowerCase();
+	}
+
+}
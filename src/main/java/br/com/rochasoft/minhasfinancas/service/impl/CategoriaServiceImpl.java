@@ -0,0 +1,457 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.Categoria;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoCategoria;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoCategoriaId;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalCategoria;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorCategoria;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorMoeda;
+import br.com.rochasoft.minhasfinancas.model.repository.CategoriaRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.OrcamentoRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.RecorrenciaRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.ResumoCategoriaRepository;
+import br.com.rochasoft.minhasfinancas.service.CategoriaService;
+import br.com.rochasoft.minhasfinancas.service.CotacaoService;
+import br.com.rochasoft.minhasfinancas.service.event.AlteracaoLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.LancamentoAlteradoEvent;
+
+@Service
+public class CategoriaServiceImpl implements CategoriaService
+{
+
+	// limites da árvore de categorias de um usuário
+	private static final int TAMANHO_MAXIMO_NOME = 50;
+	private static final int PROFUNDIDADE_MAXIMA = 5;
+
+	private CategoriaRepository 		repository;
+	private ResumoCategoriaRepository 	resumoRepository;
+	private LancamentoRepository 		lancamentoRepository;
+	private RecorrenciaRepository 		recorrenciaRepository;
+	private OrcamentoRepository 		orcamentoRepository;
+	private CotacaoService 				cotacaoService;
+
+	public CategoriaServiceImpl(CategoriaRepository repository,
+			                    ResumoCategoriaRepository resumoRepository,
+			                    LancamentoRepository lancamentoRepository,
+			                    RecorrenciaRepository recorrenciaRepository,
+			                    OrcamentoRepository orcamentoRepository,
+			                    CotacaoService cotacaoService)
+	{
+		super();
+		this.repository            = repository;
+		this.resumoRepository      = resumoRepository;
+		this.lancamentoRepository  = lancamentoRepository;
+		this.recorrenciaRepository = recorrenciaRepository;
+		this.orcamentoRepository   = orcamentoRepository;
+		this.cotacaoService        = cotacaoService;
+	}
+
+	@Override
+	@Transactional
+	public Categoria salvar(Categoria categoria)
+	{
+
+		validar(categoria);
+
+		return repository.save(categoria);
+
+	}
+
+	@Override
+	@Transactional
+	public Categoria atualizar(Categoria categoria)
+	{
+
+		// gera uma exceção se o id não for definido
+		Objects.requireNonNull(categoria.getId());
+
+		validar(categoria);
+
+		return repository.save(categoria);
+
+	}
+
+	@Override
+	@Transactional
+	public void excluir(Categoria categoria)
+	{
+
+		Objects.requireNonNull(categoria.getId());
+
+		if (repository.existsByIdCategoriaPai(categoria.getId()))
+		{
+			throw new RegraNegocioException("A categoria possui subcategorias.");
+		}
+
+		if (lancamentoRepository.existsByIdCategoria(categoria.getId()))
+		{
+			throw new RegraNegocioException("A categoria possui lançamentos.");
+		}
+
+		if (recorrenciaRepository.existsByIdCategoriaAndAtivaTrue(categoria.getId()))
+		{
+			throw new RegraNegocioException("A categoria possui recorrências ativas.");
+		}
+
+		if (orcamentoRepository.existsByIdCategoria(categoria.getId()))
+		{
+			throw new RegraNegocioException("A categoria possui orçamento.");
+		}
+
+		// sem lançamentos, o resumo da categoria tem apenas totais zerados
+		resumoRepository.excluirPorCategoria(categoria.getId());
+		repository.delete(categoria);
+
+	}
+
+	@Override
+	public Optional<Categoria> obterPorId(Long id)
+	{
+		return repository.findById(id);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Categoria> buscarPorUsuario(Long idUsuario)
+	{
+		return repository.buscarPorUsuario(idUsuario);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Long> obterComSubcategorias(Long idUsuario, Long idCategoria)
+	{
+
+		Map<Long, List<Long>> filhas = agruparPorPai(repository.buscarPorUsuario(idUsuario));
+
+		List<Long> ids = new ArrayList<>();
+		ids.add(idCategoria);
+
+		// percorre a árvore em largura: cada categoria adicionada tem as filhas adicionadas em seguida
+		for (int i = 0; i < ids.size(); i++)
+		{
+			ids.addAll(filhas.getOrDefault(ids.get(i), new ArrayList<>()));
+		}
+
+		return ids;
+
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public void validarCategoria(Long idUsuario, Long idCategoria)
+	{
+
+		if (!repository.pertenceAoUsuario(idCategoria, idUsuario))
+		{
+			throw new RegraNegocioException("Categoria não encontrada.");
+		}
+
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<TotalCategoria> obterTotais(Long idUsuario, Integer anoInicial, Integer anoFinal, StatusLancamento status)
+	{
+
+		if (anoInicial > anoFinal)
+		{
+			throw new RegraNegocioException("O ano inicial deve ser menor ou igual ao ano final.");
+		}
+
+		List<Categoria> categorias = repository.buscarPorUsuario(idUsuario);
+
+		Map<Long, Long> pais = new HashMap<>();
+		categorias.forEach( categoria -> pais.put(categoria.getId(), categoria.getIdCategoriaPai()) );
+
+		Map<Long, Map<TipoLancamento, TotalAcumulado>> acumulados = new HashMap<>();
+
+		for (TotalPorCategoria total : resumoRepository.totalizar(idUsuario, anoInicial, anoFinal, status))
+		{
+
+			// o total da categoria soma no próprio total e no total com subcategorias de cada categoria acima dela
+			for (Long id = total.getIdCategoria(); id != null; id = pais.get(id))
+			{
+
+				TotalAcumulado acumulado = acumulados
+						.computeIfAbsent(id, c -> new EnumMap<>(TipoLancamento.class))
+						.computeIfAbsent(total.getTipo(), t -> new TotalAcumulado());
+
+				if (id.equals(total.getIdCategoria()))
+				{
+					acumulado.valor       = acumulado.valor.add(total.getTotal());
+					acumulado.quantidade += total.getQuantidade();
+				}
+
+				acumulado.valorComSubcategorias       = acumulado.valorComSubcategorias.add(total.getTotal());
+				acumulado.quantidadeComSubcategorias += total.getQuantidade();
+
+			}
+
+		}
+
+		// um total por categoria e tipo, na ordem das categorias (por nome)
+		List<TotalCategoria> totais = new ArrayList<>();
+
+		for (Categoria categoria : categorias)
+		{
+			acumulados.getOrDefault(categoria.getId(), new EnumMap<>(TipoLancamento.class)).forEach( (tipo, acumulado) -> 
+				totais.add(new TotalCategoria(categoria.getId(), 
+						                      tipo, 
+						                      acumulado.valor, 
+						                      acumulado.quantidade, 
+						                      acumulado.valorComSubcategorias, 
+						                      acumulado.quantidadeComSubcategorias)) );
+		}
+
+		return totais;
+
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<ResumoCategoriaId> obterChavesResumoEmOutraMoeda()
+	{
+		return resumoRepository.obterChavesEmOutraMoeda();
+	}
+
+	// mesmo recálculo do resumo mensal (ResumoMensalServiceImpl.recalcular) para o resumo por categoria
+	@Override
+	@Transactional
+	public boolean recalcularResumo(ResumoCategoriaId chave)
+	{
+
+		Optional<ResumoCategoria> resumo = resumoRepository.obterParaAtualizacao(chave.getIdUsuario(), chave.getIdCategoria(), chave.getAno(), chave.getMes(), chave.getTipo(), chave.getStatus());
+
+		if (!resumo.isPresent())
+		{
+			return false;
+		}
+
+		BigDecimal valor = converter(resumoRepository.calcular(chave.getIdUsuario(), chave.getIdCategoria(), chave.getAno(), chave.getMes(), chave.getTipo(), chave.getStatus()));
+
+		if (resumo.get().getValor().compareTo(valor) == 0)
+		{
+			return false;
+		}
+
+		resumo.get().setValor(valor);
+
+		return true;
+
+	}
+
+	private static class TotalAcumulado
+	{
+		private BigDecimal valor                      = BigDecimal.ZERO;
+		private long 	   quantidade                 = 0;
+		private BigDecimal valorComSubcategorias      = BigDecimal.ZERO;
+		private long 	   quantidadeComSubcategorias = 0;
+	}
+
+	// atualiza os resumos por categoria na mesma transação em que os lançamentos foram gravados, como o resumo mensal
+	@EventListener
+	@Transactional
+	public void aoAlterarLancamentos(LancamentoAlteradoEvent evento)
+	{
+
+		Map<ResumoCategoriaId, ResumoCategoria> diferencas = new HashMap<>();
+
+		for (AlteracaoLancamento alteracao : evento.getAlteracoes())
+		{
+			acumular(diferencas, alteracao.getAnterior(), true);
+			acumular(diferencas, alteracao.getAtual(), false);
+		}
+
+		for (ResumoCategoria diferenca : diferencas.values())
+		{
+			if (diferenca.getValor().signum() != 0 || diferenca.getQuantidade() != 0)
+			{
+				somar(diferenca);
+			}
+		}
+
+	}
+
+	private void validar(Categoria categoria)
+	{
+
+		if (categoria.getNome() == null || categoria.getNome().trim().isEmpty() || categoria.getNome().trim().length() > TAMANHO_MAXIMO_NOME)
+		{
+			throw new RegraNegocioException("Informe um Nome válido de até " + TAMANHO_MAXIMO_NOME + " caracteres.");
+		}
+
+		if (categoria.getUsuario() == null || categoria.getUsuario().getId() == null)
+		{
+			throw new RegraNegocioException("Informe um Usuário para registro da categoria.");
+		}
+
+		if (categoria.getIdCategoriaPai() == null)
+		{
+			return;
+		}
+
+		Map<Long, Long> pais = new HashMap<>();
+		repository.buscarPorUsuario(categoria.getUsuario().getId()).forEach( c -> pais.put(c.getId(), c.getIdCategoriaPai()) );
+
+		// a categoria pai deve ser do mesmo usuário
+		if (!pais.containsKey(categoria.getIdCategoriaPai()))
+		{
+			throw new RegraNegocioException("Categoria pai não encontrada.");
+		}
+
+		// sobe a partir da categoria pai: encontrar a própria categoria indica um ciclo (só ocorre na alteração)
+		int profundidade = 1;
+
+		for (Long id = categoria.getIdCategoriaPai(); id != null; id = pais.get(id))
+		{
+
+			if (id.equals(categoria.getId()))
+			{
+				throw new RegraNegocioException("A categoria não pode ser subcategoria dela mesma.");
+			}
+
+			profundidade++;
+
+		}
+
+		// na alteração, as subcategorias descem junto com a categoria
+		if (categoria.getId() != null)
+		{
+			profundidade += alturaSubcategorias(agruparPorPai(pais), categoria.getId());
+		}
+
+		if (profundidade > PROFUNDIDADE_MAXIMA)
+		{
+			throw new RegraNegocioException("As categorias podem ter no máximo " + PROFUNDIDADE_MAXIMA + " níveis.");
+		}
+
+	}
+
+	private int alturaSubcategorias(Map<Long, List<Long>> filhas, Long idCategoria)
+	{
+
+		int altura = 0;
+
+		for (Long filha : filhas.getOrDefault(idCategoria, new ArrayList<>()))
+		{
+			altura = Math.max(altura, 1 + alturaSubcategorias(filhas, filha));
+		}
+
+		return altura;
+
+	}
+
+	private Map<Long, List<Long>> agruparPorPai(List<Categoria> categorias)
+	{
+
+		Map<Long, Long> pais = new HashMap<>();
+		categorias.forEach( categoria -> pais.put(categoria.getId(), categoria.getIdCategoriaPai()) );
+
+		return agruparPorPai(pais);
+
+	}
+
+	private Map<Long, List<Long>> agruparPorPai(Map<Long, Long> pais)
+	{
+
+		Map<Long, List<Long>> filhas = new HashMap<>();
+
+		pais.forEach( (id, pai) -> 
+		{
+			if (pai != null)
+			{
+				filhas.computeIfAbsent(pai, p -> new ArrayList<>()).add(id);
+			}
+		});
+
+		return filhas;
+
+	}
+
+	private void acumular(Map<ResumoCategoriaId, ResumoCategoria> diferencas, SituacaoLancamento situacao, boolean remover)
+	{
+
+		// lançamentos sem categoria não entram no resumo
+		if (situacao == null || situacao.getIdCategoria() == null || situacao.getIdUsuario() == null || situacao.getTipo() == null || situacao.getStatus() == null)
+		{
+			return;
+		}
+
+		ResumoCategoriaId chave = new ResumoCategoriaId(situacao.getIdUsuario(), situacao.getIdCategoria(), situacao.getAno(), situacao.getMes(), situacao.getTipo(), situacao.getStatus());
+
+		ResumoCategoria diferenca = diferencas.computeIfAbsent(chave, c -> new ResumoCategoria(c.getIdUsuario(), c.getIdCategoria(), c.getAno(), c.getMes(), c.getTipo(), c.getStatus(), BigDecimal.ZERO, 0l));
+
+		BigDecimal valor = situacao.getValor() != null 
+				? cotacaoService.converter(situacao.getValor(), situacao.getMoeda(), situacao.getMoedaUsuario(), situacao.getAno(), situacao.getMes()) 
+				: BigDecimal.ZERO;
+
+		diferenca.setValor(remover ? diferenca.getValor().subtract(valor) : diferenca.getValor().add(valor));
+		diferenca.setQuantidade(diferenca.getQuantidade() + (remover ? -1 : 1));
+
+	}
+
+	private void somar(ResumoCategoria diferenca)
+	{
+
+		int alterados = resumoRepository.somar(diferenca.getIdUsuario(),
+				                               diferenca.getIdCategoria(),
+				                               diferenca.getAno(),
+				                               diferenca.getMes(),
+				                               diferenca.getTipo(),
+				                               diferenca.getStatus(),
+				                               diferenca.getValor(),
+				                               diferenca.getQuantidade());
+
+		if (alterados == 0)
+		{
+			// chave ainda sem resumo: calcula a partir dos lançamentos, que já incluem a alteração atual
+			// se outra transação registrar a chave antes, soma apenas a diferença (como no resumo mensal)
+			List<TotalPorMoeda> totais = resumoRepository.calcular(diferenca.getIdUsuario(), diferenca.getIdCategoria(), diferenca.getAno(), diferenca.getMes(), diferenca.getTipo(), diferenca.getStatus());
+
+			if (totais.isEmpty())
+			{
+				return;
+			}
+
+			BigDecimal valor 	  = converter(totais);
+			long 	   quantidade = totais.stream().mapToLong(TotalPorMoeda::getQuantidade).sum();
+
+			resumoRepository.inserirOuSomar(new ResumoCategoria(diferenca.getIdUsuario(), diferenca.getIdCategoria(), diferenca.getAno(), diferenca.getMes(), diferenca.getTipo(), diferenca.getStatus(), valor, quantidade), diferenca);
+		}
+
+	}
+
+	private BigDecimal converter(List<TotalPorMoeda> totais)
+	{
+
+		BigDecimal valor = BigDecimal.ZERO;
+
+		for (TotalPorMoeda total : totais)
+		{
+			valor = valor.add(cotacaoService.converter(total));
+		}
+
+		return valor;
+
+	}
+
+}
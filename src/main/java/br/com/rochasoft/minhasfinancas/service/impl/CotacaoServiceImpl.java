@@ -0,0 +1,302 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorMoeda;
+import br.com.rochasoft.minhasfinancas.service.CotacaoService;
+import lombok.extern.slf4j.Slf4j;
+
+// conversão de valores entre moedas pela tabela de cotações mensais lida de um arquivo local (sem serviço externo)
+// o arquivo tem uma cotação por linha, 'moeda;ano;mes;cotacao', com o valor de uma unidade da moeda em MOEDA_REFERENCIA
+// a tabela fica em memória em arrays indexados pelo código da moeda e pelo mês, então converter não consulta o banco
+// o arquivo é lido apenas na inicialização: cotações passadas alteradas no arquivo só valem depois de reiniciar,
+// e os valores já gravados com a cotação antiga são corrigidos pela verificação de saldos (VerificacaoSaldoJob)
+// e pela verificação de resumos (VerificacaoResumosJob), que também roda logo após a inicialização
+@Slf4j
+@Service
+public class CotacaoServiceImpl implements CotacaoService
+{
+
+	// moeda em que as cotações do arquivo são expressas (cotação sempre 1)
+	public static final String MOEDA_REFERENCIA = "BRL";
+
+	// casas decimais dos valores convertidos (numeric(16,2)) e das taxas
+	private static final int ESCALA_VALOR = 2;
+	private static final int ESCALA_TAXA  = 10;
+
+	private final Resource arquivo;
+
+	private volatile TabelaCotacoes tabela = TabelaCotacoes.VAZIA;
+
+	public CotacaoServiceImpl(ResourceLoader resourceLoader, @Value("${minhasfinancas.cotacoes.arquivo:classpath:cotacoes.csv}") String arquivo)
+	{
+		super();
+		this.arquivo = resourceLoader.getResource(arquivo);
+	}
+
+	@PostConstruct
+	public void carregar()
+	{
+
+		if (!arquivo.exists())
+		{
+			log.warn("arquivo de cotações {} não encontrado, apenas valores em {} serão aceitos", arquivo, MOEDA_REFERENCIA);
+			return;
+		}
+
+		try (BufferedReader leitor = new BufferedReader(new InputStreamReader(arquivo.getInputStream(), StandardCharsets.UTF_8)))
+		{
+			tabela = TabelaCotacoes.ler(leitor);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Erro ao ler o arquivo de cotações " + arquivo, e);
+		}
+
+		log.info("{} moeda(s) carregada(s) do arquivo de cotações {}", tabela.codigos.length, arquivo);
+
+	}
+
+	@Override
+	public BigDecimal obterTaxa(String moedaOrigem, String moedaDestino, int ano, int mes)
+	{
+
+		if (moedaOrigem.equals(moedaDestino))
+		{
+			return BigDecimal.ONE;
+		}
+
+		return cotacao(moedaOrigem, ano, mes).divide(cotacao(moedaDestino, ano, mes), ESCALA_TAXA, RoundingMode.HALF_EVEN);
+
+	}
+
+	@Override
+	public BigDecimal converter(BigDecimal valor, String moedaOrigem, String moedaDestino, int ano, int mes)
+	{
+
+		if (valor == null || moedaOrigem == null || moedaDestino == null || moedaOrigem.equals(moedaDestino))
+		{
+			return valor;
+		}
+
+		// multiplica antes de dividir para arredondar uma única vez
+		return valor.multiply(cotacao(moedaOrigem, ano, mes)).divide(cotacao(moedaDestino, ano, mes), ESCALA_VALOR, RoundingMode.HALF_EVEN);
+
+	}
+
+	@Override
+	public BigDecimal converter(TotalPorMoeda total)
+	{
+
+		BigDecimal valor = converter(total.getValor(), total.getMoeda(), total.getMoedaUsuario(), total.getAno(), total.getMes());
+
+		return valor.multiply(BigDecimal.valueOf(total.getQuantidade()));
+
+	}
+
+	@Override
+	public void validarMoeda(String moeda)
+	{
+
+		if (moeda == null || moeda.trim().isEmpty())
+		{
+			throw new RegraNegocioException("Informe uma Moeda.");
+		}
+
+		if (!MOEDA_REFERENCIA.equals(moeda) && tabela.indice(moeda) < 0)
+		{
+			throw new RegraNegocioException("Moeda sem cotação cadastrada: " + moeda);
+		}
+
+	}
+
+	private BigDecimal cotacao(String moeda, int ano, int mes)
+	{
+
+		if (MOEDA_REFERENCIA.equals(moeda))
+		{
+			return BigDecimal.ONE;
+		}
+
+		TabelaCotacoes atual  = tabela;
+		int 		   indice = atual.indice(moeda);
+
+		if (indice < 0)
+		{
+			throw new RegraNegocioException("Moeda sem cotação cadastrada: " + moeda);
+		}
+
+		return atual.cotacao(indice, ano, mes);
+
+	}
+
+	// tabela imutável: uma linha por moeda e uma coluna por mês, do primeiro ao último mês do arquivo
+	// os meses sem cotação repetem a cotação anterior (ou a primeira, antes dela); meses fora do arquivo usam a mais próxima
+	// o código da moeda (3 letras) é guardado como int, e a linha da moeda é encontrada por busca binária
+	static final class TabelaCotacoes
+	{
+
+		static final TabelaCotacoes VAZIA = new TabelaCotacoes(new int[0], 0, new BigDecimal[0][]);
+
+		final int[] 		 codigos;
+		final int 			 primeiroMes;
+		final BigDecimal[][] cotacoes;
+
+		TabelaCotacoes(int[] codigos, int primeiroMes, BigDecimal[][] cotacoes)
+		{
+			this.codigos     = codigos;
+			this.primeiroMes = primeiroMes;
+			this.cotacoes    = cotacoes;
+		}
+
+		int indice(String moeda)
+		{
+
+			int codigo = codificar(moeda);
+
+			return codigo < 0 ? -1 : Arrays.binarySearch(codigos, codigo);
+
+		}
+
+		BigDecimal cotacao(int indice, int ano, int mes)
+		{
+
+			BigDecimal[] linha  = cotacoes[indice];
+			int 		 coluna = Math.max(0, Math.min(linha.length - 1, numeroMes(ano, mes) - primeiroMes));
+
+			return linha[coluna];
+
+		}
+
+		static TabelaCotacoes ler(BufferedReader leitor) throws IOException
+		{
+
+			// moeda -> mês -> cotação, apenas durante a leitura
+			Map<Integer, TreeMap<Integer, BigDecimal>> lidas = new TreeMap<>();
+
+			int    numeroLinha = 0;
+			String linha;
+
+			while ((linha = leitor.readLine()) != null)
+			{
+
+				numeroLinha++;
+				linha = linha.trim();
+
+				if (linha.isEmpty() || linha.startsWith("#") || linha.toLowerCase().startsWith("moeda"))
+				{
+					continue;
+				}
+
+				String[] colunas = linha.split(";");
+
+				try
+				{
+
+					int 	   codigo  = codificar(colunas[0].trim());
+					int 	   mes     = Integer.parseInt(colunas[2].trim());
+					BigDecimal cotacao = new BigDecimal(colunas[3].trim().replace(',', '.'));
+
+					if (colunas.length != 4 || codigo < 0 || mes < 1 || mes > 12 || cotacao.signum() <= 0)
+					{
+						throw new IllegalArgumentException();
+					}
+
+					lidas.computeIfAbsent(codigo, c -> new TreeMap<>()).put(numeroMes(Integer.parseInt(colunas[1].trim()), mes), cotacao);
+
+				}
+				catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e)
+				{
+					throw new IllegalStateException("Linha " + numeroLinha + " inválida no arquivo de cotações (moeda;ano;mes;cotacao): " + linha);
+				}
+
+			}
+
+			if (lidas.isEmpty())
+			{
+				return VAZIA;
+			}
+
+			int primeiroMes = lidas.values().stream().mapToInt(TreeMap::firstKey).min().getAsInt();
+			int ultimoMes   = lidas.values().stream().mapToInt(TreeMap::lastKey).max().getAsInt();
+
+			int[] 		   codigos  = new int[lidas.size()];
+			BigDecimal[][] cotacoes = new BigDecimal[lidas.size()][];
+			int 		   indice   = 0;
+
+			// as chaves do TreeMap já estão em ordem, como a busca binária exige
+			for (Map.Entry<Integer, TreeMap<Integer, BigDecimal>> moeda : lidas.entrySet())
+			{
+
+				BigDecimal[] linhaCotacoes = new BigDecimal[ultimoMes - primeiroMes + 1];
+
+				for (int mes = primeiroMes; mes <= ultimoMes; mes++)
+				{
+					Map.Entry<Integer, BigDecimal> anterior = moeda.getValue().floorEntry(mes);
+					linhaCotacoes[mes - primeiroMes] = anterior != null ? anterior.getValue() : moeda.getValue().firstEntry().getValue();
+				}
+
+				codigos[indice]  = moeda.getKey();
+				cotacoes[indice] = linhaCotacoes;
+				indice++;
+
+			}
+
+			return new TabelaCotacoes(codigos, primeiroMes, cotacoes);
+
+		}
+
+		static int numeroMes(int ano, int mes)
+		{
+			return ano * 12 + mes - 1;
+		}
+
+		// 'USD' -> inteiro com uma letra em cada grupo de 5 bits; -1 quando não são 3 letras maiúsculas
+		static int codificar(String moeda)
+		{
+
+			if (moeda == null || moeda.length() != 3)
+			{
+				return -1;
+			}
+
+			int codigo = 0;
+
+			for (int i = 0; i < 3; i++)
+			{
+
+				char letra = moeda.charAt(i);
+
+				if (letra < 'A' || letra > 'Z')
+				{
+					return -1;
+				}
+
+				codigo = (codigo << 5) | (letra - 'A');
+
+			}
+
+			return codigo;
+
+		}
+
+	}
+
+}
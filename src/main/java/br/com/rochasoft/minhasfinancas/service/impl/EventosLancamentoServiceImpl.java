@@ -0,0 +1,313 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.rochasoft.minhasfinancas.model.entity.EventoLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.SituacaoEvento;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.repository.EventoLancamentoRepository;
+import br.com.rochasoft.minhasfinancas.service.EventosLancamentoService;
+import br.com.rochasoft.minhasfinancas.service.event.AlteracaoLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.ConsumidorEventosLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.com.rochasoft.minhasfinancas.service.event.NotificacaoLancamento;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// caixa de saída (outbox) das alterações de lançamentos
+// a gravação do lançamento apenas inclui os eventos na tabela, na mesma transação, sem esperar pelos consumidores
+// o despacho lê os eventos em lotes e os entrega aos consumidores (ConsumidorEventosLancamento) fora da transação:
+// - o lote é reservado (proxima_tentativa no futuro) e a transação da leitura termina antes da entrega
+// - o evento entregue a todos os consumidores é marcado como processado
+// - em caso de falha, é entregue de novo após uma espera que dobra a cada tentativa, até o limite de tentativas
+// o despacho só lê o que consegue entregar (quantidade limitada de lotes por execução):
+// um consumidor lento atrasa os eventos, o que aparece na métrica 'eventos.lancamento.atraso', mas não afeta as gravações
+// sem nenhum consumidor registrado, os eventos não são gravados e o despacho não consulta a tabela
+@Slf4j
+@Service
+public class EventosLancamentoServiceImpl implements EventosLancamentoService
+{
+
+	// tempo de reserva do lote: se a instância parar durante a entrega, os eventos voltam a ser lidos depois deste tempo
+	private static final Duration RESERVA 			  = Duration.ofMinutes(5);
+
+	private static final Duration ESPERA_INICIAL      = Duration.ofSeconds(5);
+	private static final Duration ESPERA_MAXIMA       = Duration.ofHours(1);
+	private static final int 	  MAXIMO_TENTATIVAS   = 10;
+	private static final int 	  LOTES_POR_EXECUCAO  = 10;
+	private static final int 	  TAMANHO_ERRO        = 500;
+
+	private final EventoLancamentoRepository 		repository;
+	private final List<ConsumidorEventosLancamento> consumidores;
+	private final TransactionTemplate 				transactionTemplate;
+	private final ObjectProvider<MeterRegistry> 	registry;
+	private final int 								tamanhoLote;
+	private final int 								diasRetencao;
+
+	private final AtomicLong pendentes     = new AtomicLong();
+	private final AtomicLong atrasoSegundos = new AtomicLong();
+
+	public EventosLancamentoServiceImpl(EventoLancamentoRepository repository,
+			                            List<ConsumidorEventosLancamento> consumidores,
+			                            PlatformTransactionManager transactionManager,
+			                            ObjectProvider<MeterRegistry> registry,
+			                            @Value("${minhasfinancas.eventos.lote:100}") int tamanhoLote,
+			                            @Value("${minhasfinancas.eventos.retencao-dias:7}") int diasRetencao)
+	{
+		super();
+		this.repository          = repository;
+		this.consumidores        = consumidores;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.registry            = registry;
+		this.tamanhoLote         = tamanhoLote;
+		this.diasRetencao        = diasRetencao;
+
+		if (consumidores.isEmpty())
+		{
+			log.info("nenhum consumidor de eventos de lançamentos registrado, a caixa de saída não será utilizada");
+		}
+
+		registry.ifAvailable( r ->
+		{
+			Gauge.builder("eventos.lancamento.pendentes", pendentes, AtomicLong::get)
+				 .description("eventos da caixa de saída ainda não entregues")
+				 .register(r);
+			Gauge.builder("eventos.lancamento.atraso", atrasoSegundos, AtomicLong::get)
+				 .description("idade, em segundos, do evento pendente mais antigo")
+				 .baseUnit("seconds")
+				 .register(r);
+		});
+	}
+
+	// grava os eventos na mesma transação da alteração dos lançamentos: se a gravação for desfeita, os eventos também são
+	@EventListener
+	@Transactional
+	public void aoAlterarLancamentos(LancamentoAlteradoEvent evento)
+	{
+
+		if (consumidores.isEmpty())
+		{
+			return;
+		}
+
+		LocalDateTime agora = LocalDateTime.now();
+
+		List<EventoLancamento> eventos = new ArrayList<>(evento.getAlteracoes().size());
+
+		for (AlteracaoLancamento alteracao : evento.getAlteracoes())
+		{
+
+			NotificacaoLancamento notificacao = NotificacaoLancamento.de(alteracao);
+
+			eventos.add(EventoLancamento.builder()
+						.operacao(notificacao.getOperacao())
+						.idLancamento(notificacao.getId())
+						.idUsuario(notificacao.getUsuario())
+						.ano(notificacao.getAno())
+						.mes(notificacao.getMes())
+						.tipo(notificacao.getTipo() != null ? TipoLancamento.valueOf(notificacao.getTipo()) : null)
+						.status(notificacao.getStatus() != null ? StatusLancamento.valueOf(notificacao.getStatus()) : null)
+						.valor(notificacao.getValor())
+						.moeda(notificacao.getMoeda())
+						.situacao(SituacaoEvento.PENDENTE)
+						.tentativas(0)
+						.dataCriacao(agora)
+						.proximaTentativa(agora)
+						.build());
+
+		}
+
+		repository.saveAll(eventos);
+
+	}
+
+	@Override
+	public int despachar()
+	{
+
+		if (consumidores.isEmpty())
+		{
+			return 0;
+		}
+
+		int entregues = 0;
+
+		for (int lote = 0; lote < LOTES_POR_EXECUCAO; lote++)
+		{
+
+			List<EventoLancamento> eventos = transactionTemplate.execute( status -> reservar() );
+
+			if (eventos.isEmpty())
+			{
+				break;
+			}
+
+			Map<Long, String> falhas = new HashMap<>();
+
+			for (EventoLancamento evento : eventos)
+			{
+
+				String erro = entregar(evento);
+
+				if (erro != null)
+				{
+					falhas.put(evento.getId(), erro);
+				}
+
+			}
+
+			transactionTemplate.execute( status -> { concluir(eventos, falhas); return null; } );
+
+			entregues += eventos.size() - falhas.size();
+
+			if (eventos.size() < tamanhoLote)
+			{
+				break;
+			}
+
+		}
+
+		atualizarAtraso();
+
+		return entregues;
+
+	}
+
+	@Override
+	@Transactional
+	public int excluirProcessados()
+	{
+		return repository.excluirProcessados(LocalDateTime.now().minusDays(diasRetencao));
+	}
+
+	private List<EventoLancamento> reservar()
+	{
+
+		LocalDateTime agora = LocalDateTime.now();
+
+		List<EventoLancamento> eventos = repository.obterPendentesParaReserva(agora, PageRequest.of(0, tamanhoLote));
+
+		eventos.forEach( evento -> evento.setProximaTentativa(agora.plus(RESERVA)) );
+
+		return eventos;
+
+	}
+
+	// entrega o evento a todos os consumidores, retorna a mensagem de erro da primeira falha
+	private String entregar(EventoLancamento evento)
+	{
+
+		NotificacaoLancamento notificacao = new NotificacaoLancamento(evento.getOperacao(),
+				                                                      evento.getIdLancamento(),
+				                                                      evento.getIdUsuario(),
+				                                                      evento.getAno(),
+				                                                      evento.getMes(),
+				                                                      evento.getTipo() != null ? evento.getTipo().name() : null,
+				                                                      evento.getStatus() != null ? evento.getStatus().name() : null,
+				                                                      evento.getValor(),
+				                                                      evento.getMoeda());
+
+		for (ConsumidorEventosLancamento consumidor : consumidores)
+		{
+
+			try
+			{
+				consumidor.processar(evento.getId(), notificacao);
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("falha ao entregar o evento {} para {}: {}", evento.getId(), consumidor.getClass().getSimpleName(), e.toString());
+				contar("falha");
+				return consumidor.getClass().getSimpleName() + ": " + e;
+			}
+
+		}
+
+		contar("sucesso");
+
+		return null;
+
+	}
+
+	private void concluir(List<EventoLancamento> eventos, Map<Long, String> falhas)
+	{
+
+		LocalDateTime agora = LocalDateTime.now();
+
+		for (EventoLancamento evento : repository.findAllById(eventos.stream().map(EventoLancamento::getId).collect(Collectors.toList())))
+		{
+
+			String erro = falhas.get(evento.getId());
+
+			if (erro == null)
+			{
+				evento.setSituacao(SituacaoEvento.PROCESSADO);
+				evento.setDataProcessamento(agora);
+				evento.setErro(null);
+				continue;
+			}
+
+			int tentativas = evento.getTentativas() + 1;
+
+			evento.setTentativas(tentativas);
+			evento.setErro(erro.length() > TAMANHO_ERRO ? erro.substring(0, TAMANHO_ERRO) : erro);
+
+			if (tentativas >= MAXIMO_TENTATIVAS)
+			{
+				log.error("evento {} descartado após {} tentativas: {}", evento.getId(), tentativas, erro);
+				evento.setSituacao(SituacaoEvento.FALHA);
+			}
+			else
+			{
+				evento.setProximaTentativa(agora.plus(calcularEspera(tentativas)));
+			}
+
+		}
+
+	}
+
+	// 5s, 10s, 20s ... até ESPERA_MAXIMA
+	static Duration calcularEspera(int tentativas)
+	{
+
+		Duration espera = ESPERA_INICIAL.multipliedBy(1l << Math.min(tentativas - 1, 20));
+
+		return espera.compareTo(ESPERA_MAXIMA) > 0 ? ESPERA_MAXIMA : espera;
+
+	}
+
+	private void atualizarAtraso()
+	{
+
+		pendentes.set(repository.countBySituacao(SituacaoEvento.PENDENTE));
+
+		LocalDateTime maisAntigo = repository.obterDataCriacaoMaisAntiga(SituacaoEvento.PENDENTE);
+
+		atrasoSegundos.set(maisAntigo != null ? Math.max(0, Duration.between(maisAntigo, LocalDateTime.now()).getSeconds()) : 0);
+
+	}
+
+	private void contar(String resultado)
+	{
+		registry.ifAvailable( r -> r.counter("eventos.lancamento.entregas", "resultado", resultado).increment() );
+	}
+
+}
@@ -0,0 +1,307 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import br.com.rochasoft.minhasfinancas.model.entity.RequisicaoIdempotente;
+import br.com.rochasoft.minhasfinancas.model.repository.RequisicaoIdempotenteRepository;
+import br.com.rochasoft.minhasfinancas.service.IdempotenciaService;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// execução única das gravações repetidas pelo cliente com o mesmo 'Idempotency-Key'
+// - as respostas recentes ficam em memória (quantidade limitada, expiram junto com a chave) e são devolvidas sem acessar o banco
+// - fora da memória (outra instância, reinício), a chave é reservada com um insert na tabela 'requisicao_idempotente':
+//   a chave única faz o insert concorrente falhar, então apenas uma das requisições executa a gravação
+// - a resposta é gravada na linha da reserva e devolvida às repetições; em caso de erro a reserva é excluída e o cliente pode repetir
+// a reserva e a resposta são gravadas em transações próprias, confirmadas antes e depois da gravação do lançamento
+// se a instância parar entre a gravação e o registro da resposta, a chave fica 'em andamento' (409) até expirar
+@Service
+public class IdempotenciaServiceImpl implements IdempotenciaService
+{
+
+	private static final int TAMANHO_MAXIMO_CHAVE = 100;
+
+	private final RequisicaoIdempotenteRepository repository;
+	private final ObjectMapper 				   objectMapper;
+	private final TransactionTemplate 			   transactionTemplate;
+	private final long 							   horasValidade;
+
+	private final Cache<String, RespostaArmazenada> respostas;
+
+	public IdempotenciaServiceImpl(RequisicaoIdempotenteRepository repository,
+			                       ObjectMapper objectMapper,
+			                       PlatformTransactionManager transactionManager,
+			                       @Value("${minhasfinancas.idempotencia.validade-horas:24}") long horasValidade,
+			                       @Value("${minhasfinancas.idempotencia.maximo-memoria:10000}") long maximoMemoria)
+	{
+		super();
+		this.repository          = repository;
+		this.objectMapper        = objectMapper;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.horasValidade       = horasValidade;
+		this.respostas           = Caffeine.newBuilder()
+										.expireAfterWrite(horasValidade, TimeUnit.HOURS)
+										.maximumSize(maximoMemoria)
+										.build();
+
+		// a reserva e a resposta são confirmadas mesmo que a chamada esteja dentro de outra transação
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	@Override
+	public ResponseEntity executar(String escopo, String chave, Object requisicao, Supplier<ResponseEntity> operacao)
+	{
+
+		// sem a chave, a requisição é executada como antes
+		if (chave == null)
+		{
+			return operacao.get();
+		}
+
+		if (chave.trim().isEmpty() || chave.length() > TAMANHO_MAXIMO_CHAVE)
+		{
+			return ResponseEntity.badRequest().body("A chave de idempotência deve ter entre 1 e " + TAMANHO_MAXIMO_CHAVE + " caracteres.");
+		}
+
+		String hash 		   = hash(requisicao);
+		String chaveMemoria    = escopo + ":" + chave;
+
+		RespostaArmazenada armazenada = respostas.getIfPresent(chaveMemoria);
+
+		if (armazenada != null)
+		{
+			return repetir(armazenada, hash);
+		}
+
+		if (!reservar(escopo, chave, hash))
+		{
+
+			// outra requisição com a mesma chave reservou antes
+			Optional<RequisicaoIdempotente> existente = transactionTemplate.execute( status -> repository.findByEscopoAndChave(escopo, chave) );
+
+			if (!existente.isPresent() || existente.get().getStatus() == null)
+			{
+				return ResponseEntity.status(HttpStatus.CONFLICT).body("Já existe uma requisição com esta chave de idempotência em andamento. Tente novamente.");
+			}
+
+			armazenada = converter(existente.get());
+			respostas.put(chaveMemoria, armazenada);
+
+			return repetir(armazenada, hash);
+
+		}
+
+		ResponseEntity resposta;
+
+		try
+		{
+			resposta = operacao.get();
+		}
+		catch (RuntimeException e)
+		{
+			liberar(escopo, chave);
+			throw e;
+		}
+
+		// erro do servidor: nada foi gravado com certeza, então o cliente pode repetir com a mesma chave
+		if (resposta.getStatusCode().is5xxServerError())
+		{
+			liberar(escopo, chave);
+			return resposta;
+		}
+
+		armazenada = armazenar(hash, resposta);
+
+		concluir(escopo, chave, armazenada);
+		respostas.put(chaveMemoria, armazenada);
+
+		return resposta;
+
+	}
+
+	@Override
+	@Transactional
+	public int excluirExpiradas()
+	{
+		return repository.excluirExpiradas(LocalDateTime.now().minusHours(horasValidade));
+	}
+
+	private boolean reservar(String escopo, String chave, String hash)
+	{
+
+		RequisicaoIdempotente reserva = RequisicaoIdempotente.builder()
+											.escopo(escopo)
+											.chave(chave)
+											.hash(hash)
+											.dataCriacao(LocalDateTime.now())
+											.build();
+
+		try
+		{
+			transactionTemplate.execute( status -> repository.saveAndFlush(reserva) );
+			return true;
+		}
+		catch (DataIntegrityViolationException e)
+		{
+			return false;
+		}
+
+	}
+
+	private void concluir(String escopo, String chave, RespostaArmazenada armazenada)
+	{
+
+		transactionTemplate.execute( status ->
+		{
+
+			RequisicaoIdempotente requisicao = repository.findByEscopoAndChave(escopo, chave).get();
+
+			requisicao.setStatus(armazenada.getStatus());
+			requisicao.setTipoConteudo(armazenada.getTipoConteudo());
+			requisicao.setCorpo(armazenada.getCorpo());
+			requisicao.setCabecalhos(armazenada.getCabecalhos().isEmpty() ? null : json(armazenada.getCabecalhos()));
+
+			return requisicao;
+
+		});
+
+	}
+
+	private void liberar(String escopo, String chave)
+	{
+		transactionTemplate.execute( status -> repository.liberar(escopo, chave) );
+	}
+
+	private ResponseEntity repetir(RespostaArmazenada armazenada, String hash)
+	{
+
+		if (!armazenada.getHash().equals(hash))
+		{
+			return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body("A chave de idempotência já foi utilizada em outra requisição.");
+		}
+
+		HttpHeaders cabecalhos = new HttpHeaders();
+		cabecalhos.putAll(armazenada.getCabecalhos());
+		cabecalhos.set(CABECALHO_REPETICAO, "true");
+
+		if (armazenada.getTipoConteudo() != null)
+		{
+			cabecalhos.setContentType(MediaType.parseMediaType(armazenada.getTipoConteudo()));
+		}
+
+		return ResponseEntity.status(armazenada.getStatus()).headers(cabecalhos).body(armazenada.getCorpo());
+
+	}
+
+	// o corpo é guardado como enviado ao cliente: textos (mensagens de erro) como estão e objetos em json
+	private RespostaArmazenada armazenar(String hash, ResponseEntity resposta)
+	{
+
+		Object corpo = resposta.getBody();
+
+		String tipoConteudo = corpo == null || corpo instanceof String ? null : MediaType.APPLICATION_JSON_VALUE;
+		String texto 		= corpo == null || corpo instanceof String ? (String) corpo : json(corpo);
+
+		return new RespostaArmazenada(hash, resposta.getStatusCodeValue(), tipoConteudo, texto, new LinkedHashMap<>(resposta.getHeaders()));
+
+	}
+
+	private RespostaArmazenada converter(RequisicaoIdempotente requisicao)
+	{
+
+		Map<String, List<String>> cabecalhos = Collections.emptyMap();
+
+		if (requisicao.getCabecalhos() != null)
+		{
+			try
+			{
+				cabecalhos = objectMapper.readValue(requisicao.getCabecalhos(), new TypeReference<Map<String, List<String>>>() {});
+			}
+			catch (JsonProcessingException e)
+			{
+				throw new IllegalStateException("cabeçalhos inválidos na requisição idempotente " + requisicao.getId(), e);
+			}
+		}
+
+		return new RespostaArmazenada(requisicao.getHash(), requisicao.getStatus(), requisicao.getTipoConteudo(), requisicao.getCorpo(), cabecalhos);
+
+	}
+
+	private String hash(Object requisicao)
+	{
+
+		try
+		{
+			byte[] resumo = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(requisicao));
+
+			StringBuilder hexadecimal = new StringBuilder();
+
+			for (byte b : resumo)
+			{
+				hexadecimal.append(String.format("%02x", b));
+			}
+
+			return hexadecimal.toString();
+		}
+		catch (NoSuchAlgorithmException | JsonProcessingException e)
+		{
+			throw new IllegalStateException(e);
+		}
+
+	}
+
+	private String json(Object valor)
+	{
+
+		try
+		{
+			return objectMapper.writeValueAsString(valor);
+		}
+		catch (JsonProcessingException e)
+		{
+			throw new IllegalStateException(e);
+		}
+
+	}
+
+	@Getter
+	@AllArgsConstructor
+	private static class RespostaArmazenada
+	{
+
+		private final String hash;
+		private final int    status;
+		private final String tipoConteudo;
+		private final String corpo;
+		private final Map<String, List<String>> cabecalhos;
+
+	}
+
+}
@@ -0,0 +1,201 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Service;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryImpl;
+import br.com.rochasoft.minhasfinancas.service.CategoriaService;
+import br.com.rochasoft.minhasfinancas.service.LancamentoReativoService;
+import br.com.rochasoft.minhasfinancas.service.SaldoUsuarioService;
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// busca de lançamentos e saldo pelo r2dbc (perfil 'reativo'): nenhuma thread fica parada esperando o banco
+// os filtros são os da busca do LancamentoServiceImpl (mesmos anos, padrão da descrição, subcategorias e etiqueta)
+// os lançamentos são entregues conforme a demanda do assinante, linha a linha, sem montar a lista inteira
+// a expansão da categoria (CategoriaService) e o cálculo do saldo ainda não registrado (SaldoUsuarioService) são jpa, bloqueantes,
+// e rodam no scheduler 'boundedElastic'; são a exceção (busca por categoria, usuário sem saldo em 'saldo_usuario')
+@Service
+@ConditionalOnProperty("minhasfinancas.reativo.url")
+public class LancamentoReativoServiceImpl implements LancamentoReativoService
+{
+
+	// quantidade de lançamentos por consulta das etiquetas
+	private static final int TAMANHO_LOTE_TAGS = 500;
+
+	private final DatabaseClient 	  databaseClient;
+	private final CategoriaService 	  categoriaService;
+	private final SaldoUsuarioService saldoUsuarioService;
+
+	public LancamentoReativoServiceImpl(DatabaseClient databaseClient, CategoriaService categoriaService, SaldoUsuarioService saldoUsuarioService)
+	{
+		super();
+		this.databaseClient      = databaseClient;
+		this.categoriaService    = categoriaService;
+		this.saldoUsuarioService = saldoUsuarioService;
+	}
+
+	@Override
+	public Flux<DadosLancamento> buscar(Lancamento lancamentoFiltro)
+	{
+
+		Long idUsuario = lancamentoFiltro.getUsuario().getId();
+
+		Mono<List<Long>> categorias = lancamentoFiltro.getIdCategoria() == null
+				? Mono.just(Collections.emptyList())
+				: Mono.fromCallable( () -> categoriaService.obterComSubcategorias(idUsuario, lancamentoFiltro.getIdCategoria()) ).subscribeOn(Schedulers.boundedElastic());
+
+		return categorias.flatMapMany( ids -> consultar(lancamentoFiltro, ids) );
+
+	}
+
+	@Override
+	public Mono<BigDecimal> obterSaldo(Long idUsuario)
+	{
+
+		// leitura pela chave primária; sem saldo registrado, calcula a partir dos lançamentos como em SaldoUsuarioService
+		return databaseClient.sql("select u.id, s.valor from financas.usuario u"                  +
+				                  " left join financas.saldo_usuario s on s.id_usuario = u.id" +
+				                  " where u.id = :idUsuario")
+				.bind("idUsuario", idUsuario)
+				.map( (row, metadados) -> Optional.ofNullable(row.get("valor", BigDecimal.class)) )
+				.one()
+				.flatMap( valor -> valor.isPresent()
+						? Mono.just(valor.get())
+						: Mono.fromCallable( () -> saldoUsuarioService.obterSaldo(idUsuario) ).subscribeOn(Schedulers.boundedElastic()) );
+
+	}
+
+	@Override
+	public Mono<Boolean> existeUsuario(Long idUsuario)
+	{
+
+		return databaseClient.sql("select id from financas.usuario where id = :idUsuario")
+				.bind("idUsuario", idUsuario)
+				.map( (row, metadados) -> row.get("id", Long.class) )
+				.first()
+				.hasElement();
+
+	}
+
+	// filtros opcionais montados no texto, como em LancamentoRepositoryImpl.percorrer (sem parâmetros nulos no r2dbc)
+	private Flux<DadosLancamento> consultar(Lancamento lancamentoFiltro, List<Long> categorias)
+	{
+
+		StringBuilder sql = new StringBuilder()
+				.append("select l.id, l.descricao, l.mes, l.ano, l.valor, l.tipo, l.status, l.id_usuario, l.moeda, l.id_categoria, l.versao")
+				.append(" from financas.lancamento l")
+				.append(" where l.id_usuario = :idUsuario")
+				.append(" and l.ano between :anoInicial and :anoFinal");
+
+		String tag = LancamentoServiceImpl.tag(lancamentoFiltro);
+
+		if (lancamentoFiltro.getMes() != null)
+		{
+			sql.append(" and l.mes = :mes");
+		}
+
+		if (lancamentoFiltro.getDescricao() != null)
+		{
+			sql.append(" and lower(l.descricao) like :descricao escape '\\'");
+		}
+
+		if (!categorias.isEmpty())
+		{
+			sql.append(" and l.id_categoria in (:categorias)");
+		}
+
+		if (tag != null)
+		{
+			sql.append(" and exists (select 1 from financas.lancamento_tag t where t.id_lancamento = l.id and t.tag = :tag)");
+		}
+
+		sql.append(" order by l.ano, l.mes, l.id");
+
+		GenericExecuteSpec consulta = databaseClient.sql(sql.toString())
+				.bind("idUsuario",  lancamentoFiltro.getUsuario().getId())
+				.bind("anoInicial", LancamentoServiceImpl.anoInicial(lancamentoFiltro))
+				.bind("anoFinal",   LancamentoServiceImpl.anoFinal(lancamentoFiltro));
+
+		if (lancamentoFiltro.getMes() != null)
+		{
+			consulta = consulta.bind("mes", lancamentoFiltro.getMes());
+		}
+
+		if (lancamentoFiltro.getDescricao() != null)
+		{
+			consulta = consulta.bind("descricao", LancamentoRepositoryImpl.padraoContendo(lancamentoFiltro.getDescricao()));
+		}
+
+		if (!categorias.isEmpty())
+		{
+			consulta = consulta.bind("categorias", categorias);
+		}
+
+		if (tag != null)
+		{
+			consulta = consulta.bind("tag", tag);
+		}
+
+		// as etiquetas são lidas por lote de lançamentos, uma consulta 'in' por lote
+		return consulta.map( (row, metadados) -> converter(row) ).all()
+				.buffer(TAMANHO_LOTE_TAGS)
+				.concatMap( lote -> comTags(lote) );
+
+	}
+
+	private Flux<DadosLancamento> comTags(List<DadosLancamento> lote)
+	{
+
+		List<Long> ids = lote.stream().map(DadosLancamento::getId).collect(Collectors.toList());
+
+		return databaseClient.sql("select id_lancamento, tag from financas.lancamento_tag where id_lancamento in (:ids)")
+				.bind("ids", ids)
+				.map( (row, metadados) -> new SimpleImmutableEntry<>(row.get("id_lancamento", Long.class), row.get("tag", String.class)) )
+				.all()
+				.collect( () -> new HashMap<Long, Set<String>>(), (Map<Long, Set<String>> tags, Map.Entry<Long, String> tag) -> tags.computeIfAbsent(tag.getKey(), id -> new HashSet<>()).add(tag.getValue()) )
+				.flatMapIterable( tags -> lote.stream()
+						.map( lancamento -> lancamento.withTags(tags.getOrDefault(lancamento.getId(), Collections.emptySet())) )
+						.collect(Collectors.toList()) );
+
+	}
+
+	private DadosLancamento converter(Row row)
+	{
+
+		Long versao = row.get("versao", Long.class);
+
+		return new DadosLancamento(row.get("id", Long.class),
+				                   row.get("descricao", String.class),
+				                   row.get("mes", Integer.class),
+				                   row.get("ano", Integer.class),
+				                   row.get("valor", BigDecimal.class),
+				                   row.get("id_usuario", Long.class),
+				                   TipoLancamento.valueOf(row.get("tipo", String.class)),
+				                   StatusLancamento.valueOf(row.get("status", String.class)),
+				                   row.get("moeda", String.class),
+				                   row.get("id_categoria", Long.class),
+				                   versao != null ? versao : 0l);
+
+	}
+
+}
@@ -1,34 +1,85 @@
 package br.com.rochasoft.minhasfinancas.service.impl;
 
 import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
-import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
 import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
 import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
-import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
 import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryImpl;
+import br.com.rochasoft.minhasfinancas.service.CategoriaService;
+import br.com.rochasoft.minhasfinancas.service.CotacaoService;
 import br.com.rochasoft.minhasfinancas.service.LancamentoService;
+import br.com.rochasoft.minhasfinancas.service.SaldoUsuarioService;
+import br.com.rochasoft.minhasfinancas.service.event.AlteracaoLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.LancamentoAlteradoEvent;
 
 @Service // indica que irá existir no container como 'serviço' (será um bean gerenciado) e injeta os parâmetros no construtor automaticamente
 public class LancamentoServiceImpl implements LancamentoService 
 {
 	
-	private LancamentoRepository repository;
+	// quantidade de ids por comando na alteração de status em lote (limita o tamanho do 'in')
+	private static final int TAMANHO_LOTE_STATUS = 1000;
 	
+	// quantidade de lançamentos por consulta das etiquetas na listagem
+	private static final int TAMANHO_LOTE_TAGS = 500;
 	
-	public LancamentoServiceImpl(LancamentoRepository repository) 
+	// intervalo de anos utilizado nas buscas sem ano informado
+	private static final int ANO_MINIMO = 1;
+	private static final int ANO_MAXIMO = 9999;
+	
+	// limites das colunas 'descricao' (varchar 100) e 'valor' (numeric 16,2) da tabela 'lancamento'
+	private static final int TAMANHO_MAXIMO_DESCRICAO = 100;
+	private static final int DIGITOS_INTEIROS_VALOR   = 14;
+	private static final int CASAS_DECIMAIS_VALOR     = 2;
+	
+	// limites das etiquetas de um lançamento
+	private static final int QUANTIDADE_MAXIMA_TAGS = 20;
+	private static final int TAMANHO_MAXIMO_TAG     = 50;
+	
+	// valor do 'in' quando a busca não filtra por categoria (a lista não pode ser vazia)
+	private static final List<Long> SEM_CATEGORIAS = Collections.singletonList(-1l);
+	
+	private LancamentoRepository 		repository;
+	private SaldoUsuarioService 		saldoUsuarioService;
+	private ApplicationEventPublisher 	publisher;
+	private CotacaoService 				cotacaoService;
+	private CategoriaService 			categoriaService;
+	
+	
+	public LancamentoServiceImpl(LancamentoRepository repository, 
+			                     SaldoUsuarioService saldoUsuarioService, 
+			                     ApplicationEventPublisher publisher, 
+			                     CotacaoService cotacaoService,
+			                     CategoriaService categoriaService) 
 	{
 		super();
-		this.repository = repository;
+		this.repository          = repository;
+		this.saldoUsuarioService = saldoUsuarioService;
+		this.publisher           = publisher;
+		this.cotacaoService      = cotacaoService;
+		this.categoriaService    = categoriaService;
 	}
 
 	@Override
@@ -40,7 +91,41 @@ public class LancamentoServiceImpl implements LancamentoService
 		
 		lancamento.setStatus(StatusLancamento.PENDENTE);
 
-		return repository.save(lancamento);
+		Lancamento lancamentoSalvo = repository.save(lancamento);
+		
+		publisher.publishEvent(LancamentoAlteradoEvent.de(null, SituacaoLancamento.de(lancamentoSalvo)));
+		
+		return lancamentoSalvo;
+		
+	}
+
+	@Override
+	@Transactional // todos os lançamentos são gravados na mesma transação, em lotes jdbc (hibernate.jdbc.batch_size)
+	public List<Lancamento> salvarLote(List<Lancamento> lancamentos) 
+	{
+		
+		lancamentos.forEach(this::validar);
+		
+		return salvarLoteValidado(lancamentos);
+		
+	}
+
+	@Override
+	@Transactional
+	public List<Lancamento> salvarLoteValidado(List<Lancamento> lancamentos) 
+	{
+		
+		lancamentos.forEach( lancamento -> lancamento.setStatus(StatusLancamento.PENDENTE) );
+		
+		List<Lancamento> lancamentosSalvos = repository.saveAll(lancamentos);
+		
+		// um único evento para o lote inteiro
+		publisher.publishEvent(new LancamentoAlteradoEvent(lancamentosSalvos
+				.stream()
+				.map( lancamento -> new AlteracaoLancamento(null, SituacaoLancamento.de(lancamento)) )
+				.collect(Collectors.toList())));
+		
+		return lancamentosSalvos;
 		
 	}
 
@@ -54,7 +139,104 @@ public class LancamentoServiceImpl implements LancamentoService
 		
 		validar(lancamento);
 		
-		return repository.save(lancamento);
+		// situação gravada antes da alteração, para atualizar o saldo pela diferença
+		SituacaoLancamento anterior = repository.obterSituacao(lancamento.getId()).orElse(null);
+		
+		if (anterior != null)
+		{
+			desvincularRecorrenciaSeMesAlterado(lancamento, anterior);
+		}
+		
+		// o flush grava já aqui (com 'where versao = ?'), então o lançamento retornado tem a nova versão
+		Lancamento lancamentoSalvo = repository.saveAndFlush(lancamento);
+		
+		publisher.publishEvent(LancamentoAlteradoEvent.de(anterior, SituacaoLancamento.de(lancamentoSalvo)));
+		
+		return lancamentoSalvo;
+		
+	}
+
+	@Override
+	@Transactional
+	public Optional<Lancamento> atualizarParcial(Long id, Long versao, Lancamento alteracoes) 
+	{
+		
+		Optional<Lancamento> encontrado = repository.findById(id);
+		
+		if (!encontrado.isPresent())
+		{
+			return Optional.empty();
+		}
+		
+		Lancamento lancamento = encontrado.get();
+		
+		// falha antes de qualquer alteração quando o lançamento já mudou depois de lido pelo cliente
+		if (versao != null && !versao.equals(lancamento.getVersao()))
+		{
+			throw new ObjectOptimisticLockingFailureException(Lancamento.class, id);
+		}
+		
+		// situação antes da alteração, com a moeda do usuário, sem carregar o usuário do lançamento
+		SituacaoLancamento anterior = repository.obterSituacao(id).orElseThrow( () -> new ObjectOptimisticLockingFailureException(Lancamento.class, id) );
+		
+		boolean categoriaAlterada = alteracoes.getIdCategoria() != null && !alteracoes.getIdCategoria().equals(lancamento.getIdCategoria());
+		
+		// as etiquetas informadas são validadas antes de carregar as atuais
+		validarTags(alteracoes.getTags());
+		
+		aplicarAlteracoes(lancamento, alteracoes);
+		
+		desvincularRecorrenciaSeMesAlterado(lancamento, anterior);
+		
+		// apenas as validações que não consultam o banco, e a da categoria somente quando ela muda
+		validarCampos(lancamento);
+		
+		if (categoriaAlterada)
+		{
+			categoriaService.validarCategoria(anterior.getIdUsuario(), lancamento.getIdCategoria());
+		}
+		
+		// sem 'save': a entidade está gerenciada e o hibernate grava apenas as colunas alteradas (@DynamicUpdate),
+		// com 'where versao = ?', então uma alteração concorrente feita depois da leitura acima também falha
+		// o flush antecipa o update para que o lançamento retornado já tenha a nova versão
+		repository.flush();
+		
+		publisher.publishEvent(LancamentoAlteradoEvent.de(anterior, SituacaoLancamento.de(lancamento, anterior.getMoedaUsuario())));
+		
+		return Optional.of(lancamento);
+		
+	}
+	
+	// a ocorrência levada para outro mês deixa de pertencer à recorrência: com o vínculo mantido,
+	// a geração da ocorrência do novo mês violaria o índice 'uk_lancamento_recorrencia' (id_recorrencia, ano, mes)
+	private void desvincularRecorrenciaSeMesAlterado(Lancamento lancamento, SituacaoLancamento anterior)
+	{
+		
+		if (!Objects.equals(lancamento.getAno(), anterior.getAno()) || !Objects.equals(lancamento.getMes(), anterior.getMes()))
+		{
+			lancamento.setIdRecorrencia(null);
+		}
+		
+	}
+	
+	private void aplicarAlteracoes(Lancamento lancamento, Lancamento alteracoes)
+	{
+		
+		Optional.ofNullable(alteracoes.getDescricao()).ifPresent(lancamento::setDescricao);
+		Optional.ofNullable(alteracoes.getMes()).ifPresent(lancamento::setMes);
+		Optional.ofNullable(alteracoes.getAno()).ifPresent(lancamento::setAno);
+		Optional.ofNullable(alteracoes.getValor()).ifPresent(lancamento::setValor);
+		Optional.ofNullable(alteracoes.getMoeda()).ifPresent(lancamento::setMoeda);
+		Optional.ofNullable(alteracoes.getTipo()).ifPresent(lancamento::setTipo);
+		Optional.ofNullable(alteracoes.getStatus()).ifPresent(lancamento::setStatus);
+		Optional.ofNullable(alteracoes.getIdCategoria()).ifPresent(lancamento::setIdCategoria);
+		
+		// a coleção gerenciada é alterada no lugar: o hibernate grava apenas as etiquetas incluídas e excluídas
+		if (alteracoes.getTags() != null)
+		{
+			lancamento.getTags().retainAll(alteracoes.getTags());
+			lancamento.getTags().addAll(alteracoes.getTags());
+		}
 		
 	}
 
@@ -66,26 +248,161 @@ public class LancamentoServiceImpl implements LancamentoService
 		// gera uma exceção se o id não for definido
 		Objects.requireNonNull(lancamento.getId());
 		
+		SituacaoLancamento anterior = repository.obterSituacao(lancamento.getId()).orElse(null);
+		
 		repository.delete(lancamento);
 		
+		publisher.publishEvent(LancamentoAlteradoEvent.de(anterior, null));
+		
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<DadosLancamento> buscar(Lancamento lancamentoFiltro) 
+	{
+		
+		// a busca por exemplo (Example) gerava um 'like' sem o usuário como primeiro filtro, percorrendo a tabela inteira
+		// a consulta abaixo filtra por usuário, ano e mês pelo índice composto e ignora maiúsculas e minúsculas na descrição
+		return comTags(repository.buscar(lancamentoFiltro.getUsuario().getId(), 
+				                 anoInicial(lancamentoFiltro), 
+				                 anoFinal(lancamentoFiltro), 
+				                 lancamentoFiltro.getMes(), 
+				                 LancamentoRepositoryImpl.padraoContendo(lancamentoFiltro.getDescricao()),
+				                 lancamentoFiltro.getIdCategoria() == null,
+				                 categorias(lancamentoFiltro),
+				                 tag(lancamentoFiltro)));
+		
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<DadosLancamento> buscarPagina(Lancamento lancamentoFiltro, Lancamento ultimoLancamento, int tamanho) 
+	{
+		
+		// sem cursor (primeira página) começa antes do primeiro lançamento possível
+		Integer anoCursor = ultimoLancamento != null ? ultimoLancamento.getAno() : 0;
+		Integer mesCursor = ultimoLancamento != null ? ultimoLancamento.getMes() : 0;
+		Long    idCursor  = ultimoLancamento != null ? ultimoLancamento.getId()  : 0l;
+		
+		return comTags(repository.buscarPagina(lancamentoFiltro.getUsuario().getId(), 
+				                       anoInicial(lancamentoFiltro), 
+				                       anoFinal(lancamentoFiltro), 
+				                       lancamentoFiltro.getMes(), 
+				                       LancamentoRepositoryImpl.padraoContendo(lancamentoFiltro.getDescricao()), 
+				                       lancamentoFiltro.getIdCategoria() == null,
+				                       categorias(lancamentoFiltro),
+				                       tag(lancamentoFiltro),
+				                       anoCursor, 
+				                       mesCursor, 
+				                       idCursor, 
+				                       PageRequest.of(0, tamanho)));
+		
+	}
+
+	// sem o ano no filtro, busca em todos os anos (todas as partições)
+	// os filtros também são usados pela busca reativa (LancamentoReativoServiceImpl)
+	static Integer anoInicial(Lancamento lancamentoFiltro)
+	{
+		return lancamentoFiltro.getAno() != null ? lancamentoFiltro.getAno() : ANO_MINIMO;
+	}
+	
+	static Integer anoFinal(Lancamento lancamentoFiltro)
+	{
+		return lancamentoFiltro.getAno() != null ? lancamentoFiltro.getAno() : ANO_MAXIMO;
+	}
+	
+	// a busca por uma categoria inclui os lançamentos das subcategorias
+	private List<Long> categorias(Lancamento lancamentoFiltro)
+	{
+		
+		if (lancamentoFiltro.getIdCategoria() == null)
+		{
+			return SEM_CATEGORIAS;
+		}
+		
+		return categoriaService.obterComSubcategorias(lancamentoFiltro.getUsuario().getId(), lancamentoFiltro.getIdCategoria());
+		
+	}
+	
+	// a busca filtra por uma única etiqueta
+	static String tag(Lancamento lancamentoFiltro)
+	{
+		return lancamentoFiltro.getTags() == null || lancamentoFiltro.getTags().isEmpty() ? null : lancamentoFiltro.getTags().iterator().next();
 	}
 
+	@Override
+	@Transactional(readOnly = true) // a transação é necessária para o banco abrir o cursor de leitura
+	public void percorrer(Lancamento lancamentoFiltro, Consumer<DadosLancamento> consumidor) 
+	{
+		
+		// as linhas do cursor são entregues em lotes, depois de lidas as etiquetas do lote
+		List<DadosLancamento> lote = new ArrayList<>(TAMANHO_LOTE_TAGS);
+		
+		repository.percorrer(lancamentoFiltro, lancamento -> 
+		{
+			
+			lote.add(lancamento);
+			
+			if (lote.size() == TAMANHO_LOTE_TAGS)
+			{
+				comTags(lote).forEach(consumidor);
+				lote.clear();
+			}
+			
+		});
+		
+		comTags(lote).forEach(consumidor);
+		
+	}
+	
 	@Override
 	@Transactional(readOnly = true)
-	public List<Lancamento> buscar(Lancamento lancamentoFiltro) 
+	public Map<Long, Set<String>> obterTags(Collection<Long> ids) 
+	{
+		
+		Map<Long, Set<String>> tags = new HashMap<>();
+		
+		if (ids.isEmpty())
+		{
+			return tags;
+		}
+		
+		repository.obterTags(ids).forEach( tag -> tags.computeIfAbsent(tag.getIdLancamento(), id -> new HashSet<>()).add(tag.getTag()) );
+		
+		return tags;
+		
+	}
+	
+	// a consulta da listagem não traz as etiquetas; uma consulta 'in' por lote completa os lançamentos
+	private List<DadosLancamento> comTags(List<DadosLancamento> lancamentos)
 	{
 		
-		Example example = Example.of(lancamentoFiltro, 
-				ExampleMatcher
-				.matching()
-				.withIgnoreCase() // ignora maiusculas e minúsculas
-				.withStringMatcher(StringMatcher.CONTAINING)); // busca por qualquer parte do texto
+		List<DadosLancamento> completos = new ArrayList<>(lancamentos.size());
 		
-		return repository.findAll(example);
+		for (int inicio = 0; inicio < lancamentos.size(); inicio += TAMANHO_LOTE_TAGS)
+		{
+			
+			List<DadosLancamento> lote = lancamentos.subList(inicio, Math.min(inicio + TAMANHO_LOTE_TAGS, lancamentos.size()));
+			
+			Map<Long, Set<String>> tags = obterTags(lote.stream().map(DadosLancamento::getId).collect(Collectors.toList()));
+			
+			lote.forEach( lancamento -> completos.add(lancamento.withTags(tags.getOrDefault(lancamento.getId(), Collections.emptySet()))) );
+			
+		}
 		
+		return completos;
+		
+	}
+
+	@Override
+	@Transactional(readOnly = true) // a transação é necessária para o banco abrir o cursor de leitura
+	public void exportar(Long idUsuario, YearMonth inicio, YearMonth fim, Consumer<DadosLancamento> consumidor) 
+	{
+		repository.percorrer(idUsuario, inicio, fim, consumidor);
 	}
 
 	@Override
+	@Transactional
 	public void atualizarStatus(Lancamento lancamento, StatusLancamento status) 
 	{
 		
@@ -94,14 +411,96 @@ public class LancamentoServiceImpl implements LancamentoService
 		
 	}
 
+	@Override
+	@Transactional
+	public List<SituacaoLancamento> atualizarStatus(Long idUsuario, List<Long> ids, StatusLancamento status) 
+	{
+		
+		List<SituacaoLancamento> anteriores = new ArrayList<>();
+		
+		for (int inicio = 0; inicio < ids.size(); inicio += TAMANHO_LOTE_STATUS)
+		{
+			List<Long> lote = ids.subList(inicio, Math.min(inicio + TAMANHO_LOTE_STATUS, ids.size()));
+			anteriores.addAll(repository.obterSituacoesParaAtualizacao(idUsuario, lote));
+		}
+		
+		alterarStatus(anteriores, status);
+		
+		return anteriores;
+		
+	}
+
+	@Override
+	@Transactional
+	public List<SituacaoLancamento> atualizarStatus(Long idUsuario, Integer ano, Integer mes, StatusLancamento statusAtual, StatusLancamento status) 
+	{
+		
+		List<SituacaoLancamento> anteriores = repository.obterSituacoesParaAtualizacao(idUsuario, ano, mes, statusAtual);
+		
+		alterarStatus(anteriores, status);
+		
+		return anteriores;
+		
+	}
+	
+	// altera o status dos lançamentos já bloqueados e publica um único evento com todas as alterações
+	// não valida nem regrava o restante do lançamento, apenas o status muda
+	private void alterarStatus(List<SituacaoLancamento> anteriores, StatusLancamento status)
+	{
+		
+		List<Long> 				  ids        = new ArrayList<>();
+		List<AlteracaoLancamento> alteracoes = new ArrayList<>();
+		
+		for (SituacaoLancamento anterior : anteriores)
+		{
+			if (anterior.getStatus() != status)
+			{
+				ids.add(anterior.getId());
+				alteracoes.add(new AlteracaoLancamento(anterior, anterior.comStatus(status)));
+			}
+		}
+		
+		if (ids.isEmpty())
+		{
+			return;
+		}
+		
+		for (int inicio = 0; inicio < ids.size(); inicio += TAMANHO_LOTE_STATUS)
+		{
+			repository.atualizarStatus(ids.subList(inicio, Math.min(inicio + TAMANHO_LOTE_STATUS, ids.size())), status);
+		}
+		
+		publisher.publishEvent(new LancamentoAlteradoEvent(alteracoes));
+		
+	}
+
 	@Override
 	public void validar(Lancamento lancamento) 
+	{
+		
+		validarCampos(lancamento);
+		validarTags(lancamento.getTags());
+		
+		if (lancamento.getIdCategoria() != null)
+		{
+			categoriaService.validarCategoria(lancamento.getUsuario().getId(), lancamento.getIdCategoria());
+		}
+		
+	}
+	
+	// validações feitas sem consultar o banco
+	private void validarCampos(Lancamento lancamento)
 	{
 	
 		if (lancamento.getDescricao() == null || lancamento.getDescricao().trim().equals(""))
 		{
 			throw new RegraNegocioException("Informe uma Descrição válida.");
 		}
+		
+		if (lancamento.getDescricao().length() > TAMANHO_MAXIMO_DESCRICAO)
+		{
+			throw new RegraNegocioException("Informe uma Descrição de até " + TAMANHO_MAXIMO_DESCRICAO + " caracteres.");
+		}
 
 		if (lancamento.getMes() == null || lancamento.getMes() < 1 || lancamento.getMes() > 12)
 		{
@@ -123,11 +522,41 @@ public class LancamentoServiceImpl implements LancamentoService
 			throw new RegraNegocioException("Informe um Valor válido.");
 		}
 		
+		// o valor é gravado sem arredondamento, para que os saldos somados aqui sejam os mesmos do banco
+		BigDecimal valor = lancamento.getValor().stripTrailingZeros();
+		
+		if (valor.scale() > CASAS_DECIMAIS_VALOR || valor.precision() - valor.scale() > DIGITOS_INTEIROS_VALOR)
+		{
+			throw new RegraNegocioException("Informe um Valor com até " + DIGITOS_INTEIROS_VALOR + " dígitos e " + CASAS_DECIMAIS_VALOR + " casas decimais.");
+		}
+		
 		if (lancamento.getTipo() == null )
 		{
 			throw new RegraNegocioException("Informe um Tipo de lançamento.");
 		}
 		
+		// apenas moedas com cotação, para a conversão para a moeda do usuário
+		cotacaoService.validarMoeda(lancamento.getMoeda());
+		
+	}
+	
+	private void validarTags(Set<String> tags)
+	{
+		
+		if (tags == null)
+		{
+			return;
+		}
+		
+		if (tags.size() > QUANTIDADE_MAXIMA_TAGS)
+		{
+			throw new RegraNegocioException("Informe no máximo " + QUANTIDADE_MAXIMA_TAGS + " etiquetas.");
+		}
+		
+		if (tags.stream().anyMatch( tag -> tag == null || tag.isEmpty() || tag.length() > TAMANHO_MAXIMO_TAG ))
+		{
+			throw new RegraNegocioException("Informe etiquetas válidas de até " + TAMANHO_MAXIMO_TAG + " caracteres.");
+		}
 		
 	}
 
@@ -142,17 +571,8 @@ public class LancamentoServiceImpl implements LancamentoService
 	public BigDecimal obterSaldoPorUsuario(Long id) 
 	{
 	
-		// total de receitas
-		BigDecimal receitas = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(id, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO);
-		
-		// total de despesas
-		BigDecimal despesas = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(id, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO);
-		
-		if (receitas == null) receitas = BigDecimal.ZERO;
-		if (despesas == null) despesas = BigDecimal.ZERO;
-		
-		// retorna o saldo final
-		return receitas.subtract(despesas);
+		// saldo mantido a cada gravação de lançamento (leitura pela chave primária)
+		return saldoUsuarioService.obterSaldo(id);
 		
 	}
 	
@@ -0,0 +1,368 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import br.com.rochasoft.minhasfinancas.service.NotificacaoLancamentosService;
+import br.com.rochasoft.minhasfinancas.service.event.AlteracaoLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.com.rochasoft.minhasfinancas.service.event.NotificacaoLancamento;
+import lombok.extern.slf4j.Slf4j;
+
+// envia as alterações de lançamentos aos clientes inscritos (server-sent events), por usuário
+// cada inscrição tem uma fila limitada, esvaziada por poucas threads próprias:
+// o cliente que não consome os eventos e deixa a fila encher é desconectado, sem acumular memória
+// o envio é uma escrita bloqueante no socket: o cliente que para de ler sem fechar a conexão prende a thread do envio
+// até o timeout de escrita do servidor, então o envio que passa do prazo descarta a inscrição e a thread presa
+// é substituída por outra, para não atrasar os eventos dos demais clientes
+@Slf4j
+@Service
+public class NotificacaoLancamentosServiceImpl implements NotificacaoLancamentosService
+{
+
+	// a conexão é encerrada após este tempo e o EventSource do navegador reconecta automaticamente
+	private static final long TEMPO_CONEXAO 		  = TimeUnit.MINUTES.toMillis(30);
+
+	private static final int  TAMANHO_FILA            = 100;
+	private static final int  INSCRICOES_POR_USUARIO  = 5;
+	private static final int  THREADS_ENVIO           = 2;
+
+	// threads presas em envios descartados que são substituídas ao mesmo tempo; acima disso os demais clientes esperam
+	private static final int  THREADS_SUBSTITUTAS     = 16;
+
+	private static final long PRAZO_ENVIO 			  = TimeUnit.SECONDS.toMillis(10);
+
+	// no lugar do envio em andamento: nenhum envio, ou envio descartado por passar do prazo
+	private static final long SEM_ENVIO  			  = 0;
+	private static final long DESCARTADO 			  = -1;
+
+	private final Map<Long, List<Inscricao>> inscricoes = new ConcurrentHashMap<>();
+
+	private final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS_ENVIO, THREADS_ENVIO, 0, TimeUnit.MILLISECONDS, 
+			                                                           new LinkedBlockingQueue<>(), new CustomizableThreadFactory("notificacao-"));
+
+	private final long prazoEnvio;
+
+	private int threadsSubstitutas;
+
+	public NotificacaoLancamentosServiceImpl()
+	{
+		this(PRAZO_ENVIO);
+	}
+
+	// prazo do envio em milissegundos (menor nos testes)
+	public NotificacaoLancamentosServiceImpl(long prazoEnvio)
+	{
+		super();
+		this.prazoEnvio = prazoEnvio;
+	}
+
+	@Override
+	public SseEmitter inscrever(Long idUsuario)
+	{
+
+		SseEmitter emitter   = criarEmitter(TEMPO_CONEXAO);
+		Inscricao  inscricao = new Inscricao(idUsuario, emitter);
+
+		emitter.onCompletion( () -> remover(inscricao) );
+		emitter.onTimeout( () -> remover(inscricao) );
+		emitter.onError( erro -> remover(inscricao) );
+
+		List<Inscricao> excedentes = new ArrayList<>();
+
+		inscricoes.compute(idUsuario, (id, lista) ->
+		{
+
+			if (lista == null)
+			{
+				lista = new CopyOnWriteArrayList<>();
+			}
+
+			// limite de conexões por usuário: a inscrição mais antiga sai da lista
+			if (lista.size() >= INSCRICOES_POR_USUARIO)
+			{
+				excedentes.add(lista.remove(0));
+			}
+
+			lista.add(inscricao);
+
+			return lista;
+
+		});
+
+		// encerrada fora do 'compute': o encerramento altera o mapa (remover) e o ConcurrentHashMap
+		// não permite alterações dentro da função de remapeamento
+		excedentes.forEach(Inscricao::encerrar);
+
+		return emitter;
+
+	}
+
+	// somente depois do commit, para não notificar alterações desfeitas
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void aoAlterarLancamentos(LancamentoAlteradoEvent evento)
+	{
+
+		if (inscricoes.isEmpty())
+		{
+			return;
+		}
+
+		for (AlteracaoLancamento alteracao : evento.getAlteracoes())
+		{
+
+			NotificacaoLancamento notificacao = NotificacaoLancamento.de(alteracao);
+
+			List<Inscricao> lista = inscricoes.get(notificacao.getUsuario());
+
+			if (lista != null)
+			{
+				lista.forEach( inscricao -> inscricao.enviar(SseEmitter.event().name("lancamento").data(notificacao, MediaType.APPLICATION_JSON)) );
+			}
+
+		}
+
+	}
+
+	// comentário periódico para que proxies e balanceadores não encerrem conexões sem eventos
+	@Scheduled(fixedRate = 30000)
+	public void manterConexoes()
+	{
+		inscricoes.values().forEach( lista -> lista.forEach( inscricao -> inscricao.enviar(SseEmitter.event().comment("ping")) ) );
+	}
+
+	// descarta as inscrições com um envio bloqueado há mais que o prazo
+	@Scheduled(fixedRate = 5000)
+	public void verificarEnvios()
+	{
+
+		long limite = System.currentTimeMillis() - prazoEnvio;
+
+		inscricoes.values().forEach( lista -> lista.forEach( inscricao -> inscricao.verificarEnvio(limite) ) );
+
+	}
+
+	protected SseEmitter criarEmitter(long tempoConexao)
+	{
+		return new SseEmitter(tempoConexao);
+	}
+
+	@PreDestroy
+	public void encerrar()
+	{
+		inscricoes.values().forEach( lista -> lista.forEach(Inscricao::encerrar) );
+		executor.shutdownNow();
+	}
+
+	private void remover(Inscricao inscricao)
+	{
+		inscricoes.computeIfPresent(inscricao.idUsuario, (id, lista) ->
+		{
+			lista.remove(inscricao);
+			return lista.isEmpty() ? null : lista;
+		});
+	}
+
+	// a thread presa continua no pool até o envio terminar, então outra entra no lugar dela enquanto isso
+	// (ao aumentar, o máximo muda antes do mínimo, e ao diminuir, depois, para o máximo nunca ficar abaixo do mínimo)
+	private synchronized void substituirThreadPresa()
+	{
+
+		if (threadsSubstitutas >= THREADS_SUBSTITUTAS)
+		{
+			log.warn("limite de {} threads substitutas das notificações atingido", THREADS_SUBSTITUTAS);
+			return;
+		}
+
+		threadsSubstitutas++;
+
+		executor.setMaximumPoolSize(THREADS_ENVIO + threadsSubstitutas);
+		executor.setCorePoolSize(THREADS_ENVIO + threadsSubstitutas);
+
+	}
+
+	private synchronized void liberarThreadPresa()
+	{
+
+		if (threadsSubstitutas == 0)
+		{
+			return;
+		}
+
+		threadsSubstitutas--;
+
+		executor.setCorePoolSize(THREADS_ENVIO + threadsSubstitutas);
+		executor.setMaximumPoolSize(THREADS_ENVIO + threadsSubstitutas);
+
+	}
+
+	private class Inscricao
+	{
+
+		private final Long 							idUsuario;
+		private final SseEmitter 					emitter;
+		private final BlockingQueue<SseEventBuilder> fila      = new ArrayBlockingQueue<>(TAMANHO_FILA);
+		private final AtomicBoolean 				agendada  = new AtomicBoolean();
+		private final AtomicLong 					envio     = new AtomicLong(SEM_ENVIO);
+		private volatile boolean 					encerrada;
+
+		Inscricao(Long idUsuario, SseEmitter emitter)
+		{
+			this.idUsuario = idUsuario;
+			this.emitter   = emitter;
+		}
+
+		void enviar(SseEventBuilder evento)
+		{
+
+			if (encerrada)
+			{
+				return;
+			}
+
+			// fila cheia: o cliente não está acompanhando os eventos
+			if (!fila.offer(evento))
+			{
+				encerrar();
+				return;
+			}
+
+			agendar();
+
+		}
+
+		// no máximo um envio agendado por inscrição, então os eventos saem na ordem
+		private void agendar()
+		{
+			if (agendada.compareAndSet(false, true))
+			{
+				executor.execute(this::esvaziar);
+			}
+		}
+
+		private void esvaziar()
+		{
+
+			try
+			{
+
+				SseEventBuilder evento;
+
+				while (!encerrada && (evento = fila.poll()) != null)
+				{
+
+					// o início identifica o envio: a verificação só descarta o mesmo envio que encontrou atrasado
+					long inicio = System.currentTimeMillis();
+					envio.set(inicio);
+
+					try
+					{
+						emitter.send(evento);
+					}
+					finally
+					{
+						if (!envio.compareAndSet(inicio, SEM_ENVIO))
+						{
+							// descartado pela verificação enquanto estava bloqueado: a substituta desta thread sai do pool
+							liberarThreadPresa();
+						}
+					}
+
+				}
+
+			}
+			catch (IOException | IllegalStateException e)
+			{
+				// conexão encerrada pelo cliente
+				encerrar();
+			}
+			finally
+			{
+				agendada.set(false);
+			}
+
+			if (encerrada)
+			{
+				// encerrada durante o envio (fila cheia ou descartada), quando o emitter ainda estava bloqueado por ele
+				completar();
+			}
+			else if (!fila.isEmpty())
+			{
+				// evento incluído depois da última leitura da fila e antes de liberar o agendamento
+				agendar();
+			}
+
+		}
+
+		void verificarEnvio(long limite)
+		{
+
+			long inicio = envio.get();
+
+			if (inicio > SEM_ENVIO && inicio < limite && envio.compareAndSet(inicio, DESCARTADO))
+			{
+				log.warn("envio de notificações ao usuário {} bloqueado há mais de {} ms, inscrição descartada", idUsuario, prazoEnvio);
+				substituirThreadPresa();
+				desligar();
+			}
+
+		}
+
+		void encerrar()
+		{
+
+			desligar();
+
+			// com um envio em andamento o emitter fica bloqueado até o fim dele, e quem encerra a conexão é a thread do envio
+			// (a inscrição com a fila cheia é encerrada pela thread que publica os eventos, que não pode ficar presa)
+			if (envio.get() == SEM_ENVIO)
+			{
+				completar();
+			}
+
+		}
+
+		private void desligar()
+		{
+			encerrada = true;
+			fila.clear();
+			remover(this);
+		}
+
+		private void completar()
+		{
+			try
+			{
+				emitter.complete();
+			}
+			catch (IllegalStateException e)
+			{
+				// já encerrado
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,347 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Orcamento;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.GastoMensalCategoria;
+import br.com.rochasoft.minhasfinancas.model.projection.LimiteOrcamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoOrcamento;
+import br.com.rochasoft.minhasfinancas.model.repository.OrcamentoRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.ResumoCategoriaRepository;
+import br.com.rochasoft.minhasfinancas.service.CategoriaService;
+import br.com.rochasoft.minhasfinancas.service.CotacaoService;
+import br.com.rochasoft.minhasfinancas.service.OrcamentoService;
+import br.com.rochasoft.minhasfinancas.service.event.AlteracaoLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+// orçamentos mensais por categoria: os limites e o gasto de cada categoria por mês ficam em memória,
+// então a verificação do limite na gravação de uma despesa não soma o mês novamente no banco
+// os gastos são contadores LongAdder (em centavos da moeda do usuário): as gravações concorrentes somam em células
+// separadas, sem bloqueio, e a leitura soma as células
+// são carregados do resumo por categoria na inicialização e atualizados a cada gravação de lançamento desta instância;
+// as gravações de outras instâncias entram na recarga periódica (OrcamentosJob)
+@Slf4j
+@Service
+public class OrcamentoServiceImpl implements OrcamentoService
+{
+
+	private OrcamentoRepository 		repository;
+	private ResumoCategoriaRepository 	resumoCategoriaRepository;
+	private CategoriaService 			categoriaService;
+	private CotacaoService 				cotacaoService;
+
+	private final ConcurrentHashMap<ChaveOrcamento, LimiteOrcamentoCategoria> limites = new ConcurrentHashMap<>();
+
+	// substituídos inteiros a cada recarga
+	private volatile GastosMensais gastos = new GastosMensais(LocalDate.now().getYear() - 1);
+
+	public OrcamentoServiceImpl(OrcamentoRepository repository,
+			                    ResumoCategoriaRepository resumoCategoriaRepository,
+			                    CategoriaService categoriaService,
+			                    CotacaoService cotacaoService)
+	{
+		super();
+		this.repository                = repository;
+		this.resumoCategoriaRepository = resumoCategoriaRepository;
+		this.categoriaService          = categoriaService;
+		this.cotacaoService            = cotacaoService;
+	}
+
+	@PostConstruct
+	public void carregar()
+	{
+		recarregar();
+	}
+
+	@Override
+	@Transactional
+	public Orcamento salvar(Orcamento orcamento)
+	{
+
+		if (orcamento.getUsuario() == null || orcamento.getUsuario().getId() == null)
+		{
+			throw new RegraNegocioException("Informe um Usuário para registro do orçamento.");
+		}
+
+		if (orcamento.getIdCategoria() == null)
+		{
+			throw new RegraNegocioException("Informe a Categoria do orçamento.");
+		}
+
+		if (orcamento.getValor() == null || orcamento.getValor().signum() <= 0)
+		{
+			throw new RegraNegocioException("Informe um Valor válido.");
+		}
+
+		categoriaService.validarCategoria(orcamento.getUsuario().getId(), orcamento.getIdCategoria());
+
+		// mesma escala da coluna numeric(16,2)
+		orcamento.setValor(orcamento.getValor().setScale(2, RoundingMode.HALF_UP));
+
+		// um orçamento por categoria: informar o limite de uma categoria que já tem orçamento altera o existente
+		Orcamento orcamentoSalvo = repository.obterPorCategoria(orcamento.getUsuario().getId(), orcamento.getIdCategoria())
+				.map( existente -> 
+				{
+					existente.setValor(orcamento.getValor());
+					return existente;
+				})
+				.orElse(orcamento);
+
+		orcamentoSalvo = repository.save(orcamentoSalvo);
+
+		ChaveOrcamento 			  chave  = new ChaveOrcamento(orcamento.getUsuario().getId(), orcamento.getIdCategoria());
+		LimiteOrcamentoCategoria limite = new LimiteOrcamentoCategoria(orcamentoSalvo.getId(), orcamentoSalvo.getValor());
+
+		aposCommit( () -> limites.put(chave, limite) );
+
+		return orcamentoSalvo;
+
+	}
+
+	@Override
+	@Transactional
+	public void excluir(Orcamento orcamento)
+	{
+
+		Objects.requireNonNull(orcamento.getId());
+
+		repository.delete(orcamento);
+
+		ChaveOrcamento chave = new ChaveOrcamento(orcamento.getUsuario().getId(), orcamento.getIdCategoria());
+
+		aposCommit( () -> limites.remove(chave) );
+
+	}
+
+	@Override
+	public Optional<Orcamento> obterPorId(Long id)
+	{
+		return repository.findById(id);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<SituacaoOrcamento> buscar(Long idUsuario, Integer ano, Integer mes)
+	{
+
+		if (mes < 1 || mes > 12)
+		{
+			throw new RegraNegocioException("Informe um Mês válido de 1 a 12.");
+		}
+
+		GastosMensais gastosAtuais = gastos;
+
+		if (ano < gastosAtuais.anoInicial)
+		{
+			throw new RegraNegocioException("Os gastos dos orçamentos estão disponíveis a partir de " + gastosAtuais.anoInicial + ".");
+		}
+
+		return repository.buscarPorUsuario(idUsuario)
+				.stream()
+				.map( orcamento -> new SituacaoOrcamento(orcamento.getId(), 
+						                                 orcamento.getIdCategoria(), 
+						                                 ano, 
+						                                 mes, 
+						                                 orcamento.getValor(), 
+						                                 gastosAtuais.obter(new ChaveGasto(idUsuario, orcamento.getIdCategoria(), ano, mes))) )
+				.collect(Collectors.toList());
+
+	}
+
+	@Override
+	public Optional<SituacaoOrcamento> verificarLimite(Lancamento lancamento)
+	{
+
+		// a moeda do usuário não é necessária aqui (o gasto já está convertido), então o usuário não é carregado
+		SituacaoLancamento situacao     = SituacaoLancamento.de(lancamento, null);
+		GastosMensais 	   gastosAtuais = gastos;
+
+		if (!gastosAtuais.considera(situacao))
+		{
+			return Optional.empty();
+		}
+
+		LimiteOrcamentoCategoria limite = limites.get(new ChaveOrcamento(situacao.getIdUsuario(), situacao.getIdCategoria()));
+
+		if (limite == null)
+		{
+			return Optional.empty();
+		}
+
+		BigDecimal gasto = gastosAtuais.obter(new ChaveGasto(situacao.getIdUsuario(), situacao.getIdCategoria(), situacao.getAno(), situacao.getMes()));
+
+		SituacaoOrcamento orcamento = new SituacaoOrcamento(limite.getIdOrcamento(), situacao.getIdCategoria(), situacao.getAno(), situacao.getMes(), limite.getValor(), gasto);
+
+		return orcamento.isExcedido() ? Optional.of(orcamento) : Optional.empty();
+
+	}
+
+	// os gastos são carregados a partir de janeiro do ano anterior: despesas de meses mais antigos não são acompanhadas
+	// gravações concluídas durante a carga podem ficar fora dos novos contadores até a próxima recarga
+	@Override
+	@Transactional(readOnly = true)
+	public void recarregar()
+	{
+
+		ConcurrentHashMap<ChaveOrcamento, LimiteOrcamentoCategoria> novosLimites = new ConcurrentHashMap<>();
+
+		for (LimiteOrcamento limite : repository.obterLimites())
+		{
+			novosLimites.put(new ChaveOrcamento(limite.getIdUsuario(), limite.getIdCategoria()), new LimiteOrcamentoCategoria(limite.getId(), limite.getValor()));
+		}
+
+		GastosMensais novosGastos = new GastosMensais(LocalDate.now().getYear() - 1);
+
+		// o resumo por categoria já está na moeda do usuário
+		for (GastoMensalCategoria gasto : resumoCategoriaRepository.obterGastos(novosGastos.anoInicial))
+		{
+			novosGastos.somar(new ChaveGasto(gasto.getIdUsuario(), gasto.getIdCategoria(), gasto.getAno(), gasto.getMes()), gasto.getTotal());
+		}
+
+		limites.keySet().retainAll(novosLimites.keySet());
+		limites.putAll(novosLimites);
+		gastos = novosGastos;
+
+		log.info("{} orçamento(s) e {} gasto(s) mensal(is) carregados", novosLimites.size(), novosGastos.contadores.size());
+
+	}
+
+	// somente depois do commit: uma gravação desfeita não pode ficar nos contadores
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void aoAlterarLancamentos(LancamentoAlteradoEvent evento)
+	{
+
+		GastosMensais gastosAtuais = gastos;
+
+		for (AlteracaoLancamento alteracao : evento.getAlteracoes())
+		{
+			somar(gastosAtuais, alteracao.getAnterior(), true);
+			somar(gastosAtuais, alteracao.getAtual(), false);
+		}
+
+	}
+
+	private void somar(GastosMensais gastosAtuais, SituacaoLancamento situacao, boolean remover)
+	{
+
+		if (!gastosAtuais.considera(situacao))
+		{
+			return;
+		}
+
+		BigDecimal valor = cotacaoService.converter(situacao.getValor(), situacao.getMoeda(), situacao.getMoedaUsuario(), situacao.getAno(), situacao.getMes());
+
+		gastosAtuais.somar(new ChaveGasto(situacao.getIdUsuario(), situacao.getIdCategoria(), situacao.getAno(), situacao.getMes()), 
+				           remover ? valor.negate() : valor);
+
+	}
+
+	private void aposCommit(Runnable acao)
+	{
+
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			acao.run();
+			return;
+		}
+
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+		{
+			@Override
+			public void afterCommit()
+			{
+				acao.run();
+			}
+		});
+
+	}
+
+	@Value
+	private static class ChaveOrcamento
+	{
+		private Long idUsuario;
+		private Long idCategoria;
+	}
+
+	@Value
+	private static class LimiteOrcamentoCategoria
+	{
+		private Long 		idOrcamento;
+		private BigDecimal 	valor;
+	}
+
+	@Value
+	private static class ChaveGasto
+	{
+		private Long 	idUsuario;
+		private Long 	idCategoria;
+		private Integer ano;
+		private Integer mes;
+	}
+
+	// despesas não canceladas com categoria, por usuário, categoria e mês, a partir de janeiro do ano inicial
+	private static class GastosMensais
+	{
+
+		private final int 									anoInicial;
+		private final ConcurrentHashMap<ChaveGasto, LongAdder> contadores = new ConcurrentHashMap<>();
+
+		private GastosMensais(int anoInicial)
+		{
+			this.anoInicial = anoInicial;
+		}
+
+		private boolean considera(SituacaoLancamento situacao)
+		{
+			return situacao != null
+					&& situacao.getTipo() == TipoLancamento.DESPESA
+					&& situacao.getStatus() != null
+					&& situacao.getStatus() != StatusLancamento.CANCELADO
+					&& situacao.getIdCategoria() != null
+					&& situacao.getIdUsuario() != null
+					&& situacao.getValor() != null
+					&& situacao.getAno() != null
+					&& situacao.getAno() >= anoInicial;
+		}
+
+		private void somar(ChaveGasto chave, BigDecimal valor)
+		{
+			contadores.computeIfAbsent(chave, c -> new LongAdder()).add(valor.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue());
+		}
+
+		private BigDecimal obter(ChaveGasto chave)
+		{
+
+			LongAdder contador = contadores.get(chave);
+
+			return contador != null ? BigDecimal.valueOf(contador.sum(), 2) : BigDecimal.ZERO.setScale(2);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,185 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import br.com.rochasoft.minhasfinancas.service.ParticaoLancamentoService;
+import lombok.extern.slf4j.Slf4j;
+
+// manutenção das partições anuais de 'financas.lancamento' no postgresql (ver documentos/schema.sql)
+// - cria com antecedência as partições dos próximos anos, para que nenhum lançamento novo caia na partição padrão
+// - move as partições antigas para o tablespace de arquivo (disco mais barato), sem desanexá-las:
+//   continuam consultáveis e entrando nos saldos, mas as buscas por ano não as leem (descartadas pelo planejador)
+// em bancos sem a tabela particionada (h2 dos testes) não faz nada
+@Slf4j
+@Service
+public class ParticaoLancamentoServiceImpl implements ParticaoLancamentoService
+{
+
+	private static final Pattern NOME_PARTICAO   = Pattern.compile("lancamento_(\\d{4})");
+	private static final Pattern NOME_TABLESPACE = Pattern.compile("[a-z_][a-z0-9_]*");
+
+	private final JdbcTemplate jdbcTemplate;
+	private final int 		   anosFuturos;
+	private final int 		   anosAteArquivamento;
+	private final String 	   tablespaceArquivo;
+
+	public ParticaoLancamentoServiceImpl(JdbcTemplate jdbcTemplate,
+			                             @Value("${minhasfinancas.particoes.anos-futuros:2}") int anosFuturos,
+			                             @Value("${minhasfinancas.particoes.anos-arquivamento:10}") int anosAteArquivamento,
+			                             @Value("${minhasfinancas.particoes.tablespace-arquivo:}") String tablespaceArquivo)
+	{
+		super();
+		this.jdbcTemplate        = jdbcTemplate;
+		this.anosFuturos         = anosFuturos;
+		this.anosAteArquivamento = anosAteArquivamento;
+		this.tablespaceArquivo   = tablespaceArquivo;
+
+		if (!tablespaceArquivo.isEmpty() && !NOME_TABLESPACE.matcher(tablespaceArquivo).matches())
+		{
+			throw new IllegalArgumentException("Nome de tablespace inválido: " + tablespaceArquivo);
+		}
+	}
+
+	@Override
+	public void manterParticoes()
+	{
+
+		if (!particionada())
+		{
+			log.debug("financas.lancamento não é particionada, manutenção de partições ignorada");
+			return;
+		}
+
+		int 		 anoAtual   = LocalDate.now().getYear();
+		Set<Integer> existentes = obterAnosParticionados();
+
+		for (Integer ano : anosParaCriar(existentes, anoAtual, anosFuturos))
+		{
+			criarParticao(ano);
+		}
+
+		if (!tablespaceArquivo.isEmpty())
+		{
+			for (Integer ano : anosParaArquivar(existentes, anoAtual, anosAteArquivamento))
+			{
+				arquivarParticao(ano);
+			}
+		}
+
+	}
+
+	// anos, do atual até 'anosFuturos' à frente, que ainda não têm partição
+	public static List<Integer> anosParaCriar(Set<Integer> existentes, int anoAtual, int anosFuturos)
+	{
+		return IntStream.rangeClosed(anoAtual, anoAtual + anosFuturos)
+						.boxed()
+						.filter( ano -> !existentes.contains(ano) )
+						.collect(Collectors.toList());
+	}
+
+	// partições de anos encerrados há mais de 'anosAteArquivamento' anos
+	public static List<Integer> anosParaArquivar(Set<Integer> existentes, int anoAtual, int anosAteArquivamento)
+	{
+		return existentes.stream()
+						 .filter( ano -> ano < anoAtual - anosAteArquivamento )
+						 .sorted()
+						 .collect(Collectors.toList());
+	}
+
+	private boolean particionada()
+	{
+
+		String banco = jdbcTemplate.execute( (ConnectionCallback<String>) conexao -> conexao.getMetaData().getDatabaseProductName() );
+
+		if (!"PostgreSQL".equals(banco))
+		{
+			return false;
+		}
+
+		Integer quantidade = jdbcTemplate.queryForObject("select count(*) from pg_partitioned_table where partrelid = to_regclass('financas.lancamento')", Integer.class);
+
+		return quantidade != null && quantidade > 0;
+
+	}
+
+	private Set<Integer> obterAnosParticionados()
+	{
+
+		List<String> particoes = jdbcTemplate.queryForList("select c.relname from pg_inherits i"                    +
+				                                           " join pg_class c on c.oid = i.inhrelid"                 +
+				                                           " where i.inhparent = 'financas.lancamento'::regclass",
+				                                           String.class);
+
+		Set<Integer> anos = new TreeSet<>();
+
+		for (String particao : particoes)
+		{
+
+			Matcher matcher = NOME_PARTICAO.matcher(particao);
+
+			if (matcher.matches())
+			{
+				anos.add(Integer.valueOf(matcher.group(1)));
+			}
+
+		}
+
+		return anos;
+
+	}
+
+	private void criarParticao(int ano)
+	{
+
+		try
+		{
+			jdbcTemplate.execute("create table if not exists financas.lancamento_" + ano +
+					             " partition of financas.lancamento for values from (" + ano + ") to (" + (ano + 1) + ")");
+			log.info("partição financas.lancamento_{} criada", ano);
+		}
+		catch (DataAccessException e)
+		{
+			// a partição padrão já tem lançamentos do ano: precisam ser movidos manualmente (ver documentos/schema.sql)
+			log.error("não foi possível criar a partição financas.lancamento_{}", ano, e);
+		}
+
+	}
+
+	private void arquivarParticao(int ano)
+	{
+
+		String tablespaceAtual = jdbcTemplate.queryForObject("select coalesce(tablespace, '') from pg_tables where schemaname = 'financas' and tablename = ?",
+				                                             String.class,
+				                                             "lancamento_" + ano);
+
+		if (tablespaceArquivo.equals(tablespaceAtual))
+		{
+			return;
+		}
+
+		// reescreve a partição (e os seus índices) no outro tablespace, bloqueando-a durante a cópia
+		jdbcTemplate.execute("alter table financas.lancamento_" + ano + " set tablespace " + tablespaceArquivo);
+
+		for (String indice : jdbcTemplate.queryForList("select indexname from pg_indexes where schemaname = 'financas' and tablename = ?", String.class, "lancamento_" + ano))
+		{
+			jdbcTemplate.execute("alter index financas." + indice + " set tablespace " + tablespaceArquivo);
+		}
+
+		log.info("partição financas.lancamento_{} movida para o tablespace {}", ano, tablespaceArquivo);
+
+	}
+
+}
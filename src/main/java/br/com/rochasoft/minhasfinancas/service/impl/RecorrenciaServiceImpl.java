@@ -0,0 +1,315 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Recorrencia;
+import br.com.rochasoft.minhasfinancas.model.enums.Periodicidade;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.RecorrenciaRepository;
+import br.com.rochasoft.minhasfinancas.service.LancamentoService;
+import br.com.rochasoft.minhasfinancas.service.RecorrenciaService;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+public class RecorrenciaServiceImpl implements RecorrenciaService
+{
+
+	// recorrências processadas por transação na geração das ocorrências
+	private static final int TAMANHO_LOTE = 500;
+
+	private RecorrenciaRepository repository;
+	private LancamentoRepository  lancamentoRepository;
+	private LancamentoService     lancamentoService;
+	private TransactionTemplate   transactionTemplate;
+
+	public RecorrenciaServiceImpl(RecorrenciaRepository repository,
+			                      LancamentoRepository lancamentoRepository,
+			                      LancamentoService lancamentoService,
+			                      PlatformTransactionManager transactionManager)
+	{
+		super();
+		this.repository           = repository;
+		this.lancamentoRepository = lancamentoRepository;
+		this.lancamentoService    = lancamentoService;
+		this.transactionTemplate  = new TransactionTemplate(transactionManager);
+	}
+
+	// o lançamento modelo é a primeira ocorrência: a recorrência começa no período seguinte a ele
+	@Override
+	@Transactional
+	public Recorrencia criar(Lancamento modelo, Periodicidade periodicidade, Integer intervalo, Integer anoFinal, Integer mesFinal)
+	{
+
+		if (modelo.getIdRecorrencia() != null)
+		{
+			throw new RegraNegocioException("O lançamento já pertence a uma recorrência.");
+		}
+
+		if (periodicidade == null)
+		{
+			throw new RegraNegocioException("Informe a periodicidade (MENSAL ou ANUAL).");
+		}
+
+		if (intervalo == null)
+		{
+			intervalo = 1;
+		}
+
+		if (intervalo < 1)
+		{
+			throw new RegraNegocioException("Informe um intervalo maior que zero.");
+		}
+
+		if ((anoFinal == null) != (mesFinal == null) || (mesFinal != null && (mesFinal < 1 || mesFinal > 12)))
+		{
+			throw new RegraNegocioException("Informe o ano e o mês (1 a 12) da última ocorrência.");
+		}
+
+		YearMonth primeira = YearMonth.of(modelo.getAno(), modelo.getMes());
+
+		if (anoFinal != null && !YearMonth.of(anoFinal, mesFinal).isAfter(primeira))
+		{
+			throw new RegraNegocioException("A última ocorrência deve ser posterior ao lançamento modelo.");
+		}
+
+		Recorrencia recorrencia = Recorrencia.builder()
+									.usuario(modelo.getUsuario())
+									.idLancamentoModelo(modelo.getId())
+									.descricao(modelo.getDescricao())
+									.valor(modelo.getValor())
+									.moeda(modelo.getMoeda())
+									.idCategoria(modelo.getIdCategoria())
+									.tipo(modelo.getTipo())
+									.periodicidade(periodicidade)
+									.intervalo(intervalo)
+									.anoFinal(anoFinal)
+									.mesFinal(mesFinal)
+									.ativa(true)
+									.build();
+
+		recorrencia.setProximaOcorrencia(primeira.plusMonths(recorrencia.getMesesEntreOcorrencias()));
+
+		// sem nenhuma ocorrência até a data final
+		if (recorrencia.getUltimaOcorrencia() != null && recorrencia.getProximaOcorrencia().isAfter(recorrencia.getUltimaOcorrencia()))
+		{
+			throw new RegraNegocioException("Não há nenhuma ocorrência entre o lançamento modelo e a data final.");
+		}
+
+		recorrencia = repository.save(recorrencia);
+
+		lancamentoRepository.vincularRecorrencia(modelo.getId(), recorrencia.getId());
+		modelo.setIdRecorrencia(recorrencia.getId());
+
+		return recorrencia;
+
+	}
+
+	// as ocorrências já geradas são mantidas
+	@Override
+	@Transactional
+	public void encerrar(Recorrencia recorrencia)
+	{
+		recorrencia.setAtiva(false);
+		repository.save(recorrencia);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<Recorrencia> obterPorId(Long id)
+	{
+		return repository.findById(id);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Recorrencia> buscarPorUsuario(Long idUsuario)
+	{
+		return repository.buscarPorUsuario(idUsuario);
+	}
+
+	// gera as ocorrências de todas as recorrências até o mês informado, inclusive as atrasadas
+	// cada lote de recorrências é uma transação: as ocorrências são gravadas em lotes jdbc (LancamentoService.salvarLote)
+	// e a próxima ocorrência de cada recorrência avança na mesma transação,
+	// então uma falha no meio da execução desfaz o lote inteiro e a próxima execução gera as mesmas ocorrências, sem duplicar
+	// o índice único 'uk_lancamento_recorrencia' (id_recorrencia, ano, mes) garante isso mesmo em caso de erro de programação
+	// um lote com falha é gerado de novo recorrência por recorrência, para que uma única recorrência inválida
+	// (ex: moeda retirada do arquivo de cotações) não impeça a geração das demais em todas as execuções
+	@Override
+	public int gerarOcorrencias(YearMonth ate)
+	{
+
+		int geradas = 0;
+
+		while (true)
+		{
+
+			int[] lote;
+
+			try
+			{
+				lote = transactionTemplate.execute( status -> gerar(repository.obterPendentesParaGeracao(ate.getYear(), ate.getMonthValue(), PageRequest.of(0, TAMANHO_LOTE)), ate) );
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("falha na geração de um lote de ocorrências de lançamentos recorrentes até {}, gerando recorrência por recorrência", ate, e);
+				lote = gerarPorRecorrencia(ate);
+			}
+
+			geradas += lote[1];
+
+			// lote incompleto, ou nenhuma recorrência do lote avançou (todas com falha e mantidas ativas)
+			if (lote[0] < TAMANHO_LOTE || lote[2] == lote[0])
+			{
+				break;
+			}
+
+		}
+
+		if (geradas > 0)
+		{
+			log.info("{} ocorrência(s) de lançamentos recorrentes gerada(s) até {}", geradas, ate);
+		}
+
+		return geradas;
+
+	}
+
+	// cada recorrência do lote em uma transação própria
+	// a recorrência rejeitada pelas regras de negócio é encerrada, já que falharia em todas as execuções;
+	// nas demais falhas ela é mantida (e tentada de novo na próxima execução)
+	private int[] gerarPorRecorrencia(YearMonth ate)
+	{
+
+		List<Long> ids = transactionTemplate.execute( status -> repository.obterPendentesParaGeracao(ate.getYear(), ate.getMonthValue(), PageRequest.of(0, TAMANHO_LOTE))
+				.stream()
+				.map(Recorrencia::getId)
+				.collect(Collectors.toList()) );
+
+		int geradas = 0;
+		int falhas  = 0;
+
+		for (Long id : ids)
+		{
+			try
+			{
+				geradas += transactionTemplate.execute( status -> repository.obterPendenteParaGeracao(id, ate.getYear(), ate.getMonthValue())
+						.map( recorrencia -> gerar(Collections.singletonList(recorrencia), ate)[1] )
+						.orElse(0) );
+			}
+			catch (RegraNegocioException e)
+			{
+				log.error("recorrência {} encerrada: não foi possível gerar as ocorrências até {} ({})", id, ate, e.getMessage());
+				transactionTemplate.executeWithoutResult( status -> repository.findById(id).ifPresent( recorrencia -> recorrencia.setAtiva(false) ) );
+			}
+			catch (RuntimeException e)
+			{
+				log.error("falha na geração das ocorrências da recorrência {} até {}", id, ate, e);
+				falhas++;
+			}
+		}
+
+		return new int[] { ids.size(), geradas, falhas };
+
+	}
+
+	// retorna a quantidade de recorrências processadas, de ocorrências geradas e de falhas
+	private int[] gerar(List<Recorrencia> recorrencias, YearMonth ate)
+	{
+
+		List<Lancamento> ocorrencias = new ArrayList<>();
+		LocalDate 		 hoje        = LocalDate.now();
+		Set<String> 	 gravadas    = obterOcorrenciasGravadas(recorrencias);
+
+		for (Recorrencia recorrencia : recorrencias)
+		{
+
+			YearMonth ultima 	 = recorrencia.getUltimaOcorrencia();
+			YearMonth limite 	 = ultima != null && ultima.isBefore(ate) ? ultima : ate;
+			YearMonth ocorrencia = recorrencia.getProximaOcorrencia();
+
+			while (!ocorrencia.isAfter(limite))
+			{
+
+				// o mês já tem a ocorrência (gravada antes de o lançamento poder ser desvinculado ao mudar de mês)
+				if (gravadas.contains(chave(recorrencia.getId(), ocorrencia.getYear(), ocorrencia.getMonthValue())))
+				{
+					ocorrencia = ocorrencia.plusMonths(recorrencia.getMesesEntreOcorrencias());
+					continue;
+				}
+
+				ocorrencias.add(Lancamento.builder()
+								.descricao(recorrencia.getDescricao())
+								.ano(ocorrencia.getYear())
+								.mes(ocorrencia.getMonthValue())
+								.valor(recorrencia.getValor())
+								.moeda(recorrencia.getMoeda())
+								.idCategoria(recorrencia.getIdCategoria())
+								.tipo(recorrencia.getTipo())
+								.usuario(recorrencia.getUsuario())
+								.idRecorrencia(recorrencia.getId())
+								.dataCadastro(hoje)
+								.build());
+
+				ocorrencia = ocorrencia.plusMonths(recorrencia.getMesesEntreOcorrencias());
+
+			}
+
+			recorrencia.setProximaOcorrencia(ocorrencia);
+
+			if (ultima != null && ocorrencia.isAfter(ultima))
+			{
+				recorrencia.setAtiva(false);
+			}
+
+		}
+
+		if (!ocorrencias.isEmpty())
+		{
+			lancamentoService.salvarLote(ocorrencias);
+		}
+
+		return new int[] { recorrencias.size(), ocorrencias.size(), 0 };
+
+	}
+
+	// uma consulta por lote, a partir do ano da ocorrência mais antiga a gerar
+	private Set<String> obterOcorrenciasGravadas(List<Recorrencia> recorrencias)
+	{
+
+		if (recorrencias.isEmpty())
+		{
+			return new HashSet<>();
+		}
+
+		int anoInicial = recorrencias.stream().mapToInt( recorrencia -> recorrencia.getProximaOcorrencia().getYear() ).min().getAsInt();
+
+		return lancamentoRepository.obterOcorrencias(recorrencias.stream().map(Recorrencia::getId).collect(Collectors.toList()), anoInicial)
+				.stream()
+				.map( ocorrencia -> chave(ocorrencia.getIdRecorrencia(), ocorrencia.getAno(), ocorrencia.getMes()) )
+				.collect(Collectors.toSet());
+
+	}
+
+	private static String chave(Long idRecorrencia, int ano, int mes)
+	{
+		return idRecorrencia + "/" + ano + "/" + mes;
+	}
+
+}
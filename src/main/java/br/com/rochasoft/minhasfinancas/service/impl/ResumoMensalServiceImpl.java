@@ -0,0 +1,179 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensal;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensalId;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorMoeda;
+import br.com.rochasoft.minhasfinancas.model.repository.ResumoMensalRepository;
+import br.com.rochasoft.minhasfinancas.service.CotacaoService;
+import br.com.rochasoft.minhasfinancas.service.ResumoMensalService;
+import br.com.rochasoft.minhasfinancas.service.event.AlteracaoLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.LancamentoAlteradoEvent;
+
+@Service
+public class ResumoMensalServiceImpl implements ResumoMensalService
+{
+
+	private ResumoMensalRepository repository;
+	private CotacaoService 		   cotacaoService;
+
+	public ResumoMensalServiceImpl(ResumoMensalRepository repository, CotacaoService cotacaoService)
+	{
+		super();
+		this.repository     = repository;
+		this.cotacaoService = cotacaoService;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<ResumoMensal> buscar(Long idUsuario, Integer anoInicial, Integer anoFinal)
+	{
+
+		if (anoInicial > anoFinal)
+		{
+			throw new RegraNegocioException("O ano inicial deve ser menor ou igual ao ano final.");
+		}
+
+		return repository.buscar(idUsuario, anoInicial, anoFinal);
+
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<ResumoMensalId> obterChavesEmOutraMoeda()
+	{
+		return repository.obterChavesEmOutraMoeda();
+	}
+
+	// os valores são convertidos na gravação, com a cotação da época: depois de uma alteração no arquivo de cotações
+	// o resumo é recalculado a partir dos lançamentos, com o registro bloqueado para não perder uma soma concorrente
+	@Override
+	@Transactional
+	public boolean recalcular(ResumoMensalId chave)
+	{
+
+		Optional<ResumoMensal> resumo = repository.obterParaAtualizacao(chave.getIdUsuario(), chave.getAno(), chave.getMes(), chave.getTipo(), chave.getStatus());
+
+		// chave ainda sem resumo: o primeiro somar já calcula a partir dos lançamentos
+		if (!resumo.isPresent())
+		{
+			return false;
+		}
+
+		BigDecimal valor = converter(repository.calcular(chave.getIdUsuario(), chave.getAno(), chave.getMes(), chave.getTipo(), chave.getStatus()));
+
+		if (resumo.get().getValor().compareTo(valor) == 0)
+		{
+			return false;
+		}
+
+		resumo.get().setValor(valor);
+
+		return true;
+
+	}
+
+	// atualiza os resumos na mesma transação em que os lançamentos foram gravados
+	@EventListener
+	@Transactional
+	public void aoAlterarLancamentos(LancamentoAlteradoEvent evento)
+	{
+
+		// acumula a diferença por chave para fazer apenas um update por chave
+		Map<ResumoMensalId, ResumoMensal> diferencas = new HashMap<>();
+
+		for (AlteracaoLancamento alteracao : evento.getAlteracoes())
+		{
+			acumular(diferencas, alteracao.getAnterior(), true);
+			acumular(diferencas, alteracao.getAtual(), false);
+		}
+
+		for (ResumoMensal diferenca : diferencas.values())
+		{
+			if (diferenca.getValor().signum() != 0 || diferenca.getQuantidade() != 0)
+			{
+				somar(diferenca);
+			}
+		}
+
+	}
+
+	private void acumular(Map<ResumoMensalId, ResumoMensal> diferencas, SituacaoLancamento situacao, boolean remover)
+	{
+
+		if (situacao == null || situacao.getIdUsuario() == null || situacao.getTipo() == null || situacao.getStatus() == null)
+		{
+			return;
+		}
+
+		ResumoMensalId chave = new ResumoMensalId(situacao.getIdUsuario(), situacao.getAno(), situacao.getMes(), situacao.getTipo(), situacao.getStatus());
+
+		ResumoMensal diferenca = diferencas.computeIfAbsent(chave, c -> new ResumoMensal(c.getIdUsuario(), c.getAno(), c.getMes(), c.getTipo(), c.getStatus(), BigDecimal.ZERO, 0l));
+
+		// os resumos são mantidos na moeda do usuário, com a cotação do mês do lançamento
+		BigDecimal valor = situacao.getValor() != null 
+				? cotacaoService.converter(situacao.getValor(), situacao.getMoeda(), situacao.getMoedaUsuario(), situacao.getAno(), situacao.getMes()) 
+				: BigDecimal.ZERO;
+
+		diferenca.setValor(remover ? diferenca.getValor().subtract(valor) : diferenca.getValor().add(valor));
+		diferenca.setQuantidade(diferenca.getQuantidade() + (remover ? -1 : 1));
+
+	}
+
+	private void somar(ResumoMensal diferenca)
+	{
+
+		int alterados = repository.somar(diferenca.getIdUsuario(),
+				                         diferenca.getAno(),
+				                         diferenca.getMes(),
+				                         diferenca.getTipo(),
+				                         diferenca.getStatus(),
+				                         diferenca.getValor(),
+				                         diferenca.getQuantidade());
+
+		if (alterados == 0)
+		{
+			// chave ainda sem resumo registrado (ex: primeiro lançamento do mês, ou anteriores à criação da tabela)
+			// o cálculo a partir dos lançamentos já considera a alteração atual, que foi gravada na mesma transação
+			// se outra transação registrar a chave antes (job de recorrências, importação e POST no mesmo mês), soma apenas a diferença
+			List<TotalPorMoeda> totais = repository.calcular(diferenca.getIdUsuario(), diferenca.getAno(), diferenca.getMes(), diferenca.getTipo(), diferenca.getStatus());
+
+			if (totais.isEmpty())
+			{
+				return;
+			}
+
+			BigDecimal valor 	  = converter(totais);
+			long 	   quantidade = totais.stream().mapToLong(TotalPorMoeda::getQuantidade).sum();
+
+			repository.inserirOuSomar(new ResumoMensal(diferenca.getIdUsuario(), diferenca.getAno(), diferenca.getMes(), diferenca.getTipo(), diferenca.getStatus(), valor, quantidade), diferenca);
+		}
+
+	}
+
+	private BigDecimal converter(List<TotalPorMoeda> totais)
+	{
+
+		BigDecimal valor = BigDecimal.ZERO;
+
+		for (TotalPorMoeda total : totais)
+		{
+			valor = valor.add(cotacaoService.converter(total));
+		}
+
+		return valor;
+
+	}
+
+}
@@ -0,0 +1,205 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.rochasoft.minhasfinancas.model.entity.SaldoUsuario;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorMoeda;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalPorUsuarioETipo;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.SaldoUsuarioRepository;
+import br.com.rochasoft.minhasfinancas.service.CotacaoService;
+import br.com.rochasoft.minhasfinancas.service.SaldoUsuarioService;
+import br.com.rochasoft.minhasfinancas.service.event.AlteracaoLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.LancamentoAlteradoEvent;
+
+@Service
+public class SaldoUsuarioServiceImpl implements SaldoUsuarioService
+{
+
+	private SaldoUsuarioRepository repository;
+	private LancamentoRepository   lancamentoRepository;
+	private CotacaoService 		   cotacaoService;
+
+	public SaldoUsuarioServiceImpl(SaldoUsuarioRepository repository, LancamentoRepository lancamentoRepository, CotacaoService cotacaoService)
+	{
+		super();
+		this.repository           = repository;
+		this.lancamentoRepository = lancamentoRepository;
+		this.cotacaoService       = cotacaoService;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public BigDecimal obterSaldo(Long idUsuario)
+	{
+
+		// leitura pela chave primária
+		// se o usuário ainda não tiver saldo registrado, calcula a partir dos lançamentos
+		return repository
+				.findById(idUsuario)
+				.map(SaldoUsuario::getValor)
+				.orElseGet( () -> calcularSaldo(idUsuario) );
+
+	}
+
+	@Override
+	@Transactional
+	public BigDecimal recalcular(Long idUsuario)
+	{
+
+		// bloqueia o saldo antes de somar os lançamentos
+		// gravações concorrentes aguardam o fim do recálculo e depois aplicam a sua diferença sobre o valor correto
+		SaldoUsuario saldoUsuario = repository
+									.obterParaAtualizacao(idUsuario)
+									.orElseGet( () -> SaldoUsuario.builder().idUsuario(idUsuario).build() );
+
+		saldoUsuario.setValor(calcularSaldo(idUsuario));
+		saldoUsuario.setVersao(saldoUsuario.getVersao() + 1);
+
+		repository.save(saldoUsuario);
+
+		return saldoUsuario.getValor();
+
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Long> obterUsuariosComSaldoDivergente()
+	{
+
+		// saldo esperado de cada usuário, calculado a partir de 'financas.lancamento'
+		Map<Long, BigDecimal> saldosEsperados = new HashMap<>();
+
+		for (TotalPorUsuarioETipo total : lancamentoRepository.obterTotaisPorUsuarioETipo(StatusLancamento.EFETIVADO))
+		{
+			BigDecimal valor = total.getTipo() == TipoLancamento.RECEITA ? total.getTotal() : total.getTotal().negate();
+			saldosEsperados.merge(total.getIdUsuario(), valor, BigDecimal::add);
+		}
+
+		for (TotalPorMoeda total : lancamentoRepository.obterTotaisEmOutraMoeda(StatusLancamento.EFETIVADO))
+		{
+			saldosEsperados.merge(total.getIdUsuario(), converter(total), BigDecimal::add);
+		}
+
+		List<Long> divergentes = new ArrayList<>();
+
+		for (SaldoUsuario saldoUsuario : repository.findAll())
+		{
+
+			BigDecimal esperado = saldosEsperados.remove(saldoUsuario.getIdUsuario());
+
+			if (esperado == null) esperado = BigDecimal.ZERO;
+
+			if (saldoUsuario.getValor().compareTo(esperado) != 0)
+			{
+				divergentes.add(saldoUsuario.getIdUsuario());
+			}
+
+		}
+
+		// usuários com lançamentos efetivados e sem saldo registrado
+		divergentes.addAll(saldosEsperados.keySet());
+
+		return divergentes;
+
+	}
+
+	// atualiza os saldos na mesma transação em que os lançamentos foram gravados
+	// a versão de todo usuário com lançamentos alterados aumenta, mesmo sem diferença no saldo (descrição, pendentes etc.)
+	@EventListener
+	@Transactional
+	public void aoAlterarLancamentos(LancamentoAlteradoEvent evento)
+	{
+
+		// acumula a diferença por usuário para fazer apenas um update por usuário
+		Map<Long, BigDecimal> diferencas = new HashMap<>();
+
+		for (AlteracaoLancamento alteracao : evento.getAlteracoes())
+		{
+			acumular(diferencas, alteracao.getAnterior(), true);
+			acumular(diferencas, alteracao.getAtual(), false);
+		}
+
+		diferencas.forEach(this::somar);
+
+	}
+
+	private void acumular(Map<Long, BigDecimal> diferencas, SituacaoLancamento situacao, boolean remover)
+	{
+
+		if (situacao == null || situacao.getIdUsuario() == null)
+		{
+			return;
+		}
+
+		// o saldo é mantido na moeda do usuário, com a cotação do mês do lançamento
+		BigDecimal valor = cotacaoService.converter(situacao.getContribuicaoSaldo(),
+				                                    situacao.getMoeda(),
+				                                    situacao.getMoedaUsuario(),
+				                                    situacao.getAno(),
+				                                    situacao.getMes());
+
+		diferencas.merge(situacao.getIdUsuario(), remover ? valor.negate() : valor, BigDecimal::add);
+
+	}
+
+	private void somar(Long idUsuario, BigDecimal valor)
+	{
+
+		if (repository.somarValor(idUsuario, valor) == 0)
+		{
+			// usuário ainda sem saldo registrado (ex: primeiro lançamento efetivado, ou anteriores à criação da tabela)
+			// o cálculo completo já considera a alteração atual, que foi gravada na mesma transação
+			// se outra transação registrar o saldo antes (primeiros lançamentos simultâneos), soma apenas a alteração atual
+			repository.inserirOuSomar(idUsuario, calcularSaldo(idUsuario), valor);
+		}
+
+	}
+
+	private BigDecimal calcularSaldo(Long idUsuario)
+	{
+
+		// total de receitas
+		BigDecimal receitas = lancamentoRepository.obterSaldoPorTipoLancamentoEUsuarioEStatus(idUsuario, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO);
+
+		// total de despesas
+		BigDecimal despesas = lancamentoRepository.obterSaldoPorTipoLancamentoEUsuarioEStatus(idUsuario, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO);
+
+		if (receitas == null) receitas = BigDecimal.ZERO;
+		if (despesas == null) despesas = BigDecimal.ZERO;
+
+		BigDecimal saldo = receitas.subtract(despesas);
+
+		// lançamentos em outras moedas, convertidos pela cotação de cada mês (sem consultas além da soma agrupada)
+		for (TotalPorMoeda total : lancamentoRepository.obterTotaisEmOutraMoeda(idUsuario, StatusLancamento.EFETIVADO))
+		{
+			saldo = saldo.add(converter(total));
+		}
+
+		return saldo;
+
+	}
+
+	// total convertido para a moeda do usuário, com o sinal da contribuição para o saldo
+	private BigDecimal converter(TotalPorMoeda total)
+	{
+
+		BigDecimal valor = cotacaoService.converter(total);
+
+		return total.getTipo() == TipoLancamento.RECEITA ? valor : valor.negate();
+
+	}
+
+}
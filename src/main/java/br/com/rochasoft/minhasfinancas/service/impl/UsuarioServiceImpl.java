@@ -1,16 +1,29 @@
 package br.com.rochasoft.minhasfinancas.service.impl;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.transaction.Transactional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import br.com.rochasoft.minhasfinancas.exception.ErroAutenticacaoException;
 import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
 import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
 import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepository;
+import br.com.rochasoft.minhasfinancas.service.BloqueioLoginService;
+import br.com.rochasoft.minhasfinancas.service.CotacaoService;
 import br.com.rochasoft.minhasfinancas.service.UsuarioService;
 
 @Service 
@@ -19,43 +32,148 @@ import br.com.rochasoft.minhasfinancas.service.UsuarioService;
 public class UsuarioServiceImpl implements UsuarioService 
 {
 	
-	private UsuarioRepository repository;	
+	private UsuarioRepository 		repository;	
+	private PasswordEncoder 		passwordEncoder;
+	private BloqueioLoginService 	bloqueioLoginService;
+	private Executor 				executorSenha;
+	private CotacaoService 			cotacaoService;
+	
+	// hash comparado quando o e-mail não existe, para que o tempo da resposta não indique se o usuário existe
+	private String 					hashFicticio;
 
 	@Autowired // indica que o spring irá injetar a variável automaticamente a partir do container spring	
-	public UsuarioServiceImpl(UsuarioRepository repository) 
+	public UsuarioServiceImpl(UsuarioRepository repository, 
+			                  PasswordEncoder passwordEncoder, 
+			                  BloqueioLoginService bloqueioLoginService,
+			                  @Qualifier("executorSenha") Executor executorSenha,
+			                  CotacaoService cotacaoService) 
 	{
 		super();
-		this.repository = repository;
+		this.repository           = repository;
+		this.passwordEncoder      = passwordEncoder;
+		this.bloqueioLoginService = bloqueioLoginService;
+		this.executorSenha        = executorSenha;
+		this.cotacaoService       = cotacaoService;
+		this.hashFicticio         = passwordEncoder.encode("senha-ficticia");
 	}
 
 	@Override
-	public Usuario autenticar(String email, String senha) 
+	public CompletableFuture<Usuario> autenticar(String email, String senha) 
 	{
 
+		// e-mails com muitas falhas recentes são rejeitados antes de qualquer acesso ao banco
+		if (bloqueioLoginService.estaBloqueado(email))
+		{
+			return falha(new ErroAutenticacaoException("Muitas tentativas inválidas. Tente novamente mais tarde."));
+		}
+		
+		// a verificação da senha (bcrypt) roda no executor de senhas, liberando a thread da requisição
+		try
+		{
+			return CompletableFuture.supplyAsync( () -> verificarCredenciais(email, senha), executorSenha );
+		}
+		catch (RejectedExecutionException e)
+		{
+			return falha(e);
+		}
+		
+	}
+	
+	private Usuario verificarCredenciais(String email, String senha)
+	{
+		
 		Optional<Usuario> usuario = repository.findByEmail(email);
 		
 		if (!usuario.isPresent())
 		{
+			passwordEncoder.matches(senha == null ? "" : senha, hashFicticio);
+			bloqueioLoginService.registrarFalha(email);
 			throw new ErroAutenticacaoException("Usuário não encontrado.");
 		}
 		
-		if (!usuario.get().getSenha().equals(senha))
+		if (!senhaConfere(usuario.get(), senha))
 		{
+			bloqueioLoginService.registrarFalha(email);
 			throw new ErroAutenticacaoException("Senha inválida.");
 		}
 		
+		bloqueioLoginService.registrarSucesso(email);
+		
 		return usuario.get();
 		
 	}
+	
+	private boolean senhaConfere(Usuario usuario, String senha)
+	{
+		
+		String senhaGravada = usuario.getSenha();
+		
+		if (senhaGravada == null || senha == null)
+		{
+			return false;
+		}
+		
+		if (ehHash(senhaGravada))
+		{
+			return passwordEncoder.matches(senha, senhaGravada);
+		}
+		
+		// usuário cadastrado antes do hash das senhas: compara o texto e, se conferir, grava o hash
+		boolean confere = MessageDigest.isEqual(senhaGravada.getBytes(StandardCharsets.UTF_8), senha.getBytes(StandardCharsets.UTF_8));
+		
+		if (confere)
+		{
+			String hash = passwordEncoder.encode(senha);
+			repository.atualizarSenha(usuario.getId(), usuario.getEmail(), hash);
+			usuario.setSenha(hash);
+		}
+		
+		return confere;
+		
+	}
+	
+	// hash bcrypt: '$2a$', '$2b$' ou '$2y$' seguido do custo, do salt e do hash (60 caracteres)
+	private boolean ehHash(String senhaGravada)
+	{
+		return senhaGravada.length() == 60 && senhaGravada.startsWith("$2");
+	}
+	
+	private static <T> CompletableFuture<T> falha(Throwable erro)
+	{
+		
+		CompletableFuture<T> resultado = new CompletableFuture<>();
+		resultado.completeExceptionally(erro);
+		
+		return resultado;
+		
+	}
 
 	@Override
 	@Transactional // cria uma transação, executa o método e comita
+	@Caching(evict = { @CacheEvict(cacheNames = "usuarios",         key = "#result.id", condition = "#result != null"),
+			           @CacheEvict(cacheNames = "usuariosPorEmail", key = "#usuario.email") })
 	public Usuario salvarUsuario(Usuario usuario) 
 	{
 
 		validarEmail(usuario.getEmail());
 		
-		return repository.save(usuario);
+		// a moeda do usuário precisa ter cotação para a conversão dos lançamentos em outras moedas
+		cotacaoService.validarMoeda(usuario.getMoeda());
+		
+		if (usuario.getSenha() != null)
+		{
+			usuario.setSenha(passwordEncoder.encode(usuario.getSenha()));
+		}
+		
+		try
+		{
+			return repository.save(usuario);
+		}
+		catch (DataIntegrityViolationException e)
+		{
+			// cadastro concorrente com o mesmo e-mail, barrado pelo índice único 'uk_usuario_email'
+			throw new RegraNegocioException("Já existe um usuário cadastrado com este e-mail");
+		}
 		
 	}
 
@@ -73,6 +191,7 @@ public class UsuarioServiceImpl implements UsuarioService
 	}
 
 	@Override
+	@Cacheable(cacheNames = "usuarios", unless = "#result == null") // não guarda no cache quando o usuário não existe
 	public Optional<Usuario> obterPorId(Long id) 
 	{
 		return repository.findById(id);
@@ -0,0 +1,34 @@
+package br.com.rochasoft.minhasfinancas.service.impl;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.rochasoft.minhasfinancas.model.repository.SaldoUsuarioRepository;
+import br.com.rochasoft.minhasfinancas.replica.ContextoRoteamento;
+import br.com.rochasoft.minhasfinancas.service.VersaoLancamentosService;
+
+// versão dos lançamentos de cada usuário, utilizada como ETag das consultas
+// gravada em 'saldo_usuario.versao' e incrementada na mesma transação da gravação dos lançamentos (SaldoUsuarioServiceImpl),
+// então é a mesma em todas as instâncias da aplicação e nunca fica visível antes dos dados que ela representa
+// leitura pela chave primária, sempre no banco principal (a réplica pode estar atrasada)
+@Service
+public class VersaoLancamentosServiceImpl implements VersaoLancamentosService
+{
+
+	private SaldoUsuarioRepository repository;
+
+	public VersaoLancamentosServiceImpl(SaldoUsuarioRepository repository)
+	{
+		super();
+		this.repository = repository;
+	}
+
+	// usuário sem saldo registrado: nenhum lançamento gravado desde a criação da tabela
+	@Override
+	@Transactional(readOnly = true)
+	public String obterVersao(Long idUsuario)
+	{
+		return String.valueOf(ContextoRoteamento.noPrincipal( () -> repository.obterVersao(idUsuario) ).orElse(0l));
+	}
+
+}
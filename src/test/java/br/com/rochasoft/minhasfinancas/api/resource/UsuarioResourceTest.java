@@ -1,5 +1,9 @@
 package br.com.rochasoft.minhasfinancas.api.resource;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,6 +17,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -23,8 +28,10 @@ import br.com.rochasoft.minhasfinancas.api.dto.UsuarioDTO;
 import br.com.rochasoft.minhasfinancas.exception.ErroAutenticacaoException;
 import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
 import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.service.IdempotenciaService;
 import br.com.rochasoft.minhasfinancas.service.LancamentoService;
 import br.com.rochasoft.minhasfinancas.service.UsuarioService;
+import br.com.rochasoft.minhasfinancas.service.VersaoLancamentosService;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test") 
@@ -44,6 +51,20 @@ public class UsuarioResourceTest
 	@MockBean
 	LancamentoService lancamentoService;
 	
+	@MockBean
+	VersaoLancamentosService versaoLancamentosService;
+	
+	@MockBean
+	IdempotenciaService idempotenciaService;
+	
+	@BeforeEach
+	public void setUp()
+	{
+		// sem chave de idempotência nas requisições dos testes: apenas executa a gravação
+		Mockito.when(idempotenciaService.executar(Mockito.anyString(), Mockito.isNull(), Mockito.any(), Mockito.any()))
+			   .thenAnswer( invocacao -> invocacao.getArgument(3, Supplier.class).get() );
+	}
+	
 	@Test
 	@DisplayName("Deve autenticar um usuário")
 	public void deveAutenticarUmUsuario() throws Exception
@@ -58,7 +79,7 @@ public class UsuarioResourceTest
 		
 		Usuario usuario = Usuario.builder().id(1l).email(email).senha(senha).nome("anderson").build();
 		
-		Mockito.when(service.autenticar(email, senha)).thenReturn(usuario);
+		Mockito.when(service.autenticar(email, senha)).thenReturn(CompletableFuture.completedFuture(usuario));
 		
 		String json = new ObjectMapper().writeValueAsString(dto);
 		
@@ -68,9 +89,15 @@ public class UsuarioResourceTest
 									.accept(MediaType.APPLICATION_JSON) // aceita json
 									.contentType(MediaType.APPLICATION_JSON) // envia json
 									.content(json);
+		
+		// a autenticação é assíncrona: a primeira chamada inicia o processamento e o 'asyncDispatch' obtém a resposta
+		MvcResult resultado = mvc
+								.perform(request)
+								.andExpect(MockMvcResultMatchers.request().asyncStarted())
+								.andReturn();
 											
 		mvc
-		.perform(request)
+		.perform(MockMvcRequestBuilders.asyncDispatch(resultado))
 		.andExpect(MockMvcResultMatchers.status().isOk())
 		.andExpect(MockMvcResultMatchers.jsonPath("id").value(usuario.getId())) 
 		.andExpect(MockMvcResultMatchers.jsonPath("nome").value(usuario.getNome()))
@@ -90,7 +117,9 @@ public class UsuarioResourceTest
 		
 		UsuarioDTO dto = UsuarioDTO.builder().email(email).senha(senha).nome("anderson").build();
 			
-		Mockito.when(service.autenticar(email, senha)).thenThrow(ErroAutenticacaoException.class);
+		CompletableFuture<Usuario> erro = new CompletableFuture<>();
+		erro.completeExceptionally(new ErroAutenticacaoException("Senha inválida."));
+		Mockito.when(service.autenticar(email, senha)).thenReturn(erro);
 		
 		String json = new ObjectMapper().writeValueAsString(dto);
 		
@@ -100,9 +129,14 @@ public class UsuarioResourceTest
 									.accept(MediaType.APPLICATION_JSON) // aceita json
 									.contentType(MediaType.APPLICATION_JSON) // envia json
 									.content(json);
+		
+		MvcResult resultado = mvc
+								.perform(request)
+								.andExpect(MockMvcResultMatchers.request().asyncStarted())
+								.andReturn();
 											
 		mvc
-		.perform(request)
+		.perform(MockMvcRequestBuilders.asyncDispatch(resultado))
 		.andExpect(MockMvcResultMatchers.status().isBadRequest());
 		
 	}
@@ -171,4 +205,27 @@ public class UsuarioResourceTest
 		
 	}	
 	
+	@Test
+	@DisplayName("Deve retornar NotModified ao consultar o saldo sem alterações desde a última consulta")
+	public void deveRetornarNotModifiedAoConsultarSaldoSemAlteracoes() throws Exception
+	{
+		
+		// cenário
+		Mockito.when(versaoLancamentosService.obterVersao(1l)).thenReturn("abc-1");
+		
+		// execução
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+									.get(API.concat("/1/saldo"))
+									.header("If-None-Match", "\"abc-1\"");
+		
+		mvc
+		.perform(request)
+		.andExpect(MockMvcResultMatchers.status().isNotModified())
+		.andExpect(MockMvcResultMatchers.header().string("ETag", "\"abc-1\""));
+		
+		// verificação: o saldo não foi consultado
+		Mockito.verifyNoInteractions(lancamentoService, service);
+		
+	}
+	
 }
@@ -2,6 +2,10 @@ package br.com.rochasoft.minhasfinancas.model.repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.DisplayName;
@@ -12,6 +16,7 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -19,6 +24,8 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import static org.assertj.core.api.Assertions.*;
 
 import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
 import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
 import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
 
@@ -37,6 +44,8 @@ import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
 public class LancamentoRepositoryTest 
 {
 	
+	// buscas sem filtro de categoria
+	private static final List<Long> SEM_CATEGORIAS = Collections.singletonList(-1l);
 	
 	@Autowired
 	LancamentoRepository repository;
@@ -65,6 +74,7 @@ public class LancamentoRepositoryTest
 				.mes(1)
 				.descricao("teste")
 				.valor(BigDecimal.valueOf(10))
+				.moeda("BRL")
 				.tipo(TipoLancamento.RECEITA)
 				.status(StatusLancamento.PENDENTE)
 				.dataCadastro(LocalDate.now())
@@ -146,4 +156,109 @@ public class LancamentoRepositoryTest
 		assertThat(lancamentoEncontrado.isPresent()).isTrue();
 		
 	}		
+	
+	@Test
+	@DisplayName("Deve buscar a página seguinte ao cursor em ordem de ano, mês e id")
+	public void deveBuscarPaginaAPartirDoCursor()
+	{
+		
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Lancamento janeiro  = criarPersistirLancamento(usuario, 2020, 1, "Aluguel");
+		Lancamento fevereiro = criarPersistirLancamento(usuario, 2020, 2, "Salário");
+		Lancamento marco     = criarPersistirLancamento(usuario, 2020, 3, "aluguel garagem");
+		
+		// execução
+		List<DadosLancamento> primeiraPagina = repository.buscarPagina(usuario.getId(), 1, 9999, null, "%", true, SEM_CATEGORIAS, null, 0, 0, 0l, PageRequest.of(0, 2));
+		List<DadosLancamento> segundaPagina  = repository.buscarPagina(usuario.getId(), 1, 9999, null, "%", true, SEM_CATEGORIAS, null, 
+				                                                       fevereiro.getAno(), fevereiro.getMes(), fevereiro.getId(), PageRequest.of(0, 2));
+		List<DadosLancamento> porDescricao   = repository.buscarPagina(usuario.getId(), 1, 9999, null, "%aluguel%", true, SEM_CATEGORIAS, null, 0, 0, 0l, PageRequest.of(0, 10));
+		
+		// verificações
+		assertThat(primeiraPagina).extracting(DadosLancamento::getId).containsExactly(janeiro.getId(), fevereiro.getId());
+		assertThat(segundaPagina).extracting(DadosLancamento::getId).containsExactly(marco.getId());
+		assertThat(porDescricao).extracting(DadosLancamento::getId).containsExactly(janeiro.getId(), marco.getId());
+		
+	}
+	
+	@Test
+	@DisplayName("Deve buscar apenas os lançamentos do usuário pelo ano, mês e parte da descrição")
+	public void deveBuscarLancamentosDoUsuarioPorAnoMesEDescricao()
+	{
+		
+		// cenário
+		Usuario usuario 	 = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Usuario outroUsuario = entityManager.persist(Usuario.builder().nome("outro").email("outro@email.com").build());
+		Lancamento esperado  = criarPersistirLancamento(usuario, 2021, 3, "Conta de LUZ");
+		criarPersistirLancamento(usuario, 2021, 4, "conta de luz");
+		criarPersistirLancamento(outroUsuario, 2021, 3, "conta de luz");
+		
+		// execução
+		List<DadosLancamento> resultado = repository.buscar(usuario.getId(), 2021, 2021, 3, "%luz%", true, SEM_CATEGORIAS, null);
+		
+		// verificações
+		assertThat(resultado).extracting(DadosLancamento::getId).containsExactly(esperado.getId());
+		assertThat(resultado.get(0).getIdUsuario()).isEqualTo(usuario.getId());
+		
+	}
+	
+	@Test
+	@DisplayName("Deve percorrer os lançamentos do usuário pelo cursor jdbc")
+	public void devePercorrerLancamentosDoUsuario()
+	{
+		
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		criarPersistirLancamento(usuario, 2021, 5, "mercado");
+		criarPersistirLancamento(usuario, 2020, 7, "mercado");
+		criarPersistirLancamento(usuario, 2021, 5, "farmácia");
+		entityManager.flush();
+		
+		Lancamento lancamentoFiltro = Lancamento.builder().usuario(usuario).ano(2021).descricao("MERC").build();
+		
+		// execução
+		List<DadosLancamento> percorridos = new ArrayList<>();
+		repository.percorrer(lancamentoFiltro, percorridos::add);
+		
+		// verificações
+		assertThat(percorridos).hasSize(1);
+		assertThat(percorridos.get(0).getMes()).isEqualTo(5);
+		assertThat(percorridos.get(0).getIdUsuario()).isEqualTo(usuario.getId());
+		
+	}
+	
+	@Test
+	@DisplayName("Deve percorrer os lançamentos do usuário no período informado")
+	public void devePercorrerLancamentosDoPeriodo()
+	{
+		
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		criarPersistirLancamento(usuario, 2020, 10, "fora do período");
+		criarPersistirLancamento(usuario, 2021,  2, "fevereiro");
+		criarPersistirLancamento(usuario, 2020, 11, "novembro");
+		criarPersistirLancamento(usuario, 2021,  3, "fora do período");
+		entityManager.flush();
+		
+		// execução
+		List<DadosLancamento> percorridos = new ArrayList<>();
+		repository.percorrer(usuario.getId(), YearMonth.of(2020, 11), YearMonth.of(2021, 2), percorridos::add);
+		
+		// verificações: apenas os meses do período, em ordem cronológica
+		assertThat(percorridos).extracting(DadosLancamento::getDescricao).containsExactly("novembro", "fevereiro");
+		
+	}
+	
+	private Lancamento criarPersistirLancamento(Usuario usuario, Integer ano, Integer mes, String descricao) 
+	{
+		
+		Lancamento lancamento = criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setAno(ano);
+		lancamento.setMes(mes);
+		lancamento.setDescricao(descricao);
+		
+		return entityManager.persist(lancamento);
+		
+	}
 }
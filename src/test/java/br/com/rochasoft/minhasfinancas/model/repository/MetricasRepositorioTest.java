@@ -0,0 +1,56 @@
+package br.com.rochasoft.minhasfinancas.model.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import br.com.rochasoft.minhasfinancas.config.MetricasConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// verifica o tempo das chamadas aos repositórios registrado pelo MetricasConfiguration
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ MetricasConfiguration.class, SimpleMeterRegistry.class })
+public class MetricasRepositorioTest
+{
+
+	@Autowired
+	UsuarioRepository repository;
+
+	@Autowired
+	MeterRegistry registry;
+
+	@Test
+	@DisplayName("Deve registrar o tempo de cada chamada por repositório e método")
+	public void deveRegistrarTempoDasChamadas()
+	{
+
+		// execução
+		repository.existsByEmail("usuario@email.com");
+		repository.existsByEmail("outro@email.com");
+
+		// verificação
+		Timer timer = registry.find("repositorio.chamadas")
+							  .tag("repositorio", "UsuarioRepository")
+							  .tag("metodo", "existsByEmail")
+							  .tag("resultado", "SUCESSO")
+							  .timer();
+
+		Assertions.assertThat(timer).isNotNull();
+		Assertions.assertThat(timer.count()).isEqualTo(2);
+
+	}
+
+}
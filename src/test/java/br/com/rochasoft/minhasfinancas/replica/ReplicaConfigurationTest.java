@@ -0,0 +1,109 @@
+package br.com.rochasoft.minhasfinancas.replica;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.rochasoft.minhasfinancas.config.ReplicaConfiguration.PoolsConexao;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Recorrencia;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.enums.Periodicidade;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import br.com.rochasoft.minhasfinancas.service.LancamentoService;
+import br.com.rochasoft.minhasfinancas.service.RecorrenciaService;
+
+// teste de integração do roteamento: a "réplica" é o mesmo banco h2 acessado por um usuário que só pode consultar,
+// então uma gravação enviada para a réplica falha
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;INIT=CREATE SCHEMA IF NOT EXISTS financas",
+		                       "minhasfinancas.replica.url=jdbc:h2:mem:replica",
+		                       "minhasfinancas.replica.username=leitor",
+		                       "minhasfinancas.replica.password=leitor",
+		                       "minhasfinancas.replica.consulta-atraso=select 0" })
+public class ReplicaConfigurationTest
+{
+
+	@Autowired
+	PoolsConexao poolsConexao;
+
+	@Autowired
+	MonitorReplica monitorReplica;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	RecorrenciaService recorrenciaService;
+
+	@BeforeEach
+	public void setUp()
+	{
+
+		JdbcTemplate principal = new JdbcTemplate(poolsConexao.getPrincipal());
+		principal.execute("create user if not exists leitor password 'leitor'");
+		principal.execute("grant select on schema financas to leitor");
+
+		monitorReplica.verificar();
+
+		Assertions.assertThat(monitorReplica.isDisponivel()).isTrue();
+
+	}
+
+	@Test
+	@DisplayName("Deve gravar no principal depois de uma leitura na réplica na mesma requisição")
+	public void deveGravarNoPrincipalDepoisDeLerNaReplica()
+	{
+
+		// cenário
+		Usuario usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento modelo = LancamentoRepositoryTest.criarLancamento();
+		modelo.setUsuario(usuario);
+		modelo = lancamentoService.salvar(modelo);
+
+		Long id = recorrenciaService.criar(modelo, Periodicidade.MENSAL, 1, null, null).getId();
+
+		// execução: como DELETE /api/recorrencias/{id}, com a sessão aberta durante a requisição inteira (open-in-view)
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+
+		try
+		{
+			Recorrencia recorrencia = recorrenciaService.obterPorId(id).get();
+			recorrenciaService.encerrar(recorrencia);
+		}
+		finally
+		{
+			TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+			entityManager.close();
+		}
+
+		// verificação
+		Boolean ativa = new JdbcTemplate(poolsConexao.getPrincipal()).queryForObject("select ativa from financas.recorrencia where id = ?", Boolean.class, id);
+		Assertions.assertThat(ativa).isFalse();
+
+	}
+
+}
@@ -0,0 +1,121 @@
+package br.com.rochasoft.minhasfinancas.replica;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.rochasoft.minhasfinancas.config.WebConfiguration;
+import br.com.rochasoft.minhasfinancas.replica.RoteamentoDataSource.Destino;
+
+public class RoteamentoDataSourceTest
+{
+
+	MonitorReplica monitor = Mockito.mock(MonitorReplica.class);
+
+	RoteamentoDataSource roteamento = new RoteamentoDataSource(monitor);
+
+	@BeforeEach
+	public void setUp()
+	{
+		Mockito.when(monitor.isDisponivel()).thenReturn(true);
+	}
+
+	@AfterEach
+	public void limpar()
+	{
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		ContextoRoteamento.limpar();
+	}
+
+	@Test
+	@DisplayName("Deve enviar apenas as transações somente leitura para a réplica")
+	public void deveEnviarLeiturasParaReplica()
+	{
+
+		Assertions.assertThat(roteamento.obterDestino()).isEqualTo(Destino.PRINCIPAL);
+
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		Assertions.assertThat(roteamento.obterDestino()).isEqualTo(Destino.REPLICA);
+
+	}
+
+	@Test
+	@DisplayName("Deve ler do principal depois de uma gravação do cliente")
+	public void deveLerDoPrincipalQuandoExigido()
+	{
+
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		ContextoRoteamento.exigirPrincipal();
+
+		Assertions.assertThat(roteamento.obterDestino()).isEqualTo(Destino.PRINCIPAL);
+
+	}
+
+	@Test
+	@DisplayName("Deve ler do principal na thread que escreve a resposta em streaming depois de uma gravação do cliente")
+	public void deveLerDoPrincipalNaRespostaAssincrona() throws Exception
+	{
+
+		// cenário: o executor das respostas assíncronas, com uma única thread reaproveitada pelas duas tarefas
+		WebConfiguration configuracao = new WebConfiguration();
+		ReflectionTestUtils.setField(configuracao, "threadsRespostasAssincronas", 1);
+		ReflectionTestUtils.setField(configuracao, "filaRespostasAssincronas", 10);
+
+		ThreadPoolTaskExecutor executor = configuracao.executorRespostasAssincronas();
+		executor.initialize();
+
+		Callable<Destino> leitura = () -> 
+		{
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+			try
+			{
+				return roteamento.obterDestino();
+			}
+			finally
+			{
+				TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+			}
+		};
+
+		try
+		{
+			// execução e verificação: a exigência vale para a tarefa enviada com ela, e não fica na thread para a próxima
+			ContextoRoteamento.exigirPrincipal();
+			Future<Destino> comExigencia = executor.submit(leitura);
+			ContextoRoteamento.limpar();
+
+			Assertions.assertThat(comExigencia.get(5, TimeUnit.SECONDS)).isEqualTo(Destino.PRINCIPAL);
+			Assertions.assertThat(executor.submit(leitura).get(5, TimeUnit.SECONDS)).isEqualTo(Destino.REPLICA);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+	}
+
+	@Test
+	@DisplayName("Deve ler do principal quando a réplica estiver atrasada")
+	public void deveLerDoPrincipalComReplicaAtrasada()
+	{
+
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		Mockito.when(monitor.isDisponivel()).thenReturn(false);
+
+		Assertions.assertThat(roteamento.obterDestino()).isEqualTo(Destino.PRINCIPAL);
+
+	}
+
+}
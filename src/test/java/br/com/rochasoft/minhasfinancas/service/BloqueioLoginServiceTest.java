@@ -0,0 +1,49 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.rochasoft.minhasfinancas.service.impl.BloqueioLoginServiceImpl;
+
+public class BloqueioLoginServiceTest
+{
+
+	BloqueioLoginService service = new BloqueioLoginServiceImpl(3, 15);
+
+	@Test
+	@DisplayName("Deve bloquear o e-mail ao atingir o limite de falhas")
+	public void deveBloquearAoAtingirLimiteDeFalhas()
+	{
+
+		// execução
+		service.registrarFalha("usuario@email.com");
+		service.registrarFalha("usuario@email.com");
+
+		Assertions.assertThat(service.estaBloqueado("usuario@email.com")).isFalse();
+
+		service.registrarFalha("USUARIO@email.com ");
+
+		// verificação
+		Assertions.assertThat(service.estaBloqueado("usuario@email.com")).isTrue();
+		Assertions.assertThat(service.estaBloqueado("outro@email.com")).isFalse();
+
+	}
+
+	@Test
+	@DisplayName("Deve zerar as falhas após uma autenticação com sucesso")
+	public void deveZerarFalhasAposSucesso()
+	{
+
+		// execução
+		service.registrarFalha("usuario@email.com");
+		service.registrarFalha("usuario@email.com");
+		service.registrarSucesso("usuario@email.com");
+		service.registrarFalha("usuario@email.com");
+
+		// verificação
+		Assertions.assertThat(service.estaBloqueado("usuario@email.com")).isFalse();
+
+	}
+
+}
@@ -0,0 +1,223 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.Categoria;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.TotalCategoria;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import br.com.rochasoft.minhasfinancas.service.impl.CategoriaServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.CotacaoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.LancamentoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.SaldoUsuarioServiceImpl;
+
+// teste de integração: árvore de categorias, filtros da busca e totais mantidos em 'resumo_categoria'
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ LancamentoServiceImpl.class, SaldoUsuarioServiceImpl.class, CotacaoServiceImpl.class, CategoriaServiceImpl.class })
+public class CategoriaServiceTest
+{
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	CategoriaService service;
+
+	@Autowired
+	TestEntityManager entityManager;
+
+	@Test
+	@DisplayName("Deve somar os totais das subcategorias nas categorias acima delas")
+	public void deveManterTotaisPorCategoria()
+	{
+
+		// cenário: alimentação > mercado e alimentação > restaurante
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Categoria alimentacao = service.salvar(criarCategoria(usuario, "alimentação", null));
+		Categoria mercado     = service.salvar(criarCategoria(usuario, "mercado", alimentacao.getId()));
+		Categoria restaurante = service.salvar(criarCategoria(usuario, "restaurante", alimentacao.getId()));
+
+		Lancamento compra = lancamentoService.salvar(criarLancamento(usuario, mercado.getId(), 100));
+		Lancamento jantar = lancamentoService.salvar(criarLancamento(usuario, restaurante.getId(), 50));
+		lancamentoService.salvar(criarLancamento(usuario, alimentacao.getId(), 10));
+		lancamentoService.salvar(criarLancamento(usuario, null, 999));
+
+		// execução
+		jantar.setValor(BigDecimal.valueOf(70));
+		lancamentoService.atualizar(jantar);
+		lancamentoService.deletar(compra);
+		lancamentoService.salvar(criarLancamento(usuario, mercado.getId(), 30));
+
+		List<TotalCategoria> totais = service.obterTotais(usuario.getId(), 2019, 2019, StatusLancamento.PENDENTE);
+
+		// verificação: os totais vêm na ordem das categorias por nome
+		Assertions.assertThat(totais).extracting(TotalCategoria::getIdCategoria).containsExactly(alimentacao.getId(), mercado.getId(), restaurante.getId());
+
+		Assertions.assertThat(totais.get(0).getValor()).isEqualByComparingTo(BigDecimal.valueOf(10));
+		Assertions.assertThat(totais.get(0).getQuantidade()).isEqualTo(1l);
+		Assertions.assertThat(totais.get(0).getValorComSubcategorias()).isEqualByComparingTo(BigDecimal.valueOf(110));
+		Assertions.assertThat(totais.get(0).getQuantidadeComSubcategorias()).isEqualTo(3l);
+
+		Assertions.assertThat(totais.get(1).getValorComSubcategorias()).isEqualByComparingTo(BigDecimal.valueOf(30));
+		Assertions.assertThat(totais.get(2).getValor()).isEqualByComparingTo(BigDecimal.valueOf(70));
+
+		Assertions.assertThat(service.obterTotais(usuario.getId(), 2019, 2019, StatusLancamento.EFETIVADO)).isEmpty();
+
+	}
+
+	@Test
+	@DisplayName("Deve buscar lançamentos pela categoria com as subcategorias e pela etiqueta")
+	public void deveBuscarPorCategoriaEEtiqueta()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Categoria moradia = service.salvar(criarCategoria(usuario, "moradia", null));
+		Categoria energia = service.salvar(criarCategoria(usuario, "energia", moradia.getId()));
+		Categoria lazer   = service.salvar(criarCategoria(usuario, "lazer", null));
+
+		Lancamento aluguel = criarLancamento(usuario, moradia.getId(), 1000);
+		aluguel.getTags().add("fixo");
+		aluguel = lancamentoService.salvar(aluguel);
+
+		Lancamento luz = criarLancamento(usuario, energia.getId(), 200);
+		luz.getTags().add("fixo");
+		luz.getTags().add("conta");
+		luz = lancamentoService.salvar(luz);
+
+		Lancamento cinema = lancamentoService.salvar(criarLancamento(usuario, lazer.getId(), 40));
+		entityManager.flush();
+
+		// execução e verificação
+		Assertions.assertThat(buscar(usuario, moradia.getId(), null)).containsExactlyInAnyOrder(aluguel.getId(), luz.getId());
+		Assertions.assertThat(buscar(usuario, energia.getId(), null)).containsExactly(luz.getId());
+		Assertions.assertThat(buscar(usuario, null, "fixo")).containsExactlyInAnyOrder(aluguel.getId(), luz.getId());
+		Assertions.assertThat(buscar(usuario, moradia.getId(), "conta")).containsExactly(luz.getId());
+		Assertions.assertThat(buscar(usuario, null, null)).containsExactlyInAnyOrder(aluguel.getId(), luz.getId(), cinema.getId());
+
+		// a listagem retorna todas as etiquetas do lançamento, não apenas a filtrada
+		Lancamento filtro = new Lancamento();
+		filtro.setUsuario(usuario);
+		filtro.setTags(Collections.singleton("conta"));
+		Assertions.assertThat(lancamentoService.buscar(filtro).get(0).getTags()).containsExactlyInAnyOrder("fixo", "conta");
+		Assertions.assertThat(lancamentoService.obterTags(Collections.singletonList(cinema.getId()))).isEmpty();
+
+	}
+
+	@Test
+	@DisplayName("Deve validar a categoria pai e impedir ciclos na árvore de categorias")
+	public void deveValidarArvoreDeCategorias()
+	{
+
+		// cenário
+		Usuario usuario 	 = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Usuario outroUsuario = entityManager.persist(Usuario.builder().nome("outro").email("outro@email.com").build());
+
+		Categoria pai   = service.salvar(criarCategoria(usuario, "pai", null));
+		Categoria filha = service.salvar(criarCategoria(usuario, "filha", pai.getId()));
+		Categoria outra = service.salvar(criarCategoria(outroUsuario, "outra", null));
+
+		// execução e verificação
+		Assertions.assertThatThrownBy( () -> service.salvar(criarCategoria(usuario, "x", outra.getId())) )
+					.isInstanceOf(RegraNegocioException.class)
+					.hasMessage("Categoria pai não encontrada.");
+
+		pai.setIdCategoriaPai(filha.getId());
+
+		Assertions.assertThatThrownBy( () -> service.atualizar(pai) )
+					.isInstanceOf(RegraNegocioException.class)
+					.hasMessage("A categoria não pode ser subcategoria dela mesma.");
+
+		Lancamento lancamento = criarLancamento(usuario, outra.getId(), 10);
+
+		Assertions.assertThatThrownBy( () -> lancamentoService.salvar(lancamento) )
+					.isInstanceOf(RegraNegocioException.class)
+					.hasMessage("Categoria não encontrada.");
+
+	}
+
+	@Test
+	@DisplayName("Deve impedir a exclusão de categoria com subcategorias ou lançamentos")
+	public void deveImpedirExclusaoDeCategoriaEmUso()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Categoria pai   = service.salvar(criarCategoria(usuario, "pai", null));
+		Categoria filha = service.salvar(criarCategoria(usuario, "filha", pai.getId()));
+
+		Lancamento lancamento = lancamentoService.salvar(criarLancamento(usuario, filha.getId(), 10));
+		entityManager.flush();
+
+		// execução e verificação
+		Assertions.assertThatThrownBy( () -> service.excluir(pai) ).hasMessage("A categoria possui subcategorias.");
+		Assertions.assertThatThrownBy( () -> service.excluir(filha) ).hasMessage("A categoria possui lançamentos.");
+
+		lancamentoService.deletar(lancamento);
+		service.excluir(filha);
+		service.excluir(pai);
+
+		Assertions.assertThat(service.buscarPorUsuario(usuario.getId())).isEmpty();
+		Assertions.assertThat(service.obterTotais(usuario.getId(), 2019, 2019, StatusLancamento.PENDENTE)).isEmpty();
+
+	}
+
+	private List<Long> buscar(Usuario usuario, Long idCategoria, String tag)
+	{
+
+		Lancamento filtro = new Lancamento();
+		filtro.setUsuario(usuario);
+		filtro.setIdCategoria(idCategoria);
+		filtro.setTags(tag != null ? Collections.singleton(tag) : Collections.emptySet());
+
+		return lancamentoService.buscar(filtro).stream().map(DadosLancamento::getId).collect(Collectors.toList());
+
+	}
+
+	private Categoria criarCategoria(Usuario usuario, String nome, Long idCategoriaPai)
+	{
+		return Categoria.builder().usuario(usuario).nome(nome).idCategoriaPai(idCategoriaPai).build();
+	}
+
+	private Lancamento criarLancamento(Usuario usuario, Long idCategoria, int valor)
+	{
+
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setTipo(TipoLancamento.DESPESA);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+		lancamento.setIdCategoria(idCategoria);
+
+		return lancamento;
+
+	}
+
+}
@@ -0,0 +1,89 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.service.impl.CotacaoServiceImpl;
+
+public class CotacaoServiceTest
+{
+
+	@TempDir
+	Path diretorio;
+
+	CotacaoServiceImpl service;
+
+	@BeforeEach
+	public void carregarCotacoes() throws IOException
+	{
+
+		Path arquivo = diretorio.resolve("cotacoes.csv");
+
+		Files.write(arquivo, Arrays.asList("# comentário",
+				                           "moeda;ano;mes;cotacao",
+				                           "USD;2020;1;4,00",
+				                           "USD;2020;3;5.00",
+				                           "EUR;2020;2;6.00"), StandardCharsets.UTF_8);
+
+		service = new CotacaoServiceImpl(new DefaultResourceLoader(), arquivo.toUri().toString());
+		service.carregar();
+
+	}
+
+	@Test
+	@DisplayName("Deve converter pela cotação do mês, repetindo a anterior nos meses sem cotação")
+	public void deveConverterPelaCotacaoDoMes()
+	{
+
+		Assertions.assertThat(service.converter(BigDecimal.TEN, "USD", "BRL", 2020, 1)).isEqualByComparingTo("40.00");
+		Assertions.assertThat(service.converter(BigDecimal.TEN, "USD", "BRL", 2020, 2)).isEqualByComparingTo("40.00");
+		Assertions.assertThat(service.converter(BigDecimal.TEN, "USD", "BRL", 2020, 3)).isEqualByComparingTo("50.00");
+		Assertions.assertThat(service.converter(BigDecimal.valueOf(100), "BRL", "USD", 2020, 3)).isEqualByComparingTo("20.00");
+
+		// moedas sem a referência: USD -> BRL -> EUR
+		Assertions.assertThat(service.converter(BigDecimal.valueOf(30), "USD", "EUR", 2020, 3)).isEqualByComparingTo("25.00");
+		Assertions.assertThat(service.obterTaxa("USD", "EUR", 2020, 3)).isEqualByComparingTo("0.8333333333");
+
+	}
+
+	@Test
+	@DisplayName("Deve utilizar a cotação mais próxima fora do período do arquivo")
+	public void deveUtilizarCotacaoMaisProximaForaDoPeriodo()
+	{
+
+		Assertions.assertThat(service.converter(BigDecimal.ONE, "USD", "BRL", 2019, 6)).isEqualByComparingTo("4.00");
+		Assertions.assertThat(service.converter(BigDecimal.ONE, "USD", "BRL", 2030, 1)).isEqualByComparingTo("5.00");
+
+		// o euro começa em fevereiro: janeiro utiliza a primeira cotação dele
+		Assertions.assertThat(service.converter(BigDecimal.ONE, "EUR", "BRL", 2020, 1)).isEqualByComparingTo("6.00");
+
+	}
+
+	@Test
+	@DisplayName("Deve recusar moedas sem cotação")
+	public void deveRecusarMoedaSemCotacao()
+	{
+
+		service.validarMoeda("BRL");
+		service.validarMoeda("EUR");
+
+		Assertions.assertThatThrownBy(() -> service.validarMoeda("GBP")).isInstanceOf(RegraNegocioException.class);
+		Assertions.assertThatThrownBy(() -> service.validarMoeda("usd")).isInstanceOf(RegraNegocioException.class);
+		Assertions.assertThatThrownBy(() -> service.validarMoeda(null)).isInstanceOf(RegraNegocioException.class);
+		Assertions.assertThatThrownBy(() -> service.converter(BigDecimal.ONE, "GBP", "BRL", 2020, 1)).isInstanceOf(RegraNegocioException.class);
+
+	}
+
+}
@@ -0,0 +1,191 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import br.com.rochasoft.minhasfinancas.model.entity.EventoLancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.enums.SituacaoEvento;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import br.com.rochasoft.minhasfinancas.model.repository.EventoLancamentoRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import br.com.rochasoft.minhasfinancas.service.event.ConsumidorEventosLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.com.rochasoft.minhasfinancas.service.event.NotificacaoLancamento;
+import br.com.rochasoft.minhasfinancas.service.impl.EventosLancamentoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.CategoriaServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.CotacaoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.LancamentoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.SaldoUsuarioServiceImpl;
+
+// teste de integração da caixa de saída: grava lançamentos pelo service e entrega os eventos a um consumidor local
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ LancamentoServiceImpl.class, SaldoUsuarioServiceImpl.class, CotacaoServiceImpl.class, CategoriaServiceImpl.class, EventosLancamentoServiceImpl.class, EventosLancamentoServiceTest.ConsumidorTeste.class })
+public class EventosLancamentoServiceTest
+{
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	EventosLancamentoService service;
+
+	@Autowired
+	EventoLancamentoRepository repository;
+
+	@Autowired
+	ConsumidorTeste consumidor;
+
+	@Autowired
+	TestEntityManager entityManager;
+
+	@BeforeEach
+	public void setUp()
+	{
+		consumidor.recebidos.clear();
+		consumidor.falhas = 0;
+	}
+
+	@Test
+	@DisplayName("Deve entregar os eventos gravados junto com os lançamentos, na ordem")
+	public void deveEntregarEventosDosLancamentos()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento = lancamentoService.salvar(lancamento);
+		entityManager.flush();
+		lancamentoService.atualizarStatus(lancamento, StatusLancamento.EFETIVADO);
+		lancamentoService.deletar(lancamento);
+
+		Assertions.assertThat(repository.countBySituacao(SituacaoEvento.PENDENTE)).isEqualTo(3);
+
+		// execução
+		int entregues = service.despachar();
+
+		// verificação
+		Assertions.assertThat(entregues).isEqualTo(3);
+		Assertions.assertThat(consumidor.recebidos).extracting(NotificacaoLancamento::getOperacao)
+		                                           .containsExactly(NotificacaoLancamento.INCLUSAO, NotificacaoLancamento.STATUS, NotificacaoLancamento.EXCLUSAO);
+		Assertions.assertThat(repository.countBySituacao(SituacaoEvento.PROCESSADO)).isEqualTo(3);
+
+		// nada mais a entregar
+		Assertions.assertThat(service.despachar()).isZero();
+
+	}
+
+	@Test
+	@DisplayName("Deve entregar de novo, após a espera, o evento que falhou")
+	public void deveRepetirEntregaComFalha()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamentoService.salvar(lancamento);
+
+		consumidor.falhas = 1;
+
+		// execução: a primeira entrega falha e o evento aguarda a próxima tentativa
+		Assertions.assertThat(service.despachar()).isZero();
+
+		EventoLancamento evento = repository.findAll().get(0);
+		Assertions.assertThat(evento.getSituacao()).isEqualTo(SituacaoEvento.PENDENTE);
+		Assertions.assertThat(evento.getTentativas()).isEqualTo(1);
+		Assertions.assertThat(evento.getErro()).contains("falha simulada");
+		Assertions.assertThat(evento.getProximaTentativa()).isAfter(LocalDateTime.now());
+		Assertions.assertThat(service.despachar()).isZero();
+
+		// fim da espera
+		evento.setProximaTentativa(LocalDateTime.now().minusSeconds(1));
+		entityManager.flush();
+
+		// verificação
+		Assertions.assertThat(service.despachar()).isEqualTo(1);
+		Assertions.assertThat(repository.findById(evento.getId()).get().getSituacao()).isEqualTo(SituacaoEvento.PROCESSADO);
+
+	}
+
+	@Test
+	@DisplayName("Não deve gravar nem despachar eventos sem consumidores registrados")
+	public void naoDeveUtilizarCaixaDeSaidaSemConsumidores()
+	{
+
+		// cenário
+		EventoLancamentoRepository repositorio = Mockito.mock(EventoLancamentoRepository.class);
+
+		EventosLancamentoServiceImpl semConsumidores = new EventosLancamentoServiceImpl(repositorio, 
+				                                                                        Collections.emptyList(), 
+				                                                                        Mockito.mock(PlatformTransactionManager.class), 
+				                                                                        Mockito.mock(ObjectProvider.class), 
+				                                                                        100, 7);
+
+		Usuario usuario = Usuario.builder().id(1l).build();
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setId(1l);
+		lancamento.setUsuario(usuario);
+
+		// execução
+		semConsumidores.aoAlterarLancamentos(LancamentoAlteradoEvent.de(null, SituacaoLancamento.de(lancamento)));
+
+		// verificação
+		Assertions.assertThat(semConsumidores.despachar()).isZero();
+		Mockito.verifyNoInteractions(repositorio);
+
+	}
+
+	// consumidor local, sem broker: guarda os eventos recebidos e falha as primeiras 'falhas' entregas
+	static class ConsumidorTeste implements ConsumidorEventosLancamento
+	{
+
+		List<NotificacaoLancamento> recebidos = new ArrayList<>();
+		int falhas;
+
+		@Override
+		public void processar(Long idEvento, NotificacaoLancamento notificacao)
+		{
+
+			if (falhas > 0)
+			{
+				falhas--;
+				throw new IllegalStateException("falha simulada");
+			}
+
+			recebidos.add(notificacao);
+
+		}
+
+	}
+
+}
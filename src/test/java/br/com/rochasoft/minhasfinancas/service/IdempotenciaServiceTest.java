@@ -0,0 +1,122 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.rochasoft.minhasfinancas.api.dto.UsuarioDTO;
+import br.com.rochasoft.minhasfinancas.model.repository.RequisicaoIdempotenteRepository;
+import br.com.rochasoft.minhasfinancas.service.impl.IdempotenciaServiceImpl;
+
+// teste de integração: a reserva e a resposta são gravadas em transações próprias, então o teste não abre uma transação
+// cada teste usa chaves novas, já que as linhas gravadas não são desfeitas ao final
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdempotenciaServiceTest
+{
+
+	@Autowired
+	RequisicaoIdempotenteRepository repository;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	IdempotenciaService service;
+
+	@BeforeEach
+	public void setUp()
+	{
+		service = new IdempotenciaServiceImpl(repository, new ObjectMapper(), transactionManager, 24, 100);
+	}
+
+	@Test
+	@DisplayName("Deve devolver a resposta da primeira execução nas repetições com a mesma chave")
+	public void deveRepetirRespostaSemExecutarNovamente()
+	{
+
+		// cenário
+		String chave = UUID.randomUUID().toString();
+		UsuarioDTO dto = UsuarioDTO.builder().nome("usuario").email("usuario@email.com").build();
+		AtomicInteger execucoes = new AtomicInteger();
+
+		// execução
+		ResponseEntity primeira = service.executar("usuarios", chave, dto, () -> ResponseEntity.status(HttpStatus.CREATED).body(execucoes.incrementAndGet()));
+		ResponseEntity repetida = service.executar("usuarios", chave, dto, () -> ResponseEntity.status(HttpStatus.CREATED).body(execucoes.incrementAndGet()));
+
+		// a resposta também é devolvida a partir da tabela (outra instância, sem a memória da primeira)
+		IdempotenciaService outraInstancia = new IdempotenciaServiceImpl(repository, new ObjectMapper(), transactionManager, 24, 100);
+		ResponseEntity doBanco = outraInstancia.executar("usuarios", chave, dto, () -> ResponseEntity.status(HttpStatus.CREATED).body(execucoes.incrementAndGet()));
+
+		// verificação
+		Assertions.assertThat(execucoes.get()).isEqualTo(1);
+		Assertions.assertThat(primeira.getBody()).isEqualTo(1);
+		Assertions.assertThat(repetida.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		Assertions.assertThat(repetida.getBody()).isEqualTo("1");
+		Assertions.assertThat(repetida.getHeaders().getFirst(IdempotenciaService.CABECALHO_REPETICAO)).isEqualTo("true");
+		Assertions.assertThat(doBanco.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		Assertions.assertThat(doBanco.getBody()).isEqualTo("1");
+
+		// a mesma chave com outro conteúdo não é uma repetição
+		dto.setNome("outro");
+		ResponseEntity outroConteudo = service.executar("usuarios", chave, dto, () -> ResponseEntity.ok(execucoes.incrementAndGet()));
+		Assertions.assertThat(outroConteudo.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+		Assertions.assertThat(execucoes.get()).isEqualTo(1);
+
+	}
+
+	@Test
+	@DisplayName("Não deve executar a requisição com a chave em andamento e deve liberar a chave após um erro")
+	public void naoDeveExecutarComChaveEmAndamento()
+	{
+
+		// cenário
+		String chave = UUID.randomUUID().toString();
+		UsuarioDTO dto = UsuarioDTO.builder().nome("usuario").build();
+		AtomicInteger execucoes = new AtomicInteger();
+
+		// execução: a segunda requisição chega enquanto a primeira ainda executa
+		ResponseEntity[] concorrente = new ResponseEntity[1];
+
+		service.executar("lancamentos", chave, dto, () ->
+		{
+			concorrente[0] = service.executar("lancamentos", chave, dto, () -> ResponseEntity.ok(execucoes.incrementAndGet()));
+			return ResponseEntity.ok(execucoes.incrementAndGet());
+		});
+
+		// verificação
+		Assertions.assertThat(concorrente[0].getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+		Assertions.assertThat(execucoes.get()).isEqualTo(1);
+
+		// erro na execução: a chave é liberada e a repetição executa
+		String outraChave = UUID.randomUUID().toString();
+
+		Throwable erro = Assertions.catchThrowable( () -> service.executar("lancamentos", outraChave, dto, () -> { throw new IllegalStateException("falha"); }) );
+		ResponseEntity repetida = service.executar("lancamentos", outraChave, dto, () -> ResponseEntity.ok(execucoes.incrementAndGet()));
+
+		Assertions.assertThat(erro).isInstanceOf(IllegalStateException.class);
+		Assertions.assertThat(repetida.getBody()).isEqualTo(2);
+
+	}
+
+}
@@ -0,0 +1,168 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.rochasoft.minhasfinancas.config.ReativoConfiguration;
+import br.com.rochasoft.minhasfinancas.model.entity.Categoria;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.SaldoUsuario;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
+import br.com.rochasoft.minhasfinancas.model.repository.CategoriaRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import br.com.rochasoft.minhasfinancas.model.repository.SaldoUsuarioRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import br.com.rochasoft.minhasfinancas.service.impl.CategoriaServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.CotacaoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.LancamentoReativoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.SaldoUsuarioServiceImpl;
+
+// teste de integração: o r2dbc usa conexões próprias (o mesmo banco h2 em memória) e só enxerga dados gravados,
+// então o teste não abre uma transação e exclui as linhas ao final
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "minhasfinancas.reativo.url=r2dbc:h2:mem:///db?options=DB_CLOSE_DELAY=-1")
+@Import({ ReativoConfiguration.class, LancamentoReativoServiceImpl.class, SaldoUsuarioServiceImpl.class, CotacaoServiceImpl.class, CategoriaServiceImpl.class })
+public class LancamentoReativoServiceTest
+{
+
+	@Autowired
+	LancamentoReativoService service;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	CategoriaRepository categoriaRepository;
+
+	@Autowired
+	SaldoUsuarioRepository saldoUsuarioRepository;
+
+	@AfterEach
+	public void tearDown()
+	{
+		lancamentoRepository.deleteAll();
+		categoriaRepository.deleteAll();
+		saldoUsuarioRepository.deleteAll();
+		usuarioRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("Deve buscar os lançamentos com os mesmos filtros da busca bloqueante")
+	public void deveBuscarLancamentosComFiltros()
+	{
+
+		// cenário
+		Usuario usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+		Categoria casa  = categoriaRepository.save(Categoria.builder().usuario(usuario).nome("casa").build());
+		Categoria luz   = categoriaRepository.save(Categoria.builder().usuario(usuario).nome("luz").idCategoriaPai(casa.getId()).build());
+
+		Lancamento conta = criarLancamento(usuario, "Conta de luz", 2);
+		conta.setIdCategoria(luz.getId());
+		conta.setTags(Collections.singleton("fixa"));
+		conta = lancamentoRepository.save(conta);
+		Lancamento salario = lancamentoRepository.save(criarLancamento(usuario, "Salário", 1));
+		Lancamento anterior = criarLancamento(usuario, "Salário de 2018", 1);
+		anterior.setAno(2018);
+		lancamentoRepository.save(anterior);
+
+		// execução e verificação: ordenados por ano, mês e id
+		Assertions.assertThat(buscar(filtro(usuario)))
+				.extracting(DadosLancamento::getId)
+				.containsExactly(salario.getId(), conta.getId());
+
+		// a categoria inclui as subcategorias
+		Lancamento porCategoria = filtro(usuario);
+		porCategoria.setIdCategoria(casa.getId());
+		List<DadosLancamento> lancamentos = buscar(porCategoria);
+		Assertions.assertThat(lancamentos).extracting(DadosLancamento::getId).containsExactly(conta.getId());
+		Assertions.assertThat(lancamentos.get(0).getValor()).isEqualByComparingTo(BigDecimal.valueOf(10));
+		Assertions.assertThat(lancamentos.get(0).getVersao()).isEqualTo(conta.getVersao());
+		Assertions.assertThat(lancamentos.get(0).getTags()).containsExactly("fixa");
+
+		Lancamento porDescricaoETag = filtro(usuario);
+		porDescricaoETag.setDescricao("LUZ");
+		porDescricaoETag.setTags(Collections.singleton("fixa"));
+		Assertions.assertThat(buscar(porDescricaoETag)).extracting(DadosLancamento::getId).containsExactly(conta.getId());
+
+		Lancamento porMes = filtro(usuario);
+		porMes.setMes(3);
+		Assertions.assertThat(buscar(porMes)).isEmpty();
+
+	}
+
+	@Test
+	@DisplayName("Deve obter o saldo registrado ou calculado e não retornar saldo de usuário inexistente")
+	public void deveObterSaldo()
+	{
+
+		// cenário
+		Usuario usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+
+		// execução e verificação: sem saldo registrado, calculado a partir dos lançamentos (nenhum efetivado)
+		Assertions.assertThat(service.obterSaldo(usuario.getId()).block()).isEqualByComparingTo(BigDecimal.ZERO);
+
+		saldoUsuarioRepository.save(SaldoUsuario.builder().idUsuario(usuario.getId()).valor(BigDecimal.valueOf(70)).build());
+		Assertions.assertThat(service.obterSaldo(usuario.getId()).block()).isEqualByComparingTo(BigDecimal.valueOf(70));
+
+		Assertions.assertThat(service.obterSaldo(999999l).blockOptional()).isEmpty();
+		Assertions.assertThat(service.existeUsuario(usuario.getId()).block()).isTrue();
+		Assertions.assertThat(service.existeUsuario(999999l).block()).isFalse();
+
+	}
+
+	private List<DadosLancamento> buscar(Lancamento filtro)
+	{
+		return service.buscar(filtro).collectList().block();
+	}
+
+	private Lancamento filtro(Usuario usuario)
+	{
+
+		Lancamento filtro = new Lancamento();
+		filtro.setUsuario(usuario);
+		filtro.setAno(2019);
+
+		return filtro;
+
+	}
+
+	private Lancamento criarLancamento(Usuario usuario, String descricao, int mes)
+	{
+
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setDescricao(descricao);
+		lancamento.setMes(mes);
+
+		return lancamento;
+
+	}
+
+}
@@ -2,6 +2,7 @@ package br.com.rochasoft.minhasfinancas.service;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +14,6 @@ import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
-import org.springframework.data.domain.Example;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -21,6 +21,7 @@ import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
 import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
 import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
 import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.DadosLancamento;
 import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepository;
 import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryTest;
 import br.com.rochasoft.minhasfinancas.service.impl.LancamentoServiceImpl;
@@ -36,6 +37,15 @@ public class LancamentoServiceTest
 	@MockBean
 	LancamentoRepository repository; 	// instancia fake
 	
+	@MockBean
+	SaldoUsuarioService saldoUsuarioService;
+	
+	@MockBean
+	CotacaoService cotacaoService;
+	
+	@MockBean
+	CategoriaService categoriaService;
+	
 	@Test
 	@DisplayName("deve gravar um lançamento")
 	public void deveSalvarUmLancamento()
@@ -58,6 +68,31 @@ public class LancamentoServiceTest
 		Assertions.assertThat(lancamento.getStatus()).isEqualTo(StatusLancamento.PENDENTE);			
 	}
 	
+	@Test
+	@DisplayName("deve gravar um lote de lançamentos como pendentes em uma única chamada ao repositório")
+	public void deveSalvarUmLoteDeLancamentos()
+	{
+		
+		// cenário
+		List<Lancamento> lote = Arrays.asList(LancamentoRepositoryTest.criarLancamento(), LancamentoRepositoryTest.criarLancamento());
+		lote.forEach( lancamento -> 
+		{
+			lancamento.setStatus(StatusLancamento.EFETIVADO);
+			Mockito.doNothing().when(service).validar(lancamento);
+		});
+		
+		Mockito.when(repository.saveAll(lote)).thenReturn(lote);
+		
+		// execução
+		List<Lancamento> salvos = service.salvarLote(lote);
+		
+		// verificação
+		Assertions.assertThat(salvos).hasSize(2).allMatch( lancamento -> lancamento.getStatus() == StatusLancamento.PENDENTE );
+		Mockito.verify(repository, Mockito.times(1)).saveAll(lote);
+		Mockito.verify(repository, Mockito.never()).save(Mockito.any(Lancamento.class));
+		
+	}
+	
 	@Test
 	@DisplayName("não pode gravar um lançamento quando houver erro de validação")
 	public void naoDeveSalvarUmLancamentoQuandoHouverErroValidacao()
@@ -87,13 +122,13 @@ public class LancamentoServiceTest
 		
 		Mockito.doNothing().when(service).validar(lancamentoSalvo);
 		
-		Mockito.when(repository.save(lancamentoSalvo)).thenReturn(lancamentoSalvo);
+		Mockito.when(repository.saveAndFlush(lancamentoSalvo)).thenReturn(lancamentoSalvo);
 		
 		// execução
 		service.atualizar(lancamentoSalvo);
 		
 		// verificação
-		Mockito.verify(repository, Mockito.times(1)).save(lancamentoSalvo);
+		Mockito.verify(repository, Mockito.times(1)).saveAndFlush(lancamentoSalvo);
 		
 	}	
 	
@@ -155,20 +190,24 @@ public class LancamentoServiceTest
 		// cenário
 		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
 		lancamento.setId(1l);
+		lancamento.setUsuario(Usuario.builder().id(1l).build());
+		
+		DadosLancamento dados = new DadosLancamento(1l, lancamento.getDescricao(), lancamento.getMes(), lancamento.getAno(), 
+				                                    lancamento.getValor(), 1l, lancamento.getTipo(), lancamento.getStatus(), lancamento.getMoeda(), null, 0l);
 		
-		List<Lancamento> lista = Arrays.asList(lancamento);
-		// quando executar o findall, retorna a lista com o lançamento definido
-		Mockito.when(repository.findAll(Mockito.any(Example.class))).thenReturn(lista);
+		List<DadosLancamento> lista = Arrays.asList(dados);
+		// quando executar a busca do usuário, retorna a lista com o lançamento definido
+		Mockito.when(repository.buscar(1l, lancamento.getAno(), lancamento.getAno(), lancamento.getMes(), "%teste%", true, Collections.singletonList(-1l), null)).thenReturn(lista);
 		
 		// execução
-		List<Lancamento> resultado = service.buscar(lancamento);
+		List<DadosLancamento> resultado = service.buscar(lancamento);
 		
 		// verificação
 		Assertions
 		.assertThat(resultado)
 		.isNotEmpty()
 		.hasSize(1)
-		.contains(lancamento);
+		.contains(dados.withTags(Collections.emptySet())); // sem etiquetas gravadas, a lista de etiquetas vem vazia
 		
 	}
 	
@@ -235,6 +274,23 @@ public class LancamentoServiceTest
 		
 	}
 	
+	@Test
+	@DisplayName("Deve obter o saldo do usuário a partir do saldo registrado")
+	public void deveObterSaldoDoUsuarioAPartirDoSaldoRegistrado()
+	{
+		
+		// cenário
+		Mockito.when(saldoUsuarioService.obterSaldo(1l)).thenReturn(BigDecimal.valueOf(150));
+		
+		// execução 
+		BigDecimal saldo = service.obterSaldoPorUsuario(1l);
+		
+		// verificação (não soma os lançamentos)
+		Assertions.assertThat(saldo).isEqualByComparingTo(BigDecimal.valueOf(150));
+		Mockito.verify(repository, Mockito.never()).obterSaldoPorTipoLancamentoEUsuarioEStatus(Mockito.any(), Mockito.any(), Mockito.any());
+		
+	}
+	
 	@Test
 	@DisplayName("deve gerar erro ao validar lançamento")
 	public void deveGerarErrosAoValidarLancamento()
@@ -253,6 +309,11 @@ public class LancamentoServiceTest
 		
 		erro = Assertions.catchThrowableOfType( () -> service.validar(lancamento), RegraNegocioException.class);
 		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe uma Descrição válida.");
+		
+		lancamento.setDescricao(String.join("", Collections.nCopies(101, "x")));
+		
+		erro = Assertions.catchThrowableOfType( () -> service.validar(lancamento), RegraNegocioException.class);
+		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe uma Descrição de até 100 caracteres.");
 						
 		lancamento.setDescricao("salario");
 
@@ -293,8 +354,18 @@ public class LancamentoServiceTest
 		
 		erro = Assertions.catchThrowableOfType( () -> service.validar(lancamento), RegraNegocioException.class);
 		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um Valor válido.");
+		
+		lancamento.setValor(new BigDecimal("10.005"));
+		
+		erro = Assertions.catchThrowableOfType( () -> service.validar(lancamento), RegraNegocioException.class);
+		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um Valor com até 14 dígitos e 2 casas decimais.");
+		
+		lancamento.setValor(new BigDecimal("100000000000000"));
+		
+		erro = Assertions.catchThrowableOfType( () -> service.validar(lancamento), RegraNegocioException.class);
+		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um Valor com até 14 dígitos e 2 casas decimais.");
 			
-		lancamento.setValor(BigDecimal.valueOf(50));
+		lancamento.setValor(new BigDecimal("50.500"));
 
 		erro = Assertions.catchThrowableOfType( () -> service.validar(lancamento), RegraNegocioException.class);
 		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um Tipo de lançamento.");
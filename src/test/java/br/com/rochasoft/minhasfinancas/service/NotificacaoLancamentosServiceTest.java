@@ -0,0 +1,219 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.rochasoft.minhasfinancas.api.resource.LancamentoResource;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.AlteracaoLancamento;
+import br.com.rochasoft.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.com.rochasoft.minhasfinancas.service.impl.NotificacaoLancamentosServiceImpl;
+
+public class NotificacaoLancamentosServiceTest
+{
+
+	NotificacaoLancamentosServiceImpl service = new NotificacaoLancamentosServiceImpl();
+
+	@AfterEach
+	public void encerrar()
+	{
+		service.encerrar();
+	}
+
+	@Test
+	@DisplayName("Deve enviar as alterações de lançamentos apenas aos clientes inscritos no usuário")
+	public void deveEnviarAlteracoesAosInscritosDoUsuario() throws Exception
+	{
+
+		// cenário
+		UsuarioService usuarioService = Mockito.mock(UsuarioService.class);
+		Mockito.when(usuarioService.obterPorId(Mockito.anyLong())).thenReturn(Optional.of(Usuario.builder().id(1l).build()));
+
+		MockMvc mvc = MockMvcBuilders.standaloneSetup(new LancamentoResource(Mockito.mock(LancamentoService.class),
+				                                                              usuarioService,
+				                                                              Mockito.mock(ResumoMensalService.class),
+				                                                              Mockito.mock(VersaoLancamentosService.class),
+				                                                              service,
+				                                                              Mockito.mock(CotacaoService.class),
+				                                                              Mockito.mock(OrcamentoService.class),
+				                                                              Mockito.mock(IdempotenciaService.class),
+				                                                              new ObjectMapper()))
+				                     .build();
+
+		MvcResult usuario1 = mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos/eventos").param("usuario", "1")).andReturn();
+		MvcResult usuario2 = mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos/eventos").param("usuario", "2")).andReturn();
+
+		SituacaoLancamento pendente  = new SituacaoLancamento(10l, 1l, 2020, 1, TipoLancamento.RECEITA, StatusLancamento.PENDENTE, BigDecimal.TEN, "BRL", "BRL", null);
+		SituacaoLancamento efetivado = pendente.comStatus(StatusLancamento.EFETIVADO);
+
+		// execução
+		service.aoAlterarLancamentos(new LancamentoAlteradoEvent(Arrays.asList(new AlteracaoLancamento(null, pendente),
+				                                                               new AlteracaoLancamento(pendente, efetivado))));
+
+		// verificação: o envio é feito por outra thread
+		String conteudo = aguardarConteudo(usuario1, "STATUS");
+
+		Assertions.assertThat(usuario1.getRequest().isAsyncStarted()).isTrue();
+		Assertions.assertThat(conteudo).contains("event:lancamento");
+		Assertions.assertThat(conteudo.indexOf("INCLUSAO")).isLessThan(conteudo.indexOf("STATUS"));
+		Assertions.assertThat(usuario2.getResponse().getContentAsString()).doesNotContain("lancamento");
+
+	}
+
+	@Test
+	@DisplayName("Deve descartar o cliente com o envio bloqueado e continuar enviando aos demais")
+	public void deveDescartarClienteComEnvioBloqueado() throws Exception
+	{
+
+		// cenário: dois clientes que param de ler (um para cada thread de envio) e um cliente que acompanha os eventos
+		CountDownLatch liberar    = new CountDownLatch(1);
+		CountDownLatch bloqueados = new CountDownLatch(2);
+		CountDownLatch recebido   = new CountDownLatch(1);
+
+		EmitterBloqueado[] presos = { new EmitterBloqueado(bloqueados, liberar), new EmitterBloqueado(bloqueados, liberar) };
+
+		service.encerrar();
+		service = new NotificacaoLancamentosServiceImpl(100)
+		{
+			int inscricoes = 0;
+
+			@Override
+			protected SseEmitter criarEmitter(long tempoConexao)
+			{
+				return inscricoes++ < presos.length ? presos[inscricoes - 1] : new SseEmitter(tempoConexao)
+				{
+					@Override
+					public void send(SseEventBuilder evento)
+					{
+						recebido.countDown();
+					}
+				};
+			}
+		};
+
+		service.inscrever(1l);
+		service.inscrever(2l);
+		service.inscrever(3l);
+
+		try
+		{
+
+			// execução: o envio aos dois primeiros não retorna e o terceiro fica na fila do pool
+			service.manterConexoes();
+
+			Assertions.assertThat(bloqueados.await(5, TimeUnit.SECONDS)).isTrue();
+			Assertions.assertThat(recebido.getCount()).isEqualTo(1);
+
+			Thread.sleep(200);
+			service.verificarEnvios();
+
+			// verificação: o terceiro recebe o evento sem esperar os envios bloqueados, que são descartados
+			Assertions.assertThat(recebido.await(5, TimeUnit.SECONDS)).isTrue();
+
+			service.manterConexoes();
+			Assertions.assertThat(presos[0].envios).isEqualTo(1);
+			Assertions.assertThat(presos[1].envios).isEqualTo(1);
+
+		}
+		finally
+		{
+			liberar.countDown();
+		}
+
+		// a conexão é encerrada pela thread do envio quando ele finalmente termina
+		for (int tentativa = 0; tentativa < 100 && !(presos[0].completado.get() && presos[1].completado.get()); tentativa++)
+		{
+			Thread.sleep(50);
+		}
+
+		Assertions.assertThat(presos[0].completado).isTrue();
+		Assertions.assertThat(presos[1].completado).isTrue();
+
+	}
+
+	// envio que só retorna quando o teste libera, como uma escrita em um socket que o cliente parou de ler
+	// (o 'synchronized' bloqueia o emitter durante o envio, como o ResponseBodyEmitter)
+	private static class EmitterBloqueado extends SseEmitter
+	{
+
+		private final CountDownLatch bloqueados;
+		private final CountDownLatch liberar;
+		private final AtomicBoolean  completado = new AtomicBoolean();
+		private volatile int 		 envios;
+
+		EmitterBloqueado(CountDownLatch bloqueados, CountDownLatch liberar)
+		{
+			this.bloqueados = bloqueados;
+			this.liberar    = liberar;
+		}
+
+		@Override
+		public synchronized void send(SseEventBuilder evento) throws IOException
+		{
+
+			envios++;
+			bloqueados.countDown();
+
+			try
+			{
+				liberar.await();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+		}
+
+		@Override
+		public synchronized void complete()
+		{
+			completado.set(true);
+			super.complete();
+		}
+
+	}
+
+	private String aguardarConteudo(MvcResult resultado, String esperado) throws Exception
+	{
+
+		for (int tentativa = 0; tentativa < 100; tentativa++)
+		{
+
+			String conteudo = resultado.getResponse().getContentAsString();
+
+			if (conteudo.contains(esperado))
+			{
+				return conteudo;
+			}
+
+			Thread.sleep(50);
+
+		}
+
+		return resultado.getResponse().getContentAsString();
+
+	}
+
+}
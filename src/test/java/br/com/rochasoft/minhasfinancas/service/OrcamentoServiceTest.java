@@ -0,0 +1,157 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.Categoria;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Orcamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoOrcamento;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import br.com.rochasoft.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.com.rochasoft.minhasfinancas.service.impl.CategoriaServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.CotacaoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.LancamentoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.OrcamentoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.SaldoUsuarioServiceImpl;
+
+// teste de integração: carga dos gastos a partir do resumo por categoria e atualização dos contadores em memória
+// a transação do teste não é confirmada, então o commit é simulado chamando o listener diretamente
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ LancamentoServiceImpl.class, SaldoUsuarioServiceImpl.class, CotacaoServiceImpl.class, CategoriaServiceImpl.class, OrcamentoServiceImpl.class })
+public class OrcamentoServiceTest
+{
+
+	private static final int ANO = LocalDate.now().getYear();
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	CategoriaService categoriaService;
+
+	@Autowired
+	OrcamentoServiceImpl service;
+
+	@Autowired
+	TestEntityManager entityManager;
+
+	@Test
+	@DisplayName("Deve carregar os gastos do mês e avisar quando uma despesa passar do limite")
+	public void deveAvisarQuandoDespesaPassarDoLimite()
+	{
+
+		// cenário: 300 gastos de um limite de 500; despesas canceladas e receitas não contam
+		Usuario   usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Categoria mercado = categoriaService.salvar(Categoria.builder().usuario(usuario).nome("mercado").build());
+
+		service.salvar(Orcamento.builder().usuario(usuario).idCategoria(mercado.getId()).valor(BigDecimal.valueOf(500)).build());
+
+		lancamentoService.salvar(criarLancamento(usuario, mercado, TipoLancamento.DESPESA, 300));
+		lancamentoService.salvar(criarLancamento(usuario, mercado, TipoLancamento.RECEITA, 1000));
+		Lancamento cancelada = lancamentoService.salvar(criarLancamento(usuario, mercado, TipoLancamento.DESPESA, 900));
+		entityManager.flush(); // a situação anterior é lida do banco: o lançamento precisa estar gravado, como depois do commit do salvar
+		lancamentoService.atualizarStatus(cancelada, StatusLancamento.CANCELADO);
+		entityManager.flush();
+
+		service.recarregar();
+
+		List<SituacaoOrcamento> orcamentos = service.buscar(usuario.getId(), ANO, 1);
+
+		Assertions.assertThat(orcamentos).hasSize(1);
+		Assertions.assertThat(orcamentos.get(0).getGasto()).isEqualByComparingTo(BigDecimal.valueOf(300));
+		Assertions.assertThat(orcamentos.get(0).getDisponivel()).isEqualByComparingTo(BigDecimal.valueOf(200));
+
+		// execução: despesa que passa do limite
+		Lancamento compra = lancamentoService.salvar(criarLancamento(usuario, mercado, TipoLancamento.DESPESA, 250));
+		aoConfirmar(null, compra);
+
+		Optional<SituacaoOrcamento> aviso = service.verificarLimite(compra);
+
+		// verificação
+		Assertions.assertThat(aviso).isPresent();
+		Assertions.assertThat(aviso.get().getGasto()).isEqualByComparingTo(BigDecimal.valueOf(550));
+		Assertions.assertThat(aviso.get().getLimite()).isEqualByComparingTo(BigDecimal.valueOf(500));
+
+		// o cancelamento da compra devolve o valor ao orçamento
+		SituacaoLancamento anterior = SituacaoLancamento.de(compra);
+		compra.setStatus(StatusLancamento.CANCELADO);
+		aoConfirmar(anterior, compra);
+
+		Assertions.assertThat(service.verificarLimite(compra)).isEmpty();
+		Assertions.assertThat(service.buscar(usuario.getId(), ANO, 1).get(0).getGasto()).isEqualByComparingTo(BigDecimal.valueOf(300));
+
+	}
+
+	@Test
+	@DisplayName("Deve manter um único orçamento por categoria do usuário")
+	public void deveManterUmOrcamentoPorCategoria()
+	{
+
+		// cenário
+		Usuario   usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Categoria lazer   = categoriaService.salvar(Categoria.builder().usuario(usuario).nome("lazer").build());
+
+		Orcamento primeiro = service.salvar(Orcamento.builder().usuario(usuario).idCategoria(lazer.getId()).valor(BigDecimal.valueOf(100)).build());
+
+		// execução
+		Orcamento segundo = service.salvar(Orcamento.builder().usuario(usuario).idCategoria(lazer.getId()).valor(BigDecimal.valueOf(150)).build());
+
+		// verificação
+		Assertions.assertThat(segundo.getId()).isEqualTo(primeiro.getId());
+		List<SituacaoOrcamento> orcamentos = service.buscar(usuario.getId(), ANO, 1);
+
+		Assertions.assertThat(orcamentos).hasSize(1);
+		Assertions.assertThat(orcamentos.get(0).getLimite()).isEqualByComparingTo(BigDecimal.valueOf(150));
+
+		Assertions.assertThatThrownBy( () -> categoriaService.excluir(lazer) )
+					.isInstanceOf(RegraNegocioException.class)
+					.hasMessage("A categoria possui orçamento.");
+
+	}
+
+	private void aoConfirmar(SituacaoLancamento anterior, Lancamento atual)
+	{
+		service.aoAlterarLancamentos(LancamentoAlteradoEvent.de(anterior, SituacaoLancamento.de(atual)));
+	}
+
+	private Lancamento criarLancamento(Usuario usuario, Categoria categoria, TipoLancamento tipo, int valor)
+	{
+
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setIdCategoria(categoria.getId());
+		lancamento.setTipo(tipo);
+		lancamento.setAno(ANO);
+		lancamento.setMes(1);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+
+		return lancamento;
+
+	}
+
+}
@@ -0,0 +1,63 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import br.com.rochasoft.minhasfinancas.service.impl.ParticaoLancamentoServiceImpl;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import(ParticaoLancamentoServiceImpl.class)
+public class ParticaoLancamentoServiceTest
+{
+
+	@Autowired
+	ParticaoLancamentoService service;
+
+	@Test
+	@DisplayName("Deve criar apenas as partições que faltam do ano atual até os anos futuros")
+	public void deveCriarParticoesQueFaltam()
+	{
+
+		Set<Integer> existentes = new HashSet<>(Arrays.asList(2019, 2020, 2021));
+
+		Assertions.assertThat(ParticaoLancamentoServiceImpl.anosParaCriar(existentes, 2021, 2)).containsExactly(2022, 2023);
+		Assertions.assertThat(ParticaoLancamentoServiceImpl.anosParaCriar(existentes, 2019, 1)).isEmpty();
+
+	}
+
+	@Test
+	@DisplayName("Deve arquivar apenas as partições mais antigas que o limite")
+	public void deveArquivarParticoesAntigas()
+	{
+
+		Set<Integer> existentes = new HashSet<>(Arrays.asList(2021, 2010, 2011, 2012));
+
+		Assertions.assertThat(ParticaoLancamentoServiceImpl.anosParaArquivar(existentes, 2021, 10)).containsExactly(2010);
+
+	}
+
+	@Test
+	@DisplayName("Não deve fazer nada quando a tabela de lançamentos não é particionada")
+	public void naoDeveAlterarTabelaSemParticoes()
+	{
+		// o h2 dos testes não tem a tabela particionada
+		Assertions.assertThatCode( () -> service.manterParticoes() ).doesNotThrowAnyException();
+	}
+
+}
@@ -0,0 +1,247 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.PersistenceException;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Recorrencia;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.enums.Periodicidade;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import br.com.rochasoft.minhasfinancas.service.impl.CategoriaServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.CotacaoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.LancamentoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.RecorrenciaServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.SaldoUsuarioServiceImpl;
+
+// teste de integração: cria recorrências e confere os lançamentos gerados em 'financas.lancamento'
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ LancamentoServiceImpl.class, SaldoUsuarioServiceImpl.class, CotacaoServiceImpl.class, CategoriaServiceImpl.class, RecorrenciaServiceImpl.class })
+public class RecorrenciaServiceTest
+{
+
+	@Autowired
+	RecorrenciaService service;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	TestEntityManager entityManager;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Test
+	@DisplayName("Deve gerar as ocorrências mensais até a data final e encerrar a recorrência")
+	public void deveGerarOcorrenciasAteDataFinal()
+	{
+
+		// cenário: modelo em janeiro, última ocorrência em abril
+		Lancamento modelo = criarModelo(2021, 1);
+		Recorrencia recorrencia = service.criar(modelo, Periodicidade.MENSAL, 1, 2021, 4);
+
+		// execução
+		int geradas = service.gerarOcorrencias(YearMonth.of(2021, 6));
+
+		// verificação
+		Assertions.assertThat(geradas).isEqualTo(3);
+		Assertions.assertThat(obterMeses(recorrencia)).containsExactly(1, 2, 3, 4);
+		Assertions.assertThat(service.obterPorId(recorrencia.getId()).get().getAtiva()).isFalse();
+
+	}
+
+	@Test
+	@DisplayName("Não deve gerar de novo as ocorrências já geradas")
+	public void naoDeveDuplicarOcorrencias()
+	{
+
+		// cenário: a cada dois meses, sem data final
+		Lancamento modelo = criarModelo(2021, 1);
+		Recorrencia recorrencia = service.criar(modelo, Periodicidade.MENSAL, 2, null, null);
+
+		// execução e verificação
+		Assertions.assertThat(service.gerarOcorrencias(YearMonth.of(2021, 5))).isEqualTo(2);
+		Assertions.assertThat(service.gerarOcorrencias(YearMonth.of(2021, 5))).isZero();
+		Assertions.assertThat(service.gerarOcorrencias(YearMonth.of(2021, 7))).isEqualTo(1);
+
+		Assertions.assertThat(obterMeses(recorrencia)).containsExactly(1, 3, 5, 7);
+
+	}
+
+	@Test
+	@DisplayName("Não deve gravar duas ocorrências da mesma recorrência no mesmo mês")
+	public void naoDeveGravarOcorrenciaDuplicada()
+	{
+
+		// cenário
+		Lancamento modelo = criarModelo(2021, 1);
+		Recorrencia recorrencia = service.criar(modelo, Periodicidade.ANUAL, 1, null, null);
+
+		Lancamento duplicado = LancamentoRepositoryTest.criarLancamento();
+		duplicado.setUsuario(modelo.getUsuario());
+		duplicado.setAno(2021);
+		duplicado.setMes(1);
+		duplicado.setIdRecorrencia(recorrencia.getId());
+
+		// execução e verificação
+		Assertions.assertThatThrownBy( () -> entityManager.persistAndFlush(duplicado) ).isInstanceOf(PersistenceException.class);
+
+	}
+
+	@Test
+	@DisplayName("Deve desvincular a ocorrência levada para outro mês e não gerar de novo um mês já gravado")
+	public void deveGerarOcorrenciasDepoisDeMudarOMes()
+	{
+
+		// cenário: ocorrência de fevereiro levada para março
+		Lancamento modelo = criarModelo(2021, 1);
+		Recorrencia recorrencia = service.criar(modelo, Periodicidade.MENSAL, 1, null, null);
+		service.gerarOcorrencias(YearMonth.of(2021, 2));
+
+		Lancamento fevereiro = entityManager.getEntityManager()
+				.createQuery("select l from Lancamento l where l.idRecorrencia = :idRecorrencia and l.mes = 2", Lancamento.class)
+				.setParameter("idRecorrencia", recorrencia.getId())
+				.getSingleResult();
+
+		Lancamento alteracoes = new Lancamento();
+		alteracoes.setMes(3);
+		lancamentoService.atualizarParcial(fevereiro.getId(), fevereiro.getVersao(), alteracoes);
+
+		// abril já gravado com o vínculo (antes do desvínculo ao mudar de mês)
+		Lancamento abril = LancamentoRepositoryTest.criarLancamento();
+		abril.setUsuario(modelo.getUsuario());
+		abril.setAno(2021);
+		abril.setMes(4);
+		abril.setIdRecorrencia(recorrencia.getId());
+		entityManager.persistAndFlush(abril);
+
+		// execução e verificação: gera apenas março
+		Assertions.assertThat(service.gerarOcorrencias(YearMonth.of(2021, 4))).isEqualTo(1);
+		Assertions.assertThat(obterMeses(recorrencia)).containsExactly(1, 3, 4);
+		Assertions.assertThat(entityManager.find(Lancamento.class, fevereiro.getId()).getIdRecorrencia()).isNull();
+
+	}
+
+	// sem a transação do teste, para que o lote com falha seja desfeito e gerado de novo recorrência por recorrência
+	// as linhas gravadas não são desfeitas ao final: as recorrências terminam encerradas e o usuário tem um e-mail único
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@DisplayName("Deve encerrar a recorrência inválida e gerar as ocorrências das demais recorrências do lote")
+	public void deveIsolarRecorrenciaInvalida()
+	{
+
+		// cenário: a primeira recorrência do lote tem uma moeda retirada do arquivo de cotações
+		TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+
+		Recorrencia[] recorrencias = transacao.execute( status -> {
+
+			Usuario usuario = UsuarioRepositoryTest.criarUsuario();
+			usuario.setEmail(UUID.randomUUID() + "@email.com");
+			entityManager.persist(usuario);
+
+			Recorrencia[] criadas = new Recorrencia[3];
+
+			for (int i = 0; i < criadas.length; i++)
+			{
+				Lancamento modelo = LancamentoRepositoryTest.criarLancamento();
+				modelo.setUsuario(usuario);
+				modelo.setAno(2021);
+				modelo.setMes(1);
+				criadas[i] = service.criar(entityManager.persistAndFlush(modelo), Periodicidade.MENSAL, 1, 2021, 3);
+			}
+
+			criadas[0].setMoeda("XYZ");
+
+			return criadas;
+
+		});
+
+		// execução
+		int geradas = service.gerarOcorrencias(YearMonth.of(2021, 3));
+
+		// verificação
+		Assertions.assertThat(geradas).isEqualTo(4);
+		Assertions.assertThat(service.obterPorId(recorrencias[0].getId()).get().getAtiva()).isFalse();
+		Assertions.assertThat(service.obterPorId(recorrencias[0].getId()).get().getProximaOcorrencia()).isEqualTo(YearMonth.of(2021, 2));
+
+		transacao.executeWithoutResult( status -> {
+			Assertions.assertThat(obterMeses(recorrencias[0])).containsExactly(1);
+			Assertions.assertThat(obterMeses(recorrencias[1])).containsExactly(1, 2, 3);
+			Assertions.assertThat(obterMeses(recorrencias[2])).containsExactly(1, 2, 3);
+		});
+
+	}
+
+	@Test
+	@DisplayName("Deve rejeitar intervalo inválido e lançamento que já pertence a uma recorrência")
+	public void deveValidarRecorrencia()
+	{
+
+		Lancamento modelo = criarModelo(2021, 1);
+
+		Assertions.assertThatThrownBy( () -> service.criar(modelo, Periodicidade.MENSAL, 0, null, null) )
+				  .isInstanceOf(RegraNegocioException.class)
+				  .hasMessage("Informe um intervalo maior que zero.");
+
+		service.criar(modelo, Periodicidade.MENSAL, 1, null, null);
+
+		Assertions.assertThatThrownBy( () -> service.criar(modelo, Periodicidade.ANUAL, 1, null, null) )
+				  .isInstanceOf(RegraNegocioException.class)
+				  .hasMessage("O lançamento já pertence a uma recorrência.");
+
+	}
+
+	private Lancamento criarModelo(int ano, int mes)
+	{
+
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento modelo = LancamentoRepositoryTest.criarLancamento();
+		modelo.setUsuario(usuario);
+		modelo.setAno(ano);
+		modelo.setMes(mes);
+
+		return entityManager.persistAndFlush(modelo);
+
+	}
+
+	private List<Integer> obterMeses(Recorrencia recorrencia)
+	{
+
+		entityManager.flush();
+		entityManager.clear();
+
+		return entityManager.getEntityManager()
+				.createQuery("select l.mes from Lancamento l where l.idRecorrencia = :idRecorrencia order by l.ano, l.mes", Integer.class)
+				.setParameter("idRecorrencia", recorrencia.getId())
+				.getResultList();
+
+	}
+
+}
@@ -0,0 +1,187 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensal;
+import br.com.rochasoft.minhasfinancas.model.entity.ResumoMensalId;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import br.com.rochasoft.minhasfinancas.service.impl.CategoriaServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.CotacaoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.LancamentoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.ResumoMensalServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.SaldoUsuarioServiceImpl;
+
+// teste de integração: grava lançamentos pelo service e confere os totais mantidos em 'resumo_mensal'
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ LancamentoServiceImpl.class, SaldoUsuarioServiceImpl.class, CotacaoServiceImpl.class, CategoriaServiceImpl.class, ResumoMensalServiceImpl.class })
+public class ResumoMensalServiceTest
+{
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	ResumoMensalService service;
+
+	@Autowired
+	TestEntityManager entityManager;
+
+	@Test
+	@DisplayName("Deve manter os totais mensais ao incluir, alterar e excluir lançamentos")
+	public void deveManterResumoAoGravarLancamentos()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento aluguel  = lancamentoService.salvar(criarLancamento(usuario, 1, TipoLancamento.DESPESA, 100));
+		Lancamento mercado  = lancamentoService.salvar(criarLancamento(usuario, 1, TipoLancamento.DESPESA, 30));
+		Lancamento salario  = lancamentoService.salvar(criarLancamento(usuario, 2, TipoLancamento.RECEITA, 500));
+
+		// execução
+		lancamentoService.atualizarStatus(salario, StatusLancamento.EFETIVADO);
+
+		mercado.setMes(2);
+		lancamentoService.atualizar(mercado);
+
+		lancamentoService.deletar(aluguel);
+
+		// verificação
+		List<ResumoMensal> resumos = buscar(usuario, 2019, 2019);
+
+		Assertions.assertThat(resumos).hasSize(2);
+
+		Assertions.assertThat(resumos.get(0).getMes()).isEqualTo(2);
+		Assertions.assertThat(resumos.get(0).getTipo()).isEqualTo(TipoLancamento.DESPESA);
+		Assertions.assertThat(resumos.get(0).getStatus()).isEqualTo(StatusLancamento.PENDENTE);
+		Assertions.assertThat(resumos.get(0).getValor()).isEqualByComparingTo(BigDecimal.valueOf(30));
+		Assertions.assertThat(resumos.get(0).getQuantidade()).isEqualTo(1l);
+
+		Assertions.assertThat(resumos.get(1).getMes()).isEqualTo(2);
+		Assertions.assertThat(resumos.get(1).getTipo()).isEqualTo(TipoLancamento.RECEITA);
+		Assertions.assertThat(resumos.get(1).getStatus()).isEqualTo(StatusLancamento.EFETIVADO);
+		Assertions.assertThat(resumos.get(1).getValor()).isEqualByComparingTo(BigDecimal.valueOf(500));
+
+		Assertions.assertThat(buscar(usuario, 2020, 2030)).isEmpty();
+
+	}
+
+	@Test
+	@DisplayName("Deve calcular o resumo a partir dos lançamentos quando ainda não existir para o mês")
+	public void deveCalcularResumoInexistente()
+	{
+
+		// cenário: lançamento gravado sem passar pelo service (ex: anterior à criação da tabela de resumo)
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento antigo = criarLancamento(usuario, 3, TipoLancamento.DESPESA, 40);
+		antigo.setStatus(StatusLancamento.PENDENTE);
+		entityManager.persist(antigo);
+
+		// execução
+		lancamentoService.salvar(criarLancamento(usuario, 3, TipoLancamento.DESPESA, 60));
+
+		// verificação
+		List<ResumoMensal> resumos = buscar(usuario, 2019, 2019);
+
+		Assertions.assertThat(resumos).hasSize(1);
+		Assertions.assertThat(resumos.get(0).getValor()).isEqualByComparingTo(BigDecimal.valueOf(100));
+		Assertions.assertThat(resumos.get(0).getQuantidade()).isEqualTo(2l);
+
+	}
+
+	@Test
+	@DisplayName("Deve recalcular com a cotação atual o resumo gravado com uma cotação antiga")
+	public void deveRecalcularResumoEmOutraMoeda()
+	{
+
+		// cenário: 100 USD a 4,02 (arquivo padrão, 2020), com o resumo gravado antes de uma alteração da cotação para 4,00
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento receita = criarLancamento(usuario, 1, TipoLancamento.RECEITA, 100);
+		receita.setMoeda("USD");
+		receita.setAno(2020);
+		lancamentoService.salvar(receita);
+		lancamentoService.salvar(criarLancamento(usuario, 1, TipoLancamento.DESPESA, 30));
+		entityManager.flush();
+
+		entityManager.getEntityManager()
+		             .createQuery("update ResumoMensal r set r.valor = 400 where r.idUsuario = :idUsuario and r.ano = 2020")
+		             .setParameter("idUsuario", usuario.getId())
+		             .executeUpdate();
+
+		ResumoMensalId chave = new ResumoMensalId(usuario.getId(), 2020, 1, TipoLancamento.RECEITA, StatusLancamento.PENDENTE);
+
+		// execução e verificação: apenas a chave em outra moeda é conferida, e só é alterada enquanto estiver divergente
+		Assertions.assertThat(service.obterChavesEmOutraMoeda()).contains(chave);
+		Assertions.assertThat(service.recalcular(chave)).isTrue();
+		Assertions.assertThat(service.recalcular(chave)).isFalse();
+
+		List<ResumoMensal> resumos = buscar(usuario, 2020, 2020);
+
+		Assertions.assertThat(resumos).hasSize(1);
+		Assertions.assertThat(resumos.get(0).getValor()).isEqualByComparingTo(BigDecimal.valueOf(402));
+		Assertions.assertThat(resumos.get(0).getQuantidade()).isEqualTo(1l);
+
+	}
+
+	@Test
+	@DisplayName("Deve lançar erro quando o ano inicial for maior que o ano final")
+	public void deveLancarErroComIntervaloInvalido()
+	{
+
+		Assertions.assertThatThrownBy( () -> service.buscar(1l, 2021, 2020) )
+				  .isInstanceOf(RegraNegocioException.class)
+				  .hasMessage("O ano inicial deve ser menor ou igual ao ano final.");
+
+	}
+
+	private List<ResumoMensal> buscar(Usuario usuario, int anoInicial, int anoFinal)
+	{
+
+		// os resumos são atualizados por 'update' direto no banco, então descarta as entidades em memória antes de ler
+		entityManager.flush();
+		entityManager.clear();
+
+		return service.buscar(usuario.getId(), anoInicial, anoFinal);
+
+	}
+
+	private Lancamento criarLancamento(Usuario usuario, int mes, TipoLancamento tipo, int valor)
+	{
+
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setAno(2019);
+		lancamento.setMes(mes);
+		lancamento.setTipo(tipo);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+
+		return lancamento;
+
+	}
+
+}
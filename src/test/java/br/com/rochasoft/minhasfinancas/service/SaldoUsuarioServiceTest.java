@@ -0,0 +1,278 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.SaldoUsuario;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.enums.StatusLancamento;
+import br.com.rochasoft.minhasfinancas.model.enums.TipoLancamento;
+import br.com.rochasoft.minhasfinancas.model.projection.SituacaoLancamento;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import br.com.rochasoft.minhasfinancas.model.repository.SaldoUsuarioRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import br.com.rochasoft.minhasfinancas.service.impl.CategoriaServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.CotacaoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.LancamentoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.SaldoUsuarioServiceImpl;
+
+// teste de integração: grava lançamentos pelo service e confere o saldo mantido em 'saldo_usuario'
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ LancamentoServiceImpl.class, SaldoUsuarioServiceImpl.class, CotacaoServiceImpl.class, CategoriaServiceImpl.class })
+public class SaldoUsuarioServiceTest
+{
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	SaldoUsuarioService service;
+
+	@Autowired
+	SaldoUsuarioRepository saldoUsuarioRepository;
+
+	@Autowired
+	TestEntityManager entityManager;
+
+	@Test
+	@DisplayName("Deve manter o saldo do usuário ao efetivar, alterar e excluir lançamentos")
+	public void deveManterSaldoAoGravarLancamentos()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento receita = lancamentoService.salvar(criarLancamento(usuario, TipoLancamento.RECEITA, 100));
+		Lancamento despesa = lancamentoService.salvar(criarLancamento(usuario, TipoLancamento.DESPESA, 30));
+
+		// lançamentos pendentes não entram no saldo
+		Assertions.assertThat(obterSaldo(usuario)).isEqualByComparingTo(BigDecimal.ZERO);
+
+		// execução e verificação
+		lancamentoService.atualizarStatus(receita, StatusLancamento.EFETIVADO);
+		lancamentoService.atualizarStatus(despesa, StatusLancamento.EFETIVADO);
+		Assertions.assertThat(obterSaldo(usuario)).isEqualByComparingTo(BigDecimal.valueOf(70));
+
+		// lidos novamente: as instâncias anteriores ficaram com a versão de antes da efetivação
+		receita = lancamentoService.obterPorId(receita.getId()).get();
+		despesa = lancamentoService.obterPorId(despesa.getId()).get();
+		despesa.setValor(BigDecimal.valueOf(50));
+		lancamentoService.atualizar(despesa);
+		Assertions.assertThat(obterSaldo(usuario)).isEqualByComparingTo(BigDecimal.valueOf(50));
+
+		lancamentoService.deletar(receita);
+		Assertions.assertThat(obterSaldo(usuario)).isEqualByComparingTo(BigDecimal.valueOf(-50));
+
+		Assertions.assertThat(service.obterUsuariosComSaldoDivergente()).isEmpty();
+
+	}
+
+	@Test
+	@DisplayName("Deve manter o saldo ao efetivar lançamentos em lote")
+	public void deveManterSaldoAoAtualizarStatusEmLote()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento receita = lancamentoService.salvar(criarLancamento(usuario, TipoLancamento.RECEITA, 100));
+		Lancamento despesa = lancamentoService.salvar(criarLancamento(usuario, TipoLancamento.DESPESA, 30));
+		Lancamento outra   = lancamentoService.salvar(criarLancamento(usuario, TipoLancamento.DESPESA, 5));
+		lancamentoService.atualizarStatus(outra, StatusLancamento.EFETIVADO);
+		entityManager.flush();
+
+		// execução
+		List<SituacaoLancamento> anteriores = lancamentoService.atualizarStatus(usuario.getId(),
+				                                                                 Arrays.asList(receita.getId(), despesa.getId(), outra.getId(), 999999l),
+				                                                                 StatusLancamento.EFETIVADO);
+
+		// verificação: o id inexistente não é retornado e o já efetivado não altera o saldo
+		Assertions.assertThat(anteriores).extracting(SituacaoLancamento::getId).containsExactlyInAnyOrder(receita.getId(), despesa.getId(), outra.getId());
+		Assertions.assertThat(obterSaldo(usuario)).isEqualByComparingTo(BigDecimal.valueOf(65));
+		Assertions.assertThat(lancamentoService.obterPorId(despesa.getId()).get().getStatus()).isEqualTo(StatusLancamento.EFETIVADO);
+
+		// pelo filtro: cancela os efetivados do mês
+		lancamentoService.atualizarStatus(usuario.getId(), 2019, 1, StatusLancamento.EFETIVADO, StatusLancamento.CANCELADO);
+		Assertions.assertThat(obterSaldo(usuario)).isEqualByComparingTo(BigDecimal.ZERO);
+
+		Assertions.assertThat(service.obterUsuariosComSaldoDivergente()).isEmpty();
+
+	}
+
+	@Test
+	@DisplayName("Deve recalcular o saldo divergente a partir dos lançamentos")
+	public void deveRecalcularSaldoDivergente()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento receita = criarLancamento(usuario, TipoLancamento.RECEITA, 100);
+		receita.setStatus(StatusLancamento.EFETIVADO);
+		entityManager.persist(receita);
+		entityManager.persist(SaldoUsuario.builder().idUsuario(usuario.getId()).valor(BigDecimal.valueOf(10)).build());
+		entityManager.flush();
+
+		// execução
+		Assertions.assertThat(service.obterUsuariosComSaldoDivergente()).containsExactly(usuario.getId());
+		BigDecimal saldo = service.recalcular(usuario.getId());
+
+		// verificação
+		Assertions.assertThat(saldo).isEqualByComparingTo(BigDecimal.valueOf(100));
+		Assertions.assertThat(service.obterUsuariosComSaldoDivergente()).isEmpty();
+
+	}
+
+	@Test
+	@DisplayName("Deve somar apenas a diferença quando o saldo já foi registrado por outra transação")
+	public void deveSomarDiferencaQuandoSaldoJaRegistrado()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		entityManager.flush();
+
+		// execução: a primeira grava o saldo calculado, a segunda (chave já existente) apenas soma o seu valor
+		saldoUsuarioRepository.inserirOuSomar(usuario.getId(), BigDecimal.valueOf(100), BigDecimal.valueOf(100));
+		saldoUsuarioRepository.inserirOuSomar(usuario.getId(), BigDecimal.valueOf(999), BigDecimal.valueOf(-30));
+
+		// verificação
+		Assertions.assertThat(obterSaldo(usuario)).isEqualByComparingTo(BigDecimal.valueOf(70));
+
+	}
+
+	@Test
+	@DisplayName("Deve manter o saldo na moeda do usuário com lançamentos em outra moeda")
+	public void deveManterSaldoNaMoedaDoUsuario()
+	{
+
+		// cenário: cotação do dólar no arquivo padrão (src/main/resources/cotacoes.csv) em 2020
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento receita = criarLancamento(usuario, TipoLancamento.RECEITA, 100);
+		receita.setMoeda("USD");
+		receita.setAno(2020);
+		lancamentoService.salvar(receita);
+		lancamentoService.salvar(criarLancamento(usuario, TipoLancamento.DESPESA, 30));
+		entityManager.flush();
+
+		// execução
+		lancamentoService.atualizarStatus(usuario.getId(), Arrays.asList(receita.getId()), StatusLancamento.EFETIVADO);
+		lancamentoService.atualizarStatus(usuario.getId(), 2019, 1, StatusLancamento.PENDENTE, StatusLancamento.EFETIVADO);
+
+		// verificação: 100 USD a 4,02 menos 30 BRL, igual ao recálculo a partir dos lançamentos
+		Assertions.assertThat(obterSaldo(usuario)).isEqualByComparingTo(BigDecimal.valueOf(372));
+		Assertions.assertThat(service.obterUsuariosComSaldoDivergente()).isEmpty();
+		Assertions.assertThat(service.recalcular(usuario.getId())).isEqualByComparingTo(BigDecimal.valueOf(372));
+
+	}
+
+	@Test
+	@DisplayName("Deve recalcular o saldo em outra moeda com o mesmo arredondamento das gravações")
+	public void deveArredondarCadaLancamentoEmOutraMoeda()
+	{
+
+		// cenário: 0,13 USD a 4,02 é 0,52 por lançamento (1,04 nos dois), enquanto a soma convertida de uma vez daria 1,05
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		List<Long> ids = new ArrayList<>();
+
+		for (int i = 0; i < 2; i++)
+		{
+			Lancamento receita = criarLancamento(usuario, TipoLancamento.RECEITA, 0);
+			receita.setValor(new BigDecimal("0.13"));
+			receita.setMoeda("USD");
+			receita.setAno(2020);
+			ids.add(lancamentoService.salvar(receita).getId());
+		}
+
+		lancamentoService.atualizarStatus(usuario.getId(), ids, StatusLancamento.EFETIVADO);
+		entityManager.flush();
+
+		// verificação: o saldo mantido a cada gravação não é considerado divergente e o recálculo chega ao mesmo valor
+		Assertions.assertThat(obterSaldo(usuario)).isEqualByComparingTo("1.04");
+		Assertions.assertThat(service.obterUsuariosComSaldoDivergente()).isEmpty();
+		Assertions.assertThat(service.recalcular(usuario.getId())).isEqualByComparingTo("1.04");
+
+	}
+
+	@Test
+	@DisplayName("Deve alterar apenas os campos informados e recusar a alteração sobre uma versão antiga")
+	public void deveAtualizarParcialmenteComVersao()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento despesa = lancamentoService.salvar(criarLancamento(usuario, TipoLancamento.DESPESA, 30));
+		lancamentoService.atualizarStatus(despesa, StatusLancamento.EFETIVADO);
+		entityManager.flush();
+		Long versao = lancamentoService.obterPorId(despesa.getId()).get().getVersao();
+
+		Lancamento alteracoes = new Lancamento();
+		alteracoes.setValor(BigDecimal.valueOf(45));
+
+		// execução
+		Lancamento alterado = lancamentoService.atualizarParcial(despesa.getId(), versao, alteracoes).get();
+
+		// verificação: os demais campos continuam como estavam e o saldo acompanha o novo valor
+		Assertions.assertThat(alterado.getVersao()).isEqualTo(versao + 1);
+		Assertions.assertThat(alterado.getDescricao()).isEqualTo(despesa.getDescricao());
+		Assertions.assertThat(alterado.getStatus()).isEqualTo(StatusLancamento.EFETIVADO);
+		Assertions.assertThat(obterSaldo(usuario)).isEqualByComparingTo(BigDecimal.valueOf(-45));
+
+		// a versão usada acima já não é a atual
+		Throwable erro = Assertions.catchThrowable( () -> lancamentoService.atualizarParcial(despesa.getId(), versao, alteracoes) );
+		Assertions.assertThat(erro).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+		// sem versão, não há verificação
+		Assertions.assertThat(lancamentoService.atualizarParcial(despesa.getId(), null, alteracoes)).isPresent();
+		Assertions.assertThat(lancamentoService.atualizarParcial(999999l, null, alteracoes)).isEmpty();
+		Assertions.assertThat(service.obterUsuariosComSaldoDivergente()).isEmpty();
+
+	}
+
+	private BigDecimal obterSaldo(Usuario usuario)
+	{
+
+		// o saldo é atualizado por 'update' direto no banco, então descarta as entidades em memória antes de ler
+		entityManager.flush();
+		entityManager.clear();
+
+		return service.obterSaldo(usuario.getId());
+
+	}
+
+	private Lancamento criarLancamento(Usuario usuario, TipoLancamento tipo, int valor)
+	{
+
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setTipo(tipo);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+
+		return lancamento;
+
+	}
+
+}
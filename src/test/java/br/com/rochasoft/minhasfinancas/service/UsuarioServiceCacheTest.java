@@ -0,0 +1,112 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import java.util.Optional;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import br.com.rochasoft.minhasfinancas.config.CacheConfiguration;
+import br.com.rochasoft.minhasfinancas.config.SenhaConfiguration;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepository;
+import br.com.rochasoft.minhasfinancas.service.impl.UsuarioServiceImpl;
+
+// sobe apenas o service de usuários com o cache habilitado (repositório fake)
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(classes = { UsuarioServiceImpl.class, CacheConfiguration.class, SenhaConfiguration.class })
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD) // cada teste começa com o cache vazio
+public class UsuarioServiceCacheTest
+{
+
+	@Autowired
+	UsuarioService service;
+
+	@Autowired
+	CacheManager cacheManager;
+
+	@MockBean
+	UsuarioRepository repository;
+
+	@MockBean
+	BloqueioLoginService bloqueioLoginService;
+
+	@MockBean
+	CotacaoService cotacaoService;
+
+	@Test
+	@DisplayName("Deve buscar o usuário no banco apenas na primeira consulta por id")
+	public void deveBuscarUsuarioNoCacheAPartirDaSegundaConsulta()
+	{
+
+		// cenário
+		Usuario usuario = Usuario.builder().id(1l).email("usuario@email.com").build();
+		Mockito.when(repository.findById(1l)).thenReturn(Optional.of(usuario));
+
+		// execução
+		service.obterPorId(1l);
+		Optional<Usuario> resultado = service.obterPorId(1l);
+
+		// verificação
+		Assertions.assertThat(resultado).contains(usuario);
+		Mockito.verify(repository, Mockito.times(1)).findById(1l);
+
+		CaffeineCache cache = (CaffeineCache) cacheManager.getCache("usuarios");
+		Assertions.assertThat(cache.getNativeCache().stats().hitCount()).isEqualTo(1);
+		Assertions.assertThat(cache.getNativeCache().stats().missCount()).isEqualTo(1);
+
+	}
+
+	@Test
+	@DisplayName("Não deve guardar no cache a consulta de usuário inexistente")
+	public void naoDeveGuardarUsuarioInexistenteNoCache()
+	{
+
+		// cenário
+		Mockito.when(repository.findById(2l)).thenReturn(Optional.empty());
+
+		// execução
+		service.obterPorId(2l);
+		Optional<Usuario> resultado = service.obterPorId(2l);
+
+		// verificação
+		Assertions.assertThat(resultado).isEmpty();
+		Mockito.verify(repository, Mockito.times(2)).findById(2l);
+
+	}
+
+	@Test
+	@DisplayName("Deve remover o usuário do cache ao salvar")
+	public void deveRemoverUsuarioDoCacheAoSalvar()
+	{
+
+		// cenário
+		Usuario usuario = Usuario.builder().id(1l).email("usuario@email.com").build();
+		Mockito.when(repository.findById(1l)).thenReturn(Optional.of(usuario));
+		Mockito.when(repository.save(usuario)).thenReturn(usuario);
+		service.obterPorId(1l);
+
+		// execução
+		service.salvarUsuario(usuario);
+		service.obterPorId(1l);
+
+		// verificação
+		Mockito.verify(repository, Mockito.times(2)).findById(1l);
+
+	}
+
+}
@@ -7,12 +7,16 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import br.com.rochasoft.minhasfinancas.config.SenhaConfiguration;
 import br.com.rochasoft.minhasfinancas.exception.ErroAutenticacaoException;
 import br.com.rochasoft.minhasfinancas.exception.RegraNegocioException;
 import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
@@ -21,6 +25,7 @@ import br.com.rochasoft.minhasfinancas.service.impl.UsuarioServiceImpl;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test") // inclui esta diretiva para usar as definições de 'application-test.properties' nos testes, com banco h2
+@Import(SenhaConfiguration.class) // hash das senhas e executor da autenticação reais
 public class UsuarioServiceTest 
 {
 
@@ -32,6 +37,15 @@ public class UsuarioServiceTest
 	@MockBean
 	UsuarioRepository 	repository; // já cria uma instância fake
 	
+	@MockBean
+	BloqueioLoginService bloqueioLoginService;
+
+	@MockBean
+	CotacaoService cotacaoService;
+	
+	@Autowired
+	PasswordEncoder 	passwordEncoder;
+	
 	@Test
 	@DisplayName("Deve salvar um usuário")
 	public void deveSalvarUmUsuario()
@@ -61,6 +75,24 @@ public class UsuarioServiceTest
 		
 	}
 	
+	@Test
+	@DisplayName("Deve gravar o hash da senha ao salvar um usuário")
+	public void deveGravarHashDaSenhaAoSalvarUsuario()
+	{
+		
+		// cenário
+		Mockito.doNothing().when(service).validarEmail(Mockito.anyString());
+		Mockito.when(repository.save(Mockito.any(Usuario.class))).thenAnswer( invocacao -> invocacao.getArgument(0) );
+		
+		// ação
+		Usuario usuarioSalvo = service.salvarUsuario(Usuario.builder().email("usuario@email.com").senha("senha").build());
+		
+		// verificação
+		Assertions.assertThat(usuarioSalvo.getSenha()).isNotEqualTo("senha");
+		Assertions.assertThat(passwordEncoder.matches("senha", usuarioSalvo.getSenha())).isTrue();
+		
+	}
+	
 	@Test
 	@DisplayName("Não deve salvar um usuário com email já cadastrado")
 	public void naoDeveSalvarUmUsuarioComEmailJaCadastrado()
@@ -129,14 +161,52 @@ public class UsuarioServiceTest
 		String email = "email@email.com";
 		String senha = "senha";
 		
-		Usuario usuario = Usuario.builder().email(email).senha(senha).id(1l).build();
+		Usuario usuario = Usuario.builder().email(email).senha(passwordEncoder.encode(senha)).id(1l).build();
 		Mockito.when(repository.findByEmail(email)).thenReturn(Optional.of(usuario));
 		
 		// ação
-		Usuario result = service.autenticar(email, senha);
+		Usuario result = service.autenticar(email, senha).join();
 		
 		// verificação
 		Assertions.assertThat(result).isNotNull();
+		Mockito.verify(bloqueioLoginService).registrarSucesso(email);
+		
+	}
+	
+	@Test
+	@DisplayName("Deve gravar o hash da senha ao autenticar um usuário com senha sem hash")
+	public void deveGravarHashAoAutenticarUsuarioComSenhaSemHash()
+	{
+		
+		// cenário
+		String email = "email@email.com";
+		
+		Usuario usuario = Usuario.builder().email(email).senha("senha").id(1l).build();
+		Mockito.when(repository.findByEmail(email)).thenReturn(Optional.of(usuario));
+		
+		// ação
+		Usuario result = service.autenticar(email, "senha").join();
+		
+		// verificação
+		Assertions.assertThat(passwordEncoder.matches("senha", result.getSenha())).isTrue();
+		Mockito.verify(repository).atualizarSenha(Mockito.eq(1l), Mockito.eq(email), Mockito.eq(result.getSenha()));
+		
+	}
+	
+	@Test
+	@DisplayName("Deve rejeitar a autenticação de um e-mail bloqueado sem consultar o banco")
+	public void deveRejeitarAutenticacaoDeEmailBloqueado()
+	{
+		
+		// cenário
+		Mockito.when(bloqueioLoginService.estaBloqueado("usuario@email.com")).thenReturn(true);
+		
+		// ação
+		Throwable exception = Assertions.catchThrowable( () -> service.autenticar("usuario@email.com", "senha").join() );
+		
+		// verificação
+		Assertions.assertThat(exception.getCause()).isInstanceOf(ErroAutenticacaoException.class);
+		Mockito.verify(repository, Mockito.never()).findByEmail(Mockito.anyString());
 		
 	}
 	
@@ -149,12 +219,13 @@ public class UsuarioServiceTest
 		Mockito.when(repository.findByEmail(Mockito.anyString())).thenReturn(Optional.empty());
 			
 		// ação
-        Throwable exception = Assertions.catchThrowable( () -> service.autenticar("usuario@email.com", "senha") );
+        Throwable exception = Assertions.catchThrowable( () -> service.autenticar("usuario@email.com", "senha").join() );
 
-        // tem que gerar erro
-        Assertions.assertThat(exception)
+        // tem que gerar erro (a autenticação é assíncrona, então o erro vem como causa)
+        Assertions.assertThat(exception.getCause())
                   .isInstanceOf(ErroAutenticacaoException.class)
                   .hasMessage("Usuário não encontrado.");
+        Mockito.verify(bloqueioLoginService).registrarFalha("usuario@email.com");
 				
 	}
 		
@@ -165,14 +236,14 @@ public class UsuarioServiceTest
 		
 		// cenário
 		String senha = "senha";
-		Usuario usuario = Usuario.builder().email("email@email.com").senha(senha).build();
+		Usuario usuario = Usuario.builder().email("email@email.com").senha(passwordEncoder.encode(senha)).build();
 		Mockito.when(repository.findByEmail(Mockito.anyString())).thenReturn(Optional.of(usuario));
 			
 		// ação
-        Throwable exception = Assertions.catchThrowable( () -> service.autenticar("usuario@email.com", "123") );
+        Throwable exception = Assertions.catchThrowable( () -> service.autenticar("usuario@email.com", "123").join() );
 
         // tem que gerar erro
-        Assertions.assertThat(exception)
+        Assertions.assertThat(exception.getCause())
                   .isInstanceOf(ErroAutenticacaoException.class)
                   .hasMessage("Senha inválida.");
         	      		
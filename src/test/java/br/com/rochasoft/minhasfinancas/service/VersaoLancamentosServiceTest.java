@@ -0,0 +1,97 @@
+package br.com.rochasoft.minhasfinancas.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import br.com.rochasoft.minhasfinancas.model.entity.Lancamento;
+import br.com.rochasoft.minhasfinancas.model.entity.Usuario;
+import br.com.rochasoft.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import br.com.rochasoft.minhasfinancas.model.repository.SaldoUsuarioRepository;
+import br.com.rochasoft.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import br.com.rochasoft.minhasfinancas.service.impl.CategoriaServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.CotacaoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.LancamentoServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.SaldoUsuarioServiceImpl;
+import br.com.rochasoft.minhasfinancas.service.impl.VersaoLancamentosServiceImpl;
+
+// teste de integração: a versão é gravada em 'saldo_usuario' junto com os lançamentos
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ LancamentoServiceImpl.class, SaldoUsuarioServiceImpl.class, CotacaoServiceImpl.class, CategoriaServiceImpl.class, VersaoLancamentosServiceImpl.class })
+public class VersaoLancamentosServiceTest
+{
+
+	@Autowired
+	VersaoLancamentosService service;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	SaldoUsuarioRepository saldoUsuarioRepository;
+
+	@Autowired
+	TestEntityManager entityManager;
+
+	@Test
+	@DisplayName("Deve alterar a versão apenas dos usuários com lançamentos alterados, mesmo sem alterar o saldo")
+	public void deveAlterarVersaoDosUsuariosAlterados()
+	{
+
+		// cenário
+		Usuario usuario1 = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Usuario usuario2 = entityManager.persist(Usuario.builder().nome("outro").email("outro@email.com").build());
+
+		String versaoUsuario1 = service.obterVersao(usuario1.getId());
+		String versaoUsuario2 = service.obterVersao(usuario2.getId());
+
+		// execução: lançamento pendente (não altera o saldo) e depois apenas a descrição
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario1);
+		lancamento = lancamentoService.salvar(lancamento);
+
+		String versaoInclusao = service.obterVersao(usuario1.getId());
+
+		Lancamento alteracoes = new Lancamento();
+		alteracoes.setDescricao("outra descrição");
+		lancamentoService.atualizarParcial(lancamento.getId(), lancamento.getVersao(), alteracoes);
+
+		// verificação
+		Assertions.assertThat(versaoInclusao).isNotEqualTo(versaoUsuario1);
+		Assertions.assertThat(service.obterVersao(usuario1.getId())).isNotEqualTo(versaoInclusao);
+		Assertions.assertThat(service.obterVersao(usuario2.getId())).isEqualTo(versaoUsuario2);
+
+	}
+
+	@Test
+	@DisplayName("Deve obter a mesma versão em outra instância da aplicação")
+	public void deveObterMesmaVersaoEmOutraInstancia()
+	{
+
+		// cenário
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamentoService.salvar(lancamento);
+
+		// execução e verificação
+		Assertions.assertThat(new VersaoLancamentosServiceImpl(saldoUsuarioRepository).obterVersao(usuario.getId()))
+				  .isEqualTo(service.obterVersao(usuario.getId()))
+				  .isNotEqualTo("0");
+
+	}
+
+}